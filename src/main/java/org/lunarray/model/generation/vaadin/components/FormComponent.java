@@ -17,6 +17,8 @@
  */
 package org.lunarray.model.generation.vaadin.components;
 
+import java.util.Map;
+
 import com.vaadin.ui.Button.ClickListener;
 import com.vaadin.ui.Component;
 
@@ -51,6 +53,13 @@ public interface FormComponent<S, E extends S>
 	 */
 	void addSubmitListener(ClickListener listener);
 
+	/**
+	 * Gets the properties changed through the form since the entity was set.
+	 * 
+	 * @return The changes, by property path.
+	 */
+	Map<String, PropertyChange<?>> getChanges();
+
 	/**
 	 * Get the entity.
 	 * 
@@ -58,6 +67,14 @@ public interface FormComponent<S, E extends S>
 	 */
 	E getEntity();
 
+	/**
+	 * Tests if properties were changed through the form since the entity was
+	 * set.
+	 * 
+	 * @return True if and only if properties were changed.
+	 */
+	boolean isDirty();
+
 	/**
 	 * Process begin.
 	 * 
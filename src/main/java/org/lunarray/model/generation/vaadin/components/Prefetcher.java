@@ -0,0 +1,48 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Warms the relations of a batch of entities before they are rendered. A
+ * table hands every page it loads to the prefetcher, together with the
+ * relation paths its columns read, so that a backend with lazily loaded
+ * relations may fetch them in one go rather than once per row.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public interface Prefetcher<E>
+		extends Serializable {
+
+	/**
+	 * Prefetches the relations of entities.
+	 * 
+	 * @param entities
+	 *            The entities. Never null or empty.
+	 * @param paths
+	 *            The relation paths, being a relation property name
+	 *            optionally followed by a dot and the name of the display
+	 *            property of the related entity. Never null or empty.
+	 */
+	void prefetch(List<E> entities, Collection<String> paths);
+}
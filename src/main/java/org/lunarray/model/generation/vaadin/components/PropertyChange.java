@@ -0,0 +1,92 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A change of a property made through a form.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <P>
+ *            The property type.
+ */
+public final class PropertyChange<P>
+		implements Serializable {
+
+	/** Serial id. */
+	private static final long serialVersionUID = 4826107394582117623L;
+	/** The new value. */
+	private final P newValue;
+	/** The old value. */
+	private final P oldValue;
+	/** The property path. */
+	private final String path;
+
+	/**
+	 * Constructs the change.
+	 * 
+	 * @param path
+	 *            The property path, relative to the entity. May not be null.
+	 * @param oldValue
+	 *            The value before the change. May be null.
+	 * @param newValue
+	 *            The value after the change. May be null.
+	 */
+	public PropertyChange(final String path, final P oldValue, final P newValue) {
+		Validate.notNull(path, "Path may not be null.");
+		this.path = path;
+		this.oldValue = oldValue;
+		this.newValue = newValue;
+	}
+
+	/**
+	 * Gets the value for the newValue field.
+	 * 
+	 * @return The value for the newValue field.
+	 */
+	public P getNewValue() {
+		return this.newValue;
+	}
+
+	/**
+	 * Gets the value for the oldValue field.
+	 * 
+	 * @return The value for the oldValue field.
+	 */
+	public P getOldValue() {
+		return this.oldValue;
+	}
+
+	/**
+	 * Gets the value for the path field.
+	 * 
+	 * @return The value for the path field.
+	 */
+	public String getPath() {
+		return this.path;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String toString() {
+		return String.format("PropertyChange[path=%s, oldValue=%s, newValue=%s]", this.path, this.oldValue, this.newValue);
+	}
+}
@@ -17,6 +17,11 @@
  */
 package org.lunarray.model.generation.vaadin.components;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+import com.vaadin.terminal.StreamResource;
 import com.vaadin.ui.Component;
 
 import org.lunarray.model.generation.vaadin.render.factories.table.TablePropertyRenderStrategy;
@@ -29,6 +34,87 @@ import org.lunarray.model.generation.vaadin.render.factories.table.TableProperty
 public interface TableComponent
 		extends Component {
 
+	/**
+	 * Creates a resource to download the rows as CSV. The rows are exported
+	 * as the resource is downloaded.
+	 * 
+	 * @param fileName
+	 *            The file name.
+	 * @return The resource.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the table is not attached.
+	 */
+	StreamResource createCsvResource(final String fileName);
+
+	/**
+	 * Exports the rows as CSV, streamed in chunks. The rows follow the sort
+	 * order and filter of the table, the visible columns are rendered as on
+	 * screen. Call from a thread that holds the application lock.
+	 * 
+	 * @param stream
+	 *            The stream to write to. Is not closed.
+	 * @throws IOException
+	 *             Thrown if the rows could not be written.
+	 */
+	void exportCsv(final OutputStream stream) throws IOException;
+
+	/**
+	 * Exports the rows as CSV, streamed in chunks. The rows follow the sort
+	 * order and filter of the table, the visible columns are rendered as on
+	 * screen. Call from a thread that holds the application lock.
+	 * 
+	 * @param channel
+	 *            The channel to write to. Is not closed.
+	 * @throws IOException
+	 *             Thrown if the rows could not be written.
+	 */
+	void exportCsv(final WritableByteChannel channel) throws IOException;
+
+	/**
+	 * Filters the rows on the indexed columns. Every word of the query must
+	 * start a word of one of the indexed columns of a row.
+	 * 
+	 * @param query
+	 *            The query. May be null, in which case all rows are shown.
+	 * @throws IllegalStateException
+	 *             Thrown if no columns are indexed.
+	 */
+	void filter(final String query);
+
+	/**
+	 * Invalidates all cached cells, forcing them to be converted again.
+	 */
+	void invalidateAll();
+
+	/**
+	 * Invalidates a cached cell, forcing it to be converted again.
+	 * 
+	 * @param itemId
+	 *            The item id, the entity of the row. May not be null.
+	 * @param columnId
+	 *            The column id, the property name. May not be null.
+	 */
+	void invalidateCell(final Object itemId, final String columnId);
+
+	/**
+	 * Invalidates all cached cells of a row, forcing them to be converted
+	 * again.
+	 * 
+	 * @param itemId
+	 *            The item id, the entity of the row. May not be null.
+	 */
+	void invalidateRow(final Object itemId);
+
+	/**
+	 * Tests if a property is rendered as a column. Properties that are not
+	 * rendered get no strategy at all.
+	 * 
+	 * @param propertyName
+	 *            The property name.
+	 * @return True if and only if the property is rendered.
+	 */
+	boolean isColumnRendered(final String propertyName);
+
 	/**
 	 * Process a strategy.
 	 * 
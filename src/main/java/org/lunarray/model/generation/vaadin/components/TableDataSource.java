@@ -0,0 +1,51 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A paging data source for tables. Only the requested pages are loaded.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public interface TableDataSource<E>
+		extends Serializable {
+
+	/**
+	 * Fetches a page of entities.
+	 * 
+	 * @param offset
+	 *            The index of the first entity. Not negative.
+	 * @param limit
+	 *            The maximum amount of entities to fetch. Positive.
+	 * @return The entities, at most limit. May be shorter if the end of the
+	 *         source is reached. Never null.
+	 */
+	List<E> fetch(int offset, int limit);
+
+	/**
+	 * Counts the entities.
+	 * 
+	 * @return The amount of entities.
+	 */
+	int size();
+}
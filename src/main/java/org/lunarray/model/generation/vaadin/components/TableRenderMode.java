@@ -0,0 +1,34 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components;
+
+/**
+ * How table cells are rendered.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ */
+public enum TableRenderMode {
+
+	/** Every cell is a generated component, such as a label or check box. */
+	COMPONENT,
+	/**
+	 * Cells are plain text, rendered from a shared property per column
+	 * without creating a component per cell.
+	 */
+	TEXT;
+}
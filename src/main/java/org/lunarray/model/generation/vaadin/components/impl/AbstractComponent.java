@@ -24,10 +24,15 @@ import java.util.Set;
 import com.vaadin.ui.CustomComponent;
 
 import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
 import org.lunarray.model.descriptor.model.Model;
 import org.lunarray.model.descriptor.model.entity.EntityDescriptor;
+import org.lunarray.model.generation.util.Composer;
 import org.lunarray.model.generation.util.VariableResolver;
 import org.lunarray.model.generation.vaadin.render.RenderContext;
+import org.lunarray.model.generation.vaadin.render.plan.RecordingRenderFactory;
+import org.lunarray.model.generation.vaadin.render.plan.RenderPlan;
+import org.lunarray.model.generation.vaadin.render.plan.RenderPlanCache;
 
 /**
  * The abstract base component.
@@ -148,6 +153,33 @@ public abstract class AbstractComponent<S, E extends S>
 		this.qualifier = qualifier;
 	}
 
+	/**
+	 * Resolves the render plan of the entity, composing and caching it if it
+	 * is not cached yet. Plans are shared between all components of the same
+	 * kind, entity, qualifier and locale.
+	 * 
+	 * @param operations
+	 *            Whether to compose the operations.
+	 * @return The plan.
+	 */
+	protected final RenderPlan<E> resolvePlan(final boolean operations) {
+		final RenderPlanCache cache = RenderPlanCache.getInstance(this.model);
+		final RenderPlanCache.Key key = new RenderPlanCache.Key(this.getClass().getName(), this.entityDescriptor.getName(),
+				this.qualifier, this.getLocale());
+		RenderPlan<E> result = cache.get(key);
+		if (CheckUtil.isNull(result)) {
+			final RecordingRenderFactory<E> recorder = new RecordingRenderFactory<E>();
+			final Composer<RenderContext<E>, S, E> composer = new Composer<RenderContext<E>, S, E>();
+			composer.setContext(new RenderContext<E>(this.model));
+			composer.setPropertyRenderStrategyFactory(recorder);
+			composer.setVariableResolver(new ComponentVariableResolver());
+			final String label = composer.getLabel();
+			composer.compose(operations);
+			result = cache.putIfAbsent(key, recorder.createPlan(label));
+		}
+		return result;
+	}
+
 	/**
 	 * A variable resolver.
 	 * 
@@ -0,0 +1,276 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.Application;
+import com.vaadin.data.Property.ValueChangeEvent;
+import com.vaadin.data.Property.ValueChangeListener;
+import com.vaadin.data.Validator;
+import com.vaadin.terminal.UserError;
+import com.vaadin.ui.AbstractField;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.generation.vaadin.render.factories.form.impl.property.AbstractPropertyDescriptorImpl;
+import org.lunarray.model.generation.vaadin.util.MessageUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Validates the values of a field on an executor. Every value change
+ * schedules a validation after the delay of the form, replacing the validation
+ * scheduled before. The value is copied when it changes, and only the copy is
+ * validated, without touching the state of the descriptor. Results of values
+ * that were replaced in the meantime are discarded, the other results are
+ * shown as the error of the field. Validating the field through the form, for
+ * instance on commit, completes the pending validation on the calling thread.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <S>
+ *            The entity super type.
+ * @param <E>
+ *            The entity type.
+ */
+public final class AsyncFieldValidator<S, E extends S>
+		implements Validator, ValueChangeListener, Runnable {
+
+	/** Invalid format. */
+	private static final String INVALID_VALUE = "validation.value.invalid";
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncFieldValidator.class);
+	/** Serial id. */
+	private static final long serialVersionUID = 5631870462290784133L;
+	/** The descriptor validating the values. */
+	private final AbstractPropertyDescriptorImpl<?, ?> descriptor;
+	/** The field. */
+	private final AbstractField field;
+	/** The scheduled validation, or null. */
+	private transient Future<?> future;
+	/** The generation of the latest value. */
+	private int generation;
+	/** The violation of the validated value, or null if it is valid. */
+	private String message;
+	/** The copy of the latest value. */
+	private Object pendingValue;
+	/** The generation of the validated value. */
+	private int validatedGeneration;
+	/** The asynchronous validation of the form. */
+	private AsyncValidation<S, E> validation;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param validation
+	 *            The asynchronous validation of the form. May not be null.
+	 * @param field
+	 *            The field. May not be null.
+	 * @param descriptor
+	 *            The descriptor validating the values. May not be null.
+	 */
+	protected AsyncFieldValidator(final AsyncValidation<S, E> validation, final AbstractField field,
+			final AbstractPropertyDescriptorImpl<?, ?> descriptor) {
+		Validate.notNull(validation, "Validation may not be null.");
+		Validate.notNull(field, "Field may not be null.");
+		Validate.notNull(descriptor, "Descriptor may not be null.");
+		this.validation = validation;
+		this.field = field;
+		this.descriptor = descriptor;
+	}
+
+	/**
+	 * Discards the pending validation and the error of the field.
+	 */
+	public synchronized void clear() {
+		this.cancel();
+		this.generation++;
+		this.validatedGeneration = this.generation;
+		this.pendingValue = null;
+		this.message = null;
+		this.field.setComponentError(null);
+		this.validation.updateIndicator();
+	}
+
+	/**
+	 * Completes the pending validation, if any, on the calling thread.
+	 */
+	public synchronized void flush() {
+		if (this.isPending()) {
+			this.cancel();
+			this.complete(this.generation, this.check(this.pendingValue));
+		}
+	}
+
+	/**
+	 * Gets the value for the descriptor field.
+	 * 
+	 * @return The value for the descriptor field.
+	 */
+	public AbstractPropertyDescriptorImpl<?, ?> getDescriptor() {
+		return this.descriptor;
+	}
+
+	/**
+	 * Gets the value for the field field.
+	 * 
+	 * @return The value for the field field.
+	 */
+	public AbstractField getField() {
+		return this.field;
+	}
+
+	/**
+	 * Gets the value for the message field.
+	 * 
+	 * @return The value for the message field.
+	 */
+	public synchronized String getMessage() {
+		return this.message;
+	}
+
+	/**
+	 * Gets the value for the validation field.
+	 * 
+	 * @return The value for the validation field.
+	 */
+	public AsyncValidation<S, E> getValidation() {
+		return this.validation;
+	}
+
+	/**
+	 * Tests if a validation is pending.
+	 * 
+	 * @return True if and only if the latest value is not yet validated.
+	 */
+	public synchronized boolean isPending() {
+		return this.validatedGeneration != this.generation;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized boolean isValid(final Object value) {
+		this.flush();
+		return CheckUtil.isNull(this.message);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void run() {
+		Object value;
+		int current;
+		synchronized (this) {
+			value = this.pendingValue;
+			current = this.generation;
+		}
+		final String result = this.check(value);
+		final Application application = this.validation.getFormComponent().getApplication();
+		// Detached forms complete the validation once validated.
+		if (!CheckUtil.isNull(application)) {
+			synchronized (application) {
+				if (this.validation.getFormComponent().getApplication() == application) {
+					synchronized (this) {
+						this.complete(current, result);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets a new value for the validation field.
+	 * 
+	 * @param validation
+	 *            The new value for the validation field.
+	 */
+	public void setValidation(final AsyncValidation<S, E> validation) {
+		this.validation = validation;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized void validate(final Object value) throws InvalidValueException {
+		this.flush();
+		if (!CheckUtil.isNull(this.message)) {
+			throw new InvalidValueException(this.message);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized void valueChange(final ValueChangeEvent event) {
+		this.cancel();
+		this.generation++;
+		this.pendingValue = AbstractPropertyDescriptorImpl.copyContents(this.field.getValue());
+		this.future = this.validation.getExecutor().schedule(this, this.validation.getDelay(), TimeUnit.MILLISECONDS);
+		this.validation.updateIndicator();
+	}
+
+	/**
+	 * Cancels the scheduled validation, if any.
+	 */
+	private void cancel() {
+		if (!CheckUtil.isNull(this.future)) {
+			this.future.cancel(false);
+			this.future = null;
+		}
+	}
+
+	/**
+	 * Validates a copied value. Values that can't be converted are invalid as
+	 * well.
+	 * 
+	 * @param value
+	 *            The copied value.
+	 * @return The violation, or null if the value is valid.
+	 */
+	private String check(final Object value) {
+		String result = null;
+		try {
+			result = this.descriptor.validateDetached(value);
+		} catch (final RuntimeException e) {
+			AsyncFieldValidator.LOGGER.debug("Could not validate value: {}", value, e);
+			result = MessageUtil.getMessage(AsyncFieldValidator.INVALID_VALUE);
+		}
+		return result;
+	}
+
+	/**
+	 * Applies the result of a validation, unless a newer value arrived.
+	 * 
+	 * @param validated
+	 *            The generation of the validated value.
+	 * @param result
+	 *            The violation, or null if the value is valid.
+	 */
+	private void complete(final int validated, final String result) {
+		if (validated == this.generation) {
+			this.validatedGeneration = validated;
+			this.message = result;
+			if (CheckUtil.isNull(result)) {
+				this.field.setComponentError(null);
+			} else {
+				this.field.setComponentError(new UserError(result));
+			}
+			this.validation.updateIndicator();
+		} else {
+			AsyncFieldValidator.LOGGER.debug("Discarded stale validation of field: {}", this.field);
+		}
+	}
+}
@@ -0,0 +1,237 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.io.Serializable;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.vaadin.ui.AbstractField;
+import com.vaadin.ui.Field;
+import com.vaadin.ui.ProgressIndicator;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.model.generation.vaadin.render.factories.form.impl.property.AbstractPropertyDescriptorImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Validates the fields of a form asynchronously. The fields no longer run
+ * their validators on every request, instead value changes are validated on
+ * an executor, debounced per field, and the results are shown as the errors
+ * of the fields under the application lock. As there is no server push, a
+ * polling progress indicator is shown while validations are pending, which
+ * brings the results to the client. Validating the form, for instance on
+ * commit, completes the pending validations first. Results for forms that are
+ * not attached are not applied from the executor, they stay pending until the
+ * form is validated.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <S>
+ *            The entity super type.
+ * @param <E>
+ *            The entity type.
+ */
+public final class AsyncValidation<S, E extends S>
+		implements Serializable {
+
+	/** The default delay after a value change, in milliseconds. */
+	public static final long DEFAULT_DELAY = 300L;
+	/** The polling interval while validations are pending, in milliseconds. */
+	public static final int POLLING_INTERVAL = 500;
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncValidation.class);
+	/** Serial id. */
+	private static final long serialVersionUID = -8035177145063392251L;
+	/** The delay after a value change, in milliseconds. */
+	private long delay;
+	/** The executor. */
+	private transient ScheduledExecutorService executor;
+	/** The form component. */
+	private FormComponentImpl<S, E> formComponent;
+	/** The indicator polling while validations are pending. */
+	private final ProgressIndicator indicator;
+	/** The field validators. */
+	private final List<AsyncFieldValidator<S, E>> validators;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param formComponent
+	 *            The form component. May not be null.
+	 * @param executor
+	 *            The executor to validate on. May not be null.
+	 * @param delay
+	 *            The delay after a value change, in milliseconds. May not be
+	 *            negative.
+	 */
+	protected AsyncValidation(final FormComponentImpl<S, E> formComponent, final ScheduledExecutorService executor, final long delay) {
+		Validate.notNull(formComponent, "Form may not be null.");
+		this.formComponent = formComponent;
+		this.setExecutor(executor);
+		this.setDelay(delay);
+		this.validators = new LinkedList<AsyncFieldValidator<S, E>>();
+		this.indicator = new ProgressIndicator();
+		this.indicator.setIndeterminate(true);
+		this.indicator.setPollingInterval(AsyncValidation.POLLING_INTERVAL);
+		this.indicator.setVisible(false);
+	}
+
+	/**
+	 * Discards the pending validations and the errors of the fields.
+	 */
+	public void clear() {
+		for (final AsyncFieldValidator<S, E> validator : this.validators) {
+			validator.clear();
+		}
+	}
+
+	/**
+	 * Completes the pending validations on the calling thread.
+	 */
+	public void flush() {
+		for (final AsyncFieldValidator<S, E> validator : this.validators) {
+			validator.flush();
+		}
+	}
+
+	/**
+	 * Gets the value for the delay field.
+	 * 
+	 * @return The value for the delay field.
+	 */
+	public long getDelay() {
+		return this.delay;
+	}
+
+	/**
+	 * Gets the value for the executor field.
+	 * 
+	 * @return The value for the executor field.
+	 */
+	public ScheduledExecutorService getExecutor() {
+		return this.executor;
+	}
+
+	/**
+	 * Gets the value for the formComponent field.
+	 * 
+	 * @return The value for the formComponent field.
+	 */
+	public FormComponentImpl<S, E> getFormComponent() {
+		return this.formComponent;
+	}
+
+	/**
+	 * Gets the value for the indicator field. The indicator is to be added to
+	 * the layout of the form.
+	 * 
+	 * @return The value for the indicator field.
+	 */
+	public ProgressIndicator getIndicator() {
+		return this.indicator;
+	}
+
+	/**
+	 * Gets the value for the validators field.
+	 * 
+	 * @return The value for the validators field.
+	 */
+	public List<AsyncFieldValidator<S, E>> getValidators() {
+		return this.validators;
+	}
+
+	/**
+	 * Validates a field asynchronously, instead of through the descriptor of
+	 * its values.
+	 * 
+	 * @param field
+	 *            The field. May be null, in which case nothing happens.
+	 * @param descriptor
+	 *            The descriptor validating the values of the field. May not
+	 *            be null.
+	 */
+	public void install(final Field field, final AbstractPropertyDescriptorImpl<?, ?> descriptor) {
+		Validate.notNull(descriptor, "Descriptor may not be null.");
+		if (field instanceof AbstractField) {
+			final AbstractField abstractField = (AbstractField) field;
+			final AsyncFieldValidator<S, E> validator = new AsyncFieldValidator<S, E>(this, abstractField, descriptor);
+			abstractField.removeValidator(descriptor);
+			abstractField.addValidator(validator);
+			abstractField.setValidationVisible(false);
+			abstractField.addListener(validator);
+			this.validators.add(validator);
+			AsyncValidation.LOGGER.debug("Validating field asynchronously: {}", field);
+		}
+	}
+
+	/**
+	 * Tests if any validation is pending.
+	 * 
+	 * @return True if and only if the latest value of a field is not yet
+	 *         validated.
+	 */
+	public boolean isPending() {
+		boolean result = false;
+		for (final AsyncFieldValidator<S, E> validator : this.validators) {
+			result |= validator.isPending();
+		}
+		return result;
+	}
+
+	/**
+	 * Sets a new value for the delay field.
+	 * 
+	 * @param delay
+	 *            The new value for the delay field. May not be negative.
+	 */
+	public void setDelay(final long delay) {
+		Validate.isTrue(delay >= 0, "Delay may not be negative.");
+		this.delay = delay;
+	}
+
+	/**
+	 * Sets a new value for the executor field.
+	 * 
+	 * @param executor
+	 *            The new value for the executor field. May not be null.
+	 */
+	public void setExecutor(final ScheduledExecutorService executor) {
+		Validate.notNull(executor, "Executor may not be null.");
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets a new value for the formComponent field.
+	 * 
+	 * @param formComponent
+	 *            The new value for the formComponent field.
+	 */
+	public void setFormComponent(final FormComponentImpl<S, E> formComponent) {
+		this.formComponent = formComponent;
+	}
+
+	/**
+	 * Shows the polling indicator while validations are pending, and hides it
+	 * otherwise. Must be called under the application lock.
+	 */
+	public void updateIndicator() {
+		this.indicator.setVisible(this.isPending());
+	}
+}
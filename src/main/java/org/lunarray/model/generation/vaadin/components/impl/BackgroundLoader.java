@@ -0,0 +1,239 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.model.generation.vaadin.components.TableDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads entities from a slow data source in chunks, on an executor. The
+ * loader itself is the data source of the table while loading, holding the
+ * entities loaded so far, so that the table shows the first chunk as soon
+ * as it arrives.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public final class BackgroundLoader<E>
+		implements TableDataSource<E>, Runnable {
+
+	/** The default amount of entities per chunk. */
+	public static final int DEFAULT_CHUNK_SIZE = 500;
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(BackgroundLoader.class);
+	/** Serial id. */
+	private static final long serialVersionUID = 4972519815010364658L;
+	/** Whether loading is cancelled. */
+	private volatile boolean cancelled;
+	/** The amount of entities per chunk. */
+	private final int chunkSize;
+	/** The executor. */
+	private final transient ExecutorService executor;
+	/** Whether loading is finished. */
+	private volatile boolean finished;
+	/** The listener. */
+	private final transient Listener listener;
+	/** The entities loaded so far. */
+	private final List<E> loaded;
+	/** The source to load from. */
+	private final TableDataSource<E> source;
+	/** Whether loading is started. */
+	private volatile boolean started;
+	/** The total amount of entities, negative if unknown. */
+	private volatile int total;
+
+	/**
+	 * Constructs the loader.
+	 * 
+	 * @param source
+	 *            The source to load from. May not be null.
+	 * @param chunkSize
+	 *            The amount of entities per chunk. Must be positive.
+	 * @param executor
+	 *            The executor to load on. May not be null.
+	 * @param listener
+	 *            The listener. May not be null.
+	 */
+	public BackgroundLoader(final TableDataSource<E> source, final int chunkSize, final ExecutorService executor,
+			final Listener listener) {
+		Validate.notNull(source, "Source may not be null.");
+		Validate.isTrue(chunkSize > 0, "Chunk size must be positive.");
+		Validate.notNull(executor, "Executor may not be null.");
+		Validate.notNull(listener, "Listener may not be null.");
+		this.source = source;
+		this.chunkSize = chunkSize;
+		this.executor = executor;
+		this.listener = listener;
+		this.loaded = new ArrayList<E>();
+		this.total = -1;
+	}
+
+	/**
+	 * Cancels loading, after the current chunk.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized List<E> fetch(final int offset, final int limit) {
+		Validate.isTrue(offset >= 0, "Offset may not be negative.");
+		Validate.isTrue(limit > 0, "Limit must be positive.");
+		List<E> result;
+		if (offset >= this.loaded.size()) {
+			result = Collections.emptyList();
+		} else {
+			result = new ArrayList<E>(this.loaded.subList(offset, Math.min(this.loaded.size(), offset + limit)));
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the entities loaded so far.
+	 * 
+	 * @return A copy of the loaded entities.
+	 */
+	public synchronized List<E> getLoaded() {
+		return new ArrayList<E>(this.loaded);
+	}
+
+	/**
+	 * Gets the loading progress.
+	 * 
+	 * @return The progress, between 0 and 1, or 0 if the total is unknown.
+	 */
+	public synchronized float getProgress() {
+		float result = 0f;
+		if (this.finished) {
+			result = 1f;
+		} else if (this.total > 0) {
+			result = Math.min(1f, (float) this.loaded.size() / this.total);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the value for the source field.
+	 * 
+	 * @return The value for the source field.
+	 */
+	public TableDataSource<E> getSource() {
+		return this.source;
+	}
+
+	/**
+	 * Tests if loading is cancelled.
+	 * 
+	 * @return True if and only if loading is cancelled.
+	 */
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	/**
+	 * Tests if loading is finished, either completely or cancelled.
+	 * 
+	 * @return True if and only if loading is finished.
+	 */
+	public boolean isFinished() {
+		return this.finished;
+	}
+
+	/**
+	 * Tests if loading is started.
+	 * 
+	 * @return True if and only if loading is started.
+	 */
+	public boolean isStarted() {
+		return this.started;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void run() {
+		try {
+			this.total = this.source.size();
+			int offset = 0;
+			boolean more = true;
+			while (more && !this.cancelled) {
+				final List<E> chunk = this.source.fetch(offset, this.chunkSize);
+				synchronized (this) {
+					this.loaded.addAll(chunk);
+				}
+				offset += chunk.size();
+				more = chunk.size() == this.chunkSize;
+				if (more && !this.cancelled) {
+					this.listener.chunkLoaded(this);
+				}
+			}
+			BackgroundLoader.LOGGER.debug("Loaded {} entities.", offset);
+		} catch (final RuntimeException e) {
+			BackgroundLoader.LOGGER.warn("Could not load entities.", e);
+		} finally {
+			this.finished = true;
+			this.listener.finished(this);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized int size() {
+		return this.loaded.size();
+	}
+
+	/**
+	 * Starts loading on the executor.
+	 */
+	public void start() {
+		this.started = true;
+		this.executor.execute(this);
+	}
+
+	/**
+	 * Notified as entities are loaded. Called from the loading thread.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	public interface Listener {
+
+		/**
+		 * Notifies that a chunk was loaded, and more are to come.
+		 * 
+		 * @param loader
+		 *            The loader.
+		 */
+		void chunkLoaded(BackgroundLoader<?> loader);
+
+		/**
+		 * Notifies that loading finished, completely, cancelled or failed.
+		 * 
+		 * @param loader
+		 *            The loader.
+		 */
+		void finished(BackgroundLoader<?> loader);
+	}
+}
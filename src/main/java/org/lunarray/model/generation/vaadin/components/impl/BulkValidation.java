@@ -0,0 +1,419 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.descriptor.model.entity.EntityDescriptor;
+import org.lunarray.model.descriptor.validator.EntityValidator;
+import org.lunarray.model.descriptor.validator.PropertyViolation;
+import org.lunarray.model.generation.vaadin.components.TableDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Validates all entities of a table in parallel. The entities are fetched in
+ * chunks, one fetch at a time, and validated by as many tasks as the executor
+ * runs in parallel. At most a few chunks are fetched ahead of validation,
+ * every validated chunk fetches and submits the next one, so memory stays
+ * bounded however many entities there are. The violation messages are indexed
+ * per entity, only for the entities that are invalid. The listener is notified
+ * as chunks are validated, so that the table can highlight the invalid rows
+ * found so far.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public final class BulkValidation<E>
+		implements Runnable {
+
+	/** The default amount of entities per chunk. */
+	public static final int DEFAULT_CHUNK_SIZE = 256;
+	/** The default maximum amount of chunks fetched and not yet validated. */
+	public static final int DEFAULT_MAX_CHUNKS_IN_FLIGHT = 4;
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(BulkValidation.class);
+	/** Whether validation is cancelled. */
+	private volatile boolean cancelled;
+	/** The amount of entities per chunk. */
+	private final int chunkSize;
+	/** The source of the entities. */
+	private final TableDataSource<E> dataSource;
+	/** The entity descriptor. */
+	private final EntityDescriptor<E> entityDescriptor;
+	/** Whether all entities are fetched. */
+	private boolean exhausted;
+	/** The executor. */
+	private final ExecutorService executor;
+	/** Whether validation is finished. */
+	private volatile boolean finished;
+	/** The amount of chunks fetched and not yet validated. */
+	private int inFlight;
+	/** The listener. */
+	private final Listener listener;
+	/** The maximum amount of chunks fetched and not yet validated. */
+	private final int maxInFlight;
+	/** The offset of the next chunk. */
+	private int offset;
+	/** The amount of running tasks. */
+	private final AtomicInteger pending;
+	/** The start time. */
+	private long start;
+	/** Whether validation is started. */
+	private volatile boolean started;
+	/** The total amount of entities, negative if unknown. */
+	private volatile int total;
+	/** The amount of validated entities. */
+	private final AtomicInteger validated;
+	/** The validator. */
+	private final EntityValidator validator;
+	/** The violation messages of the invalid entities. */
+	private final ConcurrentMap<Object, List<String>> violations;
+
+	/**
+	 * Constructs the validation.
+	 * 
+	 * @param dataSource
+	 *            The source of the entities. May not be null.
+	 * @param entityDescriptor
+	 *            The entity descriptor. May not be null.
+	 * @param validator
+	 *            The validator. May not be null.
+	 * @param executor
+	 *            The executor to validate on. May not be null.
+	 * @param listener
+	 *            The listener. May not be null.
+	 */
+	public BulkValidation(final TableDataSource<E> dataSource, final EntityDescriptor<E> entityDescriptor,
+			final EntityValidator validator, final ExecutorService executor, final Listener listener) {
+		Validate.notNull(dataSource, "Data source may not be null.");
+		Validate.notNull(entityDescriptor, "Entity descriptor may not be null.");
+		Validate.notNull(validator, "Validator may not be null.");
+		Validate.notNull(executor, "Executor may not be null.");
+		Validate.notNull(listener, "Listener may not be null.");
+		this.dataSource = dataSource;
+		this.entityDescriptor = entityDescriptor;
+		this.validator = validator;
+		this.executor = executor;
+		this.listener = listener;
+		this.chunkSize = BulkValidation.DEFAULT_CHUNK_SIZE;
+		this.maxInFlight = BulkValidation.DEFAULT_MAX_CHUNKS_IN_FLIGHT;
+		this.pending = new AtomicInteger(1);
+		this.validated = new AtomicInteger();
+		this.violations = new ConcurrentHashMap<Object, List<String>>();
+		this.total = -1;
+	}
+
+	/**
+	 * Cancels validation. The chunks being validated stop at the next
+	 * entity, the violations found so far remain.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	/**
+	 * Counts the invalid entities found so far.
+	 * 
+	 * @return The amount of invalid entities.
+	 */
+	public int getInvalidCount() {
+		return this.violations.size();
+	}
+
+	/**
+	 * Gets the violation messages of an entity.
+	 * 
+	 * @param entity
+	 *            The entity. May be null.
+	 * @return The messages, empty if the entity is valid or not yet
+	 *         validated.
+	 */
+	public List<String> getMessages(final Object entity) {
+		List<String> result = null;
+		if (!CheckUtil.isNull(entity)) {
+			result = this.violations.get(entity);
+		}
+		if (CheckUtil.isNull(result)) {
+			result = Collections.emptyList();
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the validation progress.
+	 * 
+	 * @return The progress, between 0 and 1, or 0 if the total is unknown.
+	 */
+	public float getProgress() {
+		float result = 0f;
+		if (this.finished) {
+			result = 1f;
+		} else if (this.total > 0) {
+			result = Math.min(1f, (float) this.validated.get() / this.total);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the value for the total field.
+	 * 
+	 * @return The value for the total field.
+	 */
+	public int getTotal() {
+		return this.total;
+	}
+
+	/**
+	 * Counts the validated entities.
+	 * 
+	 * @return The amount of validated entities.
+	 */
+	public int getValidated() {
+		return this.validated.get();
+	}
+
+	/**
+	 * Tests if validation is cancelled.
+	 * 
+	 * @return True if and only if validation is cancelled.
+	 */
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	/**
+	 * Tests if validation is finished, either completely or cancelled.
+	 * 
+	 * @return True if and only if validation is finished.
+	 */
+	public boolean isFinished() {
+		return this.finished;
+	}
+
+	/**
+	 * Tests if an entity is found invalid.
+	 * 
+	 * @param entity
+	 *            The entity. May be null.
+	 * @return True if and only if the entity has violations.
+	 */
+	public boolean isInvalid(final Object entity) {
+		return !CheckUtil.isNull(entity) && this.violations.containsKey(entity);
+	}
+
+	/**
+	 * Tests if validation is started.
+	 * 
+	 * @return True if and only if validation is started.
+	 */
+	public boolean isStarted() {
+		return this.started;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void run() {
+		this.start = System.currentTimeMillis();
+		try {
+			this.total = this.dataSource.size();
+			this.fill();
+		} catch (final RuntimeException e) {
+			BulkValidation.LOGGER.warn("Could not count entities.", e);
+		} finally {
+			this.finish();
+		}
+	}
+
+	/**
+	 * Starts validating on the executor.
+	 */
+	public void start() {
+		this.started = true;
+		this.executor.execute(this);
+	}
+
+	/**
+	 * Fetches the next chunk, unless validation is cancelled, all entities
+	 * are fetched or the maximum amount of chunks is in flight.
+	 * 
+	 * @return The chunk, counted as in flight, or null.
+	 */
+	private synchronized List<E> fetchNext() {
+		List<E> result = null;
+		if (!this.cancelled && !this.exhausted && this.inFlight < this.maxInFlight) {
+			try {
+				final List<E> chunk = this.dataSource.fetch(this.offset, this.chunkSize);
+				this.offset += chunk.size();
+				this.exhausted = chunk.size() < this.chunkSize;
+				if (!chunk.isEmpty()) {
+					this.inFlight++;
+					this.pending.incrementAndGet();
+					result = chunk;
+				}
+			} catch (final RuntimeException e) {
+				BulkValidation.LOGGER.warn("Could not fetch entities.", e);
+				this.exhausted = true;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Fetches and submits chunks until the maximum amount of chunks is in
+	 * flight, or nothing is left to fetch.
+	 */
+	private void fill() {
+		List<E> chunk = this.fetchNext();
+		while (!CheckUtil.isNull(chunk)) {
+			this.submit(chunk);
+			chunk = this.fetchNext();
+		}
+	}
+
+	/**
+	 * Finishes a task, and notifies the listener once all tasks finished.
+	 */
+	private void finish() {
+		if (this.pending.decrementAndGet() == 0) {
+			this.finished = true;
+			BulkValidation.LOGGER.debug("Validated {} entities in {} ms, {} invalid.", new Object[] { this.validated.get(),
+					System.currentTimeMillis() - this.start, this.violations.size() });
+			this.listener.finished(this);
+		}
+	}
+
+	/**
+	 * Releases the place of a validated chunk.
+	 */
+	private synchronized void release() {
+		this.inFlight--;
+	}
+
+	/**
+	 * Submits a chunk for validation. Once validated, the task fetches and
+	 * submits the next chunks. If the executor rejects the chunk, it is
+	 * validated in place and the caller fetches the next chunks.
+	 * 
+	 * @param chunk
+	 *            The entities.
+	 */
+	private void submit(final List<E> chunk) {
+		final Runnable task = new Runnable() {
+			/** {@inheritDoc} */
+			@Override
+			public void run() {
+				try {
+					BulkValidation.this.validate(chunk);
+					BulkValidation.this.fill();
+				} finally {
+					BulkValidation.this.finish();
+				}
+			}
+		};
+		try {
+			this.executor.execute(task);
+		} catch (final RejectedExecutionException e) {
+			BulkValidation.LOGGER.debug("Executor rejected chunk, validating in place.", e);
+			try {
+				this.validate(chunk);
+			} finally {
+				this.finish();
+			}
+		}
+	}
+
+	/**
+	 * Validates a chunk of entities, and releases its place.
+	 * 
+	 * @param chunk
+	 *            The entities.
+	 */
+	private void validate(final List<E> chunk) {
+		try {
+			this.validateEntities(chunk);
+		} finally {
+			this.release();
+		}
+		if (!this.cancelled) {
+			this.listener.progressed(this);
+		}
+	}
+
+	/**
+	 * Validates the entities of a chunk.
+	 * 
+	 * @param chunk
+	 *            The entities.
+	 */
+	private void validateEntities(final List<E> chunk) {
+		for (final E entity : chunk) {
+			if (this.cancelled) {
+				break;
+			}
+			try {
+				final Collection<PropertyViolation<E, ?>> found = this.validator.validate(this.entityDescriptor, entity);
+				if (!found.isEmpty()) {
+					final List<String> messages = new ArrayList<String>(found.size());
+					for (final PropertyViolation<E, ?> violation : found) {
+						messages.add(violation.getMessage());
+					}
+					this.violations.put(entity, Collections.unmodifiableList(messages));
+				}
+			} catch (final RuntimeException e) {
+				BulkValidation.LOGGER.warn("Could not validate entity.", e);
+			}
+			this.validated.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Notified as entities are validated. Called from an executor thread.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	public interface Listener {
+
+		/**
+		 * Notifies that validation finished, completely or cancelled.
+		 * 
+		 * @param validation
+		 *            The validation.
+		 */
+		void finished(BulkValidation<?> validation);
+
+		/**
+		 * Notifies that a chunk was validated.
+		 * 
+		 * @param validation
+		 *            The validation.
+		 */
+		void progressed(BulkValidation<?> validation);
+	}
+}
@@ -0,0 +1,115 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import com.vaadin.Application;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+
+/**
+ * Highlights the invalid rows of a table as the bulk validation finds them.
+ * The table is refreshed under the application lock, the polling progress
+ * indicator brings the updates to the client. Results of validations that
+ * were replaced in the meantime are ignored. Detached tables are not
+ * touched, they catch up once attached again.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ * @param <S>
+ *            The entity super type.
+ */
+public final class BulkValidationListener<S, E extends S>
+		implements BulkValidation.Listener {
+	/** The table component. */
+	private TableComponentImpl<S, E> tableComponent;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param tableComponent
+	 *            The table component.
+	 */
+	protected BulkValidationListener(final TableComponentImpl<S, E> tableComponent) {
+		Validate.notNull(tableComponent, "Table may not be null.");
+		this.tableComponent = tableComponent;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void finished(final BulkValidation<?> validation) {
+		final Application application = this.tableComponent.getApplication();
+		if (!CheckUtil.isNull(application)) {
+			synchronized (application) {
+				if (this.isCurrent(application, validation)) {
+					this.tableComponent.getValidationBar().setVisible(false);
+					this.tableComponent.getTable().refreshRowCache();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the value for the tableComponent field.
+	 * 
+	 * @return The value for the tableComponent field.
+	 */
+	public TableComponentImpl<S, E> getTableComponent() {
+		return this.tableComponent;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void progressed(final BulkValidation<?> validation) {
+		final Application application = this.tableComponent.getApplication();
+		if (!CheckUtil.isNull(application)) {
+			synchronized (application) {
+				if (this.isCurrent(application, validation)) {
+					this.tableComponent.getValidationIndicator().setValue(Float.valueOf(validation.getProgress()));
+					this.tableComponent.getTable().refreshRowCache();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets a new value for the tableComponent field.
+	 * 
+	 * @param tableComponent
+	 *            The new value for the tableComponent field.
+	 */
+	public void setTableComponent(final TableComponentImpl<S, E> tableComponent) {
+		this.tableComponent = tableComponent;
+	}
+
+	/**
+	 * Tests if the table may be updated with a validation, under the
+	 * application lock.
+	 * 
+	 * @param application
+	 *            The locked application.
+	 * @param validation
+	 *            The validation.
+	 * @return True if and only if the table is still attached to the
+	 *         application and the validation is still the current one.
+	 */
+	private boolean isCurrent(final Application application, final BulkValidation<?> validation) {
+		return this.tableComponent.getApplication() == application && this.tableComponent.getValidation() == validation;
+	}
+}
@@ -0,0 +1,367 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.generation.vaadin.components.TableDataSource;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.CellStringCache;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.ColumnPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts the cells of the first rows of a table in parallel, outside of the
+ * application lock. The entities are fetched by a single task, the rows are
+ * converted in chunks by as many tasks as the executor runs in parallel. Once
+ * all chunks are done, the converted rows are published to the cell cache in
+ * one step. Cells that are already cached are not converted again. A
+ * cancelled precomputation publishes nothing. Entity getters and converters
+ * run on the executor threads, without the application lock, so entities
+ * must be safe to read concurrently with the application. Running the
+ * precomputation on the calling thread and awaiting it converts a window of
+ * rows before it is rendered.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public final class CellPrecomputation<E>
+		implements Runnable {
+
+	/** The default amount of rows per chunk. */
+	public static final int DEFAULT_CHUNK_SIZE = 256;
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(CellPrecomputation.class);
+	/** The cell cache. */
+	private final CellStringCache cellCache;
+	/** Whether the precomputation is cancelled. */
+	private volatile boolean cancelled;
+	/** The amount of rows per chunk. */
+	private final int chunkSize;
+	/** The column plans, by column id. */
+	private final Map<Object, ColumnPlan<?, E>> columnPlans;
+	/** The data source. */
+	private final TableDataSource<E> dataSource;
+	/** Counted down once all tasks finished. */
+	private final CountDownLatch done;
+	/** The executor. */
+	private final ExecutorService executor;
+	/** Whether all tasks finished. */
+	private volatile boolean finished;
+	/** The listener to notify once published, or null. */
+	private final Listener listener;
+	/** The amount of unfinished tasks. */
+	private final AtomicInteger pending;
+	/** The maximum amount of rows to convert. */
+	private final int rows;
+	/** The converted rows. */
+	private final Queue<Snapshot<E>> snapshots;
+	/** The start time, in milliseconds. */
+	private long start;
+
+	/**
+	 * Constructs the precomputation.
+	 * 
+	 * @param dataSource
+	 *            The data source. May not be null.
+	 * @param columnPlans
+	 *            The column plans, by column id. May not be null.
+	 * @param cellCache
+	 *            The cell cache to publish to. May not be null.
+	 * @param executor
+	 *            The executor. May not be null.
+	 * @param listener
+	 *            The listener to notify once published. May not be null.
+	 */
+	public CellPrecomputation(final TableDataSource<E> dataSource, final Map<Object, ColumnPlan<?, E>> columnPlans,
+			final CellStringCache cellCache, final ExecutorService executor, final Listener listener) {
+		this(dataSource, columnPlans, cellCache, executor, listener, Integer.MAX_VALUE, CellPrecomputation.DEFAULT_CHUNK_SIZE);
+		Validate.notNull(listener, "Listener may not be null.");
+	}
+
+	/**
+	 * Constructs the precomputation of a window of the first rows.
+	 * 
+	 * @param dataSource
+	 *            The data source. May not be null.
+	 * @param columnPlans
+	 *            The column plans, by column id. May not be null.
+	 * @param cellCache
+	 *            The cell cache to publish to. May not be null.
+	 * @param executor
+	 *            The executor. May not be null.
+	 * @param listener
+	 *            The listener to notify once published. May be null.
+	 * @param window
+	 *            The maximum amount of rows to convert, bounded by the cache
+	 *            size.
+	 * @param chunkSize
+	 *            The amount of rows per chunk. Must be positive.
+	 */
+	public CellPrecomputation(final TableDataSource<E> dataSource, final Map<Object, ColumnPlan<?, E>> columnPlans,
+			final CellStringCache cellCache, final ExecutorService executor, final Listener listener, final int window,
+			final int chunkSize) {
+		Validate.notNull(dataSource, "Data source may not be null.");
+		Validate.notNull(columnPlans, "Column plans may not be null.");
+		Validate.notNull(cellCache, "Cell cache may not be null.");
+		Validate.notNull(executor, "Executor may not be null.");
+		Validate.isTrue(chunkSize > 0, "Chunk size must be positive.");
+		this.dataSource = dataSource;
+		this.columnPlans = new LinkedHashMap<Object, ColumnPlan<?, E>>(columnPlans);
+		this.cellCache = cellCache;
+		this.executor = executor;
+		this.listener = listener;
+		this.chunkSize = chunkSize;
+		this.pending = new AtomicInteger(1);
+		this.done = new CountDownLatch(1);
+		this.snapshots = new ConcurrentLinkedQueue<Snapshot<E>>();
+		if (columnPlans.isEmpty()) {
+			this.rows = 0;
+		} else {
+			this.rows = Math.min(window, cellCache.getMaxEntries() / columnPlans.size());
+		}
+	}
+
+	/**
+	 * Waits for all tasks to finish, whether published or cancelled. Returns
+	 * before the listener is notified, so it may be called while holding a
+	 * lock the listener takes.
+	 * 
+	 * @param timeout
+	 *            The maximum time to wait.
+	 * @param unit
+	 *            The unit of the timeout.
+	 * @return True if and only if all tasks finished in time.
+	 * @throws InterruptedException
+	 *             Thrown if interrupted while waiting.
+	 */
+	public boolean await(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return this.done.await(timeout, unit);
+	}
+
+	/**
+	 * Cancels the precomputation. Rows that are not published yet are
+	 * discarded. Publishing happens under the same monitor, so once this
+	 * returns nothing is published anymore and the cache may be invalidated
+	 * safely.
+	 */
+	public synchronized void cancel() {
+		this.cancelled = true;
+	}
+
+	/**
+	 * Tests if the precomputation is cancelled.
+	 * 
+	 * @return True if and only if it is cancelled.
+	 */
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	/**
+	 * Tests if all tasks finished, whether published or cancelled.
+	 * 
+	 * @return True if and only if all tasks finished.
+	 */
+	public boolean isFinished() {
+		return this.finished;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void run() {
+		this.start = System.currentTimeMillis();
+		try {
+			int offset = 0;
+			boolean more = this.rows > 0;
+			while (more && !this.cancelled) {
+				final int limit = Math.min(this.chunkSize, this.rows - offset);
+				final List<E> chunk = this.dataSource.fetch(offset, limit);
+				if (!chunk.isEmpty()) {
+					this.pending.incrementAndGet();
+					this.submit(chunk);
+				}
+				offset += chunk.size();
+				more = offset < this.rows && chunk.size() == limit;
+			}
+		} finally {
+			this.finish();
+		}
+	}
+
+	/**
+	 * Starts the precomputation on its executor.
+	 */
+	public void start() {
+		this.executor.execute(this);
+	}
+
+	/**
+	 * Converts a chunk of rows.
+	 * 
+	 * @param chunk
+	 *            The entities.
+	 */
+	private void convert(final List<E> chunk) {
+		for (final E entity : chunk) {
+			if (this.cancelled) {
+				break;
+			}
+			final Map<Object, String> cells = new HashMap<Object, String>();
+			for (final Map.Entry<Object, ColumnPlan<?, E>> column : this.columnPlans.entrySet()) {
+				if (CheckUtil.isNull(this.cellCache.get(entity, column.getKey()))) {
+					cells.put(column.getKey(), column.getValue().render(entity));
+				}
+			}
+			if (!cells.isEmpty()) {
+				this.snapshots.add(new Snapshot<E>(entity, cells));
+			}
+		}
+	}
+
+	/**
+	 * Finishes a task, publishing the rows if it was the last one.
+	 */
+	private void finish() {
+		if (this.pending.decrementAndGet() == 0) {
+			final Map<Object, Map<Object, String>> published = new LinkedHashMap<Object, Map<Object, String>>();
+			for (final Snapshot<E> snapshot : this.snapshots) {
+				published.put(snapshot.getEntity(), snapshot.getCells());
+			}
+			this.snapshots.clear();
+			boolean publish;
+			synchronized (this) {
+				publish = !this.cancelled;
+				if (publish) {
+					this.cellCache.putRows(published);
+				}
+			}
+			this.finished = true;
+			this.done.countDown();
+			if (publish) {
+				CellPrecomputation.LOGGER.debug("Precomputed {} rows in {} ms.", published.size(), System.currentTimeMillis() - this.start);
+				if (!CheckUtil.isNull(this.listener)) {
+					this.listener.published(this);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Submits a chunk for conversion, or converts it in place if the executor
+	 * rejects it.
+	 * 
+	 * @param chunk
+	 *            The entities.
+	 */
+	private void submit(final List<E> chunk) {
+		final Runnable task = new Runnable() {
+			/** {@inheritDoc} */
+			@Override
+			public void run() {
+				try {
+					CellPrecomputation.this.convert(chunk);
+				} finally {
+					CellPrecomputation.this.finish();
+				}
+			}
+		};
+		try {
+			this.executor.execute(task);
+		} catch (final RejectedExecutionException e) {
+			CellPrecomputation.LOGGER.debug("Executor rejected chunk, converting in place.", e);
+			task.run();
+		}
+	}
+
+	/**
+	 * Notified once the rows are published.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	public interface Listener {
+
+		/**
+		 * Notifies that the rows are published to the cell cache. Called
+		 * from an executor thread.
+		 * 
+		 * @param precomputation
+		 *            The precomputation.
+		 */
+		void published(CellPrecomputation<?> precomputation);
+	}
+
+	/**
+	 * The converted cells of a row.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 * @param <E>
+	 *            The entity type.
+	 */
+	private static final class Snapshot<E> {
+
+		/** The cells, by column id. */
+		private final Map<Object, String> cells;
+		/** The entity. */
+		private final E entity;
+
+		/**
+		 * Constructs the snapshot.
+		 * 
+		 * @param entity
+		 *            The entity.
+		 * @param cells
+		 *            The cells, by column id.
+		 */
+		public Snapshot(final E entity, final Map<Object, String> cells) {
+			this.entity = entity;
+			this.cells = cells;
+		}
+
+		/**
+		 * Gets the value for the cells field.
+		 * 
+		 * @return The value for the cells field.
+		 */
+		public Map<Object, String> getCells() {
+			return this.cells;
+		}
+
+		/**
+		 * Gets the value for the entity field.
+		 * 
+		 * @return The value for the entity field.
+		 */
+		public E getEntity() {
+			return this.entity;
+		}
+	}
+}
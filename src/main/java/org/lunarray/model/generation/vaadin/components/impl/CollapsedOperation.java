@@ -0,0 +1,177 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Button.ClickEvent;
+import com.vaadin.ui.Button.ClickListener;
+import com.vaadin.ui.ComponentContainer;
+import com.vaadin.ui.Field;
+import com.vaadin.ui.themes.BaseTheme;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.descriptor.model.operation.OperationDescriptor;
+import org.lunarray.model.descriptor.presentation.PresentationOperationDescriptor;
+import org.lunarray.model.generation.vaadin.render.RenderContext;
+import org.lunarray.model.generation.vaadin.render.plan.RenderStep;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An operation that is shown collapsed, as a link. The invocation builder,
+ * the sub form and the parameter and result fields are only rendered once
+ * the link is clicked, in place of the link.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <S>
+ *            The entity super type.
+ * @param <E>
+ *            The entity type.
+ */
+public final class CollapsedOperation<S, E extends S>
+		implements ClickListener {
+
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(CollapsedOperation.class);
+	/** Serial id. */
+	private static final long serialVersionUID = 1794523162358102476L;
+	/** The link. */
+	private Button button;
+	/** The form component. */
+	private FormComponentImpl<S, E> formComponent;
+	/** The operation. */
+	private OperationDescriptor<E> operation;
+	/** The recorded steps of the operation, or null once expanded. */
+	private List<RenderStep<E>> steps;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param formComponent
+	 *            The form component. May not be null.
+	 * @param steps
+	 *            The recorded steps of the operation, from its begin up to
+	 *            and including its end. May not be empty.
+	 */
+	@SuppressWarnings("unchecked")
+	protected CollapsedOperation(final FormComponentImpl<S, E> formComponent, final List<RenderStep<E>> steps) {
+		Validate.notNull(formComponent, "Form may not be null.");
+		Validate.notEmpty(steps, "Steps may not be empty.");
+		this.formComponent = formComponent;
+		this.steps = new ArrayList<RenderStep<E>>(steps);
+		this.operation = steps.get(0).getOperation();
+		final PresentationOperationDescriptor<E> presentation = this.operation.adapt(PresentationOperationDescriptor.class);
+		String text;
+		if (CheckUtil.isNull(presentation)) {
+			text = this.operation.getName();
+		} else {
+			text = presentation.getDescription();
+		}
+		this.button = new Button(text);
+		this.button.setStyleName(BaseTheme.BUTTON_LINK);
+		this.button.addListener(this);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void buttonClick(final ClickEvent event) {
+		this.expand();
+	}
+
+	/**
+	 * Renders the operation in place of the link. Does nothing if it is
+	 * already expanded.
+	 */
+	public void expand() {
+		if (!this.isExpanded()) {
+			final RenderContext<E> context = new RenderContext<E>(this.formComponent.getModel());
+			for (final RenderStep<E> step : this.steps) {
+				step.replay(context, this.formComponent.getStrategyFactory());
+			}
+			this.steps = null;
+			final ComponentContainer layout = this.formComponent.getForm().getLayout();
+			final Field subForm = this.formComponent.getForm().getField(this.operation.getName());
+			if (!CheckUtil.isNull(subForm)) {
+				layout.replaceComponent(this.button, subForm);
+			}
+			layout.removeComponent(this.button);
+			this.button.removeListener(this);
+			CollapsedOperation.LOGGER.debug("Expanded operation: {}", this.operation);
+		}
+	}
+
+	/**
+	 * Gets the value for the button field.
+	 * 
+	 * @return The value for the button field.
+	 */
+	public Button getButton() {
+		return this.button;
+	}
+
+	/**
+	 * Gets the value for the formComponent field.
+	 * 
+	 * @return The value for the formComponent field.
+	 */
+	public FormComponentImpl<S, E> getFormComponent() {
+		return this.formComponent;
+	}
+
+	/**
+	 * Gets the value for the operation field.
+	 * 
+	 * @return The value for the operation field.
+	 */
+	public OperationDescriptor<E> getOperation() {
+		return this.operation;
+	}
+
+	/**
+	 * Tests if the operation is expanded.
+	 * 
+	 * @return True if and only if the operation is rendered.
+	 */
+	public boolean isExpanded() {
+		return CheckUtil.isNull(this.steps);
+	}
+
+	/**
+	 * Sets a new value for the button field.
+	 * 
+	 * @param button
+	 *            The new value for the button field.
+	 */
+	public void setButton(final Button button) {
+		this.button = button;
+	}
+
+	/**
+	 * Sets a new value for the formComponent field.
+	 * 
+	 * @param formComponent
+	 *            The new value for the formComponent field.
+	 */
+	public void setFormComponent(final FormComponentImpl<S, E> formComponent) {
+		this.formComponent = formComponent;
+	}
+}
@@ -0,0 +1,226 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.vaadin.ui.AbstractOrderedLayout;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Button.ClickEvent;
+import com.vaadin.ui.Button.ClickListener;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.Layout;
+import com.vaadin.ui.themes.BaseTheme;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
+import org.lunarray.model.descriptor.presentation.PresentationPropertyDescriptor;
+import org.lunarray.model.generation.vaadin.render.plan.RenderStep;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An embedded section that is shown collapsed, as a link. The fields of the
+ * embedded properties are only rendered once the link is clicked, in place of
+ * the link. Embedded sections nested in the section are collapsed in turn.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <S>
+ *            The entity super type.
+ * @param <E>
+ *            The entity type.
+ */
+public final class CollapsedSection<S, E extends S>
+		implements ClickListener {
+
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(CollapsedSection.class);
+	/** Serial id. */
+	private static final long serialVersionUID = -3208167950916214350L;
+	/** The link. */
+	private Button button;
+	/** The depth of the embedded property in the prefixes. */
+	private final int depth;
+	/** The form component. */
+	private FormComponentImpl<S, E> formComponent;
+	/** The embedded property. */
+	private PropertyDescriptor<?, ?> property;
+	/** The recorded steps of the section, or null once expanded. */
+	private List<RenderStep<E>> steps;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param formComponent
+	 *            The form component. May not be null.
+	 * @param steps
+	 *            The recorded steps of the section. May not be empty.
+	 * @param depth
+	 *            The depth of the embedded property in the prefixes of the
+	 *            steps.
+	 */
+	@SuppressWarnings("unchecked")
+	protected CollapsedSection(final FormComponentImpl<S, E> formComponent, final List<RenderStep<E>> steps, final int depth) {
+		Validate.notNull(formComponent, "Form may not be null.");
+		Validate.notEmpty(steps, "Steps may not be empty.");
+		this.formComponent = formComponent;
+		this.steps = new ArrayList<RenderStep<E>>(steps);
+		this.depth = depth;
+		this.property = steps.get(0).getPrefixes().get(depth);
+		final PresentationPropertyDescriptor<?, ?> presentation = this.property.adapt(PresentationPropertyDescriptor.class);
+		String text;
+		if (CheckUtil.isNull(presentation)) {
+			text = this.property.getName();
+		} else {
+			text = presentation.getDescription();
+		}
+		this.button = new Button(text);
+		this.button.setStyleName(BaseTheme.BUTTON_LINK);
+		this.button.addListener(this);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void buttonClick(final ClickEvent event) {
+		this.expand();
+	}
+
+	/**
+	 * Tests if a property is rendered by this section, but not yet rendered.
+	 * 
+	 * @param descriptor
+	 *            The property. May be null.
+	 * @return True if and only if the section is collapsed and renders the
+	 *         property, possibly in a nested section.
+	 */
+	public boolean contains(final Object descriptor) {
+		boolean result = false;
+		if (!this.isExpanded()) {
+			for (final Iterator<RenderStep<E>> it = this.steps.iterator(); it.hasNext() && !result;) {
+				final RenderStep<E> step = it.next();
+				result = step.getDescriptor() == descriptor || step.getPrefixes().contains(descriptor);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Renders the section in place of the link. Does nothing if it is already
+	 * expanded.
+	 */
+	public void expand() {
+		if (!this.isExpanded()) {
+			final Layout layout = this.formComponent.getForm().getLayout();
+			final List<Component> existing = new LinkedList<Component>();
+			for (final Iterator<Component> it = layout.getComponentIterator(); it.hasNext();) {
+				existing.add(it.next());
+			}
+			final List<RenderStep<E>> expanded = this.steps;
+			this.steps = null;
+			this.formComponent.replaySteps(expanded, this.depth + 1);
+			if (layout instanceof AbstractOrderedLayout) {
+				final AbstractOrderedLayout ordered = (AbstractOrderedLayout) layout;
+				final List<Component> added = new LinkedList<Component>();
+				for (final Iterator<Component> it = ordered.getComponentIterator(); it.hasNext();) {
+					final Component component = it.next();
+					if (!existing.contains(component)) {
+						added.add(component);
+					}
+				}
+				int index = ordered.getComponentIndex(this.button);
+				for (final Component component : added) {
+					ordered.removeComponent(component);
+					ordered.addComponent(component, index);
+					index++;
+				}
+			}
+			layout.removeComponent(this.button);
+			this.button.removeListener(this);
+			CollapsedSection.LOGGER.debug("Expanded section: {}", this.property);
+		}
+	}
+
+	/**
+	 * Gets the value for the button field.
+	 * 
+	 * @return The value for the button field.
+	 */
+	public Button getButton() {
+		return this.button;
+	}
+
+	/**
+	 * Gets the value for the depth field.
+	 * 
+	 * @return The value for the depth field.
+	 */
+	public int getDepth() {
+		return this.depth;
+	}
+
+	/**
+	 * Gets the value for the formComponent field.
+	 * 
+	 * @return The value for the formComponent field.
+	 */
+	public FormComponentImpl<S, E> getFormComponent() {
+		return this.formComponent;
+	}
+
+	/**
+	 * Gets the value for the property field.
+	 * 
+	 * @return The value for the property field.
+	 */
+	public PropertyDescriptor<?, ?> getProperty() {
+		return this.property;
+	}
+
+	/**
+	 * Tests if the section is expanded.
+	 * 
+	 * @return True if and only if the section is rendered.
+	 */
+	public boolean isExpanded() {
+		return CheckUtil.isNull(this.steps);
+	}
+
+	/**
+	 * Sets a new value for the button field.
+	 * 
+	 * @param button
+	 *            The new value for the button field.
+	 */
+	public void setButton(final Button button) {
+		this.button = button;
+	}
+
+	/**
+	 * Sets a new value for the formComponent field.
+	 * 
+	 * @param formComponent
+	 *            The new value for the formComponent field.
+	 */
+	public void setFormComponent(final FormComponentImpl<S, E> formComponent) {
+		this.formComponent = formComponent;
+	}
+}
@@ -0,0 +1,89 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.model.generation.vaadin.components.TableDataSource;
+
+/**
+ * A data source backed by an in-memory collection.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public final class CollectionDataSource<E>
+		implements TableDataSource<E> {
+
+	/** Serial id. */
+	private static final long serialVersionUID = 4412052285633179468L;
+	/** The entities. */
+	private List<E> entities;
+
+	/**
+	 * Constructs the data source.
+	 * 
+	 * @param entities
+	 *            The entities. May not be null. Random access lists are used
+	 *            as is, other collections are copied.
+	 */
+	public CollectionDataSource(final Collection<E> entities) {
+		Validate.notNull(entities, "Entities may not be null.");
+		if (entities instanceof List && entities instanceof RandomAccess) {
+			this.entities = (List<E>) entities;
+		} else {
+			this.entities = new ArrayList<E>(entities);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public List<E> fetch(final int offset, final int limit) {
+		Validate.isTrue(offset >= 0, "Offset may not be negative.");
+		Validate.isTrue(limit > 0, "Limit must be positive.");
+		List<E> result;
+		final int size = this.entities.size();
+		if (offset >= size) {
+			result = Collections.emptyList();
+		} else {
+			result = this.entities.subList(offset, Math.min(size, offset + limit));
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the value for the entities field.
+	 * 
+	 * @return The value for the entities field.
+	 */
+	public List<E> getEntities() {
+		return this.entities;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int size() {
+		return this.entities.size();
+	}
+}
@@ -0,0 +1,364 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.generation.vaadin.components.TableDataSource;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.ColumnPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exports entities as CSV, rendering the cells with the column plans of a
+ * table. The exporter is a channel that encodes rows as they are read,
+ * fetching the entities from the data source in chunks, so memory use does
+ * not depend on the amount of rows. Rows are separated by CRLF and cells are
+ * quoted as needed. If a lock is set, every read fetches and renders under
+ * that lock, for example the application of the table.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public final class CsvExporter<E>
+		implements ReadableByteChannel {
+
+	/** The buffer size. */
+	public static final int BUFFER_SIZE = 8192;
+	/** The default amount of entities per chunk. */
+	public static final int DEFAULT_CHUNK_SIZE = 500;
+	/** The line separator. */
+	private static final String LINE_SEPARATOR = "\r\n";
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(CsvExporter.class);
+	/** The quote. */
+	private static final char QUOTE = '"';
+	/** The cell separator. */
+	private static final char SEPARATOR = ',';
+	/** The current chunk of entities. */
+	private List<E> chunk;
+	/** The index of the next entity in the current chunk. */
+	private int chunkIndex;
+	/** The amount of entities per chunk. */
+	private final int chunkSize;
+	/** Whether the exporter is closed. */
+	private boolean closed;
+	/** The encoder. */
+	private final CharsetEncoder encoder;
+	/** Whether the encoder is flushed. */
+	private boolean flushed;
+	/** The column headers, or null if no header row is written. */
+	private List<String> headers;
+	/** The lock to render under, or null. */
+	private Object lock;
+	/** The offset of the next chunk. */
+	private int offset;
+	/** The characters of the current row that are not yet encoded. */
+	private CharBuffer pending;
+	/** The column plans. */
+	private final List<ColumnPlan<?, E>> plans;
+	/** The current row. */
+	private final StringBuilder row;
+	/** The data source. */
+	private final TableDataSource<E> source;
+
+	/**
+	 * Constructs the exporter.
+	 * 
+	 * @param source
+	 *            The data source. May not be null.
+	 * @param headers
+	 *            The column headers. May be null, in which case no header row
+	 *            is written.
+	 * @param plans
+	 *            The column plans. May not be null.
+	 * @param charset
+	 *            The charset. May not be null.
+	 */
+	public CsvExporter(final TableDataSource<E> source, final List<String> headers, final List<ColumnPlan<?, E>> plans,
+			final Charset charset) {
+		this(source, headers, plans, charset, CsvExporter.DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Constructs the exporter.
+	 * 
+	 * @param source
+	 *            The data source. May not be null.
+	 * @param headers
+	 *            The column headers. May be null, in which case no header row
+	 *            is written.
+	 * @param plans
+	 *            The column plans. May not be null.
+	 * @param charset
+	 *            The charset. May not be null.
+	 * @param chunkSize
+	 *            The amount of entities per chunk. Must be positive.
+	 */
+	public CsvExporter(final TableDataSource<E> source, final List<String> headers, final List<ColumnPlan<?, E>> plans,
+			final Charset charset, final int chunkSize) {
+		Validate.notNull(source, "Source may not be null.");
+		Validate.notNull(plans, "Plans may not be null.");
+		Validate.notNull(charset, "Charset may not be null.");
+		Validate.isTrue(chunkSize > 0, "Chunk size must be positive.");
+		Validate.isTrue(CheckUtil.isNull(headers) || headers.size() == plans.size(), "Headers must match the plans.");
+		this.source = source;
+		if (!CheckUtil.isNull(headers)) {
+			this.headers = new ArrayList<String>(headers);
+		}
+		this.plans = new ArrayList<ColumnPlan<?, E>>(plans);
+		this.chunkSize = chunkSize;
+		this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.row = new StringBuilder();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void close() {
+		this.closed = true;
+		this.chunk = null;
+		this.pending = null;
+	}
+
+	/**
+	 * Gets the value for the lock field.
+	 * 
+	 * @return The value for the lock field.
+	 */
+	public Object getLock() {
+		return this.lock;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean isOpen() {
+		return !this.closed;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int read(final ByteBuffer target) throws IOException {
+		if (this.closed) {
+			throw new ClosedChannelException();
+		}
+		int result;
+		if (CheckUtil.isNull(this.lock)) {
+			result = this.readRows(target);
+		} else {
+			synchronized (this.lock) {
+				result = this.readRows(target);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Sets a new value for the lock field.
+	 * 
+	 * @param lock
+	 *            The new value for the lock field. May be null, in which
+	 *            case rows are rendered without locking.
+	 */
+	public void setLock(final Object lock) {
+		this.lock = lock;
+	}
+
+	/**
+	 * Writes all rows to a stream. The stream is not closed.
+	 * 
+	 * @param stream
+	 *            The stream. May not be null.
+	 * @return The amount of bytes written.
+	 * @throws IOException
+	 *             Thrown if the rows could not be written.
+	 */
+	public long writeTo(final OutputStream stream) throws IOException {
+		Validate.notNull(stream, "Stream may not be null.");
+		final long result = this.writeTo(Channels.newChannel(stream));
+		stream.flush();
+		return result;
+	}
+
+	/**
+	 * Writes all rows to a channel. The channel is not closed.
+	 * 
+	 * @param channel
+	 *            The channel. May not be null.
+	 * @return The amount of bytes written.
+	 * @throws IOException
+	 *             Thrown if the rows could not be written.
+	 */
+	public long writeTo(final WritableByteChannel channel) throws IOException {
+		Validate.notNull(channel, "Channel may not be null.");
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(CsvExporter.BUFFER_SIZE);
+		long result = 0;
+		while (this.read(buffer) >= 0) {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				result += channel.write(buffer);
+			}
+			buffer.clear();
+		}
+		CsvExporter.LOGGER.debug("Exported {} entities in {} bytes.", this.offset, result);
+		return result;
+	}
+
+	/**
+	 * Appends a cell to the current row, quoted if needed.
+	 * 
+	 * @param value
+	 *            The cell value. May be null.
+	 * @param first
+	 *            Whether the cell is the first of the row.
+	 */
+	private void appendCell(final String value, final boolean first) {
+		if (!first) {
+			this.row.append(CsvExporter.SEPARATOR);
+		}
+		if (!CheckUtil.isNull(value)) {
+			boolean quote = false;
+			for (int i = 0; i < value.length() && !quote; i++) {
+				final char c = value.charAt(i);
+				quote = c == CsvExporter.SEPARATOR || c == CsvExporter.QUOTE || c == '\r' || c == '\n';
+			}
+			if (quote) {
+				this.row.append(CsvExporter.QUOTE);
+				for (int i = 0; i < value.length(); i++) {
+					final char c = value.charAt(i);
+					if (c == CsvExporter.QUOTE) {
+						this.row.append(CsvExporter.QUOTE);
+					}
+					this.row.append(c);
+				}
+				this.row.append(CsvExporter.QUOTE);
+			} else {
+				this.row.append(value);
+			}
+		}
+	}
+
+	/**
+	 * Checks the result of encoding.
+	 * 
+	 * @param result
+	 *            The result.
+	 * @return True if and only if the target buffer is full.
+	 * @throws IOException
+	 *             Thrown if the characters could not be encoded.
+	 */
+	private boolean check(final CoderResult result) throws IOException {
+		if (result.isError()) {
+			result.throwException();
+		}
+		return result.isOverflow();
+	}
+
+	/**
+	 * Tests if there is a next entity, fetching the next chunk if needed.
+	 * 
+	 * @return True if and only if not all entities are exported.
+	 */
+	private boolean hasNextEntity() {
+		if (!CheckUtil.isNull(this.chunk) && this.chunkIndex >= this.chunk.size() && this.chunk.size() == this.chunkSize) {
+			this.chunk = null;
+		}
+		if (CheckUtil.isNull(this.chunk)) {
+			this.chunk = this.source.fetch(this.offset, this.chunkSize);
+			this.offset += this.chunk.size();
+			this.chunkIndex = 0;
+		}
+		return this.chunkIndex < this.chunk.size();
+	}
+
+	/**
+	 * Renders the next row, the header row first.
+	 * 
+	 * @return True if and only if there was a next row.
+	 */
+	private boolean nextRow() {
+		this.row.setLength(0);
+		boolean result = true;
+		if (!CheckUtil.isNull(this.headers)) {
+			for (int i = 0; i < this.headers.size(); i++) {
+				this.appendCell(this.headers.get(i), i == 0);
+			}
+			this.headers = null;
+		} else if (this.hasNextEntity()) {
+			final E entity = this.chunk.get(this.chunkIndex);
+			this.chunkIndex++;
+			if (!CheckUtil.isNull(entity)) {
+				for (int i = 0; i < this.plans.size(); i++) {
+					this.appendCell(this.plans.get(i).render(entity), i == 0);
+				}
+			}
+		} else {
+			result = false;
+		}
+		if (result) {
+			this.row.append(CsvExporter.LINE_SEPARATOR);
+		}
+		return result;
+	}
+
+	/**
+	 * Encodes rows into a buffer.
+	 * 
+	 * @param target
+	 *            The buffer.
+	 * @return The amount of bytes encoded, or -1 if all rows are encoded.
+	 * @throws IOException
+	 *             Thrown if the characters could not be encoded.
+	 */
+	private int readRows(final ByteBuffer target) throws IOException {
+		final int start = target.position();
+		boolean overflow = false;
+		while (target.hasRemaining() && !overflow && !this.flushed) {
+			if (!CheckUtil.isNull(this.pending) && this.pending.hasRemaining()) {
+				overflow = this.check(this.encoder.encode(this.pending, target, false));
+			} else if (this.nextRow()) {
+				this.pending = CharBuffer.wrap(this.row);
+			} else {
+				overflow = this.check(this.encoder.encode(CharBuffer.allocate(0), target, true))
+						|| this.check(this.encoder.flush(target));
+				this.flushed = !overflow;
+			}
+		}
+		int result = target.position() - start;
+		if (result == 0 && this.flushed) {
+			result = -1;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,235 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.descriptor.accessor.exceptions.ValueAccessException;
+import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.ColumnPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The difference between two lists of entities. Entities are matched by
+ * their key property if there is one, and by equality otherwise. Matched
+ * entities are compared by their rendered cells. Matched entities that are
+ * the same instance may have been modified in place, so they are always
+ * considered updated.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public final class EntityDiff<E> {
+
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(EntityDiff.class);
+	/** The amount of inserted entities. */
+	private int inserted;
+	/** The key property. */
+	private final PropertyDescriptor<?, E> keyProperty;
+	/** The amount of moved entities. */
+	private int moved;
+	/** The column plans, or null if the columns can't be compared. */
+	private final Collection<ColumnPlan<?, E>> plans;
+	/** The removed entities. */
+	private final List<E> removed;
+	/** The replaced entities, that render identically, old to new. */
+	private final Map<E, E> replaced;
+	/** The previous entities whose rows changed. */
+	private final List<E> updated;
+
+	/**
+	 * Computes the difference.
+	 * 
+	 * @param previous
+	 *            The previous entities. May not be null.
+	 * @param current
+	 *            The current entities. May not be null.
+	 * @param keyProperty
+	 *            The key property. May be null, in which case entities are
+	 *            matched by equality.
+	 * @param plans
+	 *            The plans of the displayed columns, used to compare matched
+	 *            entities. May be null, in which case every matched entity
+	 *            is considered updated.
+	 */
+	public EntityDiff(final List<E> previous, final List<E> current, final PropertyDescriptor<?, E> keyProperty,
+			final Collection<ColumnPlan<?, E>> plans) {
+		Validate.notNull(previous, "Previous entities may not be null.");
+		Validate.notNull(current, "Current entities may not be null.");
+		this.keyProperty = keyProperty;
+		this.plans = plans;
+		this.removed = new ArrayList<E>();
+		this.replaced = new LinkedHashMap<E, E>();
+		this.updated = new ArrayList<E>();
+		this.compute(previous, current);
+	}
+
+	/**
+	 * Gets the value for the inserted field.
+	 * 
+	 * @return The value for the inserted field.
+	 */
+	public int getInserted() {
+		return this.inserted;
+	}
+
+	/**
+	 * Gets the value for the moved field.
+	 * 
+	 * @return The value for the moved field.
+	 */
+	public int getMoved() {
+		return this.moved;
+	}
+
+	/**
+	 * Gets the value for the removed field.
+	 * 
+	 * @return The value for the removed field.
+	 */
+	public List<E> getRemoved() {
+		return this.removed;
+	}
+
+	/**
+	 * Gets the value for the replaced field.
+	 * 
+	 * @return The value for the replaced field.
+	 */
+	public Map<E, E> getReplaced() {
+		return this.replaced;
+	}
+
+	/**
+	 * Gets the value for the updated field.
+	 * 
+	 * @return The value for the updated field.
+	 */
+	public List<E> getUpdated() {
+		return this.updated;
+	}
+
+	/**
+	 * Tests if anything changed.
+	 * 
+	 * @return True if and only if rows were inserted, removed, moved, updated
+	 *         or replaced.
+	 */
+	public boolean isChanged() {
+		return this.inserted > 0 || this.moved > 0 || !this.removed.isEmpty() || !this.updated.isEmpty() || !this.replaced.isEmpty();
+	}
+
+	/**
+	 * Compares the rendered cells of two entities. Relations are compared by
+	 * the display value of the related entity, as that is what is shown.
+	 * 
+	 * @param previous
+	 *            The previous entity.
+	 * @param current
+	 *            The current entity.
+	 * @return True if and only if all rendered cells are equal.
+	 */
+	private boolean compareValues(final E previous, final E current) {
+		boolean result = !CheckUtil.isNull(this.plans);
+		if (result) {
+			for (final ColumnPlan<?, E> plan : this.plans) {
+				if (!plan.render(previous).equals(plan.render(current))) {
+					result = false;
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the difference.
+	 * 
+	 * @param previous
+	 *            The previous entities.
+	 * @param current
+	 *            The current entities.
+	 */
+	private void compute(final List<E> previous, final List<E> current) {
+		final Map<Object, Integer> previousIndexes = new HashMap<Object, Integer>();
+		for (int i = 0; i < previous.size(); i++) {
+			previousIndexes.put(this.resolveKey(previous.get(i)), Integer.valueOf(i));
+		}
+		final boolean[] matched = new boolean[previous.size()];
+		int maxIndex = -1;
+		for (final E entity : current) {
+			final Integer index = previousIndexes.get(this.resolveKey(entity));
+			if (CheckUtil.isNull(index) || matched[index.intValue()]) {
+				this.inserted++;
+			} else {
+				final int previousIndex = index.intValue();
+				matched[previousIndex] = true;
+				if (previousIndex < maxIndex) {
+					this.moved++;
+				}
+				maxIndex = Math.max(maxIndex, previousIndex);
+				final E previousEntity = previous.get(previousIndex);
+				// The same instance may have been modified in place.
+				if (previousEntity == entity || !this.compareValues(previousEntity, entity)) {
+					this.updated.add(previousEntity);
+				} else if (!previousEntity.equals(entity)) {
+					this.replaced.put(previousEntity, entity);
+				}
+			}
+		}
+		for (int i = 0; i < matched.length; i++) {
+			if (!matched[i]) {
+				this.removed.add(previous.get(i));
+			}
+		}
+		EntityDiff.LOGGER.debug("Computed diff with {} inserted, {} removed, {} moved and {} updated.", this.inserted, this.removed.size(),
+				this.moved, this.updated.size());
+	}
+
+	/**
+	 * Resolves the key of an entity.
+	 * 
+	 * @param entity
+	 *            The entity.
+	 * @return The key, or the entity itself if it has no key.
+	 */
+	private Object resolveKey(final E entity) {
+		Object result = entity;
+		if (!CheckUtil.isNull(this.keyProperty)) {
+			try {
+				final Object key = this.keyProperty.getValue(entity);
+				if (!CheckUtil.isNull(key)) {
+					result = key;
+				}
+			} catch (final ValueAccessException e) {
+				EntityDiff.LOGGER.warn("Could not access key.", e);
+			}
+		}
+		return result;
+	}
+}
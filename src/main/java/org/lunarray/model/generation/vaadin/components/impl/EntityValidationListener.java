@@ -17,7 +17,13 @@
  */
 package org.lunarray.model.generation.vaadin.components.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 import com.vaadin.terminal.UserError;
 import com.vaadin.ui.AbstractComponent;
@@ -25,14 +31,27 @@ import com.vaadin.ui.Button.ClickEvent;
 import com.vaadin.ui.Button.ClickListener;
 import com.vaadin.ui.Field;
 
+import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.Validate;
 import org.lunarray.common.check.CheckUtil;
 import org.lunarray.model.descriptor.validator.EntityValidator;
 import org.lunarray.model.descriptor.validator.PropertyViolation;
+import org.lunarray.model.descriptor.validator.ValueValidator;
 import org.lunarray.model.generation.vaadin.components.FormComponent;
+import org.lunarray.model.generation.vaadin.render.factories.form.impl.property.AbstractPropertyDescriptorImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Enables validation and displays messages in case of a violation.
+ * Enables validation and displays messages in case of a violation. The
+ * entity is validated as a whole on the first submit. On later submits of the
+ * same entity only the properties that changed since the previous submit are
+ * validated, and the violations of the other properties are reused. Changes
+ * of a property with declared dependents, for instance properties with
+ * cross-field or class-level constraints, validate the entity as a whole.
+ * Error markers are only updated for the fields whose violation changed.
+ * Violations are kept by property path, as embedded properties may share
+ * their name with other properties of the form.
  * 
  * @author Pal Hargitai (pal@lunarray.org)
  * @param <E>
@@ -42,10 +61,21 @@ import org.lunarray.model.generation.vaadin.components.FormComponent;
  */
 public final class EntityValidationListener<S, E extends S>
 		implements ClickListener {
+
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(EntityValidationListener.class);
 	/** Serial id. */
 	private static final long serialVersionUID = -4647657614250422554L;
+	/** The dependent properties, by property path. */
+	private Map<String, Set<String>> dependencies;
+	/** The validated entity, or null if nothing is validated. */
+	private E entity;
 	/** The form component. */
 	private FormComponentImpl<S, E> formComponent;
+	/** The values of the properties at the previous validation, by property path. */
+	private Map<String, Object> values;
+	/** The displayed violations, by property path. */
+	private Map<String, PropertyViolation<?, ?>> violations;
 
 	/**
 	 * Default constructor.
@@ -56,28 +86,76 @@ public final class EntityValidationListener<S, E extends S>
 	protected EntityValidationListener(final FormComponentImpl<S, E> formComponent) {
 		Validate.notNull(formComponent, "Form may not be null.");
 		this.formComponent = formComponent;
+		this.dependencies = new HashMap<String, Set<String>>();
+		this.values = new HashMap<String, Object>();
+		this.violations = new HashMap<String, PropertyViolation<?, ?>>();
+	}
+
+	/**
+	 * Declares that the constraints of a property depend on the value of
+	 * another property.
+	 * 
+	 * @param property
+	 *            The property path. May not be null.
+	 * @param dependent
+	 *            The path of the dependent property. May not be null.
+	 */
+	public void addDependency(final String property, final String dependent) {
+		Validate.notNull(property, "Property may not be null.");
+		Validate.notNull(dependent, "Dependent may not be null.");
+		Set<String> dependents = this.dependencies.get(property);
+		if (CheckUtil.isNull(dependents)) {
+			dependents = new LinkedHashSet<String>();
+			this.dependencies.put(property, dependents);
+		}
+		dependents.add(dependent);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void buttonClick(final ClickEvent event) {
-		for (final String property : this.formComponent.getProperties()) {
-			final Field field = this.formComponent.getForm().getField(property);
-			if (field instanceof AbstractComponent) {
-				final AbstractComponent component = (AbstractComponent) field;
-				component.setComponentError(null);
-			}
-		}
 		final EntityValidator validator = this.formComponent.getModel().getExtension(EntityValidator.class);
 		if (!CheckUtil.isNull(validator)) {
-			final Collection<PropertyViolation<E, ?>> violations = validator.validate(this.formComponent.getEntityDescriptor(),
-					this.formComponent.getEntity());
-			for (final PropertyViolation<E, ?> violation : violations) {
-				this.processViolation(violation);
+			final Map<String, AbstractPropertyDescriptorImpl<?, E>> descriptors = this.formComponent.getStrategyFactory().getDescriptors();
+			final Set<String> changed = this.resolveChanged(descriptors);
+			final ValueValidator valueValidator = this.formComponent.getModel().getExtension(ValueValidator.class);
+			final Map<String, PropertyViolation<?, ?>> current = new HashMap<String, PropertyViolation<?, ?>>();
+			if (this.entity != this.formComponent.getEntity() || CheckUtil.isNull(valueValidator) || this.hasDependents(changed)) {
+				final Collection<PropertyViolation<E, ?>> found = validator.validate(this.formComponent.getEntityDescriptor(),
+						this.formComponent.getEntity());
+				for (final PropertyViolation<E, ?> violation : found) {
+					final String path = this.resolvePath(descriptors, violation);
+					if (!current.containsKey(path)) {
+						current.put(path, violation);
+					}
+				}
+				EntityValidationListener.LOGGER.debug("Validated entity: {}", this.formComponent.getEntity());
+			} else {
+				current.putAll(this.violations);
+				for (final String path : changed) {
+					final AbstractPropertyDescriptorImpl<?, E> descriptor = descriptors.get(path);
+					current.remove(path);
+					final PropertyViolation<?, ?> violation = this.validateProperty(valueValidator, descriptor);
+					if (!CheckUtil.isNull(violation)) {
+						current.put(path, violation);
+					}
+				}
+				EntityValidationListener.LOGGER.debug("Validated changed properties: {}", changed);
 			}
+			this.updateMarkers(current);
+			this.entity = this.formComponent.getEntity();
 		}
 	}
 
+	/**
+	 * Gets the value for the dependencies field.
+	 * 
+	 * @return The value for the dependencies field.
+	 */
+	public Map<String, Set<String>> getDependencies() {
+		return this.dependencies;
+	}
+
 	/**
 	 * Gets the value for the formComponent field.
 	 * 
@@ -88,13 +166,87 @@ public final class EntityValidationListener<S, E extends S>
 	}
 
 	/**
-	 * Process a violation.
+	 * Gets the value for the violations field.
+	 * 
+	 * @return The value for the violations field.
+	 */
+	public Map<String, PropertyViolation<?, ?>> getViolations() {
+		return this.violations;
+	}
+
+	/**
+	 * Forgets the previous validation, for instance once the error markers
+	 * are cleared. The next submit validates the entity as a whole.
+	 */
+	public void invalidate() {
+		this.entity = null;
+		this.values.clear();
+		this.violations.clear();
+	}
+
+	/**
+	 * Sets a new value for the dependencies field.
+	 * 
+	 * @param dependencies
+	 *            The new value for the dependencies field.
+	 */
+	public void setDependencies(final Map<String, Set<String>> dependencies) {
+		this.dependencies = dependencies;
+	}
+
+	/**
+	 * Sets a new value for the formComponent field.
+	 * 
+	 * @param formComponent
+	 *            The new value for the formComponent field.
+	 */
+	public void setFormComponent(final FormComponentImpl<S, E> formComponent) {
+		this.formComponent = formComponent;
+	}
+
+	/**
+	 * Clears the error marker of a field.
+	 * 
+	 * @param path
+	 *            The property path of the field.
+	 */
+	private void clearMarker(final String path) {
+		final Field field = this.formComponent.getForm().getField(path);
+		if (field instanceof AbstractComponent) {
+			final AbstractComponent component = (AbstractComponent) field;
+			component.setComponentError(null);
+		}
+	}
+
+	/**
+	 * Tests if any of the properties has dependent properties.
 	 * 
+	 * @param paths
+	 *            The property paths.
+	 * @return True if and only if a property has dependents.
+	 */
+	private boolean hasDependents(final Set<String> paths) {
+		boolean result = false;
+		for (final String path : paths) {
+			result |= this.dependencies.containsKey(path);
+		}
+		return result;
+	}
+
+	/**
+	 * Process a violation. Collapsed sections that render the violated
+	 * property are expanded first.
+	 * 
+	 * @param path
+	 *            The property path of the field.
 	 * @param violation
 	 *            The violation.
 	 */
-	private void processViolation(final PropertyViolation<?, ?> violation) {
-		final Field field = this.formComponent.getForm().getField(violation.getProperty().getName());
+	private void processViolation(final String path, final PropertyViolation<?, ?> violation) {
+		Field field = this.formComponent.getForm().getField(path);
+		if (CheckUtil.isNull(field) && this.formComponent.expandSection(violation.getProperty())) {
+			field = this.formComponent.getForm().getField(path);
+		}
 		if (field instanceof AbstractComponent) {
 			final AbstractComponent component = (AbstractComponent) field;
 			component.setComponentError(new UserError(violation.getMessage()));
@@ -102,12 +254,99 @@ public final class EntityValidationListener<S, E extends S>
 	}
 
 	/**
-	 * Sets a new value for the formComponent field.
+	 * Resolves the properties whose value changed since the previous
+	 * validation and records their current values.
 	 * 
-	 * @param formComponent
-	 *            The new value for the formComponent field.
+	 * @param descriptors
+	 *            The property descriptors, by property path.
+	 * @return The changed property paths.
 	 */
-	public void setFormComponent(final FormComponentImpl<S, E> formComponent) {
-		this.formComponent = formComponent;
+	private Set<String> resolveChanged(final Map<String, AbstractPropertyDescriptorImpl<?, E>> descriptors) {
+		final Set<String> result = new HashSet<String>();
+		for (final Map.Entry<String, AbstractPropertyDescriptorImpl<?, E>> entry : descriptors.entrySet()) {
+			Object value = entry.getValue().getDirectValue();
+			if (value instanceof Collection) {
+				value = new ArrayList<Object>((Collection<?>) value);
+			}
+			if (!this.values.containsKey(entry.getKey()) || !ObjectUtils.equals(value, this.values.get(entry.getKey()))) {
+				result.add(entry.getKey());
+				this.values.put(entry.getKey(), value);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Resolves the path of the property a violation of the entity applies
+	 * to. The property is looked up among the descriptors of the form, the
+	 * name of the property is used if the form does not render it.
+	 * 
+	 * @param descriptors
+	 *            The property descriptors, by property path.
+	 * @param violation
+	 *            The violation.
+	 * @return The property path.
+	 */
+	private String resolvePath(final Map<String, AbstractPropertyDescriptorImpl<?, E>> descriptors,
+			final PropertyViolation<?, ?> violation) {
+		String result = null;
+		for (final Map.Entry<String, AbstractPropertyDescriptorImpl<?, E>> entry : descriptors.entrySet()) {
+			if (CheckUtil.isNull(result) && entry.getValue().getProperty().equals(violation.getProperty())) {
+				result = entry.getKey();
+			}
+		}
+		if (CheckUtil.isNull(result)) {
+			result = violation.getProperty().getName();
+		}
+		return result;
+	}
+
+	/**
+	 * Updates the error markers of the fields whose violation changed.
+	 * 
+	 * @param current
+	 *            The current violations, by property path.
+	 */
+	private void updateMarkers(final Map<String, PropertyViolation<?, ?>> current) {
+		final Set<String> paths = new HashSet<String>(this.violations.keySet());
+		paths.addAll(current.keySet());
+		int updated = 0;
+		for (final String path : paths) {
+			final PropertyViolation<?, ?> previous = this.violations.get(path);
+			final PropertyViolation<?, ?> violation = current.get(path);
+			if (CheckUtil.isNull(violation)) {
+				if (!CheckUtil.isNull(previous)) {
+					this.clearMarker(path);
+					updated++;
+				}
+			} else if (CheckUtil.isNull(previous) || !ObjectUtils.equals(previous.getMessage(), violation.getMessage())) {
+				this.processViolation(path, violation);
+				updated++;
+			}
+		}
+		this.violations.clear();
+		this.violations.putAll(current);
+		EntityValidationListener.LOGGER.debug("Updated {} error markers.", updated);
+	}
+
+	/**
+	 * Validates the value of a property.
+	 * 
+	 * @param validator
+	 *            The value validator.
+	 * @param descriptor
+	 *            The property descriptor.
+	 * @return The first violation, or null if the value is valid.
+	 * @param <P>
+	 *            The property type.
+	 */
+	private <P> PropertyViolation<?, ?> validateProperty(final ValueValidator validator,
+			final AbstractPropertyDescriptorImpl<P, E> descriptor) {
+		PropertyViolation<?, ?> result = null;
+		final Collection<PropertyViolation<E, P>> found = validator.validateValue(descriptor.getProperty(), descriptor.getDirectValue());
+		if (!found.isEmpty()) {
+			result = found.iterator().next();
+		}
+		return result;
 	}
 }
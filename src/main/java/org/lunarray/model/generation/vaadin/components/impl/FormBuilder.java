@@ -17,7 +17,14 @@
  */
 package org.lunarray.model.generation.vaadin.components.impl;
 
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+
 import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
 import org.lunarray.model.descriptor.model.Model;
 import org.lunarray.model.generation.vaadin.components.FormComponent;
 
@@ -31,18 +38,33 @@ import org.lunarray.model.generation.vaadin.components.FormComponent;
  *            The entity type.
  */
 public final class FormBuilder<S, E extends S> {
+	/** The dependent properties, by property path. */
+	private transient Map<String, Set<String>> dependenciesBuilder;
 	/** The entity. */
 	private transient E entityBuilder;
 	/** The entity key. */
 	private transient String entityKeyBuilder;
 	/** The model. */
 	private transient Model<S> modelBuilder;
+	/** Whether operations are collapsed. */
+	private transient boolean operationsCollapsedBuilder;
+	/** The pool. */
+	private transient FormComponentPool<S> poolBuilder;
+	/** The qualifier. */
+	private transient Class<?> qualifierBuilder;
+	/** Whether embedded sections are collapsed. */
+	private transient boolean sectionsCollapsedBuilder;
+	/** The delay of asynchronous validation. */
+	private transient long validationDelayBuilder;
+	/** The executor to validate on, or null to validate synchronously. */
+	private transient ScheduledExecutorService validationExecutorBuilder;
 
 	/**
 	 * Default constructor.
 	 */
 	protected FormBuilder() {
-		// Default constructor.
+		this.dependenciesBuilder = new LinkedHashMap<String, Set<String>>();
+		this.validationDelayBuilder = AsyncValidation.DEFAULT_DELAY;
 	}
 
 	/**
@@ -59,7 +81,8 @@ public final class FormBuilder<S, E extends S> {
 	}
 
 	/**
-	 * Builds the component.
+	 * Builds the component. If a pool is set, the component is acquired from
+	 * the pool.
 	 * 
 	 * @return The component.
 	 */
@@ -67,7 +90,40 @@ public final class FormBuilder<S, E extends S> {
 		Validate.notNull(this.modelBuilder, "Model may not be null.");
 		Validate.notNull(this.entityKeyBuilder, "Entity key may not be null.");
 		Validate.notNull(this.entityBuilder, "Entity may not be null.");
-		return new FormComponentImpl<S, E>(this.modelBuilder, this.entityKeyBuilder, this.entityBuilder);
+		FormComponent<S, E> result;
+		if (CheckUtil.isNull(this.poolBuilder)) {
+			result = new FormComponentImpl<S, E>(this.modelBuilder, this.entityKeyBuilder, this.qualifierBuilder,
+					this.operationsCollapsedBuilder, this.sectionsCollapsedBuilder, this.entityBuilder);
+		} else {
+			Validate.isTrue(this.modelBuilder.equals(this.poolBuilder.getModel()), "Pool must be of the same model.");
+			result = this.poolBuilder.acquire(this.entityKeyBuilder, this.qualifierBuilder, this.operationsCollapsedBuilder,
+					this.sectionsCollapsedBuilder, this.entityBuilder);
+		}
+		this.configure(result);
+		return result;
+	}
+
+	/**
+	 * Declares that the constraints of a property depend on the value of
+	 * another property. Changes of the property then validate the entity as a
+	 * whole on submit.
+	 * 
+	 * @param property
+	 *            The property path. May not be null.
+	 * @param dependent
+	 *            The path of the dependent property. May not be null.
+	 * @return The builder.
+	 */
+	public FormBuilder<S, E> dependency(final String property, final String dependent) {
+		Validate.notNull(property, "Property may not be null.");
+		Validate.notNull(dependent, "Dependent may not be null.");
+		Set<String> dependents = this.dependenciesBuilder.get(property);
+		if (CheckUtil.isNull(dependents)) {
+			dependents = new LinkedHashSet<String>();
+			this.dependenciesBuilder.put(property, dependents);
+		}
+		dependents.add(dependent);
+		return this;
 	}
 
 	/**
@@ -105,4 +161,108 @@ public final class FormBuilder<S, E extends S> {
 		this.modelBuilder = model;
 		return this;
 	}
+
+	/**
+	 * Sets a new value for the operationsCollapsed field.
+	 * 
+	 * @param operationsCollapsed
+	 *            The new value for the operationsCollapsed field. If set, the
+	 *            operations are shown as links and only rendered once
+	 *            clicked.
+	 * @return The builder.
+	 */
+	public FormBuilder<S, E> operationsCollapsed(final boolean operationsCollapsed) {
+		this.operationsCollapsedBuilder = operationsCollapsed;
+		return this;
+	}
+
+	/**
+	 * Sets a new value for the pool field.
+	 * 
+	 * @param pool
+	 *            The new value for the pool field. May be null, in which case
+	 *            every form is built.
+	 * @return The builder.
+	 */
+	public FormBuilder<S, E> pool(final FormComponentPool<S> pool) {
+		this.poolBuilder = pool;
+		return this;
+	}
+
+	/**
+	 * Sets a new value for the qualifier field.
+	 * 
+	 * @param qualifier
+	 *            The new value for the qualifier field.
+	 * @return The builder.
+	 */
+	public FormBuilder<S, E> qualifier(final Class<?> qualifier) {
+		this.qualifierBuilder = qualifier;
+		return this;
+	}
+
+	/**
+	 * Sets a new value for the sectionsCollapsed field.
+	 * 
+	 * @param sectionsCollapsed
+	 *            The new value for the sectionsCollapsed field. If set, the
+	 *            sections of embedded properties are shown as links and only
+	 *            rendered once clicked.
+	 * @return The builder.
+	 */
+	public FormBuilder<S, E> sectionsCollapsed(final boolean sectionsCollapsed) {
+		this.sectionsCollapsedBuilder = sectionsCollapsed;
+		return this;
+	}
+
+	/**
+	 * Sets a new value for the validationDelay field.
+	 * 
+	 * @param validationDelay
+	 *            The new value for the validationDelay field. The delay after
+	 *            a value change before it is validated asynchronously, in
+	 *            milliseconds.
+	 * @return The builder.
+	 */
+	public FormBuilder<S, E> validationDelay(final long validationDelay) {
+		this.validationDelayBuilder = validationDelay;
+		return this;
+	}
+
+	/**
+	 * Sets a new value for the validationExecutor field.
+	 * 
+	 * @param validationExecutor
+	 *            The new value for the validationExecutor field. If set, the
+	 *            fields are validated asynchronously on the executor.
+	 * @return The builder.
+	 */
+	public FormBuilder<S, E> validationExecutor(final ScheduledExecutorService validationExecutor) {
+		this.validationExecutorBuilder = validationExecutor;
+		return this;
+	}
+
+	/**
+	 * Declares the dependencies on the entity validation of a form and
+	 * enables asynchronous validation, if set.
+	 * 
+	 * @param form
+	 *            The form.
+	 */
+	private void configure(final FormComponent<S, E> form) {
+		if (form instanceof FormComponentImpl) {
+			final FormComponentImpl<S, E> impl = (FormComponentImpl<S, E>) form;
+			if (!CheckUtil.isNull(this.validationExecutorBuilder)) {
+				impl.enableAsyncValidation(this.validationExecutorBuilder, this.validationDelayBuilder);
+			}
+			final EntityValidationListener<S, E> listener = impl.getValidationListener();
+			if (!CheckUtil.isNull(listener)) {
+				for (final Map.Entry<String, Set<String>> entry : this.dependenciesBuilder.entrySet()) {
+					for (final String dependent : entry.getValue()) {
+						listener.addDependency(entry.getKey(), dependent);
+					}
+				}
+			}
+		}
+	}
 }
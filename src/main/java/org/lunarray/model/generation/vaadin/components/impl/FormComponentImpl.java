@@ -17,6 +17,14 @@
  */
 package org.lunarray.model.generation.vaadin.components.impl;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.vaadin.ui.AbstractField;
 import com.vaadin.ui.Button;
 import com.vaadin.ui.Button.ClickListener;
 import com.vaadin.ui.Component;
@@ -29,12 +37,15 @@ import org.apache.commons.lang.Validate;
 import org.lunarray.common.check.CheckUtil;
 import org.lunarray.model.descriptor.model.Model;
 import org.lunarray.model.descriptor.validator.EntityValidator;
-import org.lunarray.model.generation.util.Composer;
 import org.lunarray.model.generation.vaadin.components.FormComponent;
+import org.lunarray.model.generation.vaadin.components.PropertyChange;
 import org.lunarray.model.generation.vaadin.render.RenderContext;
 import org.lunarray.model.generation.vaadin.render.factories.form.FormPropertyRenderStrategy;
+import org.lunarray.model.generation.vaadin.render.factories.form.impl.property.AbstractPropertyDescriptorImpl;
 import org.lunarray.model.generation.vaadin.render.factories.form.vaadin.FormPropertyRenderStrategyFactoryImpl;
 import org.lunarray.model.generation.vaadin.render.factories.form.vaadin.components.OperationOutputStrategy;
+import org.lunarray.model.generation.vaadin.render.plan.RenderPlan;
+import org.lunarray.model.generation.vaadin.render.plan.RenderStep;
 import org.lunarray.model.generation.vaadin.util.MessageUtil;
 
 /**
@@ -58,16 +69,34 @@ public final class FormComponentImpl<S, E extends S>
 	private static final long serialVersionUID = -2445831011878758711L;
 	/** Validation message. */
 	private static final String STRATEGY_NULL = "Strategy may not be null.";
+	/** The asynchronous validation, or null if fields validate synchronously. */
+	private AsyncValidation<S, E> asyncValidation;
 	/** The cancel button. */
 	private Button cancelButton;
+	/** The cancel listeners added by users of the form. */
+	private List<ClickListener> cancelListeners;
+	/** The collapsed operations. */
+	private List<CollapsedOperation<S, E>> collapsedOperations;
+	/** The collapsed embedded sections. */
+	private List<CollapsedSection<S, E>> collapsedSections;
 	/** The entity. */
 	private E entity;
 	/** The form. */
 	private Form form;
+	/** Whether operations are collapsed until expanded. */
+	private final boolean operationsCollapsed;
+	/** Whether embedded sections are collapsed until expanded. */
+	private final boolean sectionsCollapsed;
+	/** The strategy factory the form is rendered with. */
+	private FormPropertyRenderStrategyFactoryImpl<E> strategyFactory;
 	/** The subform. */
 	private Form subForm;
 	/** The submit button. */
 	private Button submitButton;
+	/** The submit listeners added by users of the form. */
+	private List<ClickListener> submitListeners;
+	/** The entity validation listener, or null if the model has no entity validator. */
+	private EntityValidationListener<S, E> validationListener;
 
 	/**
 	 * Constructs the form component.
@@ -80,8 +109,74 @@ public final class FormComponentImpl<S, E extends S>
 	 *            The entity.
 	 */
 	protected FormComponentImpl(final Model<S> model, final String entityKey, final E entity) {
+		this(model, entityKey, null, entity);
+	}
+
+	/**
+	 * Constructs the form component.
+	 * 
+	 * @param model
+	 *            The model.
+	 * @param entityKey
+	 *            The entity key.
+	 * @param qualifier
+	 *            The qualifier to render with. May be null.
+	 * @param entity
+	 *            The entity.
+	 */
+	protected FormComponentImpl(final Model<S> model, final String entityKey, final Class<?> qualifier, final E entity) {
+		this(model, entityKey, qualifier, false, entity);
+	}
+
+	/**
+	 * Constructs the form component.
+	 * 
+	 * @param model
+	 *            The model.
+	 * @param entityKey
+	 *            The entity key.
+	 * @param qualifier
+	 *            The qualifier to render with. May be null.
+	 * @param operationsCollapsed
+	 *            Whether operations are collapsed, being rendered only once
+	 *            they are expanded.
+	 * @param entity
+	 *            The entity.
+	 */
+	protected FormComponentImpl(final Model<S> model, final String entityKey, final Class<?> qualifier, final boolean operationsCollapsed,
+			final E entity) {
+		this(model, entityKey, qualifier, operationsCollapsed, false, entity);
+	}
+
+	/**
+	 * Constructs the form component.
+	 * 
+	 * @param model
+	 *            The model.
+	 * @param entityKey
+	 *            The entity key.
+	 * @param qualifier
+	 *            The qualifier to render with. May be null.
+	 * @param operationsCollapsed
+	 *            Whether operations are collapsed, being rendered only once
+	 *            they are expanded.
+	 * @param sectionsCollapsed
+	 *            Whether the sections of embedded properties are collapsed,
+	 *            being rendered only once they are expanded.
+	 * @param entity
+	 *            The entity.
+	 */
+	protected FormComponentImpl(final Model<S> model, final String entityKey, final Class<?> qualifier, final boolean operationsCollapsed,
+			final boolean sectionsCollapsed, final E entity) {
 		super(model, entityKey);
+		this.setQualifier(qualifier);
+		this.operationsCollapsed = operationsCollapsed;
+		this.sectionsCollapsed = sectionsCollapsed;
 		this.entity = entity;
+		this.collapsedOperations = new LinkedList<CollapsedOperation<S, E>>();
+		this.collapsedSections = new LinkedList<CollapsedSection<S, E>>();
+		this.cancelListeners = new LinkedList<ClickListener>();
+		this.submitListeners = new LinkedList<ClickListener>();
 		this.init();
 	}
 
@@ -89,12 +184,84 @@ public final class FormComponentImpl<S, E extends S>
 	@Override
 	public void addCancelListener(final ClickListener listener) {
 		this.cancelButton.addListener(listener);
+		this.cancelListeners.add(listener);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void addSubmitListener(final ClickListener listener) {
 		this.submitButton.addListener(listener);
+		this.submitListeners.add(listener);
+	}
+
+	/**
+	 * Forgets the changes made through the form, for instance once these are
+	 * persisted. The current values of the entity become the original values.
+	 */
+	public void clearChanges() {
+		for (final AbstractPropertyDescriptorImpl<?, E> descriptor : this.strategyFactory.getDescriptors().values()) {
+			descriptor.clearDirty();
+		}
+	}
+
+	/**
+	 * Validates the property fields of the form asynchronously. Value changes
+	 * are validated on the executor once no other change of the field
+	 * followed within the delay. While validations are pending, an indicator
+	 * in the footer polls for their results. Commits complete the pending
+	 * validations first. If the form already validates asynchronously, the
+	 * executor and delay are replaced.
+	 * 
+	 * @param executor
+	 *            The executor to validate on. May not be null.
+	 * @param delay
+	 *            The delay after a value change, in milliseconds. May not be
+	 *            negative.
+	 */
+	public void enableAsyncValidation(final ScheduledExecutorService executor, final long delay) {
+		if (CheckUtil.isNull(this.asyncValidation)) {
+			this.asyncValidation = new AsyncValidation<S, E>(this, executor, delay);
+			this.form.getFooter().addComponent(this.asyncValidation.getIndicator());
+			for (final Map.Entry<String, AbstractPropertyDescriptorImpl<?, E>> entry : this.strategyFactory.getDescriptors().entrySet()) {
+				this.asyncValidation.install(this.form.getField(entry.getKey()), entry.getValue());
+			}
+		} else {
+			this.asyncValidation.setExecutor(executor);
+			this.asyncValidation.setDelay(delay);
+		}
+	}
+
+	/**
+	 * Expands the collapsed sections that render a property, so that its
+	 * field exists.
+	 * 
+	 * @param property
+	 *            The property descriptor. May be null.
+	 * @return True if and only if a section was expanded.
+	 */
+	public boolean expandSection(final Object property) {
+		boolean result = false;
+		boolean expanded = true;
+		while (expanded) {
+			expanded = false;
+			for (final CollapsedSection<S, E> section : new ArrayList<CollapsedSection<S, E>>(this.collapsedSections)) {
+				if (section.contains(property)) {
+					section.expand();
+					expanded = true;
+					result = true;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the value for the asyncValidation field.
+	 * 
+	 * @return The value for the asyncValidation field.
+	 */
+	public AsyncValidation<S, E> getAsyncValidation() {
+		return this.asyncValidation;
 	}
 
 	/**
@@ -106,6 +273,40 @@ public final class FormComponentImpl<S, E extends S>
 		return this.cancelButton;
 	}
 
+	/**
+	 * {@inheritDoc} Only properties written with a value different from the
+	 * one shown are changed, the old value is the value of the property before
+	 * it was first written and the new value the current value.
+	 */
+	@Override
+	public Map<String, PropertyChange<?>> getChanges() {
+		final Map<String, PropertyChange<?>> result = new LinkedHashMap<String, PropertyChange<?>>();
+		for (final Map.Entry<String, AbstractPropertyDescriptorImpl<?, E>> entry : this.strategyFactory.getDescriptors().entrySet()) {
+			if (entry.getValue().isDirty()) {
+				result.put(entry.getKey(), this.createChange(entry.getKey(), entry.getValue()));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the value for the collapsedOperations field.
+	 * 
+	 * @return The value for the collapsedOperations field.
+	 */
+	public List<CollapsedOperation<S, E>> getCollapsedOperations() {
+		return this.collapsedOperations;
+	}
+
+	/**
+	 * Gets the value for the collapsedSections field.
+	 * 
+	 * @return The value for the collapsedSections field.
+	 */
+	public List<CollapsedSection<S, E>> getCollapsedSections() {
+		return this.collapsedSections;
+	}
+
 	/**
 	 * Gets the value for the entity field.
 	 * 
@@ -125,6 +326,15 @@ public final class FormComponentImpl<S, E extends S>
 		return this.form;
 	}
 
+	/**
+	 * Gets the value for the strategyFactory field.
+	 * 
+	 * @return The value for the strategyFactory field.
+	 */
+	public FormPropertyRenderStrategyFactoryImpl<E> getStrategyFactory() {
+		return this.strategyFactory;
+	}
+
 	/**
 	 * Gets the value for the subForm field.
 	 * 
@@ -143,6 +353,43 @@ public final class FormComponentImpl<S, E extends S>
 		return this.submitButton;
 	}
 
+	/**
+	 * Gets the value for the validationListener field.
+	 * 
+	 * @return The value for the validationListener field.
+	 */
+	public EntityValidationListener<S, E> getValidationListener() {
+		return this.validationListener;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean isDirty() {
+		boolean result = false;
+		for (final AbstractPropertyDescriptorImpl<?, E> descriptor : this.strategyFactory.getDescriptors().values()) {
+			result |= descriptor.isDirty();
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the value for the operationsCollapsed field.
+	 * 
+	 * @return The value for the operationsCollapsed field.
+	 */
+	public boolean isOperationsCollapsed() {
+		return this.operationsCollapsed;
+	}
+
+	/**
+	 * Gets the value for the sectionsCollapsed field.
+	 * 
+	 * @return The value for the sectionsCollapsed field.
+	 */
+	public boolean isSectionsCollapsed() {
+		return this.sectionsCollapsed;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void processBeginStrategy(final OperationOutputStrategy<E> strategy) {
@@ -170,6 +417,9 @@ public final class FormComponentImpl<S, E extends S>
 			final Field field = (Field) component;
 			this.subForm.addField(propertyName, field);
 			this.getProperties().add(propertyName);
+			if (!CheckUtil.isNull(this.asyncValidation) && strategy.getDescriptor() instanceof AbstractPropertyDescriptorImpl) {
+				this.asyncValidation.install(field, (AbstractPropertyDescriptorImpl<?, ?>) strategy.getDescriptor());
+			}
 		} else {
 			this.subForm.getLayout().addComponent(strategy.getComponent());
 		}
@@ -179,12 +429,33 @@ public final class FormComponentImpl<S, E extends S>
 	@Override
 	public void removeCancelListener(final ClickListener listener) {
 		this.cancelButton.removeListener(listener);
+		this.cancelListeners.remove(listener);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void removeSubmitListener(final ClickListener listener) {
 		this.submitButton.removeListener(listener);
+		this.submitListeners.remove(listener);
+	}
+
+	/**
+	 * Resets the form for reuse. Removes the cancel and submit listeners added
+	 * by users of the form, clears the validation errors, discards the
+	 * buffered values and forgets the changes.
+	 */
+	public void reset() {
+		for (final ClickListener listener : this.cancelListeners) {
+			this.cancelButton.removeListener(listener);
+		}
+		this.cancelListeners.clear();
+		for (final ClickListener listener : this.submitListeners) {
+			this.submitButton.removeListener(listener);
+		}
+		this.submitListeners.clear();
+		this.clearValidation();
+		this.form.discard();
+		this.clearChanges();
 	}
 
 	/**
@@ -198,14 +469,23 @@ public final class FormComponentImpl<S, E extends S>
 	}
 
 	/**
-	 * Sets a new value for the entity field.
+	 * Sets a new value for the entity field. The rendered form is kept, its
+	 * properties and operations are bound to the new entity, the fields
+	 * discard their buffered values and the error markers of the previous
+	 * entity are cleared.
 	 * 
 	 * @param entity
 	 *            The new value for the entity field.
 	 */
 	public void setEntity(final E entity) {
 		this.entity = entity;
-		this.init();
+		if (CheckUtil.isNull(this.strategyFactory)) {
+			this.init();
+		} else {
+			this.strategyFactory.rebind(entity);
+			this.form.discard();
+			this.clearValidation();
+		}
 	}
 
 	/**
@@ -218,6 +498,16 @@ public final class FormComponentImpl<S, E extends S>
 		this.form = form;
 	}
 
+	/**
+	 * Sets a new value for the strategyFactory field.
+	 * 
+	 * @param strategyFactory
+	 *            The new value for the strategyFactory field.
+	 */
+	public void setStrategyFactory(final FormPropertyRenderStrategyFactoryImpl<E> strategyFactory) {
+		this.strategyFactory = strategyFactory;
+	}
+
 	/**
 	 * Sets a new value for the subForm field.
 	 * 
@@ -238,25 +528,153 @@ public final class FormComponentImpl<S, E extends S>
 		this.submitButton = submitButton;
 	}
 
+	/**
+	 * Sets a new value for the validationListener field.
+	 * 
+	 * @param validationListener
+	 *            The new value for the validationListener field.
+	 */
+	public void setValidationListener(final EntityValidationListener<S, E> validationListener) {
+		this.validationListener = validationListener;
+	}
+
+	/**
+	 * Replays recorded steps, collapsing operations and embedded sections if
+	 * so configured. The steps of a collapsed operation or section are kept
+	 * aside until it is expanded.
+	 * 
+	 * @param steps
+	 *            The steps.
+	 * @param depth
+	 *            The depth of the embedded properties to collapse in the
+	 *            prefixes of the steps.
+	 */
+	protected void replaySteps(final List<RenderStep<E>> steps, final int depth) {
+		final RenderContext<E> context = new RenderContext<E>(this.getModel());
+		List<RenderStep<E>> operation = null;
+		List<RenderStep<E>> section = null;
+		for (final RenderStep<E> step : steps) {
+			if (CheckUtil.isNull(operation) && this.isCollapsedSection(step, depth)) {
+				if (!CheckUtil.isNull(section) && !section.get(0).getPrefixes().get(depth).equals(step.getPrefixes().get(depth))) {
+					this.collapseSection(section, depth);
+					section = null;
+				}
+				if (CheckUtil.isNull(section)) {
+					section = new LinkedList<RenderStep<E>>();
+				}
+				section.add(step);
+			} else {
+				if (!CheckUtil.isNull(section)) {
+					this.collapseSection(section, depth);
+					section = null;
+				}
+				if (this.operationsCollapsed && step.getKind() == RenderStep.Kind.BEGIN_OPERATION) {
+					operation = new LinkedList<RenderStep<E>>();
+				}
+				if (CheckUtil.isNull(operation)) {
+					step.replay(context, this.strategyFactory);
+				} else {
+					operation.add(step);
+				}
+				if (!CheckUtil.isNull(operation) && step.getKind() == RenderStep.Kind.END_OPERATION) {
+					final CollapsedOperation<S, E> collapsed = new CollapsedOperation<S, E>(this, operation);
+					this.form.getLayout().addComponent(collapsed.getButton());
+					this.collapsedOperations.add(collapsed);
+					operation = null;
+				}
+			}
+		}
+		if (!CheckUtil.isNull(section)) {
+			this.collapseSection(section, depth);
+		}
+	}
+
+	/**
+	 * Clears the error markers of the form and its fields, discards the
+	 * pending asynchronous validations and forgets the previous validation.
+	 */
+	private void clearValidation() {
+		for (final Object propertyId : this.form.getItemPropertyIds()) {
+			final Field field = this.form.getField(propertyId);
+			if (field instanceof AbstractField) {
+				((AbstractField) field).setComponentError(null);
+			}
+		}
+		this.form.setComponentError(null);
+		if (!CheckUtil.isNull(this.asyncValidation)) {
+			this.asyncValidation.clear();
+		}
+		if (!CheckUtil.isNull(this.validationListener)) {
+			this.validationListener.invalidate();
+		}
+	}
+
+	/**
+	 * Collapses an embedded section.
+	 * 
+	 * @param section
+	 *            The steps of the section.
+	 * @param depth
+	 *            The depth of the embedded property.
+	 */
+	private void collapseSection(final List<RenderStep<E>> section, final int depth) {
+		final CollapsedSection<S, E> collapsed = new CollapsedSection<S, E>(this, section, depth);
+		this.form.getLayout().addComponent(collapsed.getButton());
+		this.collapsedSections.add(collapsed);
+	}
+
+	/**
+	 * Creates the change of a property.
+	 * 
+	 * @param path
+	 *            The property path.
+	 * @param descriptor
+	 *            The property descriptor.
+	 * @return The change.
+	 * @param <P>
+	 *            The property type.
+	 */
+	private <P> PropertyChange<P> createChange(final String path, final AbstractPropertyDescriptorImpl<P, E> descriptor) {
+		return new PropertyChange<P>(path, descriptor.getOriginalValue(), descriptor.getDirectValue());
+	}
+
 	/** Initializes the form. */
 	private void init() {
 		this.form = new Form(new FormLayout());
-		final Composer<RenderContext<E>, S, E> composer = new Composer<RenderContext<E>, S, E>();
-		final Model<S> model = this.getModel();
-		composer.setContext(new RenderContext<E>(model));
-		composer.setPropertyRenderStrategyFactory(new FormPropertyRenderStrategyFactoryImpl<E>(this));
-		composer.setVariableResolver(new ComponentVariableResolver());
-		this.form.setCaption(composer.getLabel());
+		final RenderPlan<E> plan = this.resolvePlan(true);
+		this.form.setCaption(plan.getLabel());
 		this.setCompositionRoot(this.form);
 		this.subForm = this.form;
-		composer.compose(true);
+		this.strategyFactory = new FormPropertyRenderStrategyFactoryImpl<E>(this);
+		if (this.operationsCollapsed || this.sectionsCollapsed) {
+			this.replaySteps(plan.getSteps(), 0);
+		} else {
+			plan.replay(new RenderContext<E>(this.getModel()), this.strategyFactory);
+		}
 		this.form.setFooter(new HorizontalLayout());
 		this.submitButton = new Button(MessageUtil.getMessage(FormComponentImpl.BUTTON_SUBMIT), this.form, "commit");
 		if (!CheckUtil.isNull(this.getModel().getExtension(EntityValidator.class))) {
-			this.submitButton.addListener(new EntityValidationListener<S, E>(this));
+			this.validationListener = new EntityValidationListener<S, E>(this);
+			this.submitButton.addListener(this.validationListener);
 		}
 		this.form.getFooter().addComponent(this.submitButton);
 		this.cancelButton = new Button(MessageUtil.getMessage(FormComponentImpl.BUTTON_CANCEL));
 		this.form.getFooter().addComponent(this.cancelButton);
 	}
+
+	/**
+	 * Tests if a step renders a property of an embedded section to collapse.
+	 * The composer pushes every rendered property as a prefix, so properties
+	 * of an embedded section have more prefixes than the depth of the section.
+	 * 
+	 * @param step
+	 *            The step.
+	 * @param depth
+	 *            The depth of the embedded properties.
+	 * @return True if and only if the step is to be collapsed.
+	 */
+	private boolean isCollapsedSection(final RenderStep<E> step, final int depth) {
+		final boolean property = step.getKind() == RenderStep.Kind.PROPERTY || step.getKind() == RenderStep.Kind.COLLECTION_PROPERTY;
+		return this.sectionsCollapsed && property && step.getPrefixes().size() > depth + 1;
+	}
 }
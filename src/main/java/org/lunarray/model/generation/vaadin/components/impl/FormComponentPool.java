@@ -0,0 +1,348 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import com.vaadin.ui.ComponentContainer;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.generation.vaadin.components.FormComponent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of built forms, meant to be held per application or session. Forms
+ * are pooled per entity key and qualifier. A released form is detached and
+ * reset, and is rebound to the entity it is acquired for instead of being
+ * built again. The least recently released forms are evicted once the pool
+ * holds more idle forms than its maximum size.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <S>
+ *            The model super type.
+ */
+public final class FormComponentPool<S>
+		implements Serializable {
+
+	/** The default maximum amount of idle forms. */
+	public static final int DEFAULT_MAX_SIZE = 16;
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(FormComponentPool.class);
+	/** Serial id. */
+	private static final long serialVersionUID = 6207485591340236624L;
+	/** The amount of evicted forms. */
+	private int evictions;
+	/** The amount of forms acquired from the pool. */
+	private int hits;
+	/** The idle forms, the least recently used key first. */
+	private final LinkedHashMap<Key, LinkedList<FormComponentImpl<S, ?>>> idle;
+	/** The maximum amount of idle forms. */
+	private final int maxSize;
+	/** The amount of forms built because none were idle. */
+	private int misses;
+	/** The model. */
+	private final Model<S> model;
+	/** The amount of idle forms. */
+	private int size;
+
+	/**
+	 * Constructs the pool.
+	 * 
+	 * @param model
+	 *            The model. May not be null.
+	 */
+	public FormComponentPool(final Model<S> model) {
+		this(model, FormComponentPool.DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Constructs the pool.
+	 * 
+	 * @param model
+	 *            The model. May not be null.
+	 * @param maxSize
+	 *            The maximum amount of idle forms. Must be positive.
+	 */
+	public FormComponentPool(final Model<S> model, final int maxSize) {
+		Validate.notNull(model, "Model may not be null.");
+		Validate.isTrue(maxSize > 0, "Maximum size must be positive.");
+		this.model = model;
+		this.maxSize = maxSize;
+		this.idle = new LinkedHashMap<Key, LinkedList<FormComponentImpl<S, ?>>>(16, 0.75f, true);
+	}
+
+	/**
+	 * Acquires a form for an entity. An idle form is rebound to the entity if
+	 * one is pooled, otherwise a form is built.
+	 * 
+	 * @param entityKey
+	 *            The entity key. May not be null.
+	 * @param qualifier
+	 *            The qualifier. May be null.
+	 * @param entity
+	 *            The entity. May not be null.
+	 * @return The form.
+	 * @param <E>
+	 *            The entity type.
+	 */
+	public <E extends S> FormComponent<S, E> acquire(final String entityKey, final Class<?> qualifier, final E entity) {
+		return this.acquire(entityKey, qualifier, false, false, entity);
+	}
+
+	/**
+	 * Acquires a form for an entity. An idle form is rebound to the entity if
+	 * one is pooled, otherwise a form is built.
+	 * 
+	 * @param entityKey
+	 *            The entity key. May not be null.
+	 * @param qualifier
+	 *            The qualifier. May be null.
+	 * @param operationsCollapsed
+	 *            Whether the operations of the form are collapsed.
+	 * @param sectionsCollapsed
+	 *            Whether the embedded sections of the form are collapsed.
+	 * @param entity
+	 *            The entity. May not be null.
+	 * @return The form.
+	 * @param <E>
+	 *            The entity type.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <E extends S> FormComponent<S, E> acquire(final String entityKey, final Class<?> qualifier,
+			final boolean operationsCollapsed, final boolean sectionsCollapsed, final E entity) {
+		Validate.notNull(entityKey, "Entity key may not be null.");
+		Validate.notNull(entity, "Entity may not be null.");
+		final Key key = new Key(entityKey, qualifier, operationsCollapsed, sectionsCollapsed);
+		final LinkedList<FormComponentImpl<S, ?>> forms = this.idle.get(key);
+		FormComponentImpl<S, E> result;
+		if (CheckUtil.isNull(forms)) {
+			this.misses++;
+			result = new FormComponentImpl<S, E>(this.model, entityKey, qualifier, operationsCollapsed, sectionsCollapsed, entity);
+			FormComponentPool.LOGGER.debug("Built form for: {}", key);
+		} else {
+			this.hits++;
+			result = (FormComponentImpl<S, E>) forms.removeFirst();
+			this.size--;
+			if (forms.isEmpty()) {
+				this.idle.remove(key);
+			}
+			result.setEntity(entity);
+			FormComponentPool.LOGGER.debug("Reused form for: {}", key);
+		}
+		return result;
+	}
+
+	/**
+	 * Drops all idle forms.
+	 */
+	public synchronized void clear() {
+		this.idle.clear();
+		this.size = 0;
+	}
+
+	/**
+	 * Gets the value for the evictions field.
+	 * 
+	 * @return The value for the evictions field.
+	 */
+	public synchronized int getEvictions() {
+		return this.evictions;
+	}
+
+	/**
+	 * Gets the value for the hits field.
+	 * 
+	 * @return The value for the hits field.
+	 */
+	public synchronized int getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Gets the value for the maxSize field.
+	 * 
+	 * @return The value for the maxSize field.
+	 */
+	public int getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Gets the value for the misses field.
+	 * 
+	 * @return The value for the misses field.
+	 */
+	public synchronized int getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * Gets the value for the model field.
+	 * 
+	 * @return The value for the model field.
+	 */
+	public Model<S> getModel() {
+		return this.model;
+	}
+
+	/**
+	 * Gets the value for the size field.
+	 * 
+	 * @return The value for the size field.
+	 */
+	public synchronized int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Returns a form to the pool. The form is detached from its parent and
+	 * reset. Forms not acquired from a pool of the same model are refused.
+	 * 
+	 * @param form
+	 *            The form. May not be null.
+	 * @return True if and only if the form was pooled.
+	 */
+	public synchronized boolean release(final FormComponent<S, ?> form) {
+		Validate.notNull(form, "Form may not be null.");
+		boolean result = false;
+		if (form instanceof FormComponentImpl) {
+			final FormComponentImpl<S, ?> impl = (FormComponentImpl<S, ?>) form;
+			if (impl.getModel().equals(this.model)) {
+				if (impl.getParent() instanceof ComponentContainer) {
+					((ComponentContainer) impl.getParent()).removeComponent(impl);
+				}
+				impl.reset();
+				final Key key = new Key(impl.getEntityDescriptor().getName(), impl.getQualifier(), impl.isOperationsCollapsed(),
+						impl.isSectionsCollapsed());
+				LinkedList<FormComponentImpl<S, ?>> forms = this.idle.get(key);
+				if (CheckUtil.isNull(forms)) {
+					forms = new LinkedList<FormComponentImpl<S, ?>>();
+					this.idle.put(key, forms);
+				}
+				forms.addFirst(impl);
+				this.size++;
+				this.evict();
+				result = true;
+			}
+		}
+		if (!result) {
+			FormComponentPool.LOGGER.debug("Refused form: {}", form);
+		}
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized String toString() {
+		return String.format("FormComponentPool[size=%s, hits=%s, misses=%s, evictions=%s]", this.size, this.hits, this.misses,
+				this.evictions);
+	}
+
+	/**
+	 * Evicts the least recently used forms while the pool is too large.
+	 */
+	private void evict() {
+		final Iterator<Map.Entry<Key, LinkedList<FormComponentImpl<S, ?>>>> entries = this.idle.entrySet().iterator();
+		while (this.size > this.maxSize && entries.hasNext()) {
+			final Map.Entry<Key, LinkedList<FormComponentImpl<S, ?>>> entry = entries.next();
+			while (this.size > this.maxSize && !entry.getValue().isEmpty()) {
+				entry.getValue().removeLast();
+				this.size--;
+				this.evictions++;
+				FormComponentPool.LOGGER.debug("Evicted form for: {}", entry.getKey());
+			}
+			if (entry.getValue().isEmpty()) {
+				entries.remove();
+			}
+		}
+	}
+
+	/**
+	 * The key of pooled forms.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private static final class Key
+			implements Serializable {
+
+		/** Serial id. */
+		private static final long serialVersionUID = -1942316440357232387L;
+		/** The entity key. */
+		private final String entityKey;
+		/** Whether operations are collapsed. */
+		private final boolean operationsCollapsed;
+		/** The qualifier. */
+		private final Class<?> qualifier;
+		/** Whether embedded sections are collapsed. */
+		private final boolean sectionsCollapsed;
+
+		/**
+		 * Constructs the key.
+		 * 
+		 * @param entityKey
+		 *            The entity key. May not be null.
+		 * @param qualifier
+		 *            The qualifier. May be null.
+		 * @param operationsCollapsed
+		 *            Whether operations are collapsed.
+		 * @param sectionsCollapsed
+		 *            Whether embedded sections are collapsed.
+		 */
+		public Key(final String entityKey, final Class<?> qualifier, final boolean operationsCollapsed, final boolean sectionsCollapsed) {
+			this.entityKey = entityKey;
+			this.qualifier = qualifier;
+			this.operationsCollapsed = operationsCollapsed;
+			this.sectionsCollapsed = sectionsCollapsed;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean equals(final Object obj) {
+			boolean result = false;
+			if (obj instanceof Key) {
+				final Key other = (Key) obj;
+				result = this.entityKey.equals(other.entityKey) && ObjectUtils.equals(this.qualifier, other.qualifier)
+						&& this.operationsCollapsed == other.operationsCollapsed && this.sectionsCollapsed == other.sectionsCollapsed;
+			}
+			return result;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int hashCode() {
+			int result = 31 * this.entityKey.hashCode() + ObjectUtils.hashCode(this.qualifier);
+			result = 31 * result + Boolean.valueOf(this.operationsCollapsed).hashCode();
+			return 31 * result + Boolean.valueOf(this.sectionsCollapsed).hashCode();
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public String toString() {
+			return String.format("%s (qualifier %s, operations collapsed %s, sections collapsed %s)", this.entityKey, this.qualifier,
+					this.operationsCollapsed, this.sectionsCollapsed);
+		}
+	}
+}
@@ -0,0 +1,526 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.ColumnPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in memory inverted index over the converted column strings of entities.
+ * Every entity gets an ordinal, every token a sorted postings list of
+ * ordinals. Removed entities are only marked and the postings are compacted
+ * once they hold more removed than live entities.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public final class InvertedIndex<E>
+		implements Serializable {
+
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(InvertedIndex.class);
+	/** The minimum amount of removed entities before compacting. */
+	private static final int MIN_COMPACT = 1024;
+	/** Serial id. */
+	private static final long serialVersionUID = -3089207381614658498L;
+	/** The entities by ordinal, null if removed. */
+	private final List<E> documents;
+	/** The live ordinals. */
+	private final BitSet live;
+	/** The locale to tokenize with. */
+	private final Locale locale;
+	/** The ordinals by entity. */
+	private final Map<E, Integer> ordinals;
+	/** The plans of the indexed columns. */
+	private final List<ColumnPlan<?, E>> plans;
+	/** The display positions by ordinal. */
+	private int[] positions;
+	/** The postings by token. */
+	private final TreeMap<String, Postings> postings;
+	/** The amount of removed entities still in the postings. */
+	private int removed;
+
+	/**
+	 * Constructs the index.
+	 * 
+	 * @param plans
+	 *            The plans of the indexed columns. May not be null.
+	 * @param locale
+	 *            The locale to tokenize with. May be null, in which case the
+	 *            default locale is used.
+	 */
+	public InvertedIndex(final Collection<ColumnPlan<?, E>> plans, final Locale locale) {
+		Validate.notNull(plans, "Plans may not be null.");
+		this.plans = new ArrayList<ColumnPlan<?, E>>(plans);
+		if (CheckUtil.isNull(locale)) {
+			this.locale = Locale.getDefault();
+		} else {
+			this.locale = locale;
+		}
+		this.documents = new ArrayList<E>();
+		this.live = new BitSet();
+		this.ordinals = new HashMap<E, Integer>();
+		this.positions = new int[0];
+		this.postings = new TreeMap<String, Postings>();
+	}
+
+	/**
+	 * Indexes an entity. Entities that are already indexed are ignored.
+	 * 
+	 * @param entity
+	 *            The entity. May not be null.
+	 */
+	public void add(final E entity) {
+		Validate.notNull(entity, "Entity may not be null.");
+		if (!this.ordinals.containsKey(entity)) {
+			final int ordinal = this.documents.size();
+			this.documents.add(entity);
+			this.ordinals.put(entity, Integer.valueOf(ordinal));
+			this.live.set(ordinal);
+			final Set<String> tokens = new LinkedHashSet<String>();
+			for (final ColumnPlan<?, E> plan : this.plans) {
+				this.tokenize(plan.render(entity), tokens);
+			}
+			for (final String token : tokens) {
+				Postings tokenPostings = this.postings.get(token);
+				if (CheckUtil.isNull(tokenPostings)) {
+					tokenPostings = new Postings();
+					this.postings.put(token, tokenPostings);
+				}
+				tokenPostings.add(ordinal);
+			}
+		}
+	}
+
+	/** Removes all entities. */
+	public void clear() {
+		this.documents.clear();
+		this.live.clear();
+		this.ordinals.clear();
+		this.positions = new int[0];
+		this.postings.clear();
+		this.removed = 0;
+	}
+
+	/**
+	 * Tests if an entity is indexed.
+	 * 
+	 * @param entity
+	 *            The entity.
+	 * @return True if and only if the entity is indexed.
+	 */
+	public boolean contains(final E entity) {
+		return this.ordinals.containsKey(entity);
+	}
+
+	/**
+	 * Removes an entity.
+	 * 
+	 * @param entity
+	 *            The entity. May not be null.
+	 */
+	public void remove(final E entity) {
+		Validate.notNull(entity, "Entity may not be null.");
+		final Integer ordinal = this.ordinals.remove(entity);
+		if (!CheckUtil.isNull(ordinal)) {
+			this.documents.set(ordinal.intValue(), null);
+			this.live.clear(ordinal.intValue());
+			this.removed++;
+			if (this.removed >= InvertedIndex.MIN_COMPACT && this.removed > this.ordinals.size()) {
+				this.compact();
+			}
+		}
+	}
+
+	/**
+	 * Replaces an entity by an entity with the same indexed strings, without
+	 * tokenizing it again.
+	 * 
+	 * @param entity
+	 *            The indexed entity. May not be null.
+	 * @param replacement
+	 *            The replacement. May not be null.
+	 */
+	public void replace(final E entity, final E replacement) {
+		Validate.notNull(entity, "Entity may not be null.");
+		Validate.notNull(replacement, "Replacement may not be null.");
+		final Integer ordinal = this.ordinals.remove(entity);
+		if (CheckUtil.isNull(ordinal)) {
+			this.add(replacement);
+		} else {
+			this.documents.set(ordinal.intValue(), replacement);
+			this.ordinals.put(replacement, ordinal);
+		}
+	}
+
+	/**
+	 * Searches the index. Every token of the query must prefix a token of
+	 * the entity.
+	 * 
+	 * @param query
+	 *            The query. May not be null.
+	 * @return The matching entities in display order, or null if the query
+	 *         has no tokens.
+	 */
+	public List<E> search(final String query) {
+		Validate.notNull(query, "Query may not be null.");
+		final Set<String> tokens = new LinkedHashSet<String>();
+		this.tokenize(query, tokens);
+		List<E> result = null;
+		if (!tokens.isEmpty()) {
+			final List<int[]> matches = new ArrayList<int[]>(tokens.size());
+			for (final String token : tokens) {
+				matches.add(this.match(token));
+			}
+			Collections.sort(matches, new LengthComparator());
+			int[] intersection = matches.get(0);
+			for (int i = 1; i < matches.size() && intersection.length > 0; i++) {
+				intersection = InvertedIndex.intersect(intersection, matches.get(i));
+			}
+			result = this.resolve(intersection);
+			InvertedIndex.LOGGER.debug("Query '{}' matched {} entities.", query, result.size());
+		}
+		return result;
+	}
+
+	/**
+	 * Sets the display order of the indexed entities, used to order search
+	 * results.
+	 * 
+	 * @param entities
+	 *            The entities in display order. May not be null.
+	 */
+	public void setOrder(final List<E> entities) {
+		Validate.notNull(entities, "Entities may not be null.");
+		this.positions = new int[this.documents.size()];
+		Arrays.fill(this.positions, Integer.MAX_VALUE);
+		int position = 0;
+		for (final E entity : entities) {
+			final Integer ordinal = this.ordinals.get(entity);
+			if (!CheckUtil.isNull(ordinal)) {
+				this.positions[ordinal.intValue()] = position;
+			}
+			position++;
+		}
+	}
+
+	/**
+	 * Counts the indexed entities.
+	 * 
+	 * @return The amount of indexed entities.
+	 */
+	public int size() {
+		return this.ordinals.size();
+	}
+
+	/**
+	 * Compacts the index, dropping removed entities and renumbering the
+	 * ordinals.
+	 */
+	private void compact() {
+		final int[] renumbered = new int[this.documents.size()];
+		int next = 0;
+		for (int ordinal = 0; ordinal < renumbered.length; ordinal++) {
+			if (this.live.get(ordinal)) {
+				renumbered[ordinal] = next;
+				this.documents.set(next, this.documents.get(ordinal));
+				next++;
+			} else {
+				renumbered[ordinal] = -1;
+			}
+		}
+		this.documents.subList(next, this.documents.size()).clear();
+		this.live.clear();
+		this.live.set(0, next);
+		this.ordinals.clear();
+		for (int ordinal = 0; ordinal < next; ordinal++) {
+			this.ordinals.put(this.documents.get(ordinal), Integer.valueOf(ordinal));
+		}
+		final Iterator<Postings> iterator = this.postings.values().iterator();
+		while (iterator.hasNext()) {
+			final Postings tokenPostings = iterator.next();
+			tokenPostings.renumber(renumbered);
+			if (tokenPostings.isEmpty()) {
+				iterator.remove();
+			}
+		}
+		final int[] previousPositions = this.positions;
+		this.positions = new int[next];
+		Arrays.fill(this.positions, Integer.MAX_VALUE);
+		for (int ordinal = 0; ordinal < previousPositions.length; ordinal++) {
+			if (renumbered[ordinal] >= 0) {
+				this.positions[renumbered[ordinal]] = previousPositions[ordinal];
+			}
+		}
+		InvertedIndex.LOGGER.debug("Compacted index, dropped {} removed entities.", this.removed);
+		this.removed = 0;
+	}
+
+	/**
+	 * Intersects two sorted postings.
+	 * 
+	 * @param first
+	 *            The first postings.
+	 * @param second
+	 *            The second postings.
+	 * @return The intersection.
+	 */
+	private static int[] intersect(final int[] first, final int[] second) {
+		final int[] result = new int[Math.min(first.length, second.length)];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < first.length && j < second.length) {
+			if (first[i] < second[j]) {
+				i++;
+			} else if (first[i] > second[j]) {
+				j++;
+			} else {
+				result[count++] = first[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Matches a token as prefix of the indexed tokens.
+	 * 
+	 * @param token
+	 *            The token.
+	 * @return The sorted ordinals of the matching entities.
+	 */
+	private int[] match(final String token) {
+		final List<Postings> matching = new ArrayList<Postings>();
+		int total = 0;
+		for (final Map.Entry<String, Postings> entry : this.postings.tailMap(token).entrySet()) {
+			if (!entry.getKey().startsWith(token)) {
+				break;
+			}
+			matching.add(entry.getValue());
+			total += entry.getValue().size();
+		}
+		int[] result;
+		if (matching.size() == 1) {
+			result = matching.get(0).toArray();
+		} else {
+			final int[] union = new int[total];
+			int offset = 0;
+			for (final Postings tokenPostings : matching) {
+				offset = tokenPostings.copyTo(union, offset);
+			}
+			Arrays.sort(union);
+			int count = 0;
+			for (int i = 0; i < union.length; i++) {
+				if (count == 0 || union[count - 1] != union[i]) {
+					union[count++] = union[i];
+				}
+			}
+			result = Arrays.copyOf(union, count);
+		}
+		return result;
+	}
+
+	/**
+	 * Resolves ordinals to live entities, in display order.
+	 * 
+	 * @param matched
+	 *            The matched ordinals.
+	 * @return The entities.
+	 */
+	private List<E> resolve(final int[] matched) {
+		final long[] sortable = new long[matched.length];
+		int count = 0;
+		for (final int ordinal : matched) {
+			if (this.live.get(ordinal)) {
+				int position = Integer.MAX_VALUE;
+				if (ordinal < this.positions.length) {
+					position = this.positions[ordinal];
+				}
+				sortable[count++] = ((long) position << Integer.SIZE) | ordinal;
+			}
+		}
+		Arrays.sort(sortable, 0, count);
+		final List<E> result = new ArrayList<E>(count);
+		for (int i = 0; i < count; i++) {
+			result.add(this.documents.get((int) sortable[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * Splits a string into lower case tokens of letters and digits.
+	 * 
+	 * @param value
+	 *            The string. May be null.
+	 * @param tokens
+	 *            The tokens to add to.
+	 */
+	private void tokenize(final String value, final Set<String> tokens) {
+		if (!CheckUtil.isNull(value)) {
+			final String lower = value.toLowerCase(this.locale);
+			int start = -1;
+			for (int i = 0; i <= lower.length(); i++) {
+				final boolean tokenChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+				if (tokenChar && start < 0) {
+					start = i;
+				} else if (!tokenChar && start >= 0) {
+					tokens.add(lower.substring(start, i));
+					start = -1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Orders postings by length, shortest first.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private static final class LengthComparator
+			implements Comparator<int[]>, Serializable {
+
+		/** Serial id. */
+		private static final long serialVersionUID = 5522713896151052394L;
+
+		/** Default constructor. */
+		public LengthComparator() {
+			// Default constructor.
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int compare(final int[] first, final int[] second) {
+			return first.length - second.length;
+		}
+	}
+
+	/**
+	 * A growable, sorted list of ordinals.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private static final class Postings
+			implements Serializable {
+
+		/** Serial id. */
+		private static final long serialVersionUID = -1216574735541327766L;
+		/** The ordinals. */
+		private int[] ordinals;
+		/** The amount of ordinals. */
+		private int size;
+
+		/** Default constructor. */
+		public Postings() {
+			this.ordinals = new int[4];
+		}
+
+		/**
+		 * Appends an ordinal, which must be larger than all previous ones.
+		 * 
+		 * @param ordinal
+		 *            The ordinal.
+		 */
+		public void add(final int ordinal) {
+			if (this.size == this.ordinals.length) {
+				this.ordinals = Arrays.copyOf(this.ordinals, this.size * 2);
+			}
+			this.ordinals[this.size++] = ordinal;
+		}
+
+		/**
+		 * Copies the ordinals to an array.
+		 * 
+		 * @param target
+		 *            The target.
+		 * @param offset
+		 *            The offset in the target.
+		 * @return The offset after the copied ordinals.
+		 */
+		public int copyTo(final int[] target, final int offset) {
+			System.arraycopy(this.ordinals, 0, target, offset, this.size);
+			return offset + this.size;
+		}
+
+		/**
+		 * Tests if there are no ordinals.
+		 * 
+		 * @return True if and only if there are no ordinals.
+		 */
+		public boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		/**
+		 * Renumbers the ordinals, dropping the ones mapped to a negative
+		 * ordinal. The renumbering must preserve the order.
+		 * 
+		 * @param renumbered
+		 *            The new ordinals by old ordinal.
+		 */
+		public void renumber(final int[] renumbered) {
+			int count = 0;
+			for (int i = 0; i < this.size; i++) {
+				final int ordinal = renumbered[this.ordinals[i]];
+				if (ordinal >= 0) {
+					this.ordinals[count++] = ordinal;
+				}
+			}
+			this.size = count;
+		}
+
+		/**
+		 * Counts the ordinals.
+		 * 
+		 * @return The amount of ordinals.
+		 */
+		public int size() {
+			return this.size;
+		}
+
+		/**
+		 * Copies the ordinals.
+		 * 
+		 * @return The ordinals.
+		 */
+		public int[] toArray() {
+			return Arrays.copyOf(this.ordinals, this.size);
+		}
+	}
+}
@@ -0,0 +1,172 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.generation.vaadin.components.TableDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A data source that streams entities from an iterable, such as a cursor.
+ * Entities are read forward as they are fetched and not kept, the container
+ * holds the bounded window of displayed pages. Fetching before the current
+ * position starts a new iterator. Iterators that are {@link Closeable} are
+ * closed once they are exhausted or replaced. Fetching is synchronized, so
+ * that cells may be precomputed on another thread.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public final class IterableDataSource<E>
+		implements TableDataSource<E> {
+
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(IterableDataSource.class);
+	/** Serial id. */
+	private static final long serialVersionUID = -6133460006908497361L;
+	/** The current iterator. */
+	private transient Iterator<E> iterator;
+	/** The entities. */
+	private final Iterable<E> iterable;
+	/** The index of the next entity of the iterator. */
+	private transient int position;
+	/** The amount of entities, negative if unknown. */
+	private int size;
+
+	/**
+	 * Constructs the data source without a size hint. The entities are counted
+	 * once, without keeping them, when the size is first requested.
+	 * 
+	 * @param iterable
+	 *            The entities. May not be null. Every iterator must yield the
+	 *            same entities in the same order.
+	 */
+	public IterableDataSource(final Iterable<E> iterable) {
+		this(iterable, -1);
+	}
+
+	/**
+	 * Constructs the data source.
+	 * 
+	 * @param iterable
+	 *            The entities. May not be null. Every iterator must yield the
+	 *            same entities in the same order.
+	 * @param sizeHint
+	 *            The expected amount of entities, or negative if unknown. The
+	 *            hint is replaced by the actual amount once the iterator is
+	 *            exhausted, and raised as the iterator passes it.
+	 */
+	public IterableDataSource(final Iterable<E> iterable, final int sizeHint) {
+		Validate.notNull(iterable, "Iterable may not be null.");
+		this.iterable = iterable;
+		this.size = sizeHint;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized List<E> fetch(final int offset, final int limit) {
+		Validate.isTrue(offset >= 0, "Offset may not be negative.");
+		Validate.isTrue(limit > 0, "Limit must be positive.");
+		if (CheckUtil.isNull(this.iterator) || offset < this.position) {
+			this.restart();
+		}
+		while (this.position < offset && this.iterator.hasNext()) {
+			this.iterator.next();
+			this.position++;
+		}
+		final List<E> result = new ArrayList<E>(limit);
+		while (result.size() < limit && this.iterator.hasNext()) {
+			result.add(this.iterator.next());
+			this.position++;
+		}
+		if (result.size() < limit) {
+			this.size = this.position;
+			this.close();
+		} else if (this.size >= 0 && this.position >= this.size && this.iterator.hasNext()) {
+			// The hint was too small, at least one more entity follows.
+			this.size = this.position + 1;
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the value for the iterable field.
+	 * 
+	 * @return The value for the iterable field.
+	 */
+	public Iterable<E> getIterable() {
+		return this.iterable;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized int size() {
+		if (this.size < 0) {
+			int count = 0;
+			final Iterator<E> counter = this.iterable.iterator();
+			while (counter.hasNext()) {
+				counter.next();
+				count++;
+			}
+			IterableDataSource.close(counter);
+			this.size = count;
+		}
+		return this.size;
+	}
+
+	/**
+	 * Closes an iterator if it is closeable.
+	 * 
+	 * @param closeable
+	 *            The iterator.
+	 */
+	private static void close(final Iterator<?> closeable) {
+		if (closeable instanceof Closeable) {
+			try {
+				((Closeable) closeable).close();
+			} catch (final IOException e) {
+				IterableDataSource.LOGGER.warn("Could not close iterator.", e);
+			}
+		}
+	}
+
+	/** Closes the current iterator. */
+	private void close() {
+		if (!CheckUtil.isNull(this.iterator)) {
+			IterableDataSource.close(this.iterator);
+			this.iterator = new ArrayList<E>(0).iterator();
+		}
+	}
+
+	/** Starts a new iterator. */
+	private void restart() {
+		this.close();
+		this.iterator = this.iterable.iterator();
+		this.position = 0;
+		IterableDataSource.LOGGER.debug("Started iterating entities.");
+	}
+}
@@ -0,0 +1,114 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import com.vaadin.Application;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+
+/**
+ * Shows the entities of a background loader in a table as they arrive. The
+ * table is updated under the application lock, the polling progress
+ * indicator brings the updates to the client. Detached tables are not
+ * touched, they catch up once attached again.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ * @param <S>
+ *            The entity super type.
+ */
+public final class LoadingListener<S, E extends S>
+		implements BackgroundLoader.Listener {
+	/** The table component. */
+	private TableComponentImpl<S, E> tableComponent;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param tableComponent
+	 *            The table component.
+	 */
+	protected LoadingListener(final TableComponentImpl<S, E> tableComponent) {
+		Validate.notNull(tableComponent, "Table may not be null.");
+		this.tableComponent = tableComponent;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void chunkLoaded(final BackgroundLoader<?> loader) {
+		final Application application = this.tableComponent.getApplication();
+		if (!CheckUtil.isNull(application)) {
+			synchronized (application) {
+				if (this.isCurrent(application, loader)) {
+					this.tableComponent.getContainer().refresh();
+					this.tableComponent.getLoadingIndicator().setValue(Float.valueOf(loader.getProgress()));
+				}
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void finished(final BackgroundLoader<?> loader) {
+		final Application application = this.tableComponent.getApplication();
+		if (!CheckUtil.isNull(application)) {
+			synchronized (application) {
+				if (this.isCurrent(application, loader)) {
+					this.tableComponent.setDataSource(new CollectionDataSource<E>(((BackgroundLoader<E>) loader).getLoaded()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the value for the tableComponent field.
+	 * 
+	 * @return The value for the tableComponent field.
+	 */
+	public TableComponentImpl<S, E> getTableComponent() {
+		return this.tableComponent;
+	}
+
+	/**
+	 * Sets a new value for the tableComponent field.
+	 * 
+	 * @param tableComponent
+	 *            The new value for the tableComponent field.
+	 */
+	public void setTableComponent(final TableComponentImpl<S, E> tableComponent) {
+		this.tableComponent = tableComponent;
+	}
+
+	/**
+	 * Tests if the table may be updated with a loader, under the application
+	 * lock.
+	 * 
+	 * @param application
+	 *            The locked application.
+	 * @param loader
+	 *            The loader.
+	 * @return True if and only if the table is still attached to the
+	 *         application and the loader is still the current one.
+	 */
+	private boolean isCurrent(final Application application, final BackgroundLoader<?> loader) {
+		return this.tableComponent.getApplication() == application && this.tableComponent.getLoader() == loader;
+	}
+}
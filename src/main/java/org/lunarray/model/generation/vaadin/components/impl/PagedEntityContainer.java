@@ -0,0 +1,1076 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.io.Serializable;
+import java.text.Collator;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.vaadin.data.Container;
+import com.vaadin.data.Item;
+import com.vaadin.data.Property;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.generation.vaadin.components.Prefetcher;
+import org.lunarray.model.generation.vaadin.components.TableDataSource;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.CellStringCache;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.ColumnPlan;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.ColumnPlanProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A lazy container that pages entities in from a data source. Only a bounded
+ * amount of pages is kept in memory, the entities themselves are the item ids.
+ * The indexes of the entities are kept as long as their page is cached, so
+ * memory does not grow with the data source. Ids outside of the cached pages
+ * are looked for in the first rows of the view only, ids not found there are
+ * treated as not contained. A streaming data source is not searched at all,
+ * as that would restart its iterator. As the
+ * size of a data source may be a hint, the size is corrected once a loaded
+ * page shows that it is wrong. Pages are loaded while the table renders, so
+ * the listeners are only notified of the correction by
+ * {@link #fireSizeCorrection()}, once the table is done reading.
+ * Columns with a column plan are sortable, sorting extracts the sort keys of
+ * all entities once and only reorders the view on the data source. Pages are
+ * pages of the view, a page of a sorted view is fetched as one batch through
+ * the view source. If a prefetcher is set, the relations the columns read are
+ * prefetched per loaded batch of entities.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public final class PagedEntityContainer<E>
+		implements Container.Indexed, Container.Sortable, Container.ItemSetChangeNotifier {
+
+	/** The default maximum amount of cached pages. */
+	public static final int DEFAULT_MAX_PAGES = 8;
+	/** The default page size. */
+	public static final int DEFAULT_PAGE_SIZE = 50;
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(PagedEntityContainer.class);
+	/** Serial id. */
+	private static final long serialVersionUID = -3362012617440530383L;
+	/** Unsupported message. */
+	private static final String UNSUPPORTED = "Entities are provided by the data source.";
+	/** The cell cache of the text columns. */
+	private CellStringCache cellCache;
+	/** The data source. */
+	private TableDataSource<E> dataSource;
+	/** The view indexes of the entities of the cached pages. */
+	private final Map<Object, Integer> indexes;
+	/** The item set change listeners. */
+	private final List<Container.ItemSetChangeListener> listeners;
+	/** The locale to sort strings with. */
+	private Locale locale;
+	/** The maximum amount of cached pages. */
+	private final int maxPages;
+	/** The sorted order, from view index to data source index. */
+	private int[] order;
+	/** The cached pages. */
+	private final PageCache pages;
+	/** The page size. */
+	private final int pageSize;
+	/** The flyweight properties of the text columns. */
+	private final Map<Object, ColumnPlanProperty<E>> planProperties;
+	/** The prefetcher. */
+	private Prefetcher<E> prefetcher;
+	/** The container properties. */
+	private final Map<Object, Class<?>> properties;
+	/** The cached size, negative if unknown. */
+	private int size;
+	/** Whether the size was corrected without notifying the listeners. */
+	private boolean sizeCorrected;
+	/** The sort directions. */
+	private boolean[] sortAscending;
+	/** The plans of the sortable columns. */
+	private final Map<Object, ColumnPlan<?, E>> sortPlans;
+	/** The sorted properties, null if unsorted. */
+	private Object[] sortPropertyIds;
+
+	/**
+	 * Constructs the container with the default paging.
+	 * 
+	 * @param dataSource
+	 *            The data source. May not be null.
+	 */
+	public PagedEntityContainer(final TableDataSource<E> dataSource) {
+		this(dataSource, PagedEntityContainer.DEFAULT_PAGE_SIZE, PagedEntityContainer.DEFAULT_MAX_PAGES);
+	}
+
+	/**
+	 * Constructs the container.
+	 * 
+	 * @param dataSource
+	 *            The data source. May not be null.
+	 * @param pageSize
+	 *            The page size. Must be positive.
+	 * @param maxPages
+	 *            The maximum amount of pages to keep in memory. Must be
+	 *            positive.
+	 */
+	public PagedEntityContainer(final TableDataSource<E> dataSource, final int pageSize, final int maxPages) {
+		Validate.notNull(dataSource, "Data source may not be null.");
+		Validate.isTrue(pageSize > 0, "Page size must be positive.");
+		Validate.isTrue(maxPages > 0, "Maximum amount of pages must be positive.");
+		this.dataSource = dataSource;
+		this.pageSize = pageSize;
+		this.maxPages = maxPages;
+		this.indexes = new HashMap<Object, Integer>();
+		this.listeners = new LinkedList<Container.ItemSetChangeListener>();
+		this.pages = new PageCache();
+		this.planProperties = new HashMap<Object, ColumnPlanProperty<E>>();
+		this.properties = new LinkedHashMap<Object, Class<?>>();
+		this.sortPlans = new LinkedHashMap<Object, ColumnPlan<?, E>>();
+		this.size = -1;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean addContainerProperty(final Object propertyId, final Class<?> type, final Object defaultValue) {
+		Validate.notNull(propertyId, "Property id may not be null.");
+		this.properties.put(propertyId, type);
+		return true;
+	}
+
+	/**
+	 * Adds a text column rendered from a column plan. All cells of the column
+	 * share a single property.
+	 * 
+	 * @param propertyId
+	 *            The property id. May not be null.
+	 * @param plan
+	 *            The column plan. May not be null.
+	 */
+	public void addColumnPlan(final Object propertyId, final ColumnPlan<?, E> plan) {
+		Validate.notNull(propertyId, "Property id may not be null.");
+		Validate.notNull(plan, "Plan may not be null.");
+		final ColumnPlanProperty<E> planProperty = new ColumnPlanProperty<E>(propertyId, plan);
+		planProperty.setCellCache(this.cellCache);
+		this.planProperties.put(propertyId, planProperty);
+		this.sortPlans.put(propertyId, plan);
+		this.properties.put(propertyId, String.class);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Object addItem() {
+		throw new UnsupportedOperationException(PagedEntityContainer.UNSUPPORTED);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Item addItem(final Object itemId) {
+		throw new UnsupportedOperationException(PagedEntityContainer.UNSUPPORTED);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Object addItemAfter(final Object previousItemId) {
+		throw new UnsupportedOperationException(PagedEntityContainer.UNSUPPORTED);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Item addItemAfter(final Object previousItemId, final Object newItemId) {
+		throw new UnsupportedOperationException(PagedEntityContainer.UNSUPPORTED);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Object addItemAt(final int index) {
+		throw new UnsupportedOperationException(PagedEntityContainer.UNSUPPORTED);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Item addItemAt(final int index, final Object newItemId) {
+		throw new UnsupportedOperationException(PagedEntityContainer.UNSUPPORTED);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void addListener(final Container.ItemSetChangeListener listener) {
+		this.listeners.add(listener);
+	}
+
+	/**
+	 * Makes a column sortable through its column plan.
+	 * 
+	 * @param propertyId
+	 *            The property id. May not be null.
+	 * @param plan
+	 *            The column plan. May not be null.
+	 */
+	public void addSortPlan(final Object propertyId, final ColumnPlan<?, E> plan) {
+		Validate.notNull(propertyId, "Property id may not be null.");
+		Validate.notNull(plan, "Plan may not be null.");
+		this.sortPlans.put(propertyId, plan);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean containsId(final Object itemId) {
+		return !CheckUtil.isNull(this.resolveIndex(itemId));
+	}
+
+	/**
+	 * Creates a data source of the entities in the order of the container,
+	 * as sorted at the time of the call. Exports use it to follow the sort
+	 * order of the table without loading all entities at once. A sorted chunk
+	 * fetches only the data source ranges it needs, in ascending order and
+	 * at most a few chunks long each, so a streaming source only restarts
+	 * between chunks. Memory does not depend on the amount of rows, apart
+	 * from the sorted order itself, which takes an int per row. An unsorted
+	 * container exports straight from its data source.
+	 * 
+	 * @return The data source.
+	 */
+	public TableDataSource<E> createViewSource() {
+		return new SortedDataSource<E>(this.dataSource, this.resolveOrder());
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Object firstItemId() {
+		return this.getIdByIndex(0);
+	}
+
+	/**
+	 * Notifies the listeners that the item set changed if the size was
+	 * corrected since the last notification. Must not be called while the
+	 * container is being read, for example while the table renders its
+	 * cells.
+	 */
+	public void fireSizeCorrection() {
+		if (this.sizeCorrected) {
+			this.sizeCorrected = false;
+			this.fireItemSetChange();
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Property getContainerProperty(final Object itemId, final Object propertyId) {
+		// Component cells are provided by the generated columns.
+		Property result = null;
+		final ColumnPlanProperty<E> planProperty = this.planProperties.get(propertyId);
+		if (!CheckUtil.isNull(planProperty) && !CheckUtil.isNull(itemId)) {
+			result = planProperty.bind((E) itemId);
+		}
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Collection<?> getContainerPropertyIds() {
+		return Collections.unmodifiableCollection(this.properties.keySet());
+	}
+
+	/**
+	 * Gets the value for the dataSource field.
+	 * 
+	 * @return The value for the dataSource field.
+	 */
+	public TableDataSource<E> getDataSource() {
+		return this.dataSource;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Object getIdByIndex(final int index) {
+		Object result = null;
+		if (index >= 0 && index < this.size()) {
+			final List<E> page = this.loadPage(index / this.pageSize);
+			final int offset = index % this.pageSize;
+			if (offset < page.size()) {
+				result = page.get(offset);
+			}
+		}
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Item getItem(final Object itemId) {
+		Item result = null;
+		if (this.containsId(itemId)) {
+			result = new EntityItem(itemId);
+		}
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Collection<?> getItemIds() {
+		return new ItemIdList();
+	}
+
+	/**
+	 * Gets the value for the locale field.
+	 * 
+	 * @return The value for the locale field.
+	 */
+	public Locale getLocale() {
+		return this.locale;
+	}
+
+	/**
+	 * Gets the value for the pageSize field.
+	 * 
+	 * @return The value for the pageSize field.
+	 */
+	public int getPageSize() {
+		return this.pageSize;
+	}
+
+	/**
+	 * Gets the value for the prefetcher field.
+	 * 
+	 * @return The value for the prefetcher field.
+	 */
+	public Prefetcher<E> getPrefetcher() {
+		return this.prefetcher;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Collection<?> getSortableContainerPropertyIds() {
+		return Collections.unmodifiableCollection(this.sortPlans.keySet());
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Class<?> getType(final Object propertyId) {
+		return this.properties.get(propertyId);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int indexOfId(final Object itemId) {
+		final Integer index = this.resolveIndex(itemId);
+		int result = -1;
+		if (!CheckUtil.isNull(index)) {
+			result = index.intValue();
+		}
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean isFirstId(final Object itemId) {
+		return !CheckUtil.isNull(itemId) && this.indexOfId(itemId) == 0;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean isLastId(final Object itemId) {
+		return !CheckUtil.isNull(itemId) && this.indexOfId(itemId) == this.size() - 1;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Object lastItemId() {
+		return this.getIdByIndex(this.size() - 1);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Object nextItemId(final Object itemId) {
+		final int index = this.indexOfId(itemId);
+		Object result = null;
+		if (index >= 0) {
+			result = this.getIdByIndex(index + 1);
+		}
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Object prevItemId(final Object itemId) {
+		final int index = this.indexOfId(itemId);
+		Object result = null;
+		if (index > 0) {
+			result = this.getIdByIndex(index - 1);
+		}
+		return result;
+	}
+
+	/**
+	 * Drops all cached pages and notifies the listeners that the item set
+	 * changed.
+	 */
+	public void refresh() {
+		this.clear();
+		this.fireItemSetChange();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean removeAllItems() {
+		throw new UnsupportedOperationException(PagedEntityContainer.UNSUPPORTED);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean removeContainerProperty(final Object propertyId) {
+		final boolean result = this.properties.containsKey(propertyId);
+		this.properties.remove(propertyId);
+		this.planProperties.remove(propertyId);
+		this.sortPlans.remove(propertyId);
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean removeItem(final Object itemId) {
+		throw new UnsupportedOperationException(PagedEntityContainer.UNSUPPORTED);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void removeListener(final Container.ItemSetChangeListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	/**
+	 * Sets a new value for the cellCache field. The cache is used by all text
+	 * columns.
+	 * 
+	 * @param cellCache
+	 *            The new value for the cellCache field. May be null.
+	 */
+	public void setCellCache(final CellStringCache cellCache) {
+		this.cellCache = cellCache;
+		for (final ColumnPlanProperty<E> planProperty : this.planProperties.values()) {
+			planProperty.setCellCache(cellCache);
+		}
+	}
+
+	/**
+	 * Sets a new data source and refreshes the container.
+	 * 
+	 * @param dataSource
+	 *            The new data source. May not be null.
+	 */
+	public void setDataSource(final TableDataSource<E> dataSource) {
+		Validate.notNull(dataSource, "Data source may not be null.");
+		this.dataSource = dataSource;
+		this.refresh();
+	}
+
+	/**
+	 * Sets a new data source, optionally without notifying the listeners.
+	 * Used if the new data source is known to hold the same entities in the
+	 * same order.
+	 * 
+	 * @param dataSource
+	 *            The new data source. May not be null.
+	 * @param notify
+	 *            Whether to notify the listeners that the item set changed.
+	 */
+	public void setDataSource(final TableDataSource<E> dataSource, final boolean notify) {
+		Validate.notNull(dataSource, "Data source may not be null.");
+		this.dataSource = dataSource;
+		this.clear();
+		if (notify) {
+			this.fireItemSetChange();
+		}
+	}
+
+	/**
+	 * Sets a new value for the locale field. Applies to the next sort.
+	 * 
+	 * @param locale
+	 *            The new value for the locale field. May be null, in which
+	 *            case the default locale is used.
+	 */
+	public void setLocale(final Locale locale) {
+		this.locale = locale;
+	}
+
+	/**
+	 * Sets a new value for the prefetcher field. Applies to the next loaded
+	 * page.
+	 * 
+	 * @param prefetcher
+	 *            The new value for the prefetcher field. May be null, in which
+	 *            case relations are loaded as the cells are rendered.
+	 */
+	public void setPrefetcher(final Prefetcher<E> prefetcher) {
+		this.prefetcher = prefetcher;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int size() {
+		this.resolveOrder();
+		if (this.size < 0) {
+			this.size = this.dataSource.size();
+		}
+		return this.size;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void sort(final Object[] propertyId, final boolean[] ascending) {
+		Validate.notNull(propertyId, "Property ids may not be null.");
+		Validate.notNull(ascending, "Sort directions may not be null.");
+		final List<Object> sortedIds = new ArrayList<Object>(propertyId.length);
+		final List<Boolean> sortedAscending = new ArrayList<Boolean>(propertyId.length);
+		for (int i = 0; i < propertyId.length; i++) {
+			if (this.sortPlans.containsKey(propertyId[i])) {
+				sortedIds.add(propertyId[i]);
+				sortedAscending.add(Boolean.valueOf(i >= ascending.length || ascending[i]));
+			}
+		}
+		if (sortedIds.isEmpty()) {
+			this.sortPropertyIds = null;
+			this.sortAscending = null;
+		} else {
+			this.sortPropertyIds = sortedIds.toArray();
+			this.sortAscending = new boolean[sortedAscending.size()];
+			for (int i = 0; i < this.sortAscending.length; i++) {
+				this.sortAscending[i] = sortedAscending.get(i).booleanValue();
+			}
+		}
+		// Pages and indexes are in view order.
+		this.clear();
+		this.fireItemSetChange();
+	}
+
+	/**
+	 * Drops all cached pages.
+	 */
+	private void clear() {
+		this.pages.clear();
+		this.indexes.clear();
+		this.order = null;
+		this.size = -1;
+		this.sizeCorrected = false;
+	}
+
+	/**
+	 * Computes the sorted order. The sort keys of all entities are extracted
+	 * once and sorted in a stable manner, the comparator only compares the
+	 * extracted keys.
+	 */
+	private void computeOrder() {
+		final Collator collator;
+		if (CheckUtil.isNull(this.locale)) {
+			collator = Collator.getInstance();
+		} else {
+			collator = Collator.getInstance(this.locale);
+		}
+		final List<ColumnPlan<?, E>> plans = new ArrayList<ColumnPlan<?, E>>(this.sortPropertyIds.length);
+		for (final Object propertyId : this.sortPropertyIds) {
+			plans.add(this.sortPlans.get(propertyId));
+		}
+		final int fetchSize = this.pageSize * this.maxPages;
+		final List<SortEntry> entries = new ArrayList<SortEntry>();
+		List<E> chunk;
+		do {
+			chunk = this.dataSource.fetch(entries.size(), fetchSize);
+			this.prefetch(chunk, plans);
+			for (final E entity : chunk) {
+				final Object[] keys = new Object[plans.size()];
+				for (int i = 0; i < keys.length; i++) {
+					keys[i] = plans.get(i).sortKey(entity, collator);
+				}
+				entries.add(new SortEntry(entries.size(), keys));
+			}
+		} while (chunk.size() == fetchSize);
+		Collections.sort(entries, new SortEntryComparator(this.sortAscending));
+		this.order = new int[entries.size()];
+		for (int i = 0; i < this.order.length; i++) {
+			this.order[i] = entries.get(i).getIndex();
+		}
+		this.size = entries.size();
+		PagedEntityContainer.LOGGER.debug("Sorted {} entities.", this.size);
+	}
+
+	/**
+	 * Corrects the cached size after loading a page, and marks it corrected
+	 * if it changed. A short page ends the entities, a full page
+	 * that reaches the cached size may be followed by more, in which case the
+	 * data source is asked for its size again.
+	 * 
+	 * @param end
+	 *            The data source index after the loaded page.
+	 * @param full
+	 *            Whether the page was full.
+	 */
+	private void correctSize(final int end, final boolean full) {
+		if (this.size >= 0) {
+			int actual = this.size;
+			if (!full) {
+				actual = end;
+			} else if (end >= this.size) {
+				actual = Math.max(end, this.dataSource.size());
+			}
+			if (actual != this.size) {
+				PagedEntityContainer.LOGGER.debug("Corrected size from {} to {}.", this.size, actual);
+				this.size = actual;
+				this.sizeCorrected = true;
+			}
+		}
+	}
+
+	/**
+	 * Notifies the listeners.
+	 */
+	private void fireItemSetChange() {
+		final Container.ItemSetChangeEvent event = new EntityItemSetChangeEvent();
+		for (final Container.ItemSetChangeListener listener : new ArrayList<Container.ItemSetChangeListener>(this.listeners)) {
+			listener.containerItemSetChange(event);
+		}
+	}
+
+	/**
+	 * Loads a page of the view, from the cache if possible.
+	 * 
+	 * @param pageIndex
+	 *            The view page index.
+	 * @return The page.
+	 */
+	private List<E> loadPage(final int pageIndex) {
+		List<E> page = this.pages.get(Integer.valueOf(pageIndex));
+		if (CheckUtil.isNull(page)) {
+			final int offset = pageIndex * this.pageSize;
+			page = new ArrayList<E>(this.createViewSource().fetch(offset, this.pageSize));
+			this.prefetch(page, this.sortPlans.values());
+			this.pages.put(Integer.valueOf(pageIndex), page);
+			for (int i = 0; i < page.size(); i++) {
+				this.indexes.put(page.get(i), Integer.valueOf(offset + i));
+			}
+			PagedEntityContainer.LOGGER.debug("Loaded page {} with {} entities.", pageIndex, page.size());
+			if (CheckUtil.isNull(this.order)) {
+				this.correctSize(offset + page.size(), page.size() == this.pageSize);
+			}
+		}
+		return page;
+	}
+
+	/**
+	 * Prefetches the relations a batch of entities is rendered or sorted
+	 * with, in a single call to the prefetcher.
+	 * 
+	 * @param entities
+	 *            The entities. May not be null.
+	 * @param plans
+	 *            The plans of the columns to prefetch. May not be null.
+	 */
+	private void prefetch(final List<E> entities, final Collection<ColumnPlan<?, E>> plans) {
+		if (!CheckUtil.isNull(this.prefetcher) && !entities.isEmpty()) {
+			final Set<String> paths = new LinkedHashSet<String>();
+			for (final ColumnPlan<?, E> plan : plans) {
+				final String path = plan.getRelationPath();
+				if (!CheckUtil.isNull(path)) {
+					paths.add(path);
+				}
+			}
+			if (!paths.isEmpty()) {
+				try {
+					this.prefetcher.prefetch(Collections.unmodifiableList(entities), Collections.unmodifiableSet(paths));
+					PagedEntityContainer.LOGGER.debug("Prefetched {} for {} entities.", paths, entities.size());
+				} catch (final RuntimeException e) {
+					// Relations are then loaded as the cells are rendered.
+					PagedEntityContainer.LOGGER.warn("Could not prefetch relations.", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Resolves the view index of an item, from the cached pages or else by
+	 * scanning the first rows of the view.
+	 * 
+	 * @param itemId
+	 *            The item id. May be null.
+	 * @return The index, or null if the item is not found.
+	 */
+	private Integer resolveIndex(final Object itemId) {
+		Integer result = null;
+		if (!CheckUtil.isNull(itemId)) {
+			result = this.indexes.get(itemId);
+			if (CheckUtil.isNull(result)) {
+				result = this.scan(itemId);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Resolves the sorted order, computing it if needed.
+	 * 
+	 * @return The order, or null if unsorted.
+	 */
+	private int[] resolveOrder() {
+		if (CheckUtil.isNull(this.order) && !CheckUtil.isNull(this.sortPropertyIds)) {
+			this.computeOrder();
+		}
+		return this.order;
+	}
+
+	/**
+	 * Looks for an item in the first rows of the view, as many as the cached
+	 * pages hold. The rows are neither cached nor indexed. Streaming data
+	 * sources are not searched, reading the first rows would restart them.
+	 * 
+	 * @param itemId
+	 *            The item id. May not be null.
+	 * @return The index, or null if the item is not found.
+	 */
+	private Integer scan(final Object itemId) {
+		Integer result = null;
+		if (!(this.dataSource instanceof IterableDataSource)) {
+			final List<E> rows = this.createViewSource().fetch(0, this.pageSize * this.maxPages);
+			final int index = rows.indexOf(itemId);
+			if (index >= 0) {
+				result = Integer.valueOf(index);
+			}
+			PagedEntityContainer.LOGGER.debug("Scanned {} entities for an unknown item.", rows.size());
+		}
+		return result;
+	}
+
+	/**
+	 * An item backed by an entity.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private final class EntityItem
+			implements Item {
+
+		/** Serial id. */
+		private static final long serialVersionUID = 5032871004218553312L;
+		/** The item id. */
+		private final Object itemId;
+
+		/**
+		 * Constructs the item.
+		 * 
+		 * @param itemId
+		 *            The item id.
+		 */
+		public EntityItem(final Object itemId) {
+			this.itemId = itemId;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean addItemProperty(final Object id, final Property property) {
+			throw new UnsupportedOperationException(PagedEntityContainer.UNSUPPORTED);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public Property getItemProperty(final Object id) {
+			return PagedEntityContainer.this.getContainerProperty(this.itemId, id);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public Collection<?> getItemPropertyIds() {
+			return PagedEntityContainer.this.getContainerPropertyIds();
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean removeItemProperty(final Object id) {
+			throw new UnsupportedOperationException(PagedEntityContainer.UNSUPPORTED);
+		}
+	}
+
+	/**
+	 * The item set change event.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private final class EntityItemSetChangeEvent
+			implements Container.ItemSetChangeEvent {
+
+		/** Serial id. */
+		private static final long serialVersionUID = -1290380137530409950L;
+
+		/** Default constructor. */
+		public EntityItemSetChangeEvent() {
+			// Default constructor.
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public Container getContainer() {
+			return PagedEntityContainer.this;
+		}
+	}
+
+	/**
+	 * A list view of the item ids, loading pages as they are accessed.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private final class ItemIdList
+			extends AbstractList<Object> {
+
+		/** Default constructor. */
+		public ItemIdList() {
+			super();
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public Object get(final int index) {
+			return PagedEntityContainer.this.getIdByIndex(index);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int size() {
+			return PagedEntityContainer.this.size();
+		}
+	}
+
+	/**
+	 * A least recently used page cache.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private final class PageCache
+			extends LinkedHashMap<Integer, List<E>> {
+
+		/** Serial id. */
+		private static final long serialVersionUID = 1782637261546040223L;
+
+		/** Default constructor. */
+		public PageCache() {
+			super(PagedEntityContainer.this.maxPages + 1, 1f, true);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Integer, List<E>> eldest) {
+			final boolean evict = this.size() > PagedEntityContainer.this.maxPages;
+			if (evict) {
+				final int offset = eldest.getKey().intValue() * PagedEntityContainer.this.pageSize;
+				for (int i = 0; i < eldest.getValue().size(); i++) {
+					final Object entity = eldest.getValue().get(i);
+					// An entity may occur twice, keep the index of another page.
+					if (Integer.valueOf(offset + i).equals(PagedEntityContainer.this.indexes.get(entity))) {
+						PagedEntityContainer.this.indexes.remove(entity);
+					}
+				}
+				PagedEntityContainer.LOGGER.debug("Evicted page {}.", eldest.getKey());
+			}
+			return evict;
+		}
+	}
+
+	/**
+	 * The extracted sort keys of an entity.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private static final class SortEntry {
+
+		/** The data source index. */
+		private final int index;
+		/** The sort keys. */
+		private final Object[] keys;
+
+		/**
+		 * Constructs the entry.
+		 * 
+		 * @param index
+		 *            The data source index.
+		 * @param keys
+		 *            The sort keys.
+		 */
+		public SortEntry(final int index, final Object[] keys) {
+			this.index = index;
+			this.keys = keys;
+		}
+
+		/**
+		 * Gets the value for the index field.
+		 * 
+		 * @return The value for the index field.
+		 */
+		public int getIndex() {
+			return this.index;
+		}
+
+		/**
+		 * Gets the value for the keys field.
+		 * 
+		 * @return The value for the keys field.
+		 */
+		public Object[] getKeys() {
+			return this.keys;
+		}
+	}
+
+	/**
+	 * Compares extracted sort keys, null keys first.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private static final class SortEntryComparator
+			implements Comparator<SortEntry>, Serializable {
+
+		/** Serial id. */
+		private static final long serialVersionUID = -4406402866213436021L;
+		/** The sort directions. */
+		private final boolean[] ascending;
+
+		/**
+		 * Constructs the comparator.
+		 * 
+		 * @param ascending
+		 *            The sort directions.
+		 */
+		public SortEntryComparator(final boolean[] ascending) {
+			this.ascending = ascending;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		@SuppressWarnings("unchecked")
+		public int compare(final SortEntry first, final SortEntry second) {
+			int result = 0;
+			for (int i = 0; i < this.ascending.length && result == 0; i++) {
+				final Object firstKey = first.getKeys()[i];
+				final Object secondKey = second.getKeys()[i];
+				if (CheckUtil.isNull(firstKey)) {
+					result = CheckUtil.isNull(secondKey) ? 0 : -1;
+				} else if (CheckUtil.isNull(secondKey)) {
+					result = 1;
+				} else {
+					result = ((Comparable<Object>) firstKey).compareTo(secondKey);
+				}
+				if (!this.ascending[i]) {
+					result = -result;
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * A data source in a sorted order of another data source.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 * @param <E>
+	 *            The entity type.
+	 */
+	private static final class SortedDataSource<E>
+			implements TableDataSource<E> {
+
+		/** The maximum span of a fetched range, in chunks. */
+		private static final int MAX_SPAN = 8;
+		/** Serial id. */
+		private static final long serialVersionUID = 2519061833427405867L;
+		/** The data source. */
+		private final TableDataSource<E> dataSource;
+		/** The sorted order, or null if unsorted. Never modified in place. */
+		private final int[] order;
+
+		/**
+		 * Constructs the data source.
+		 * 
+		 * @param dataSource
+		 *            The data source.
+		 * @param order
+		 *            The sorted order, from sorted index to data source
+		 *            index. May be null, in which case the order of the data
+		 *            source is kept.
+		 */
+		public SortedDataSource(final TableDataSource<E> dataSource, final int[] order) {
+			this.dataSource = dataSource;
+			this.order = order;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public List<E> fetch(final int offset, final int limit) {
+			List<E> result;
+			if (CheckUtil.isNull(this.order)) {
+				result = this.dataSource.fetch(offset, limit);
+			} else {
+				final int end = Math.min(this.order.length, offset + limit);
+				final int[] sourceIndexes = new int[Math.max(0, end - offset)];
+				System.arraycopy(this.order, Math.min(offset, end), sourceIndexes, 0, sourceIndexes.length);
+				Arrays.sort(sourceIndexes);
+				// Ranges end at the last needed index, nothing past it is read.
+				final int maxSpan = limit * SortedDataSource.MAX_SPAN;
+				final Map<Integer, E> entities = new HashMap<Integer, E>();
+				int i = 0;
+				while (i < sourceIndexes.length) {
+					final int rangeOffset = sourceIndexes[i];
+					int last = i;
+					while (last + 1 < sourceIndexes.length && sourceIndexes[last + 1] - rangeOffset < maxSpan) {
+						last++;
+					}
+					final List<E> range = this.dataSource.fetch(rangeOffset, sourceIndexes[last] - rangeOffset + 1);
+					for (; i <= last; i++) {
+						final int rangeIndex = sourceIndexes[i] - rangeOffset;
+						if (rangeIndex < range.size()) {
+							entities.put(Integer.valueOf(sourceIndexes[i]), range.get(rangeIndex));
+						}
+					}
+				}
+				result = new ArrayList<E>(sourceIndexes.length);
+				for (int i = offset; i < end; i++) {
+					final E entity = entities.get(Integer.valueOf(this.order[i]));
+					if (!CheckUtil.isNull(entity)) {
+						result.add(entity);
+					}
+				}
+			}
+			return result;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int size() {
+			int result;
+			if (CheckUtil.isNull(this.order)) {
+				result = this.dataSource.size();
+			} else {
+				result = this.order.length;
+			}
+			return result;
+		}
+	}
+}
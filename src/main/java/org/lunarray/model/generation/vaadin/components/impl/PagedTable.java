@@ -0,0 +1,75 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.Map;
+
+import com.vaadin.data.Container;
+import com.vaadin.terminal.PaintException;
+import com.vaadin.terminal.PaintTarget;
+import com.vaadin.ui.Table;
+
+/**
+ * A table that announces the size corrections of a paged entity container
+ * once it is done reading the container. Corrections are found as pages are
+ * loaded, which happens while the table renders its cells, so they are
+ * announced after the client variables are handled and before painting. A
+ * correction found while painting is announced with the next request.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ */
+public final class PagedTable
+		extends Table {
+
+	/** Serial id. */
+	private static final long serialVersionUID = -2914075318552309712L;
+
+	/**
+	 * Constructs the table.
+	 * 
+	 * @param caption
+	 *            The caption.
+	 */
+	public PagedTable(final String caption) {
+		super(caption);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void changeVariables(final Object source, final Map<String, Object> variables) {
+		super.changeVariables(source, variables);
+		this.fireSizeCorrection();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void paintContent(final PaintTarget target) throws PaintException {
+		this.fireSizeCorrection();
+		super.paintContent(target);
+	}
+
+	/**
+	 * Announces the size correction of the container, if any.
+	 */
+	private void fireSizeCorrection() {
+		final Container container = this.getContainerDataSource();
+		if (container instanceof PagedEntityContainer) {
+			((PagedEntityContainer<?>) container).fireSizeCorrection();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import com.vaadin.Application;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+
+/**
+ * Refreshes a table once its precomputed rows are published. The refresh
+ * happens under the application lock, the only part of the precomputation
+ * that does.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ * @param <S>
+ *            The entity super type.
+ */
+public final class PrecomputationListener<S, E extends S>
+		implements CellPrecomputation.Listener {
+	/** The table component. */
+	private TableComponentImpl<S, E> tableComponent;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param tableComponent
+	 *            The table component.
+	 */
+	protected PrecomputationListener(final TableComponentImpl<S, E> tableComponent) {
+		Validate.notNull(tableComponent, "Table may not be null.");
+		this.tableComponent = tableComponent;
+	}
+
+	/**
+	 * Gets the value for the tableComponent field.
+	 * 
+	 * @return The value for the tableComponent field.
+	 */
+	public TableComponentImpl<S, E> getTableComponent() {
+		return this.tableComponent;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void published(final CellPrecomputation<?> precomputation) {
+		final Application application = this.tableComponent.getApplication();
+		// Detached tables render from the cache once attached.
+		if (!CheckUtil.isNull(application)) {
+			synchronized (application) {
+				this.tableComponent.getTable().refreshRowCache();
+			}
+		}
+	}
+
+	/**
+	 * Sets a new value for the tableComponent field.
+	 * 
+	 * @param tableComponent
+	 *            The new value for the tableComponent field.
+	 */
+	public void setTableComponent(final TableComponentImpl<S, E> tableComponent) {
+		this.tableComponent = tableComponent;
+	}
+}
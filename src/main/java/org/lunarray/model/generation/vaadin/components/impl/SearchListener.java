@@ -0,0 +1,76 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import com.vaadin.event.FieldEvents.TextChangeEvent;
+import com.vaadin.event.FieldEvents.TextChangeListener;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Filters a table as the text of its search field changes.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ * @param <S>
+ *            The entity super type.
+ */
+public final class SearchListener<S, E extends S>
+		implements TextChangeListener {
+	/** Serial id. */
+	private static final long serialVersionUID = 7709524135964950541L;
+	/** The table component. */
+	private TableComponentImpl<S, E> tableComponent;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param tableComponent
+	 *            The table component.
+	 */
+	protected SearchListener(final TableComponentImpl<S, E> tableComponent) {
+		Validate.notNull(tableComponent, "Table may not be null.");
+		this.tableComponent = tableComponent;
+	}
+
+	/**
+	 * Gets the value for the tableComponent field.
+	 * 
+	 * @return The value for the tableComponent field.
+	 */
+	public TableComponentImpl<S, E> getTableComponent() {
+		return this.tableComponent;
+	}
+
+	/**
+	 * Sets a new value for the tableComponent field.
+	 * 
+	 * @param tableComponent
+	 *            The new value for the tableComponent field.
+	 */
+	public void setTableComponent(final TableComponentImpl<S, E> tableComponent) {
+		this.tableComponent = tableComponent;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void textChange(final TextChangeEvent event) {
+		this.tableComponent.filter(event.getText());
+	}
+}
@@ -17,11 +17,18 @@
  */
 package org.lunarray.model.generation.vaadin.components.impl;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
 import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.generation.vaadin.components.Prefetcher;
 import org.lunarray.model.generation.vaadin.components.TableComponent;
+import org.lunarray.model.generation.vaadin.components.TableDataSource;
+import org.lunarray.model.generation.vaadin.components.TableRenderMode;
 
 /**
  * A builder for the table.
@@ -33,18 +40,40 @@ import org.lunarray.model.generation.vaadin.components.TableComponent;
  *            The entity type.
  */
 public final class TableBuilder<S, E extends S> {
+	/** The maximum amount of cached cells. */
+	private transient Integer cellCacheSizeBuilder;
+	/** Whether check box columns are rendered as glyphs. */
+	private transient boolean checkboxGlyphsBuilder;
+	/** The projected columns. */
+	private transient List<String> columnsBuilder;
+	/** The data source. */
+	private transient TableDataSource<E> dataSourceBuilder;
 	/** The entity. */
 	private transient Collection<E> entitiesBuilder;
 	/** The entity key. */
 	private transient String entityKeyBuilder;
+	/** The indexed columns. */
+	private transient Collection<String> indexColumnsBuilder;
+	/** The streamed entities. */
+	private transient Iterable<E> iterableBuilder;
+	/** The executor to load entities on in the background. */
+	private transient ExecutorService loadExecutorBuilder;
 	/** The model. */
 	private transient Model<S> modelBuilder;
+	/** The executor to precompute cells on. */
+	private transient ExecutorService precomputeExecutorBuilder;
+	/** The prefetcher. */
+	private transient Prefetcher<E> prefetcherBuilder;
+	/** The render mode. */
+	private transient TableRenderMode renderModeBuilder;
+	/** The size hint of the streamed entities. */
+	private transient Integer sizeHintBuilder;
 
 	/**
 	 * Default constructor.
 	 */
 	private TableBuilder() {
-		// Default constructor.
+		this.renderModeBuilder = TableRenderMode.COMPONENT;
 	}
 
 	/**
@@ -68,8 +97,93 @@ public final class TableBuilder<S, E extends S> {
 	public TableComponent build() {
 		Validate.notNull(this.modelBuilder, "Model may not be null.");
 		Validate.notNull(this.entityKeyBuilder, "Entity key may not be null.");
-		Validate.notNull(this.entitiesBuilder, "Entities may not be null.");
-		return new TableComponentImpl<S, E>(this.modelBuilder, this.entityKeyBuilder, this.entitiesBuilder);
+		Validate.notNull(this.renderModeBuilder, "Render mode may not be null.");
+		TableDataSource<E> dataSource = this.dataSourceBuilder;
+		if (CheckUtil.isNull(dataSource) && !CheckUtil.isNull(this.iterableBuilder)) {
+			if (CheckUtil.isNull(this.sizeHintBuilder)) {
+				dataSource = new IterableDataSource<E>(this.iterableBuilder);
+			} else {
+				dataSource = new IterableDataSource<E>(this.iterableBuilder, this.sizeHintBuilder.intValue());
+			}
+		}
+		if (CheckUtil.isNull(dataSource)) {
+			Validate.notNull(this.entitiesBuilder, "Entities, iterable or data source may not be null.");
+			dataSource = new CollectionDataSource<E>(this.entitiesBuilder);
+		}
+		final TableComponentImpl<S, E> result = new TableComponentImpl<S, E>(this.modelBuilder, this.entityKeyBuilder, dataSource,
+				this.renderModeBuilder, this.columnsBuilder, this.checkboxGlyphsBuilder);
+		if (!CheckUtil.isNull(this.cellCacheSizeBuilder)) {
+			result.getCellCache().setMaxEntries(this.cellCacheSizeBuilder.intValue());
+		}
+		if (!CheckUtil.isNull(this.indexColumnsBuilder)) {
+			result.setIndexedColumns(this.indexColumnsBuilder);
+		}
+		if (!CheckUtil.isNull(this.precomputeExecutorBuilder)) {
+			result.setPrecomputeExecutor(this.precomputeExecutorBuilder);
+		}
+		if (!CheckUtil.isNull(this.prefetcherBuilder)) {
+			result.setPrefetcher(this.prefetcherBuilder);
+		}
+		if (!CheckUtil.isNull(this.loadExecutorBuilder)) {
+			result.loadInBackground(this.loadExecutorBuilder);
+		}
+		return result;
+	}
+
+	/**
+	 * Sets a new value for the cellCacheSize field, the maximum amount of
+	 * converted cells kept per table. The cell cache is disabled unless a
+	 * size is set. Cached cells are not refreshed when entities are modified
+	 * in place, invalidate the modified rows of the table instead.
+	 * 
+	 * @param cellCacheSize
+	 *            The new value for the cellCacheSize field. May not be
+	 *            negative, zero disables the cache.
+	 * @return The builder.
+	 */
+	public TableBuilder<S, E> cellCacheSize(final int cellCacheSize) {
+		this.cellCacheSizeBuilder = Integer.valueOf(cellCacheSize);
+		return this;
+	}
+
+	/**
+	 * Sets a new value for the checkboxGlyphs field. Check box columns are
+	 * then rendered as a glyph per cell, without a component or property
+	 * binding, in both render modes.
+	 * 
+	 * @param checkboxGlyphs
+	 *            The new value for the checkboxGlyphs field.
+	 * @return The builder.
+	 */
+	public TableBuilder<S, E> checkboxGlyphs(final boolean checkboxGlyphs) {
+		this.checkboxGlyphsBuilder = checkboxGlyphs;
+		return this;
+	}
+
+	/**
+	 * Projects the table on columns. Only the given properties get a column,
+	 * in the given order; no strategies are created for the others.
+	 * 
+	 * @param columns
+	 *            The property names of the columns.
+	 * @return The builder.
+	 */
+	public TableBuilder<S, E> columns(final String... columns) {
+		this.columnsBuilder = Arrays.asList(columns);
+		return this;
+	}
+
+	/**
+	 * Sets a new value for the dataSource field. The data source takes
+	 * precedence over the iterable and the entities.
+	 * 
+	 * @param dataSource
+	 *            The new value for the dataSource field.
+	 * @return The builder.
+	 */
+	public TableBuilder<S, E> dataSource(final TableDataSource<E> dataSource) {
+		this.dataSourceBuilder = dataSource;
+		return this;
 	}
 
 	/**
@@ -96,6 +210,49 @@ public final class TableBuilder<S, E extends S> {
 		return this;
 	}
 
+	/**
+	 * Sets the columns to index for searching. The table gets a search field
+	 * that filters the rows in memory, as the user types.
+	 * 
+	 * @param columns
+	 *            The property names of the indexed columns.
+	 * @return The builder.
+	 */
+	public TableBuilder<S, E> indexColumns(final String... columns) {
+		this.indexColumnsBuilder = Arrays.asList(columns);
+		return this;
+	}
+
+	/**
+	 * Sets a new value for the iterable field. The entities are streamed as
+	 * the user scrolls, rather than copied into memory. The iterable takes
+	 * precedence over the entities.
+	 * 
+	 * @param iterable
+	 *            The new value for the iterable field. Every iterator must
+	 *            yield the same entities in the same order.
+	 * @return The builder.
+	 */
+	public TableBuilder<S, E> iterable(final Iterable<E> iterable) {
+		this.iterableBuilder = iterable;
+		return this;
+	}
+
+	/**
+	 * Sets a new value for the loadExecutor field. Entities are then loaded
+	 * in chunks on the executor, the table shows them as they arrive along
+	 * with a progress indicator and a cancel button. Any executor fits, such
+	 * as one running tasks on virtual threads where the JVM has them.
+	 * 
+	 * @param loadExecutor
+	 *            The new value for the loadExecutor field.
+	 * @return The builder.
+	 */
+	public TableBuilder<S, E> loadExecutor(final ExecutorService loadExecutor) {
+		this.loadExecutorBuilder = loadExecutor;
+		return this;
+	}
+
 	/**
 	 * Sets a new value for the model field.
 	 * 
@@ -107,4 +264,58 @@ public final class TableBuilder<S, E extends S> {
 		this.modelBuilder = model;
 		return this;
 	}
+
+	/**
+	 * Sets a new value for the precomputeExecutor field. Cells of the first
+	 * rows are then converted in parallel on the executor, outside of the
+	 * application lock, and published to the table in one step. The data
+	 * source must allow fetching from another thread.
+	 * 
+	 * @param precomputeExecutor
+	 *            The new value for the precomputeExecutor field.
+	 * @return The builder.
+	 */
+	public TableBuilder<S, E> precomputeExecutor(final ExecutorService precomputeExecutor) {
+		this.precomputeExecutorBuilder = precomputeExecutor;
+		return this;
+	}
+
+	/**
+	 * Sets a new value for the prefetcher field. Relations of the columns are
+	 * then prefetched per page of entities, rather than loaded per cell.
+	 * 
+	 * @param prefetcher
+	 *            The new value for the prefetcher field.
+	 * @return The builder.
+	 */
+	public TableBuilder<S, E> prefetcher(final Prefetcher<E> prefetcher) {
+		this.prefetcherBuilder = prefetcher;
+		return this;
+	}
+
+	/**
+	 * Sets a new value for the renderMode field. Defaults to
+	 * {@link TableRenderMode#COMPONENT}.
+	 * 
+	 * @param renderMode
+	 *            The new value for the renderMode field.
+	 * @return The builder.
+	 */
+	public TableBuilder<S, E> renderMode(final TableRenderMode renderMode) {
+		this.renderModeBuilder = renderMode;
+		return this;
+	}
+
+	/**
+	 * Sets a new value for the sizeHint field, the expected amount of
+	 * streamed entities. Without a hint the entities are counted once.
+	 * 
+	 * @param sizeHint
+	 *            The new value for the sizeHint field.
+	 * @return The builder.
+	 */
+	public TableBuilder<S, E> sizeHint(final int sizeHint) {
+		this.sizeHintBuilder = Integer.valueOf(sizeHint);
+		return this;
+	}
 }
@@ -17,18 +17,51 @@
  */
 package org.lunarray.model.generation.vaadin.components.impl;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import com.vaadin.terminal.StreamResource;
+import com.vaadin.ui.AbstractTextField.TextChangeEventMode;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.ProgressIndicator;
 import com.vaadin.ui.Table;
+import com.vaadin.ui.Table.ColumnGenerator;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.VerticalLayout;
 
 import org.apache.commons.lang.Validate;
 import org.lunarray.common.check.CheckUtil;
 import org.lunarray.model.descriptor.model.Model;
-import org.lunarray.model.generation.util.Composer;
+import org.lunarray.model.descriptor.model.entity.KeyedEntityDescriptor;
+import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
+import org.lunarray.model.descriptor.validator.EntityValidator;
+import org.lunarray.model.generation.vaadin.components.Prefetcher;
 import org.lunarray.model.generation.vaadin.components.TableComponent;
+import org.lunarray.model.generation.vaadin.components.TableDataSource;
+import org.lunarray.model.generation.vaadin.components.TableRenderMode;
 import org.lunarray.model.generation.vaadin.render.RenderContext;
 import org.lunarray.model.generation.vaadin.render.factories.table.TablePropertyRenderStrategy;
 import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.TablePropertyRenderStrategyFactoryImpl;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.AbstractColumnGenerator;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.CellStringCache;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.ColumnPlan;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.GlyphColumnGenerator;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.TextColumnGenerator;
+import org.lunarray.model.generation.vaadin.render.plan.RenderPlan;
+import org.lunarray.model.generation.vaadin.util.MessageUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Implements the table.
@@ -43,12 +76,78 @@ public final class TableComponentImpl<S, E extends S>
 		extends AbstractComponent<S, E>
 		implements TableComponent {
 
+	/** The id of the validation status column. */
+	public static final String VALIDATION_COLUMN = "validationStatus";
+	/** The charset of CSV exports. */
+	private static final String CSV_CHARSET = "UTF-8";
+	/** The MIME type of CSV exports. */
+	private static final String CSV_MIME_TYPE = "text/csv";
+	/** The maximum time to wait for the first rows, in milliseconds. */
+	private static final long FIRST_WINDOW_TIMEOUT = 5000;
+	/** The cancel loading button caption key. */
+	private static final String LOADING_CANCEL = "table.loading.cancel";
+	/** The polling interval while loading, in milliseconds. */
+	private static final int LOADING_POLLING_INTERVAL = 500;
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(TableComponentImpl.class);
+	/** The search field caption key. */
+	private static final String SEARCH_CAPTION = "table.search";
 	/** Serial id. */
 	private static final long serialVersionUID = -2445831011878758711L;
+	/** The cancel validation button caption key. */
+	private static final String VALIDATION_CANCEL = "table.validation.cancel";
+	/** The validation status column header key. */
+	private static final String VALIDATION_STATUS = "table.validation.status";
+	/** The plans of the columns that render through the cell cache. */
+	private final Map<Object, ColumnPlan<?, E>> cachedPlans;
+	/** The converted cell cache. */
+	private final CellStringCache cellCache;
+	/** Whether check box columns are rendered as glyphs. */
+	private final boolean checkboxGlyphs;
+	/** The plans of the columns, by property name. */
+	private final Map<String, ColumnPlan<?, E>> columnPlans;
+	/** The projected columns, in order, or null if all columns are rendered. */
+	private List<String> columns;
+	/** The container. */
+	private PagedEntityContainer<E> container;
+	/** The data source. */
+	private TableDataSource<E> dataSource;
 	/** The entities. */
 	private Collection<E> entities;
+	/** The search index, or null if no columns are indexed. */
+	private InvertedIndex<E> index;
+	/** Whether the index misses the entities of the data source. */
+	private boolean indexStale;
+	/** The layout holding the table and its controls, if any. */
+	private VerticalLayout layout;
+	/** The running background loader, if any. */
+	private BackgroundLoader<E> loader;
+	/** The loading progress and cancel control. */
+	private HorizontalLayout loadingBar;
+	/** The loading progress indicator. */
+	private ProgressIndicator loadingIndicator;
+	/** The plans of the columns, or null if not all columns have a plan. */
+	private List<ColumnPlan<?, E>> plans;
+	/** The running precomputation, if any. */
+	private transient CellPrecomputation<E> precomputation;
+	/** The executor to precompute cells on, or null if disabled. */
+	private transient ExecutorService precomputeExecutor;
+	/** The current filter query, or null if unfiltered. */
+	private String query;
+	/** The render mode. */
+	private final TableRenderMode renderMode;
+	/** The search field, or null if no columns are indexed. */
+	private TextField searchField;
 	/** The table. */
 	private Table table;
+	/** The latest bulk validation, if any. */
+	private transient BulkValidation<E> validation;
+	/** The validation progress and cancel control. */
+	private HorizontalLayout validationBar;
+	/** The validation progress indicator. */
+	private ProgressIndicator validationIndicator;
+	/** The validation status column and row styles, once validated. */
+	private ViolationStatusGenerator<S, E> validationStatus;
 
 	/**
 	 * Constructs the form component.
@@ -62,7 +161,115 @@ public final class TableComponentImpl<S, E extends S>
 	 */
 	public TableComponentImpl(final Model<S> model, final String entityKey, final Collection<E> entities) {
 		super(model, entityKey);
+		this.cachedPlans = new LinkedHashMap<Object, ColumnPlan<?, E>>();
+		this.cellCache = new CellStringCache(CellStringCache.DISABLED);
+		this.columnPlans = new LinkedHashMap<String, ColumnPlan<?, E>>();
+		this.checkboxGlyphs = false;
+		this.columns = null;
+		this.plans = new LinkedList<ColumnPlan<?, E>>();
+		this.renderMode = TableRenderMode.COMPONENT;
 		this.entities = entities;
+		if (!CheckUtil.isNull(entities)) {
+			this.dataSource = new CollectionDataSource<E>(entities);
+		}
+		this.init();
+	}
+
+	/**
+	 * Constructs the form component with a paging data source. Entities are
+	 * only fetched as they are displayed.
+	 * 
+	 * @param model
+	 *            The model.
+	 * @param entityKey
+	 *            The entity key.
+	 * @param dataSource
+	 *            The data source.
+	 */
+	public TableComponentImpl(final Model<S> model, final String entityKey, final TableDataSource<E> dataSource) {
+		this(model, entityKey, dataSource, TableRenderMode.COMPONENT);
+	}
+
+	/**
+	 * Constructs the form component with a paging data source and a render
+	 * mode.
+	 * 
+	 * @param model
+	 *            The model.
+	 * @param entityKey
+	 *            The entity key.
+	 * @param dataSource
+	 *            The data source.
+	 * @param renderMode
+	 *            The render mode. May not be null.
+	 */
+	public TableComponentImpl(final Model<S> model, final String entityKey, final TableDataSource<E> dataSource,
+			final TableRenderMode renderMode) {
+		this(model, entityKey, dataSource, renderMode, null);
+	}
+
+	/**
+	 * Constructs the form component with a paging data source, a render mode
+	 * and a column projection. Properties outside of the projection get no
+	 * column at all.
+	 * 
+	 * @param model
+	 *            The model.
+	 * @param entityKey
+	 *            The entity key.
+	 * @param dataSource
+	 *            The data source.
+	 * @param renderMode
+	 *            The render mode. May not be null.
+	 * @param columns
+	 *            The property names of the columns to render, in order. May
+	 *            be null, in which case all properties are rendered.
+	 */
+	public TableComponentImpl(final Model<S> model, final String entityKey, final TableDataSource<E> dataSource,
+			final TableRenderMode renderMode, final List<String> columns) {
+		this(model, entityKey, dataSource, renderMode, columns, false);
+	}
+
+	/**
+	 * Constructs the form component with a paging data source, a render
+	 * mode, a column projection and optionally lightweight check box
+	 * columns.
+	 * 
+	 * @param model
+	 *            The model.
+	 * @param entityKey
+	 *            The entity key.
+	 * @param dataSource
+	 *            The data source.
+	 * @param renderMode
+	 *            The render mode. May not be null.
+	 * @param columns
+	 *            The property names of the columns to render, in order. May
+	 *            be null, in which case all properties are rendered.
+	 * @param checkboxGlyphs
+	 *            Whether check box columns are rendered as glyphs, rather
+	 *            than as a read-only check box per cell. Glyphs are rendered
+	 *            in both render modes.
+	 */
+	public TableComponentImpl(final Model<S> model, final String entityKey, final TableDataSource<E> dataSource,
+			final TableRenderMode renderMode, final List<String> columns, final boolean checkboxGlyphs) {
+		super(model, entityKey);
+		Validate.notNull(renderMode, "Render mode may not be null.");
+		this.cachedPlans = new LinkedHashMap<Object, ColumnPlan<?, E>>();
+		this.cellCache = new CellStringCache(CellStringCache.DISABLED);
+		this.checkboxGlyphs = checkboxGlyphs;
+		this.columnPlans = new LinkedHashMap<String, ColumnPlan<?, E>>();
+		if (CheckUtil.isNull(columns)) {
+			this.columns = null;
+		} else {
+			this.columns = new ArrayList<String>(columns);
+		}
+		this.plans = new LinkedList<ColumnPlan<?, E>>();
+		this.renderMode = renderMode;
+		this.dataSource = dataSource;
+		if (dataSource instanceof CollectionDataSource) {
+			this.entities = ((CollectionDataSource<E>) dataSource).getEntities();
+		}
 		this.init();
 	}
 
@@ -75,7 +282,131 @@ public final class TableComponentImpl<S, E extends S>
 	 *            The entity key.
 	 */
 	protected TableComponentImpl(final Model<S> model, final String entityKey) {
-		this(model, entityKey, null);
+		this(model, entityKey, (Collection<E>) null);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void attach() {
+		super.attach();
+		this.container.setLocale(this.getLocale());
+		this.precomputeFirstWindow();
+		this.resumeBackgroundWork();
+	}
+
+	/**
+	 * Cancels loading in the background. The entities loaded so far remain
+	 * in the table.
+	 */
+	public void cancelLoading() {
+		if (!CheckUtil.isNull(this.loader)) {
+			this.loader.cancel();
+			this.loader = null;
+			this.loadingBar.setVisible(false);
+			this.container.refresh();
+		}
+	}
+
+	/**
+	 * Cancels the bulk validation. The rows found invalid so far remain
+	 * highlighted.
+	 */
+	public void cancelValidation() {
+		if (!CheckUtil.isNull(this.validation)) {
+			this.validation.cancel();
+			this.validationBar.setVisible(false);
+			this.table.refreshRowCache();
+		}
+	}
+
+	/**
+	 * Creates a CSV exporter for entities. The exporter renders the visible
+	 * columns, in order, with the same column plans as the table.
+	 * 
+	 * @param source
+	 *            The source of the entities to export, for example a
+	 *            streaming source. May not be null.
+	 * @return The exporter.
+	 */
+	public CsvExporter<E> createCsvExporter(final TableDataSource<E> source) {
+		final List<String> headers = new ArrayList<String>();
+		final List<ColumnPlan<?, E>> exportPlans = new ArrayList<ColumnPlan<?, E>>();
+		for (final Object column : this.table.getVisibleColumns()) {
+			final ColumnPlan<?, E> plan = this.columnPlans.get(column);
+			if (!CheckUtil.isNull(plan)) {
+				headers.add(this.table.getColumnHeader(column));
+				exportPlans.add(plan);
+			}
+		}
+		return new CsvExporter<E>(source, headers, exportPlans, Charset.forName(TableComponentImpl.CSV_CHARSET));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public StreamResource createCsvResource(final String fileName) {
+		Validate.notNull(this.getApplication(), "Table must be attached.");
+		final StreamResource result = new StreamResource(new CsvStreamSource<S, E>(this), fileName, this.getApplication());
+		result.setMIMEType(TableComponentImpl.CSV_MIME_TYPE);
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void exportCsv(final OutputStream stream) throws IOException {
+		this.createCsvExporter(this.container.createViewSource()).writeTo(stream);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void exportCsv(final WritableByteChannel channel) throws IOException {
+		this.createCsvExporter(this.container.createViewSource()).writeTo(channel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void filter(final String filterQuery) {
+		if (CheckUtil.isNull(this.index)) {
+			throw new IllegalStateException("No columns are indexed.");
+		}
+		this.query = filterQuery;
+		this.applyFilter();
+	}
+
+	/**
+	 * Gets the value for the cellCache field. The cache is disabled until its
+	 * maximum amount of entries is set.
+	 * 
+	 * @return The value for the cellCache field.
+	 */
+	public CellStringCache getCellCache() {
+		return this.cellCache;
+	}
+
+	/**
+	 * Gets the value for the columns field.
+	 * 
+	 * @return The value for the columns field.
+	 */
+	public List<String> getColumns() {
+		return this.columns;
+	}
+
+	/**
+	 * Gets the value for the container field.
+	 * 
+	 * @return The value for the container field.
+	 */
+	public PagedEntityContainer<E> getContainer() {
+		return this.container;
+	}
+
+	/**
+	 * Gets the value for the dataSource field.
+	 * 
+	 * @return The value for the dataSource field.
+	 */
+	public TableDataSource<E> getDataSource() {
+		return this.dataSource;
 	}
 
 	/**
@@ -87,6 +418,78 @@ public final class TableComponentImpl<S, E extends S>
 		return this.entities;
 	}
 
+	/**
+	 * Gets the value for the index field.
+	 * 
+	 * @return The value for the index field.
+	 */
+	public InvertedIndex<E> getIndex() {
+		return this.index;
+	}
+
+	/**
+	 * Gets the value for the loader field.
+	 * 
+	 * @return The value for the loader field.
+	 */
+	public BackgroundLoader<E> getLoader() {
+		return this.loader;
+	}
+
+	/**
+	 * Gets the value for the loadingIndicator field.
+	 * 
+	 * @return The value for the loadingIndicator field.
+	 */
+	public ProgressIndicator getLoadingIndicator() {
+		return this.loadingIndicator;
+	}
+
+	/**
+	 * Gets the value for the precomputeExecutor field.
+	 * 
+	 * @return The value for the precomputeExecutor field.
+	 */
+	public ExecutorService getPrecomputeExecutor() {
+		return this.precomputeExecutor;
+	}
+
+	/**
+	 * Gets the prefetcher of the container.
+	 * 
+	 * @return The prefetcher. May be null.
+	 */
+	public Prefetcher<E> getPrefetcher() {
+		return this.container.getPrefetcher();
+	}
+
+	/**
+	 * Gets the value for the query field.
+	 * 
+	 * @return The value for the query field.
+	 */
+	public String getQuery() {
+		return this.query;
+	}
+
+	/**
+	 * Gets the value for the renderMode field.
+	 * 
+	 * @return The value for the renderMode field.
+	 */
+	public TableRenderMode getRenderMode() {
+		return this.renderMode;
+	}
+
+	/**
+	 * Gets the value for the searchField field.
+	 * 
+	 * @return The value for the searchField field.
+	 */
+	public TextField getSearchField() {
+		return this.searchField;
+	}
+
 	/**
 	 * Gets the value for the table field.
 	 * 
@@ -96,27 +499,285 @@ public final class TableComponentImpl<S, E extends S>
 		return this.table;
 	}
 
+	/**
+	 * Gets the value for the validation field.
+	 * 
+	 * @return The value for the validation field.
+	 */
+	public BulkValidation<E> getValidation() {
+		return this.validation;
+	}
+
+	/**
+	 * Gets the value for the validationBar field.
+	 * 
+	 * @return The value for the validationBar field.
+	 */
+	public HorizontalLayout getValidationBar() {
+		return this.validationBar;
+	}
+
+	/**
+	 * Gets the value for the validationIndicator field.
+	 * 
+	 * @return The value for the validationIndicator field.
+	 */
+	public ProgressIndicator getValidationIndicator() {
+		return this.validationIndicator;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void invalidateAll() {
+		this.cancelPrecomputation();
+		this.cellCache.invalidateAll();
+		this.table.refreshRowCache();
+		this.precompute();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void invalidateCell(final Object itemId, final String columnId) {
+		final boolean running = this.cancelPrecomputation();
+		this.cellCache.invalidateCell(itemId, columnId);
+		this.table.refreshRowCache();
+		if (running) {
+			this.precompute();
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void invalidateRow(final Object itemId) {
+		final boolean running = this.cancelPrecomputation();
+		this.cellCache.invalidateRow(itemId);
+		this.table.refreshRowCache();
+		if (running) {
+			this.precompute();
+		}
+	}
+
+	/**
+	 * Gets the value for the checkboxGlyphs field.
+	 * 
+	 * @return The value for the checkboxGlyphs field.
+	 */
+	public boolean isCheckboxGlyphs() {
+		return this.checkboxGlyphs;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean isColumnRendered(final String propertyName) {
+		return CheckUtil.isNull(this.columns) || this.columns.contains(propertyName);
+	}
+
+	/**
+	 * Loads the entities of the current data source in the background, in
+	 * chunks. The table shows the entities loaded so far, with a progress
+	 * indicator and a cancel button, and is filled in as chunks arrive.
+	 * Loading only starts once the table is attached, so that the table is
+	 * always updated under the application lock.
+	 * 
+	 * @param executor
+	 *            The executor to load on. May not be null.
+	 */
+	public void loadInBackground(final ExecutorService executor) {
+		Validate.notNull(executor, "Executor may not be null.");
+		Validate.notNull(this.dataSource, "Data source may not be null.");
+		TableDataSource<E> source = this.dataSource;
+		if (source instanceof BackgroundLoader) {
+			source = ((BackgroundLoader<E>) source).getSource();
+		}
+		this.cancelLoading();
+		this.cancelPrecomputation();
+		this.loader = new BackgroundLoader<E>(source, BackgroundLoader.DEFAULT_CHUNK_SIZE, executor, new LoadingListener<S, E>(this));
+		this.entities = null;
+		this.dataSource = this.loader;
+		this.indexStale = true;
+		this.cellCache.invalidateAll();
+		this.container.setDataSource(this.loader);
+		if (CheckUtil.isNull(this.loadingBar)) {
+			this.initLoadingBar();
+		}
+		this.loadingIndicator.setValue(Float.valueOf(0f));
+		this.loadingBar.setVisible(true);
+		if (!CheckUtil.isNull(this.getApplication())) {
+			this.loader.start();
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void processStrategy(final TablePropertyRenderStrategy<?, ?> strategy) {
 		Validate.notNull(strategy, "Strategy may not be null.");
-		this.table.addContainerProperty(strategy.getPropertyName(), strategy.getPropertyType(), null);
-		this.table.setColumnHeader(strategy.getPropertyName(), strategy.getPropertyLabel());
-		this.table.addGeneratedColumn(strategy.getPropertyName(), strategy.getGenerator());
+		// Columns shown again after a projection are rendered already.
+		if (!this.container.getContainerPropertyIds().contains(strategy.getPropertyName())) {
+			this.addColumn(strategy);
+		}
+	}
+
+	/**
+	 * Projects the table on other columns. Columns outside of the projection
+	 * are hidden, columns that were never rendered are rendered now.
+	 * 
+	 * @param columns
+	 *            The property names of the columns to render, in order. May
+	 *            be null, in which case all properties are rendered.
+	 */
+	public void setColumns(final List<String> columns) {
+		if (CheckUtil.isNull(columns)) {
+			this.columns = null;
+		} else {
+			this.columns = new ArrayList<String>(columns);
+		}
+		if (!CheckUtil.isNull(this.dataSource)) {
+			this.resolvePlan(false).replay(new RenderContext<E>(this.getModel()),
+					new TablePropertyRenderStrategyFactoryImpl<E>(this, this.checkboxGlyphs));
+		}
+		this.updateVisibleColumns();
+		this.precompute();
+	}
+
+	/**
+	 * Sets a new value for the dataSource field.
+	 * 
+	 * @param dataSource
+	 *            The new value for the dataSource field. May not be null.
+	 */
+	public void setDataSource(final TableDataSource<E> dataSource) {
+		Validate.notNull(dataSource, "Data source may not be null.");
+		this.cancelLoading();
+		this.cancelPrecomputation();
+		this.discardValidation();
+		this.entities = null;
+		this.dataSource = dataSource;
+		this.indexStale = true;
+		this.cellCache.invalidateAll();
+		this.applyFilter();
+		this.precompute();
 	}
 
 	/**
-	 * Sets a new value for the entities field.
+	 * Sets a new value for the entities field. The new entities are compared
+	 * to the previous ones by key, only rows that changed are converted again
+	 * and listeners are notified once, if anything changed at all.
 	 * 
 	 * @param entities
-	 *            The new value for the entities field.
+	 *            The new value for the entities field. May not be null.
 	 */
 	public void setEntities(final Collection<E> entities) {
-		this.entities = entities;
-		this.table.removeAllItems();
-		for (final E entity : this.entities) {
-			this.table.addItem(entity);
+		Validate.notNull(entities, "Entities may not be null.");
+		this.cancelLoading();
+		this.cancelPrecomputation();
+		this.discardValidation();
+		final List<E> current = new ArrayList<E>(entities);
+		final CollectionDataSource<E> currentSource = new CollectionDataSource<E>(current);
+		if (this.dataSource instanceof CollectionDataSource && this.entities != entities) {
+			final List<E> previous = ((CollectionDataSource<E>) this.dataSource).getEntities();
+			final EntityDiff<E> diff = new EntityDiff<E>(previous, current, this.resolveKeyProperty(), this.plans);
+			for (final E removed : diff.getRemoved()) {
+				this.cellCache.invalidateRow(removed);
+			}
+			for (final E updated : diff.getUpdated()) {
+				this.cellCache.invalidateRow(updated);
+			}
+			for (final Map.Entry<E, E> replaced : diff.getReplaced().entrySet()) {
+				this.cellCache.renameRow(replaced.getKey(), replaced.getValue());
+			}
+			this.entities = entities;
+			this.dataSource = currentSource;
+			if (!CheckUtil.isNull(this.index) && !this.indexStale) {
+				this.updateIndex(diff, current);
+			}
+			if (CheckUtil.isNull(this.query)) {
+				this.container.setDataSource(currentSource, diff.isChanged());
+			} else {
+				this.applyFilter();
+			}
+		} else {
+			// The previous entities are unknown or were modified in place.
+			TableComponentImpl.LOGGER.debug("Replacing all entities.");
+			this.entities = entities;
+			this.dataSource = currentSource;
+			this.indexStale = true;
+			this.cellCache.invalidateAll();
+			this.applyFilter();
+		}
+		this.precompute();
+	}
+
+	/**
+	 * Indexes columns for searching, and adds a search field above the table.
+	 * All entities of the data source are indexed by the first search once
+	 * the data source is set and loading has finished, and kept up to date as
+	 * the entities change. While loading, all entities are shown. Without any
+	 * indexable column, the index and search field are removed.
+	 * 
+	 * @param columns
+	 *            The property names of the indexed columns. May not be null.
+	 */
+	public void setIndexedColumns(final Collection<String> columns) {
+		Validate.notNull(columns, "Columns may not be null.");
+		final List<ColumnPlan<?, E>> indexedPlans = new LinkedList<ColumnPlan<?, E>>();
+		for (final String column : columns) {
+			final ColumnPlan<?, E> plan = this.columnPlans.get(column);
+			if (CheckUtil.isNull(plan)) {
+				TableComponentImpl.LOGGER.warn("Column '{}' can not be indexed.", column);
+			} else {
+				indexedPlans.add(plan);
+			}
 		}
+		if (indexedPlans.isEmpty()) {
+			this.index = null;
+			this.query = null;
+			if (!CheckUtil.isNull(this.searchField)) {
+				this.resolveLayout().removeComponent(this.searchField);
+				this.searchField = null;
+			}
+		} else {
+			this.index = new InvertedIndex<E>(indexedPlans, this.getLocale());
+			this.indexStale = true;
+			if (CheckUtil.isNull(this.searchField)) {
+				this.initSearchField();
+			}
+		}
+		this.applyFilter();
+	}
+
+	/**
+	 * Sets a new value for the precomputeExecutor field. If set, the cells of
+	 * the first rows are converted in parallel on the executor, outside of
+	 * the application lock, whenever the entities change. The data source
+	 * must then allow fetching from another thread, and the entity getters
+	 * and converters run on executor threads concurrently with the
+	 * application, so entities must be safe to read from several threads
+	 * and may not be modified in place while precomputing. Invalidate the
+	 * modified rows instead, which cancels and restarts the precomputation.
+	 * Precomputed cells are kept in the cell cache, so nothing is precomputed
+	 * unless the cell cache is enabled. When the table is attached, the rows
+	 * of the first paint are converted first and waited for.
+	 * 
+	 * @param precomputeExecutor
+	 *            The new value for the precomputeExecutor field. May be null,
+	 *            in which case cells are converted as they are rendered.
+	 */
+	public void setPrecomputeExecutor(final ExecutorService precomputeExecutor) {
+		this.precomputeExecutor = precomputeExecutor;
+		this.precompute();
+	}
+
+	/**
+	 * Sets the prefetcher of the container. Every page of entities is handed
+	 * to the prefetcher before it is rendered, together with the relation
+	 * paths of the columns.
+	 * 
+	 * @param prefetcher
+	 *            The prefetcher. May be null, in which case relations are
+	 *            loaded as the cells are rendered.
+	 */
+	public void setPrefetcher(final Prefetcher<E> prefetcher) {
+		this.container.setPrefetcher(prefetcher);
 	}
 
 	/**
@@ -129,20 +790,346 @@ public final class TableComponentImpl<S, E extends S>
 		this.table = table;
 	}
 
+	/**
+	 * Validates all entities of the current data source in parallel,
+	 * replacing the previous validation. A status column lists the
+	 * violations of each row and invalid rows are styled as such, filled in
+	 * as chunks are validated, with a progress indicator and a cancel
+	 * button. The data source must allow fetching from another thread.
+	 * Changing the entities discards the results. Validation only starts
+	 * once the table is attached. A cell style generator set on the table
+	 * before the first validation keeps styling all other rows and cells,
+	 * one set afterwards replaces the styling of invalid rows. See
+	 * {@link ViolationStatusGenerator#INVALID_STYLE} for the style to add to
+	 * the theme.
+	 * 
+	 * @param executor
+	 *            The executor to validate on. May not be null.
+	 * @return The validation.
+	 */
+	public BulkValidation<E> validateAll(final ExecutorService executor) {
+		Validate.notNull(executor, "Executor may not be null.");
+		Validate.notNull(this.dataSource, "Data source may not be null.");
+		final EntityValidator validator = this.getModel().getExtension(EntityValidator.class);
+		Validate.notNull(validator, "Validator may not be null.");
+		this.discardValidation();
+		if (CheckUtil.isNull(this.validationStatus)) {
+			this.initValidationStatus();
+		}
+		this.validation = new BulkValidation<E>(this.dataSource, this.getEntityDescriptor(), validator, executor,
+				new BulkValidationListener<S, E>(this));
+		this.validationIndicator.setValue(Float.valueOf(0f));
+		this.validationBar.setVisible(true);
+		if (!CheckUtil.isNull(this.getApplication())) {
+			this.validation.start();
+		}
+		return this.validation;
+	}
+
+	/**
+	 * Adds the column of a strategy.
+	 * 
+	 * @param strategy
+	 *            The strategy.
+	 */
+	@SuppressWarnings("unchecked")
+	private void addColumn(final TablePropertyRenderStrategy<?, ?> strategy) {
+		final ColumnGenerator generator = strategy.getGenerator();
+		if (generator instanceof AbstractColumnGenerator) {
+			final ColumnPlan<?, E> plan = ((AbstractColumnGenerator<?, E>) generator).getPlan();
+			this.columnPlans.put(strategy.getPropertyName(), plan);
+			if (!CheckUtil.isNull(this.plans)) {
+				this.plans.add(plan);
+			}
+		} else {
+			this.plans = null;
+		}
+		// Glyph columns keep their generator, column plans only render text.
+		if (TableRenderMode.TEXT.equals(this.renderMode) && generator instanceof AbstractColumnGenerator
+				&& !(generator instanceof GlyphColumnGenerator)) {
+			this.container.addColumnPlan(strategy.getPropertyName(), ((AbstractColumnGenerator<?, E>) generator).getPlan());
+			this.cachedPlans.put(strategy.getPropertyName(), ((AbstractColumnGenerator<?, E>) generator).getPlan());
+			this.table.addContainerProperty(strategy.getPropertyName(), String.class, null);
+			this.table.setColumnHeader(strategy.getPropertyName(), strategy.getPropertyLabel());
+		} else {
+			if (generator instanceof AbstractColumnGenerator) {
+				((AbstractColumnGenerator<?, ?>) generator).setCellCache(this.cellCache);
+				this.container.addSortPlan(strategy.getPropertyName(), ((AbstractColumnGenerator<?, E>) generator).getPlan());
+			}
+			if (generator instanceof TextColumnGenerator) {
+				this.cachedPlans.put(strategy.getPropertyName(), ((AbstractColumnGenerator<?, E>) generator).getPlan());
+			}
+			this.table.addContainerProperty(strategy.getPropertyName(), strategy.getPropertyType(), null);
+			this.table.setColumnHeader(strategy.getPropertyName(), strategy.getPropertyLabel());
+			this.table.addGeneratedColumn(strategy.getPropertyName(), generator);
+		}
+	}
+
+	/**
+	 * Applies the current filter to the container, indexing the entities
+	 * first if needed. Nothing is filtered while loading.
+	 */
+	private void applyFilter() {
+		if (!CheckUtil.isNull(this.dataSource)) {
+			List<E> filtered = null;
+			if (!CheckUtil.isNull(this.query) && CheckUtil.isNull(this.loader)) {
+				if (this.indexStale) {
+					this.rebuildIndex();
+				}
+				filtered = this.index.search(this.query);
+			}
+			if (CheckUtil.isNull(filtered)) {
+				this.container.setDataSource(this.dataSource);
+			} else {
+				this.container.setDataSource(new CollectionDataSource<E>(filtered));
+			}
+		}
+	}
+
+	/**
+	 * Cancels the running precomputation, if any. A cancelled precomputation
+	 * no longer publishes once this returns, so the cell cache may be
+	 * invalidated safely afterwards.
+	 * 
+	 * @return True if and only if an unfinished precomputation was
+	 *         cancelled.
+	 */
+	private boolean cancelPrecomputation() {
+		boolean result = false;
+		if (!CheckUtil.isNull(this.precomputation)) {
+			result = !this.precomputation.isFinished();
+			this.precomputation.cancel();
+			this.precomputation = null;
+		}
+		return result;
+	}
+
+	/**
+	 * Cancels the bulk validation and drops its results, if any.
+	 */
+	private void discardValidation() {
+		if (!CheckUtil.isNull(this.validation)) {
+			this.cancelValidation();
+			this.validation = null;
+		}
+	}
+
 	/** Initializes the table. */
 	private void init() {
-		final Composer<RenderContext<E>, S, E> composer = new Composer<RenderContext<E>, S, E>();
-		composer.setContext(new RenderContext<E>(this.getModel()));
-		composer.setPropertyRenderStrategyFactory(new TablePropertyRenderStrategyFactoryImpl<E>(this));
-		composer.setVariableResolver(new ComponentVariableResolver());
+		final RenderPlan<E> plan = this.resolvePlan(false);
+		this.table = new PagedTable(plan.getLabel());
+		if (CheckUtil.isNull(this.dataSource)) {
+			this.container = new PagedEntityContainer<E>(new CollectionDataSource<E>(new ArrayList<E>()));
+		} else {
+			this.container = new PagedEntityContainer<E>(this.dataSource);
+		}
+		this.container.setCellCache(this.cellCache);
+		this.table.setContainerDataSource(this.container);
+		if (!CheckUtil.isNull(this.dataSource)) {
+			plan.replay(new RenderContext<E>(this.getModel()), new TablePropertyRenderStrategyFactoryImpl<E>(this, this.checkboxGlyphs));
+		}
+		if (!CheckUtil.isNull(this.columns)) {
+			this.updateVisibleColumns();
+		}
+		this.setCompositionRoot(this.table);
+	}
+
+	/** Initializes the loading progress and cancel control. */
+	private void initLoadingBar() {
+		this.loadingIndicator = new ProgressIndicator();
+		this.loadingIndicator.setPollingInterval(TableComponentImpl.LOADING_POLLING_INTERVAL);
+		this.loadingBar = new HorizontalLayout();
+		this.loadingBar.addComponent(this.loadingIndicator);
+		this.loadingBar.addComponent(new Button(MessageUtil.getMessage(TableComponentImpl.LOADING_CANCEL), this, "cancelLoading"));
+		this.resolveLayout().addComponent(this.loadingBar);
+	}
+
+	/** Initializes the search field. */
+	private void initSearchField() {
+		this.searchField = new TextField(MessageUtil.getMessage(TableComponentImpl.SEARCH_CAPTION));
+		this.searchField.setTextChangeEventMode(TextChangeEventMode.LAZY);
+		this.searchField.addListener(new SearchListener<S, E>(this));
+		this.resolveLayout().addComponentAsFirst(this.searchField);
+	}
+
+	/** Initializes the validation status column and progress control. */
+	private void initValidationStatus() {
+		this.validationStatus = new ViolationStatusGenerator<S, E>(this);
+		this.table.addGeneratedColumn(TableComponentImpl.VALIDATION_COLUMN, this.validationStatus);
+		this.table.setColumnHeader(TableComponentImpl.VALIDATION_COLUMN, MessageUtil.getMessage(TableComponentImpl.VALIDATION_STATUS));
+		this.validationStatus.setDelegate(this.table.getCellStyleGenerator());
+		this.table.setCellStyleGenerator(this.validationStatus);
+		this.validationIndicator = new ProgressIndicator();
+		this.validationIndicator.setPollingInterval(TableComponentImpl.LOADING_POLLING_INTERVAL);
+		this.validationBar = new HorizontalLayout();
+		this.validationBar.addComponent(this.validationIndicator);
+		this.validationBar.addComponent(new Button(MessageUtil.getMessage(TableComponentImpl.VALIDATION_CANCEL), this,
+				"cancelValidation"));
+		this.resolveLayout().addComponent(this.validationBar);
+	}
 
-		this.table = new Table(composer.getLabel());
-		if (!CheckUtil.isNull(this.entities)) {
-			for (final E entity : this.entities) {
-				this.table.addItem(entity);
+	/**
+	 * Starts converting the cells of the first rows, cancelling the previous
+	 * precomputation.
+	 */
+	private void precompute() {
+		this.cancelPrecomputation();
+		if (!CheckUtil.isNull(this.precomputeExecutor) && !CheckUtil.isNull(this.dataSource) && !this.cachedPlans.isEmpty()
+				&& this.cellCache.isEnabled()) {
+			this.precomputation = new CellPrecomputation<E>(this.dataSource, this.cachedPlans, this.cellCache, this.precomputeExecutor,
+					new PrecomputationListener<S, E>(this));
+			this.precomputation.start();
+		}
+	}
+
+	/**
+	 * Converts the cells of the rows the first paint renders in parallel and
+	 * waits for them, so the first paint reads them from the cell cache
+	 * instead of converting them serially under the application lock. The
+	 * running precomputation is cancelled first, so the first rows do not
+	 * queue behind it on the executor, and restarted afterwards, skipping
+	 * the cached cells.
+	 */
+	private void precomputeFirstWindow() {
+		if (this.cancelPrecomputation()) {
+			final int pageLength = Math.max(1, this.table.getPageLength());
+			final int window = (int) Math.ceil(pageLength * (1 + this.table.getCacheRate()));
+			final int chunkSize = Math.max(1, window / Runtime.getRuntime().availableProcessors());
+			final CellPrecomputation<E> first = new CellPrecomputation<E>(this.container.createViewSource(), this.cachedPlans,
+					this.cellCache, this.precomputeExecutor, null, window, chunkSize);
+			first.run();
+			try {
+				if (!first.await(TableComponentImpl.FIRST_WINDOW_TIMEOUT, TimeUnit.MILLISECONDS)) {
+					TableComponentImpl.LOGGER.debug("First rows not precomputed in time, converting them as they are rendered.");
+				}
+			} catch (final InterruptedException e) {
+				TableComponentImpl.LOGGER.debug("Interrupted while precomputing the first rows.", e);
+				Thread.currentThread().interrupt();
 			}
-			composer.compose(false);
+			this.precompute();
 		}
-		this.setCompositionRoot(this.table);
+	}
+
+	/**
+	 * Indexes all entities of the data source.
+	 */
+	private void rebuildIndex() {
+		this.index.clear();
+		final List<E> ordered = new ArrayList<E>();
+		if (!CheckUtil.isNull(this.dataSource)) {
+			final int size = this.dataSource.size();
+			final int chunkSize = this.container.getPageSize();
+			for (int offset = 0; offset < size; offset += chunkSize) {
+				final List<E> chunk = this.dataSource.fetch(offset, chunkSize);
+				for (final E entity : chunk) {
+					this.index.add(entity);
+				}
+				ordered.addAll(chunk);
+			}
+		}
+		this.index.setOrder(ordered);
+		this.indexStale = false;
+	}
+
+	/**
+	 * Resolves the key property of the entity, if any.
+	 * 
+	 * @return The key property, or null.
+	 */
+	@SuppressWarnings("unchecked")
+	private PropertyDescriptor<?, E> resolveKeyProperty() {
+		final KeyedEntityDescriptor<E, ?> keyedDescriptor = this.getEntityDescriptor().adapt(KeyedEntityDescriptor.class);
+		PropertyDescriptor<?, E> result = null;
+		if (!CheckUtil.isNull(keyedDescriptor)) {
+			result = keyedDescriptor.getKeyProperty();
+		}
+		return result;
+	}
+
+	/**
+	 * Resolves the layout holding the table and its controls, creating it if
+	 * needed.
+	 * 
+	 * @return The layout.
+	 */
+	private VerticalLayout resolveLayout() {
+		if (CheckUtil.isNull(this.layout)) {
+			this.layout = new VerticalLayout();
+			this.layout.addComponent(this.table);
+			this.setCompositionRoot(this.layout);
+		}
+		return this.layout;
+	}
+
+	/**
+	 * Starts the background work that waited for the table to be attached,
+	 * and catches up with the results that arrived while it was detached.
+	 */
+	private void resumeBackgroundWork() {
+		if (!CheckUtil.isNull(this.loader)) {
+			if (!this.loader.isStarted()) {
+				this.loader.start();
+			} else if (this.loader.isFinished()) {
+				this.setDataSource(new CollectionDataSource<E>(this.loader.getLoaded()));
+			} else {
+				this.container.refresh();
+				this.loadingIndicator.setValue(Float.valueOf(this.loader.getProgress()));
+			}
+		}
+		if (!CheckUtil.isNull(this.validation)) {
+			if (!this.validation.isStarted()) {
+				this.validation.start();
+			} else {
+				this.validationIndicator.setValue(Float.valueOf(this.validation.getProgress()));
+				this.validationBar.setVisible(!this.validation.isFinished());
+				this.table.refreshRowCache();
+			}
+		}
+	}
+
+	/**
+	 * Updates the index with the difference between the previous and current
+	 * entities. Only inserted and updated entities are tokenized.
+	 * 
+	 * @param diff
+	 *            The difference.
+	 * @param current
+	 *            The current entities.
+	 */
+	private void updateIndex(final EntityDiff<E> diff, final List<E> current) {
+		for (final E removed : diff.getRemoved()) {
+			this.index.remove(removed);
+		}
+		for (final E updated : diff.getUpdated()) {
+			this.index.remove(updated);
+		}
+		for (final Map.Entry<E, E> replaced : diff.getReplaced().entrySet()) {
+			this.index.replace(replaced.getKey(), replaced.getValue());
+		}
+		for (final E entity : current) {
+			this.index.add(entity);
+		}
+		this.index.setOrder(current);
+	}
+
+	/**
+	 * Shows the rendered columns of the projection in order, or all rendered
+	 * columns if there is no projection. The validation status stays last.
+	 */
+	private void updateVisibleColumns() {
+		final List<Object> visibleColumns = new ArrayList<Object>();
+		if (CheckUtil.isNull(this.columns)) {
+			visibleColumns.addAll(this.container.getContainerPropertyIds());
+		} else {
+			for (final String column : this.columns) {
+				if (this.container.getContainerPropertyIds().contains(column)) {
+					visibleColumns.add(column);
+				}
+			}
+		}
+		if (!CheckUtil.isNull(this.validationStatus)) {
+			visibleColumns.add(TableComponentImpl.VALIDATION_COLUMN);
+		}
+		this.table.setVisibleColumns(visibleColumns.toArray());
 	}
 }
@@ -22,13 +22,16 @@ import java.util.Iterator;
 
 import com.vaadin.data.Validator;
 
+import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.Validate;
 import org.lunarray.common.check.CheckUtil;
 import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.model.extension.ExtensionRef;
 import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
 import org.lunarray.model.descriptor.validator.PropertyViolation;
 import org.lunarray.model.descriptor.validator.ValueValidator;
 import org.lunarray.model.generation.vaadin.util.MessageUtil;
+import org.lunarray.model.generation.vaadin.util.ValidationCache;
 
 /**
  * Validates values in the form, on violation, displays message.
@@ -73,6 +76,18 @@ public final class ValueValidationListener<P, E>
 	/** The property descriptor. */
 	private PropertyDescriptor<P, E> propertyDescriptor;
 
+	/** The value last validated. */
+	private P validatedValue;
+
+	/** The validation cache. */
+	private ValidationCache validationCache;
+
+	/** The validator. */
+	private ExtensionRef<ValueValidator> valueValidator;
+
+	/** The violations of the value last validated, or null if none was validated. */
+	private Collection<PropertyViolation<E, P>> violations;
+
 	/**
 	 * Default constructor.
 	 * 
@@ -84,6 +99,8 @@ public final class ValueValidationListener<P, E>
 	private ValueValidationListener(final PropertyDescriptor<P, E> propertyDescriptor, final Model<?> model) {
 		this.propertyDescriptor = propertyDescriptor;
 		this.model = model;
+		this.valueValidator = model.getExtensionRef(ValueValidator.class);
+		this.validationCache = ValidationCache.getInstance(model);
 	}
 
 	/**
@@ -112,9 +129,9 @@ public final class ValueValidationListener<P, E>
 			@SuppressWarnings("unchecked")
 			// Check happens through the isAssignable.
 			final P propertyValue = (P) value;
-			final ValueValidator validator = this.model.getExtension(ValueValidator.class);
+			final ValueValidator validator = this.resolveValidator();
 			if (!CheckUtil.isNull(validator)) {
-				valid = validator.validateValue(this.propertyDescriptor, propertyValue).isEmpty();
+				valid = this.resolveViolations(validator, propertyValue).isEmpty();
 			}
 		} else {
 			valid = false;
@@ -130,6 +147,9 @@ public final class ValueValidationListener<P, E>
 	 */
 	public void setModel(final Model<?> model) {
 		this.model = model;
+		this.valueValidator = model.getExtensionRef(ValueValidator.class);
+		this.validationCache = ValidationCache.getInstance(model);
+		this.violations = null;
 	}
 
 	/**
@@ -140,6 +160,7 @@ public final class ValueValidationListener<P, E>
 	 */
 	public void setPropertyDescriptor(final PropertyDescriptor<P, E> propertyDescriptor) {
 		this.propertyDescriptor = propertyDescriptor;
+		this.violations = null;
 	}
 
 	/** {@inheritDoc} */
@@ -149,8 +170,7 @@ public final class ValueValidationListener<P, E>
 			@SuppressWarnings("unchecked")
 			// Check happens through the isAssignable.
 			final P propertyValue = (P) value;
-			final ValueValidator validator = this.model.getExtension(ValueValidator.class);
-			this.processValidation(propertyValue, validator);
+			this.processValidation(propertyValue, this.resolveValidator());
 		} else {
 			throw new InvalidValueException(MessageUtil.getMessage(ValueValidationListener.INVALID_VALUE));
 		}
@@ -166,11 +186,42 @@ public final class ValueValidationListener<P, E>
 	 */
 	private void processValidation(final P propertyValue, final ValueValidator validator) {
 		if (!CheckUtil.isNull(validator)) {
-			final Collection<PropertyViolation<E, P>> violations = validator.validateValue(this.propertyDescriptor, propertyValue);
-			final Iterator<PropertyViolation<E, P>> violationsIt = violations.iterator();
+			final Iterator<PropertyViolation<E, P>> violationsIt = this.resolveViolations(validator, propertyValue).iterator();
 			if (violationsIt.hasNext()) {
 				throw new InvalidValueException(violationsIt.next().getMessage());
 			}
 		}
 	}
+
+	/**
+	 * Resolves the validator.
+	 * 
+	 * @return The validator, or null if the model has none.
+	 */
+	private ValueValidator resolveValidator() {
+		ValueValidator result = null;
+		if (!CheckUtil.isNull(this.valueValidator)) {
+			result = this.valueValidator.get();
+		}
+		return result;
+	}
+
+	/**
+	 * Resolves the violations of a value. The violations of the value last
+	 * validated are reused, as fields validate the same value more than once.
+	 * 
+	 * @param validator
+	 *            The validator.
+	 * @param propertyValue
+	 *            The value.
+	 * @return The violations.
+	 */
+	private Collection<PropertyViolation<E, P>> resolveViolations(final ValueValidator validator, final P propertyValue) {
+		if (CheckUtil.isNull(this.violations) || propertyValue instanceof Collection
+				|| !ObjectUtils.equals(propertyValue, this.validatedValue)) {
+			this.violations = this.validationCache.validate(validator, this.propertyDescriptor, propertyValue);
+			this.validatedValue = propertyValue;
+		}
+		return this.violations;
+	}
 }
@@ -0,0 +1,151 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.Iterator;
+import java.util.List;
+
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Table;
+import com.vaadin.ui.Table.CellStyleGenerator;
+import com.vaadin.ui.Table.ColumnGenerator;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+
+/**
+ * Shows the results of the bulk validation of a table. The status column
+ * lists the violations of a row, and invalid rows are styled as such. Rows
+ * are looked up in the violation index of the current validation, so
+ * rendering does not validate anything. All other styles are left to the
+ * cell style generator the table had before, if any.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ * @param <S>
+ *            The entity super type.
+ */
+public final class ViolationStatusGenerator<S, E extends S>
+		implements ColumnGenerator, CellStyleGenerator {
+
+	/**
+	 * The style of invalid rows. The table renders it as the
+	 * <code>v-table-row-invalid</code> class, which the application theme is
+	 * expected to style, for example:
+	 * 
+	 * <pre>
+	 * .v-table-row-invalid, .v-table-row-odd.v-table-row-invalid {
+	 *     background-color: #fdd;
+	 * }
+	 * </pre>
+	 */
+	public static final String INVALID_STYLE = "invalid";
+	/** The separator of the violations of a row. */
+	private static final String SEPARATOR = "; ";
+	/** Serial id. */
+	private static final long serialVersionUID = 3286417750984417262L;
+	/** The cell style generator to delegate to. */
+	private CellStyleGenerator delegate;
+	/** The table component. */
+	private TableComponentImpl<S, E> tableComponent;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param tableComponent
+	 *            The table component.
+	 */
+	protected ViolationStatusGenerator(final TableComponentImpl<S, E> tableComponent) {
+		Validate.notNull(tableComponent, "Table may not be null.");
+		this.tableComponent = tableComponent;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Object generateCell(final Table source, final Object itemId, final Object columnId) {
+		final BulkValidation<E> validation = this.tableComponent.getValidation();
+		Object result = null;
+		if (!CheckUtil.isNull(validation)) {
+			final List<String> messages = validation.getMessages(itemId);
+			if (!messages.isEmpty()) {
+				final StringBuilder builder = new StringBuilder();
+				final Iterator<String> messagesIt = messages.iterator();
+				while (messagesIt.hasNext()) {
+					builder.append(messagesIt.next());
+					if (messagesIt.hasNext()) {
+						builder.append(ViolationStatusGenerator.SEPARATOR);
+					}
+				}
+				result = new Label(builder.toString());
+			}
+		}
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String getStyle(final Object itemId, final Object propertyId) {
+		final BulkValidation<E> validation = this.tableComponent.getValidation();
+		String result = null;
+		if (CheckUtil.isNull(propertyId) && !CheckUtil.isNull(validation) && validation.isInvalid(itemId)) {
+			result = ViolationStatusGenerator.INVALID_STYLE;
+		} else if (!CheckUtil.isNull(this.delegate)) {
+			result = this.delegate.getStyle(itemId, propertyId);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the value for the delegate field.
+	 * 
+	 * @return The value for the delegate field.
+	 */
+	public CellStyleGenerator getDelegate() {
+		return this.delegate;
+	}
+
+	/**
+	 * Gets the value for the tableComponent field.
+	 * 
+	 * @return The value for the tableComponent field.
+	 */
+	public TableComponentImpl<S, E> getTableComponent() {
+		return this.tableComponent;
+	}
+
+	/**
+	 * Sets a new value for the delegate field.
+	 * 
+	 * @param delegate
+	 *            The new value for the delegate field. May be null.
+	 */
+	public void setDelegate(final CellStyleGenerator delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Sets a new value for the tableComponent field.
+	 * 
+	 * @param tableComponent
+	 *            The new value for the tableComponent field.
+	 */
+	public void setTableComponent(final TableComponentImpl<S, E> tableComponent) {
+		this.tableComponent = tableComponent;
+	}
+}
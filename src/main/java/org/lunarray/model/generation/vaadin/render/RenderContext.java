@@ -17,9 +17,11 @@
  */
 package org.lunarray.model.generation.vaadin.render;
 
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 
 import org.apache.commons.lang.Validate;
 import org.lunarray.model.descriptor.model.Model;
@@ -62,6 +64,15 @@ public final class RenderContext<E>
 		return this.model;
 	}
 
+	/**
+	 * Gets the variable prefixes.
+	 * 
+	 * @return A copy of the prefixes, outermost first.
+	 */
+	public List<PropertyDescriptor<?, ?>> getPrefixes() {
+		return new ArrayList<PropertyDescriptor<?, ?>>(this.variablePrefixes);
+	}
+
 	/**
 	 * Gets the property name.
 	 * 
@@ -90,4 +101,16 @@ public final class RenderContext<E>
 	public void pushPrefix(final PropertyDescriptor<?, ?> prefix) {
 		this.variablePrefixes.add(prefix);
 	}
+
+	/**
+	 * Replaces the variable prefixes.
+	 * 
+	 * @param prefixes
+	 *            The prefixes, outermost first. May not be null.
+	 */
+	public void setPrefixes(final List<PropertyDescriptor<?, ?>> prefixes) {
+		Validate.notNull(prefixes, "Prefixes may not be null.");
+		this.variablePrefixes.clear();
+		this.variablePrefixes.addAll(prefixes);
+	}
 }
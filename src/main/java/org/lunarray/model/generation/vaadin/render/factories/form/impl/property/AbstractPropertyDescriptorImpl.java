@@ -17,23 +17,24 @@
  */
 package org.lunarray.model.generation.vaadin.render.factories.form.impl.property;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
+import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.Validate;
 import org.lunarray.common.check.CheckUtil;
 import org.lunarray.model.descriptor.accessor.exceptions.ValueAccessException;
 import org.lunarray.model.descriptor.converter.ConverterTool;
 import org.lunarray.model.descriptor.converter.exceptions.ConverterException;
 import org.lunarray.model.descriptor.model.Model;
-import org.lunarray.model.descriptor.model.entity.EntityDescriptor;
-import org.lunarray.model.descriptor.model.entity.KeyedEntityDescriptor;
 import org.lunarray.model.descriptor.model.extension.ExtensionRef;
 import org.lunarray.model.descriptor.model.member.Cardinality;
 import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
 import org.lunarray.model.descriptor.model.relation.RelationDescriptor;
-import org.lunarray.model.descriptor.presentation.PresentationEntityDescriptor;
 import org.lunarray.model.descriptor.presentation.PresentationPropertyDescriptor;
 import org.lunarray.model.descriptor.validator.PropertyViolation;
 import org.lunarray.model.descriptor.validator.ValueValidator;
@@ -42,6 +43,9 @@ import org.lunarray.model.generation.vaadin.render.factories.form.descriptor.Des
 import org.lunarray.model.generation.vaadin.render.factories.form.descriptor.MutateBuffer;
 import org.lunarray.model.generation.vaadin.render.factories.form.descriptor.ValueChangedListener;
 import org.lunarray.model.generation.vaadin.render.factories.form.events.EntityChangeEvent;
+import org.lunarray.model.generation.vaadin.util.RelationDisplay;
+import org.lunarray.model.generation.vaadin.util.RelationDisplayResolver;
+import org.lunarray.model.generation.vaadin.util.ValidationCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,22 +69,36 @@ public abstract class AbstractPropertyDescriptorImpl<P, E>
 	private List<ValueChangeListener> changeListeners;
 	/** The converter. */
 	private ExtensionRef<ConverterTool> converterTool;
+	/** Whether the property was written since the entity was set. */
+	private boolean dirty;
 	/** The entity. */
 	private E entity;
 	/** The listeners. */
 	private List<ValueChangedListener<P>> listeners;
 	/** The model. */
 	private Model<?> model;
+	/** The value of the property before it was first written. */
+	private P originalValue;
 	/** The preferred type. */
 	private Class<?> prefferedType;
+	/** Whether the value is bound since the entity was set. */
+	private boolean presented;
+	/** The value when bound or last committed, collections are copied. */
+	private Object presentedValue;
 	/** The presentation property. */
 	private PresentationPropertyDescriptor<P, E> presentationProperty;
 	/** The property. */
 	private PropertyDescriptor<P, E> property;
 	/** The relation descriptor. */
 	private RelationDescriptor relationDescriptor;
+	/** The validation cache. */
+	private ValidationCache validationCache;
+	/** The value last validated. */
+	private Object validatedValue;
 	/** The validator. */
 	private ExtensionRef<ValueValidator> valueValidator;
+	/** The violations of the value last validated, or null if none was validated. */
+	private Collection<PropertyViolation<E, P>> violations;
 
 	/**
 	 * Default constructor.
@@ -101,10 +119,30 @@ public abstract class AbstractPropertyDescriptorImpl<P, E>
 		this.converterTool = model.getExtensionRef(ConverterTool.class);
 		Validate.notNull(this.converterTool, "Model must feature a converter tool.");
 		this.valueValidator = model.getExtensionRef(ValueValidator.class);
+		this.validationCache = ValidationCache.getInstance(model);
 		this.listeners = new LinkedList<ValueChangedListener<P>>();
 		this.changeListeners = new LinkedList<ValueChangeListener>();
 	}
 
+	/**
+	 * Copies the contents of a collection, as collections may be modified in
+	 * place after being handed out or while being validated.
+	 * 
+	 * @param value
+	 *            The value. May be null.
+	 * @return A copy of the contents if the value is a collection, otherwise
+	 *         the value itself.
+	 */
+	public static Object copyContents(final Object value) {
+		Object result = value;
+		if (value instanceof Set) {
+			result = new HashSet<Object>((Set<?>) value);
+		} else if (value instanceof Collection) {
+			result = new ArrayList<Object>((Collection<?>) value);
+		}
+		return result;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public final void addListener(final ValueChangedListener<P> listener) {
@@ -149,6 +187,15 @@ public abstract class AbstractPropertyDescriptorImpl<P, E>
 		return result;
 	}
 
+	/**
+	 * Forgets the writes to the property, making the current value of the
+	 * property its original value.
+	 */
+	public final void clearDirty() {
+		this.dirty = false;
+		this.originalValue = null;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public final AccessBuffer<P> getBufferAccessor() {
@@ -262,6 +309,15 @@ public abstract class AbstractPropertyDescriptorImpl<P, E>
 		return this.getProperty().getName();
 	}
 
+	/**
+	 * Gets the value for the originalValue field.
+	 * 
+	 * @return The value for the originalValue field.
+	 */
+	public final P getOriginalValue() {
+		return this.originalValue;
+	}
+
 	/**
 	 * Gets the value for the prefferedType field.
 	 * 
@@ -337,10 +393,18 @@ public abstract class AbstractPropertyDescriptorImpl<P, E>
 		return this.property.getPropertyType();
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * {@inheritDoc} The first value handed out after the entity is set is
+	 * bound, its contents are copied once to detect in place modifications.
+	 */
 	@Override
 	public final Object getValue() {
-		return this.getCoerceValue(this.prefferedType);
+		final Object result = this.getCoerceValue(this.prefferedType);
+		if (!this.presented) {
+			this.presentedValue = AbstractPropertyDescriptorImpl.copyContents(result);
+			this.presented = true;
+		}
+		return result;
 	}
 
 	/**
@@ -352,6 +416,15 @@ public abstract class AbstractPropertyDescriptorImpl<P, E>
 		return this.valueValidator;
 	}
 
+	/**
+	 * Tests if the property was written since the entity was set.
+	 * 
+	 * @return The value for the dirty field.
+	 */
+	public final boolean isDirty() {
+		return this.dirty;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public final boolean isReadOnly() {
@@ -381,10 +454,8 @@ public abstract class AbstractPropertyDescriptorImpl<P, E>
 	public final boolean isValid(final Object value) {
 		boolean result = true;
 		final ValueValidator validator = this.valueValidator.get();
-		if (!CheckUtil.isNull(validator)) {
-			Collection<PropertyViolation<E, P>> violations;
-			violations = validator.validateValue(this.property, this.coerceValue(value));
-			result = violations.isEmpty();
+		if (!CheckUtil.isNull(validator) && !this.isUnchanged(value)) {
+			result = this.resolveViolations(validator, value).isEmpty();
 		}
 		return result;
 	}
@@ -462,6 +533,9 @@ public abstract class AbstractPropertyDescriptorImpl<P, E>
 	 */
 	public final void setEntity(final E entity) {
 		this.entity = entity;
+		this.clearDirty();
+		this.presented = false;
+		this.presentedValue = null;
 		final EntityChangeEvent event = new EntityChangeEvent(this);
 		for (final ValueChangeListener listener : this.changeListeners) {
 			listener.valueChange(event);
@@ -567,10 +641,30 @@ public abstract class AbstractPropertyDescriptorImpl<P, E>
 		}
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * {@inheritDoc} A collection that was modified in place has lost its
+	 * original contents, so the copy of the contents last handed out is kept
+	 * as the original value instead.
+	 */
 	@Override
+	@SuppressWarnings("unchecked")
 	public final void setValue(final Object newValue) throws ConversionException {
-		this.setCoerceValue(newValue);
+		if (this.isUnchanged(newValue)) {
+			AbstractPropertyDescriptorImpl.LOGGER.debug("Skipped writing unchanged value {} of property: {}", newValue, this.property);
+		} else {
+			final P previous = this.getDirectValue();
+			this.setCoerceValue(newValue);
+			if (!this.dirty) {
+				if (this.presented && previous == newValue && previous instanceof Collection) {
+					this.originalValue = (P) this.presentedValue;
+				} else {
+					this.originalValue = previous;
+				}
+				this.dirty = true;
+			}
+			this.presentedValue = AbstractPropertyDescriptorImpl.copyContents(newValue);
+			this.presented = true;
+		}
 	}
 
 	/**
@@ -581,6 +675,7 @@ public abstract class AbstractPropertyDescriptorImpl<P, E>
 	 */
 	public final void setValueValidator(final ExtensionRef<ValueValidator> valueValidator) {
 		this.valueValidator = valueValidator;
+		this.violations = null;
 	}
 
 	/** {@inheritDoc} */
@@ -602,36 +697,74 @@ public abstract class AbstractPropertyDescriptorImpl<P, E>
 	@Override
 	public final void validate(final Object value) throws InvalidValueException {
 		final ValueValidator validator = this.valueValidator.get();
-		if (!CheckUtil.isNull(validator)) {
-			Collection<PropertyViolation<E, P>> violations;
-			violations = validator.validateValue(this.property, this.coerceValue(value));
-			if (!violations.isEmpty()) {
-				final PropertyViolation<E, P> violation = violations.iterator().next();
+		if (!CheckUtil.isNull(validator) && !this.isUnchanged(value)) {
+			final Collection<PropertyViolation<E, P>> found = this.resolveViolations(validator, value);
+			if (!found.isEmpty()) {
+				final PropertyViolation<E, P> violation = found.iterator().next();
 				throw new InvalidValueException(violation.getMessage());
 			}
 		}
 	}
 
 	/**
-	 * Process as presentation entity.
+	 * Validates a value without touching the state of the descriptor, so that
+	 * values may be validated on another thread than the one the form is used
+	 * on. The value may not be modified while it is validated, so collections
+	 * should be copied first.
 	 * 
-	 * @param entityDescriptor
-	 *            The entity descriptor.
-	 * @return The result.
+	 * @param value
+	 *            The value. May be null.
+	 * @return The message of the first violation, or null if the value is
+	 *         valid.
+	 * @throws ConversionException
+	 *             Thrown if the value could not be converted to the property
+	 *             type.
 	 */
-	private PropertyDescriptor<?, P> processPresentation(final EntityDescriptor<P> entityDescriptor) {
-		PropertyDescriptor<?, P> result = null;
-		@SuppressWarnings("unchecked")
-		final PresentationEntityDescriptor<P> presentationDescriptor = entityDescriptor.adapt(PresentationEntityDescriptor.class);
-		if (!CheckUtil.isNull(presentationDescriptor)) {
-			final PropertyDescriptor<?, P> nameDescriptor = presentationDescriptor.getNameProperty();
-			if (!CheckUtil.isNull(nameDescriptor)) {
-				result = nameDescriptor;
+	public final String validateDetached(final Object value) throws ConversionException {
+		final ValueValidator validator = this.valueValidator.get();
+		String result = null;
+		if (!CheckUtil.isNull(validator)) {
+			final Collection<PropertyViolation<E, P>> found = this.validationCache.validate(validator, this.property,
+					this.coerceNullable(value));
+			if (!found.isEmpty()) {
+				result = found.iterator().next().getMessage();
 			}
 		}
 		return result;
 	}
 
+	/**
+	 * Coerces a value to be validated. Null is validated as null, other
+	 * values are coerced to the property type.
+	 * 
+	 * @param value
+	 *            The value. May be null.
+	 * @return The coerced value, or null.
+	 * @throws ConversionException
+	 *             Thrown if the value could not be converted to the property
+	 *             type.
+	 */
+	private P coerceNullable(final Object value) throws ConversionException {
+		P result = null;
+		if (!CheckUtil.isNull(value)) {
+			result = this.coerceValue(value);
+		}
+		return result;
+	}
+
+	/**
+	 * Tests if a value equals the value bound or last committed. Collections
+	 * are compared by their contents against the snapshot, without copying,
+	 * so a collection modified in place is changed.
+	 * 
+	 * @param value
+	 *            The value.
+	 * @return True if and only if the value is known to be unchanged.
+	 */
+	private boolean isUnchanged(final Object value) {
+		return this.presented && ObjectUtils.equals(this.presentedValue, value);
+	}
+
 	/**
 	 * Resolves what property of the relation entity should be displayed, if
 	 * any.
@@ -641,18 +774,32 @@ public abstract class AbstractPropertyDescriptorImpl<P, E>
 	private PropertyDescriptor<?, P> resolveDisplayProperty() {
 		PropertyDescriptor<?, P> result = null;
 		if (this.isRelated()) {
-			@SuppressWarnings("unchecked")
-			final EntityDescriptor<P> entityDescriptor = (EntityDescriptor<P>) this.model.getEntity(this.getRelationName());
-			@SuppressWarnings("unchecked")
-			final KeyedEntityDescriptor<P, ?> keyedDescriptor = entityDescriptor.adapt(KeyedEntityDescriptor.class);
-			result = this.processPresentation(entityDescriptor);
-			if (CheckUtil.isNull(result) && !CheckUtil.isNull(keyedDescriptor)) {
-				result = keyedDescriptor.getKeyProperty();
-			}
+			final RelationDisplay<P> display = RelationDisplayResolver.getInstance(this.model).resolve(this.getRelationName());
+			result = display.getDisplayProperty();
 		}
 		return result;
 	}
 
+	/**
+	 * Resolves the violations of a value. The violations of the value last
+	 * validated are reused, as fields validate the same value more than once.
+	 * 
+	 * @param validator
+	 *            The validator.
+	 * @param value
+	 *            The value.
+	 * @return The violations.
+	 */
+	private Collection<PropertyViolation<E, P>> resolveViolations(final ValueValidator validator, final Object value) {
+		if (CheckUtil.isNull(this.violations) || value instanceof Collection || !ObjectUtils.equals(value, this.validatedValue)) {
+			this.violations = this.validationCache.validate(validator, this.property, this.coerceNullable(value));
+			this.validatedValue = value;
+		} else {
+			AbstractPropertyDescriptorImpl.LOGGER.debug("Reused violations of value {} of property: {}", value, this.property);
+		}
+		return this.violations;
+	}
+
 	/**
 	 * To string.
 	 * 
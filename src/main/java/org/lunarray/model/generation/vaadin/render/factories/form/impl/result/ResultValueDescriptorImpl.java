@@ -28,14 +28,11 @@ import org.lunarray.model.descriptor.accessor.exceptions.ValueAccessException;
 import org.lunarray.model.descriptor.converter.ConverterTool;
 import org.lunarray.model.descriptor.converter.exceptions.ConverterException;
 import org.lunarray.model.descriptor.model.Model;
-import org.lunarray.model.descriptor.model.entity.EntityDescriptor;
-import org.lunarray.model.descriptor.model.entity.KeyedEntityDescriptor;
 import org.lunarray.model.descriptor.model.extension.ExtensionRef;
 import org.lunarray.model.descriptor.model.operation.OperationDescriptor;
 import org.lunarray.model.descriptor.model.operation.result.ResultDescriptor;
 import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
 import org.lunarray.model.descriptor.model.relation.RelationDescriptor;
-import org.lunarray.model.descriptor.presentation.PresentationEntityDescriptor;
 import org.lunarray.model.descriptor.presentation.PresentationResultDescriptor;
 import org.lunarray.model.generation.vaadin.render.factories.form.descriptor.AccessBuffer;
 import org.lunarray.model.generation.vaadin.render.factories.form.descriptor.Descriptor;
@@ -43,6 +40,8 @@ import org.lunarray.model.generation.vaadin.render.factories.form.descriptor.Mut
 import org.lunarray.model.generation.vaadin.render.factories.form.descriptor.ValueChangedListener;
 import org.lunarray.model.generation.vaadin.render.factories.form.events.OperationInvocationEvent;
 import org.lunarray.model.generation.vaadin.render.factories.form.events.OperationValueChangeEvent;
+import org.lunarray.model.generation.vaadin.util.RelationDisplay;
+import org.lunarray.model.generation.vaadin.util.RelationDisplayResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -509,26 +508,6 @@ public final class ResultValueDescriptorImpl<R>
 		// Empty.
 	}
 
-	/**
-	 * Process as presentation entity.
-	 * 
-	 * @param entityDescriptor
-	 *            The entity descriptor.
-	 * @return The result.
-	 */
-	private PropertyDescriptor<?, R> processPresentation(final EntityDescriptor<R> entityDescriptor) {
-		PropertyDescriptor<?, R> result = null;
-		@SuppressWarnings("unchecked")
-		final PresentationEntityDescriptor<R> presentationDescriptor = entityDescriptor.adapt(PresentationEntityDescriptor.class);
-		if (!CheckUtil.isNull(presentationDescriptor)) {
-			final PropertyDescriptor<?, R> nameDescriptor = presentationDescriptor.getNameProperty();
-			if (!CheckUtil.isNull(nameDescriptor)) {
-				result = nameDescriptor;
-			}
-		}
-		return result;
-	}
-
 	/**
 	 * Resolves what property of the relation entity should be displayed, if
 	 * any.
@@ -538,14 +517,8 @@ public final class ResultValueDescriptorImpl<R>
 	private PropertyDescriptor<?, R> resolveDisplayProperty() {
 		PropertyDescriptor<?, R> result = null;
 		if (this.isRelated()) {
-			@SuppressWarnings("unchecked")
-			final EntityDescriptor<R> entityDescriptor = (EntityDescriptor<R>) this.model.getEntity(this.getRelationName());
-			@SuppressWarnings("unchecked")
-			final KeyedEntityDescriptor<R, ?> keyedDescriptor = entityDescriptor.adapt(KeyedEntityDescriptor.class);
-			result = this.processPresentation(entityDescriptor);
-			if (CheckUtil.isNull(result) && !CheckUtil.isNull(keyedDescriptor)) {
-				result = keyedDescriptor.getKeyProperty();
-			}
+			final RelationDisplay<R> display = RelationDisplayResolver.getInstance(this.model).resolve(this.getRelationName());
+			result = display.getDisplayProperty();
 		}
 		return result;
 	}
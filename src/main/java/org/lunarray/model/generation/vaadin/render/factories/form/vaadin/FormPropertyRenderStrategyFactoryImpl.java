@@ -20,6 +20,7 @@ package org.lunarray.model.generation.vaadin.render.factories.form.vaadin;
 import java.util.Collection;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.commons.lang.Validate;
@@ -40,6 +41,7 @@ import org.lunarray.model.generation.vaadin.render.factories.form.FormPropertyRe
 import org.lunarray.model.generation.vaadin.render.factories.form.FormPropertyRenderStrategy.StrategyFactory;
 import org.lunarray.model.generation.vaadin.render.factories.form.impl.parameter.CollectionParameterDescriptorImpl;
 import org.lunarray.model.generation.vaadin.render.factories.form.impl.parameter.ParameterDescriptorImpl;
+import org.lunarray.model.generation.vaadin.render.factories.form.impl.property.AbstractPropertyDescriptorImpl;
 import org.lunarray.model.generation.vaadin.render.factories.form.impl.property.CollectionPropertyDescriptorImpl;
 import org.lunarray.model.generation.vaadin.render.factories.form.impl.property.PropertyDescriptorImpl;
 import org.lunarray.model.generation.vaadin.render.factories.form.impl.result.ResultValueDescriptorImpl;
@@ -77,6 +79,8 @@ public final class FormPropertyRenderStrategyFactoryImpl<E>
 	private Map<OperationDescriptor<E>, OperationInvocationBuilder<E>> builders;
 	/** The default factory. */
 	private StrategyFactory defaultFactory;
+	/** The property descriptors, bound to the entity of the form, by property path. */
+	private Map<String, AbstractPropertyDescriptorImpl<?, E>> descriptors;
 	/** The event bus. */
 	private Bus eventBus;
 	/** The factories. */
@@ -95,6 +99,7 @@ public final class FormPropertyRenderStrategyFactoryImpl<E>
 		this.form = form;
 		this.eventBus = new Bus();
 		this.builders = new HashMap<OperationDescriptor<E>, OperationInvocationBuilder<E>>();
+		this.descriptors = new LinkedHashMap<String, AbstractPropertyDescriptorImpl<?, E>>();
 		this.defaultFactory = new TextOutputPropertyStrategy.Factory();
 		this.factories = new EnumMap<RenderType, StrategyFactory>(RenderType.class);
 		this.factories.put(RenderType.CHECKBOX, new CheckboxPropertyStrategy.Factory());
@@ -147,6 +152,15 @@ public final class FormPropertyRenderStrategyFactoryImpl<E>
 		return this.defaultFactory;
 	}
 
+	/**
+	 * Gets the value for the descriptors field.
+	 * 
+	 * @return The value for the descriptors field.
+	 */
+	public Map<String, AbstractPropertyDescriptorImpl<?, E>> getDescriptors() {
+		return this.descriptors;
+	}
+
 	/**
 	 * Gets the value for the eventBus field.
 	 * 
@@ -174,6 +188,25 @@ public final class FormPropertyRenderStrategyFactoryImpl<E>
 		return this.form;
 	}
 
+	/**
+	 * Binds the rendered properties and operations to another entity. The
+	 * fields are kept and refresh their values through the entity change
+	 * events of the property descriptors.
+	 * 
+	 * @param entity
+	 *            The entity. May be null.
+	 */
+	public void rebind(final E entity) {
+		for (final AbstractPropertyDescriptorImpl<?, E> descriptor : this.descriptors.values()) {
+			descriptor.setEntity(entity);
+		}
+		for (final OperationInvocationBuilder<E> builder : this.builders.values()) {
+			builder.target(entity);
+		}
+		FormPropertyRenderStrategyFactoryImpl.LOGGER.debug("Rebound {} properties and {} operations to entity: {}",
+				this.descriptors.size(), this.builders.size(), entity);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public <D, P extends Collection<D>> void renderCollectionParameter(final RenderContext<E> context,
@@ -203,6 +236,7 @@ public final class FormPropertyRenderStrategyFactoryImpl<E>
 		final CollectionPropertyDescriptorImpl<D, P, E> collDescriptor = new CollectionPropertyDescriptorImpl<D, P, E>(descriptor,
 				context.getModel());
 		collDescriptor.setEntity(this.form.getEntity());
+		this.descriptors.put(context.getPropertyName(), collDescriptor);
 		FormPropertyRenderStrategy<P> strategy;
 		if (this.factories.containsKey(renderType)) {
 			strategy = this.factories.get(renderType).createStrategy(collDescriptor, context);
@@ -262,6 +296,7 @@ public final class FormPropertyRenderStrategyFactoryImpl<E>
 		Validate.notNull(context, FormPropertyRenderStrategyFactoryImpl.CONTEXT_NULL);
 		final PropertyDescriptorImpl<P, E> descriptor = new PropertyDescriptorImpl<P, E>(propertyDescriptor, context.getModel());
 		descriptor.setEntity(this.form.getEntity());
+		this.descriptors.put(context.getPropertyName(), descriptor);
 		FormPropertyRenderStrategy<P> strategy;
 		if (this.factories.containsKey(renderType)) {
 			strategy = this.factories.get(renderType).createStrategy(descriptor, context);
@@ -313,6 +348,16 @@ public final class FormPropertyRenderStrategyFactoryImpl<E>
 		this.defaultFactory = defaultFactory;
 	}
 
+	/**
+	 * Sets a new value for the descriptors field.
+	 * 
+	 * @param descriptors
+	 *            The new value for the descriptors field.
+	 */
+	public void setDescriptors(final Map<String, AbstractPropertyDescriptorImpl<?, E>> descriptors) {
+		this.descriptors = descriptors;
+	}
+
 	/**
 	 * Sets a new value for the eventBus field.
 	 * 
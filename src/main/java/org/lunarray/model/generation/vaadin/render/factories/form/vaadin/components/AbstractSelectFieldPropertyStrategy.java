@@ -29,11 +29,11 @@ import org.lunarray.model.descriptor.dictionary.Dictionary;
 import org.lunarray.model.descriptor.dictionary.exceptions.DictionaryException;
 import org.lunarray.model.descriptor.model.Model;
 import org.lunarray.model.descriptor.model.entity.EntityDescriptor;
-import org.lunarray.model.descriptor.model.entity.KeyedEntityDescriptor;
 import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
-import org.lunarray.model.descriptor.presentation.PresentationEntityDescriptor;
 import org.lunarray.model.generation.vaadin.render.RenderContext;
 import org.lunarray.model.generation.vaadin.render.factories.form.descriptor.Descriptor;
+import org.lunarray.model.generation.vaadin.util.RelationDisplay;
+import org.lunarray.model.generation.vaadin.util.RelationDisplayResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -122,26 +122,6 @@ public abstract class AbstractSelectFieldPropertyStrategy<P>
 		}
 	}
 
-	/**
-	 * Process as presentation entity.
-	 * 
-	 * @param entityDescriptor
-	 *            The entity descriptor.
-	 * @return The result.
-	 */
-	private PropertyDescriptor<?, P> processPresentation(final EntityDescriptor<P> entityDescriptor) {
-		PropertyDescriptor<?, P> result = null;
-		@SuppressWarnings("unchecked")
-		final PresentationEntityDescriptor<P> presentationDescriptor = entityDescriptor.adapt(PresentationEntityDescriptor.class);
-		if (!CheckUtil.isNull(presentationDescriptor)) {
-			final PropertyDescriptor<?, P> nameDescriptor = presentationDescriptor.getNameProperty();
-			if (!CheckUtil.isNull(nameDescriptor)) {
-				result = nameDescriptor;
-			}
-		}
-		return result;
-	}
-
 	/**
 	 * Resolves what property of the relation entity should be displayed, if
 	 * any.
@@ -149,17 +129,11 @@ public abstract class AbstractSelectFieldPropertyStrategy<P>
 	 * @return The property name, or null.
 	 */
 	private PropertyDescriptor<?, P> resolveDisplayProperty() {
-		final Model<?> model = this.getModel();
 		PropertyDescriptor<?, P> result = null;
 		if (this.getDescriptor().isRelated()) {
-			@SuppressWarnings("unchecked")
-			final EntityDescriptor<P> entityDescriptor = (EntityDescriptor<P>) model.getEntity(this.getDescriptor().getRelationName());
-			@SuppressWarnings("unchecked")
-			final KeyedEntityDescriptor<P, ?> keyedDescriptor = entityDescriptor.adapt(KeyedEntityDescriptor.class);
-			result = this.processPresentation(entityDescriptor);
-			if (CheckUtil.isNull(result) && !CheckUtil.isNull(keyedDescriptor)) {
-				result = keyedDescriptor.getKeyProperty();
-			}
+			final RelationDisplay<P> display = RelationDisplayResolver.getInstance(this.getModel()).resolve(
+					this.getDescriptor().getRelationName());
+			result = display.getDisplayProperty();
 		}
 		AbstractSelectFieldPropertyStrategy.LOGGER.debug("Resolved display property {} for {}", result, this.getDescriptor());
 		return result;
@@ -25,12 +25,11 @@ import org.lunarray.model.descriptor.accessor.exceptions.ValueAccessException;
 import org.lunarray.model.descriptor.converter.ConverterTool;
 import org.lunarray.model.descriptor.converter.exceptions.ConverterException;
 import org.lunarray.model.descriptor.model.Model;
-import org.lunarray.model.descriptor.model.entity.EntityDescriptor;
-import org.lunarray.model.descriptor.model.entity.KeyedEntityDescriptor;
 import org.lunarray.model.descriptor.model.extension.ExtensionRef;
 import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
 import org.lunarray.model.descriptor.model.relation.RelationDescriptor;
-import org.lunarray.model.descriptor.presentation.PresentationEntityDescriptor;
+import org.lunarray.model.generation.vaadin.util.RelationDisplay;
+import org.lunarray.model.generation.vaadin.util.RelationDisplayResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -308,41 +307,16 @@ public final class TableModelProperty<P, E>
 	private String resolveRelation(final P value, final ConverterTool tool) {
 		String result = null;
 		final RelationDescriptor relationDescriptor = this.property.adapt(RelationDescriptor.class);
-		final String relationName = relationDescriptor.getRelatedName();
-		@SuppressWarnings("unchecked")
-		final EntityDescriptor<P> relation = (EntityDescriptor<P>) this.model.getEntity(relationName);
-		@SuppressWarnings("unchecked")
-		final PresentationEntityDescriptor<P> presentationDescriptor = relation.adapt(PresentationEntityDescriptor.class);
-
-		if (!CheckUtil.isNull(presentationDescriptor)) {
-			@SuppressWarnings("unchecked")
-			final PropertyDescriptor<Object, P> name = (PropertyDescriptor<Object, P>) presentationDescriptor.getNameProperty();
-			if (!CheckUtil.isNull(name)) {
-				try {
-					final Object nameValue = name.getValue(value);
-					result = tool.convertToString(name.getPropertyType(), nameValue, this.format);
-				} catch (final ConverterException e) {
-					TableModelProperty.LOGGER.warn("Could not convert value.", e);
-					result = value.toString();
-				} catch (final ValueAccessException e) {
-					TableModelProperty.LOGGER.warn("Could not access value.", e);
-					result = value.toString();
-				}
-			}
-		}
-		@SuppressWarnings("unchecked")
-		final KeyedEntityDescriptor<P, ?> keyedDescriptor = relation.adapt(KeyedEntityDescriptor.class);
-		if (CheckUtil.isNull(result) && !CheckUtil.isNull(keyedDescriptor)) {
-			@SuppressWarnings("unchecked")
-			final PropertyDescriptor<Object, P> key = (PropertyDescriptor<Object, P>) keyedDescriptor.getKeyProperty();
+		final RelationDisplay<P> display = RelationDisplayResolver.getInstance(this.model).resolve(relationDescriptor.getRelatedName());
+		if (display.hasDisplayProperty()) {
+			final PropertyDescriptor<Object, P> displayProperty = display.getDisplayProperty();
 			try {
-				final Object keyValue = key.getValue(value);
-				result = tool.convertToString(key.getPropertyType(), keyValue, this.format);
-			} catch (final ValueAccessException e) {
-				TableModelProperty.LOGGER.warn("Could not access key value.", e);
-				result = value.toString();
+				result = tool.convertToString(displayProperty.getPropertyType(), displayProperty.getValue(value), this.format);
 			} catch (final ConverterException e) {
-				TableModelProperty.LOGGER.warn("Could not convert key value.", e);
+				TableModelProperty.LOGGER.warn("Could not convert value.", e);
+				result = value.toString();
+			} catch (final ValueAccessException e) {
+				TableModelProperty.LOGGER.warn("Could not access value.", e);
 				result = value.toString();
 			}
 		}
@@ -35,6 +35,7 @@ import org.lunarray.model.generation.vaadin.render.RenderContext;
 import org.lunarray.model.generation.vaadin.render.factories.table.TablePropertyRenderStrategy;
 import org.lunarray.model.generation.vaadin.render.factories.table.TablePropertyRenderStrategy.StrategyFactory;
 import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.CheckboxOutputPropertyStrategy;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.GlyphOutputPropertyStrategy;
 import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.TextOutputPropertyStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -65,11 +66,28 @@ public final class TablePropertyRenderStrategyFactoryImpl<E>
 	 *            The table.
 	 */
 	public TablePropertyRenderStrategyFactoryImpl(final TableComponent tableComponent) {
+		this(tableComponent, false);
+	}
+
+	/**
+	 * Constructs the factory.
+	 * 
+	 * @param tableComponent
+	 *            The table.
+	 * @param checkboxGlyphs
+	 *            Whether check box columns are rendered as glyphs, rather
+	 *            than as a read-only check box per cell.
+	 */
+	public TablePropertyRenderStrategyFactoryImpl(final TableComponent tableComponent, final boolean checkboxGlyphs) {
 		Validate.notNull(tableComponent, "Table component may not be null.");
 		this.tableComponent = tableComponent;
 		this.defaultFactory = new TextOutputPropertyStrategy.Factory();
 		this.factories = new EnumMap<RenderType, StrategyFactory>(RenderType.class);
-		this.factories.put(RenderType.CHECKBOX, new CheckboxOutputPropertyStrategy.Factory());
+		if (checkboxGlyphs) {
+			this.factories.put(RenderType.CHECKBOX, new GlyphOutputPropertyStrategy.Factory());
+		} else {
+			this.factories.put(RenderType.CHECKBOX, new CheckboxOutputPropertyStrategy.Factory());
+		}
 	}
 
 	/** {@inheritDoc} */
@@ -144,15 +162,19 @@ public final class TablePropertyRenderStrategyFactoryImpl<E>
 	public <P> void renderProperty(final RenderContext<E> context, final PropertyDescriptor<P, E> descriptor, final RenderType renderType) {
 		Validate.notNull(descriptor, "Descriptor may not be null.");
 		Validate.notNull(context, "Render context may not be null.");
-		TablePropertyRenderStrategy<P, E> strategy;
-		if (this.factories.containsKey(renderType)) {
-			strategy = this.factories.get(renderType).createStrategy(descriptor, context);
+		if (this.tableComponent.isColumnRendered(descriptor.getName())) {
+			TablePropertyRenderStrategy<P, E> strategy;
+			if (this.factories.containsKey(renderType)) {
+				strategy = this.factories.get(renderType).createStrategy(descriptor, context);
+			} else {
+				strategy = this.defaultFactory.createStrategy(descriptor, context);
+			}
+			TablePropertyRenderStrategyFactoryImpl.LOGGER.debug("Resolved startegy {} for render type {} of property: {}", strategy,
+					renderType, descriptor);
+			this.tableComponent.processStrategy(strategy);
 		} else {
-			strategy = this.defaultFactory.createStrategy(descriptor, context);
+			TablePropertyRenderStrategyFactoryImpl.LOGGER.debug("Skipped property outside of projection: {}", descriptor);
 		}
-		TablePropertyRenderStrategyFactoryImpl.LOGGER.debug("Resolved startegy {} for render type {} of property: {}", strategy,
-				renderType, descriptor);
-		this.tableComponent.processStrategy(strategy);
 	}
 
 	/** {@inheritDoc} */
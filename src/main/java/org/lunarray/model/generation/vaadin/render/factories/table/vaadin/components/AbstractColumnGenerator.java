@@ -22,11 +22,10 @@ import com.vaadin.ui.Table.ColumnGenerator;
 import org.apache.commons.lang.Validate;
 import org.lunarray.common.check.CheckUtil;
 import org.lunarray.model.descriptor.model.Model;
-import org.lunarray.model.descriptor.model.entity.EntityDescriptor;
-import org.lunarray.model.descriptor.model.entity.KeyedEntityDescriptor;
 import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
 import org.lunarray.model.descriptor.model.relation.RelationDescriptor;
-import org.lunarray.model.descriptor.presentation.PresentationEntityDescriptor;
+import org.lunarray.model.generation.vaadin.util.RelationDisplay;
+import org.lunarray.model.generation.vaadin.util.RelationDisplayResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,8 +45,12 @@ public abstract class AbstractColumnGenerator<P, E>
 	private static final Logger LOGGER = LoggerFactory.getLogger(AbstractColumnGenerator.class);
 	/** Serial id. */
 	private static final long serialVersionUID = -2468802343741871528L;
+	/** The cell cache. */
+	private CellStringCache cellCache;
 	/** The property strategy. */
 	private OutputPropertyStrategy<P, E> outputPropertyStrategy;
+	/** The compiled column plan. */
+	private ColumnPlan<P, E> plan;
 
 	/**
 	 * Default constructor.
@@ -58,6 +61,16 @@ public abstract class AbstractColumnGenerator<P, E>
 	public AbstractColumnGenerator(final OutputPropertyStrategy<P, E> outputPropertyStrategy) {
 		Validate.notNull(outputPropertyStrategy, "Strategy may not be null.");
 		this.outputPropertyStrategy = outputPropertyStrategy;
+		this.plan = this.compilePlan();
+	}
+
+	/**
+	 * Gets the value for the cellCache field.
+	 * 
+	 * @return The value for the cellCache field.
+	 */
+	public final CellStringCache getCellCache() {
+		return this.cellCache;
 	}
 
 	/**
@@ -70,13 +83,36 @@ public abstract class AbstractColumnGenerator<P, E>
 	}
 
 	/**
-	 * Sets a new value for the outputPropertyStrategy field.
+	 * Gets the value for the plan field.
+	 * 
+	 * @return The value for the plan field.
+	 */
+	public final ColumnPlan<P, E> getPlan() {
+		return this.plan;
+	}
+
+	/**
+	 * Sets a new value for the cellCache field.
+	 * 
+	 * @param cellCache
+	 *            The new value for the cellCache field. May be null.
+	 */
+	public final void setCellCache(final CellStringCache cellCache) {
+		this.cellCache = cellCache;
+	}
+
+	/**
+	 * Sets a new value for the outputPropertyStrategy field. Recompiles the
+	 * column plan.
 	 * 
 	 * @param outputPropertyStrategy
-	 *            The new value for the outputPropertyStrategy field.
+	 *            The new value for the outputPropertyStrategy field. May not
+	 *            be null.
 	 */
 	public final void setOutputPropertyStrategy(final OutputPropertyStrategy<P, E> outputPropertyStrategy) {
+		Validate.notNull(outputPropertyStrategy, "Strategy may not be null.");
 		this.outputPropertyStrategy = outputPropertyStrategy;
+		this.plan = this.compilePlan();
 	}
 
 	/**
@@ -107,23 +143,22 @@ public abstract class AbstractColumnGenerator<P, E>
 	protected final PropertyDescriptor<?, P> resolveRelationDescriptor(final Model<?> model, final RelationDescriptor relationDescrptor) {
 		Validate.notNull(model, "Model may not be null.");
 		Validate.notNull(relationDescrptor, "Descriptor may not be null.");
-		PropertyDescriptor<?, P> result = null;
-		@SuppressWarnings("unchecked")
-		final EntityDescriptor<P> entityDescriptor = (EntityDescriptor<P>) model.getEntity(relationDescrptor.getRelatedName());
-		@SuppressWarnings("unchecked")
-		final KeyedEntityDescriptor<P, ?> keyedDescriptor = entityDescriptor.adapt(KeyedEntityDescriptor.class);
-		@SuppressWarnings("unchecked")
-		final PresentationEntityDescriptor<P> presentationDescriptor = entityDescriptor.adapt(PresentationEntityDescriptor.class);
-		if (!CheckUtil.isNull(presentationDescriptor)) {
-			final PropertyDescriptor<?, P> nameDescriptor = presentationDescriptor.getNameProperty();
-			if (!CheckUtil.isNull(nameDescriptor)) {
-				result = nameDescriptor;
-			}
-		}
-		if (CheckUtil.isNull(result) && !CheckUtil.isNull(keyedDescriptor)) {
-			result = keyedDescriptor.getKeyProperty();
-		}
+		final RelationDisplay<P> display = RelationDisplayResolver.getInstance(model).resolve(relationDescrptor.getRelatedName());
+		final PropertyDescriptor<?, P> result = display.getDisplayProperty();
 		AbstractColumnGenerator.LOGGER.debug("Resolved relation descriptor {} for descriptor: {}", result, relationDescrptor);
 		return result;
 	}
+
+	/**
+	 * Compiles the column plan from the output strategy.
+	 * 
+	 * @return The plan.
+	 */
+	@SuppressWarnings("unchecked")
+	private ColumnPlan<P, E> compilePlan() {
+		final PropertyDescriptor<Object, P> displayProperty = (PropertyDescriptor<Object, P>) this.resolveDisplayProperty();
+		final ColumnPlan<P, E> result = new ColumnPlan<P, E>(this.outputPropertyStrategy, displayProperty);
+		AbstractColumnGenerator.LOGGER.debug("Compiled plan for property: {}", result.getProperty());
+		return result;
+	}
 }
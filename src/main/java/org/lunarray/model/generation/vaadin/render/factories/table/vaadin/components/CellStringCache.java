@@ -0,0 +1,344 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded, least recently used cache of converted cell strings, keyed by
+ * item id and column id. A cache with a maximum of zero entries is disabled,
+ * it caches nothing. Cells are not invalidated when entities are modified in
+ * place, so cached cells of modified entities remain stale until their rows
+ * or cells are invalidated.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ */
+public final class CellStringCache
+		implements Serializable {
+
+	/** The default maximum amount of cached cells. */
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+	/** The maximum amount of cached cells of a disabled cache. */
+	public static final int DISABLED = 0;
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(CellStringCache.class);
+	/** Serial id. */
+	private static final long serialVersionUID = -1840672317512932817L;
+	/** The cached cells. */
+	private final CellMap cells;
+	/** The maximum amount of cached cells. */
+	private int maxEntries;
+	/** The cached columns per row. */
+	private final Map<Object, Set<Object>> rows;
+
+	/**
+	 * Constructs the cache with the default size.
+	 */
+	public CellStringCache() {
+		this(CellStringCache.DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Constructs the cache.
+	 * 
+	 * @param maxEntries
+	 *            The maximum amount of cached cells. May not be negative,
+	 *            zero disables the cache.
+	 */
+	public CellStringCache(final int maxEntries) {
+		Validate.isTrue(maxEntries >= 0, "Maximum amount of entries may not be negative.");
+		this.maxEntries = maxEntries;
+		this.cells = new CellMap();
+		this.rows = new HashMap<Object, Set<Object>>();
+	}
+
+	/**
+	 * Gets a cached cell.
+	 * 
+	 * @param itemId
+	 *            The item id. May not be null.
+	 * @param columnId
+	 *            The column id. May not be null.
+	 * @return The cached string, or null.
+	 */
+	public synchronized String get(final Object itemId, final Object columnId) {
+		return this.cells.get(new CellKey(itemId, columnId));
+	}
+
+	/**
+	 * Gets the value for the maxEntries field.
+	 * 
+	 * @return The value for the maxEntries field.
+	 */
+	public synchronized int getMaxEntries() {
+		return this.maxEntries;
+	}
+
+	/** Invalidates all cells. */
+	public synchronized void invalidateAll() {
+		this.cells.clear();
+		this.rows.clear();
+		CellStringCache.LOGGER.debug("Invalidated all cells.");
+	}
+
+	/**
+	 * Invalidates a single cell.
+	 * 
+	 * @param itemId
+	 *            The item id. May not be null.
+	 * @param columnId
+	 *            The column id. May not be null.
+	 */
+	public synchronized void invalidateCell(final Object itemId, final Object columnId) {
+		if (!CheckUtil.isNull(this.cells.remove(new CellKey(itemId, columnId)))) {
+			this.unindex(itemId, columnId);
+		}
+	}
+
+	/**
+	 * Invalidates all cells of a row.
+	 * 
+	 * @param itemId
+	 *            The item id. May not be null.
+	 */
+	public synchronized void invalidateRow(final Object itemId) {
+		Validate.notNull(itemId, "Item id may not be null.");
+		final Set<Object> columns = this.rows.remove(itemId);
+		if (!CheckUtil.isNull(columns)) {
+			for (final Object columnId : columns) {
+				this.cells.remove(new CellKey(itemId, columnId));
+			}
+		}
+	}
+
+	/**
+	 * Tests if the cache is enabled.
+	 * 
+	 * @return True if and only if cells may be cached.
+	 */
+	public synchronized boolean isEnabled() {
+		return this.maxEntries > CellStringCache.DISABLED;
+	}
+
+	/**
+	 * Caches a cell, unless the cache is disabled.
+	 * 
+	 * @param itemId
+	 *            The item id. May not be null.
+	 * @param columnId
+	 *            The column id. May not be null.
+	 * @param value
+	 *            The converted string. May not be null.
+	 */
+	public synchronized void put(final Object itemId, final Object columnId, final String value) {
+		Validate.notNull(value, "Value may not be null.");
+		if (this.isEnabled()) {
+			this.cells.put(new CellKey(itemId, columnId), value);
+			Set<Object> columns = this.rows.get(itemId);
+			if (CheckUtil.isNull(columns)) {
+				columns = new HashSet<Object>();
+				this.rows.put(itemId, columns);
+			}
+			columns.add(columnId);
+		}
+	}
+
+	/**
+	 * Caches the cells of several rows in one step.
+	 * 
+	 * @param cellRows
+	 *            The cells, by column id, by item id. May not be null.
+	 */
+	public synchronized void putRows(final Map<Object, Map<Object, String>> cellRows) {
+		Validate.notNull(cellRows, "Rows may not be null.");
+		for (final Map.Entry<Object, Map<Object, String>> row : cellRows.entrySet()) {
+			for (final Map.Entry<Object, String> cell : row.getValue().entrySet()) {
+				this.put(row.getKey(), cell.getKey(), cell.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Moves the cached cells of a row to a new item id. Used when an entity
+	 * is replaced by an instance that renders identically.
+	 * 
+	 * @param itemId
+	 *            The old item id. May not be null.
+	 * @param newItemId
+	 *            The new item id. May not be null.
+	 */
+	public synchronized void renameRow(final Object itemId, final Object newItemId) {
+		Validate.notNull(itemId, "Item id may not be null.");
+		Validate.notNull(newItemId, "New item id may not be null.");
+		final Set<Object> columns = this.rows.remove(itemId);
+		if (!CheckUtil.isNull(columns)) {
+			for (final Object columnId : columns) {
+				final String value = this.cells.remove(new CellKey(itemId, columnId));
+				if (!CheckUtil.isNull(value)) {
+					this.put(newItemId, columnId, value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets a new value for the maxEntries field. Excess entries are evicted
+	 * as new cells are cached, disabling the cache drops all cells.
+	 * 
+	 * @param maxEntries
+	 *            The new value for the maxEntries field. May not be
+	 *            negative, zero disables the cache.
+	 */
+	public synchronized void setMaxEntries(final int maxEntries) {
+		Validate.isTrue(maxEntries >= 0, "Maximum amount of entries may not be negative.");
+		this.maxEntries = maxEntries;
+		if (!this.isEnabled()) {
+			this.invalidateAll();
+		}
+	}
+
+	/**
+	 * Counts the cached cells.
+	 * 
+	 * @return The amount of cached cells.
+	 */
+	public synchronized int size() {
+		return this.cells.size();
+	}
+
+	/**
+	 * Removes a cell from the row index.
+	 * 
+	 * @param itemId
+	 *            The item id.
+	 * @param columnId
+	 *            The column id.
+	 */
+	private void unindex(final Object itemId, final Object columnId) {
+		final Set<Object> columns = this.rows.get(itemId);
+		if (!CheckUtil.isNull(columns)) {
+			columns.remove(columnId);
+			if (columns.isEmpty()) {
+				this.rows.remove(itemId);
+			}
+		}
+	}
+
+	/**
+	 * The least recently used cell map.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private final class CellMap
+			extends LinkedHashMap<CellKey, String> {
+
+		/** Serial id. */
+		private static final long serialVersionUID = 3385418467283052184L;
+
+		/** Default constructor. */
+		public CellMap() {
+			super(16, 0.75f, true);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<CellKey, String> eldest) {
+			final boolean evict = this.size() > CellStringCache.this.maxEntries;
+			if (evict) {
+				CellStringCache.this.unindex(eldest.getKey().getItemId(), eldest.getKey().getColumnId());
+			}
+			return evict;
+		}
+	}
+
+	/**
+	 * The key of a cell.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private static final class CellKey
+			implements Serializable {
+
+		/** Serial id. */
+		private static final long serialVersionUID = -5926617339120437310L;
+		/** The column id. */
+		private final Object columnId;
+		/** The item id. */
+		private final Object itemId;
+
+		/**
+		 * Constructs the key.
+		 * 
+		 * @param itemId
+		 *            The item id. May not be null.
+		 * @param columnId
+		 *            The column id. May not be null.
+		 */
+		public CellKey(final Object itemId, final Object columnId) {
+			Validate.notNull(itemId, "Item id may not be null.");
+			Validate.notNull(columnId, "Column id may not be null.");
+			this.itemId = itemId;
+			this.columnId = columnId;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean equals(final Object obj) {
+			boolean result = false;
+			if (obj instanceof CellKey) {
+				final CellKey other = (CellKey) obj;
+				result = this.itemId.equals(other.itemId) && this.columnId.equals(other.columnId);
+			}
+			return result;
+		}
+
+		/**
+		 * Gets the value for the columnId field.
+		 * 
+		 * @return The value for the columnId field.
+		 */
+		public Object getColumnId() {
+			return this.columnId;
+		}
+
+		/**
+		 * Gets the value for the itemId field.
+		 * 
+		 * @return The value for the itemId field.
+		 */
+		public Object getItemId() {
+			return this.itemId;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int hashCode() {
+			return 31 * this.itemId.hashCode() + this.columnId.hashCode();
+		}
+	}
+}
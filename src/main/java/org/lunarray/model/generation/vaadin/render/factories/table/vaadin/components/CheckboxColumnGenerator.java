@@ -23,8 +23,6 @@ import com.vaadin.ui.Table;
 import org.apache.commons.lang.Validate;
 import org.lunarray.common.check.CheckUtil;
 import org.lunarray.model.descriptor.accessor.exceptions.ValueAccessException;
-import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
-import org.lunarray.model.descriptor.model.relation.RelationDescriptor;
 import org.lunarray.model.generation.vaadin.render.factories.table.TableModelProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,29 +58,30 @@ public final class CheckboxColumnGenerator<P, E>
 	@Override
 	public Object generateCell(final Table source, final Object itemId, final Object columnId) {
 		Validate.notNull(itemId, "Item id may not be null.");
-		final OutputPropertyStrategy<P, E> strategy = this.getOutputPropertyStrategy();
-		final RelationDescriptor relationProperty = strategy.getProperty().adapt(RelationDescriptor.class);
+		final ColumnPlan<P, E> plan = this.getPlan();
 		Object result = null;
-		String format = null;
-		if (strategy.hasPresentationProperty()) {
-			format = strategy.getPresentationProperty().getFormat();
-		}
-		if (CheckUtil.isNull(relationProperty)) {
-			final CheckBox tmpCheckbox = new CheckBox("", new TableModelProperty<P, E>(strategy.getConverterTool(), this
-					.getOutputPropertyStrategy().getProperty(), (E) itemId, format, strategy.getModel()));
-			tmpCheckbox.setReadOnly(true);
-			result = tmpCheckbox;
-		} else {
-			final PropertyDescriptor<Object, P> displayProperty = (PropertyDescriptor<Object, P>) this.resolveDisplayProperty();
+		if (plan.isRelation()) {
 			try {
-				final CheckBox tmpCheckbox = new CheckBox("", new TableModelProperty<Object, P>(strategy.getConverterTool(),
-						displayProperty, strategy.getProperty().getValue((E) itemId), format, strategy.getModel()));
-				tmpCheckbox.setReadOnly(true);
-				result = tmpCheckbox;
+				final P value = plan.resolveValue((E) itemId);
+				if (CheckUtil.isNull(value)) {
+					result = "";
+				} else if (plan.hasDisplayProperty()) {
+					final CheckBox tmpCheckbox = new CheckBox("", new TableModelProperty<Object, P>(plan.getConverterTool(),
+							plan.getDisplayProperty(), value, plan.getFormat(), plan.getModel()));
+					tmpCheckbox.setReadOnly(true);
+					result = tmpCheckbox;
+				} else {
+					result = value.toString();
+				}
 			} catch (final ValueAccessException e) {
 				CheckboxColumnGenerator.LOGGER.warn("Could not access value.", e);
 				result = itemId.toString();
 			}
+		} else {
+			final CheckBox tmpCheckbox = new CheckBox("", new TableModelProperty<P, E>(plan.getConverterTool(), plan.getProperty(),
+					(E) itemId, plan.getFormat(), plan.getModel()));
+			tmpCheckbox.setReadOnly(true);
+			result = tmpCheckbox;
 		}
 		CheckboxColumnGenerator.LOGGER.debug("Resolved for item {} and column {}: {}", itemId, columnId, result);
 		return result;
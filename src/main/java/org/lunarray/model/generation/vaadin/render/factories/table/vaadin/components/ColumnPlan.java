@@ -0,0 +1,300 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components;
+
+import java.io.Serializable;
+import java.text.Collator;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.descriptor.accessor.exceptions.ValueAccessException;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.converter.exceptions.ConverterException;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.model.extension.ExtensionRef;
+import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
+import org.lunarray.model.descriptor.model.relation.RelationDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A precompiled column plan. Holds everything about a column that does not
+ * change between rows, so that it is resolved once per column rather than
+ * once per cell.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <P>
+ *            The property type.
+ * @param <E>
+ *            The entity type.
+ */
+public final class ColumnPlan<P, E>
+		implements Serializable {
+
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ColumnPlan.class);
+	/** Serial id. */
+	private static final long serialVersionUID = 6038316427129806472L;
+	/** The converter tool. */
+	private final ExtensionRef<ConverterTool> converterTool;
+	/** The display property of the related entity, if any. */
+	private final PropertyDescriptor<Object, P> displayProperty;
+	/** The render format. */
+	private final String format;
+	/** The model. */
+	private final Model<?> model;
+	/** The property. */
+	private final PropertyDescriptor<P, E> property;
+	/** Whether the column is a relation. */
+	private final boolean relation;
+
+	/**
+	 * Constructs the plan.
+	 * 
+	 * @param strategy
+	 *            The output strategy. May not be null.
+	 * @param displayProperty
+	 *            The display property of the related entity. May be null.
+	 */
+	public ColumnPlan(final OutputPropertyStrategy<P, E> strategy, final PropertyDescriptor<Object, P> displayProperty) {
+		Validate.notNull(strategy, "Strategy may not be null.");
+		this.property = strategy.getProperty();
+		this.converterTool = strategy.getConverterTool();
+		this.model = strategy.getModel();
+		if (strategy.hasPresentationProperty()) {
+			this.format = strategy.getPresentationProperty().getFormat();
+		} else {
+			this.format = null;
+		}
+		this.relation = !CheckUtil.isNull(this.property.adapt(RelationDescriptor.class));
+		this.displayProperty = displayProperty;
+	}
+
+	/**
+	 * Gets the value for the converterTool field.
+	 * 
+	 * @return The value for the converterTool field.
+	 */
+	public ExtensionRef<ConverterTool> getConverterTool() {
+		return this.converterTool;
+	}
+
+	/**
+	 * Gets the value for the displayProperty field.
+	 * 
+	 * @return The value for the displayProperty field.
+	 */
+	public PropertyDescriptor<Object, P> getDisplayProperty() {
+		return this.displayProperty;
+	}
+
+	/**
+	 * Gets the value for the format field.
+	 * 
+	 * @return The value for the format field.
+	 */
+	public String getFormat() {
+		return this.format;
+	}
+
+	/**
+	 * Gets the value for the model field.
+	 * 
+	 * @return The value for the model field.
+	 */
+	public Model<?> getModel() {
+		return this.model;
+	}
+
+	/**
+	 * Gets the value for the property field.
+	 * 
+	 * @return The value for the property field.
+	 */
+	public PropertyDescriptor<P, E> getProperty() {
+		return this.property;
+	}
+
+	/**
+	 * Gets the relation path the column reads, for prefetching.
+	 * 
+	 * @return The relation property name, followed by a dot and the name of
+	 *         the display property if there is one, or null if the column is
+	 *         not a relation.
+	 */
+	public String getRelationPath() {
+		String result = null;
+		if (this.relation) {
+			result = this.property.getName();
+			if (this.hasDisplayProperty()) {
+				result = result + "." + this.displayProperty.getName();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Tests if the related entity has a display property.
+	 * 
+	 * @return True if and only if the display property is set.
+	 */
+	public boolean hasDisplayProperty() {
+		return !CheckUtil.isNull(this.displayProperty);
+	}
+
+	/**
+	 * Gets the value for the relation field.
+	 * 
+	 * @return The value for the relation field.
+	 */
+	public boolean isRelation() {
+		return this.relation;
+	}
+
+	/**
+	 * Renders the cell of an entity as text. Relations are rendered through
+	 * the display property of the related entity.
+	 * 
+	 * @param entity
+	 *            The entity. May not be null.
+	 * @return The text. Never null.
+	 */
+	public String render(final E entity) {
+		String result;
+		try {
+			final P value = this.resolveValue(entity);
+			if (CheckUtil.isNull(value)) {
+				result = "";
+			} else if (!this.relation) {
+				result = this.convert(this.property.getPropertyType(), value);
+			} else if (this.hasDisplayProperty()) {
+				result = this.convert(this.displayProperty.getPropertyType(), this.displayProperty.getValue(value));
+			} else {
+				result = value.toString();
+			}
+		} catch (final ValueAccessException e) {
+			ColumnPlan.LOGGER.warn("Could not access value.", e);
+			result = entity.toString();
+		}
+		return result;
+	}
+
+	/**
+	 * Renders the cell of an entity as text, through a cell cache.
+	 * 
+	 * @param entity
+	 *            The entity. May not be null.
+	 * @param columnId
+	 *            The column id. May not be null.
+	 * @param cache
+	 *            The cell cache. May be null, in which case the cell is
+	 *            always rendered.
+	 * @return The text. Never null.
+	 */
+	public String render(final E entity, final Object columnId, final CellStringCache cache) {
+		String result;
+		if (CheckUtil.isNull(cache)) {
+			result = this.render(entity);
+		} else {
+			result = cache.get(entity, columnId);
+			if (CheckUtil.isNull(result)) {
+				result = this.render(entity);
+				cache.put(entity, columnId, result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Resolves the property value of an entity.
+	 * 
+	 * @param entity
+	 *            The entity. May not be null.
+	 * @return The value. May be null.
+	 * @throws ValueAccessException
+	 *             Thrown if the value could not be accessed.
+	 */
+	public P resolveValue(final E entity) throws ValueAccessException {
+		Validate.notNull(entity, "Entity may not be null.");
+		return this.property.getValue(entity);
+	}
+
+	/**
+	 * Extracts the sort key of the cell of an entity. Relations are sorted by
+	 * the display value of the related entity, strings by their collation
+	 * key.
+	 * 
+	 * @param entity
+	 *            The entity. May not be null.
+	 * @param collator
+	 *            The collator. May not be null.
+	 * @return The sort key, either comparable or null.
+	 */
+	public Object sortKey(final E entity, final Collator collator) {
+		Validate.notNull(collator, "Collator may not be null.");
+		Object value = null;
+		try {
+			final P propertyValue = this.resolveValue(entity);
+			if (!this.relation || CheckUtil.isNull(propertyValue)) {
+				value = propertyValue;
+			} else if (this.hasDisplayProperty()) {
+				value = this.displayProperty.getValue(propertyValue);
+			} else {
+				value = propertyValue.toString();
+			}
+		} catch (final ValueAccessException e) {
+			ColumnPlan.LOGGER.warn("Could not access value.", e);
+		}
+		Object result = null;
+		if (value instanceof String) {
+			result = collator.getCollationKey((String) value);
+		} else if (value instanceof Comparable) {
+			result = value;
+		} else if (!CheckUtil.isNull(value)) {
+			result = collator.getCollationKey(value.toString());
+		}
+		return result;
+	}
+
+	/**
+	 * Converts a value to a string.
+	 * 
+	 * @param type
+	 *            The value type.
+	 * @param value
+	 *            The value. May be null.
+	 * @return The string. Never null.
+	 * @param <C>
+	 *            The value type.
+	 */
+	private <C> String convert(final Class<C> type, final C value) {
+		String result = null;
+		if (!CheckUtil.isNull(value)) {
+			try {
+				result = this.converterTool.get().convertToString(type, value, this.format);
+			} catch (final ConverterException e) {
+				ColumnPlan.LOGGER.debug("Could not convert value.", e);
+				result = value.toString();
+			}
+		}
+		if (CheckUtil.isNull(result)) {
+			result = "";
+		}
+		return result;
+	}
+}
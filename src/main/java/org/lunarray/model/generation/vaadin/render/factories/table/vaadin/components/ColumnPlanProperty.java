@@ -0,0 +1,152 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components;
+
+import com.vaadin.data.Property;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+
+/**
+ * A read only flyweight property for a text column. A single instance is
+ * shared by all cells of a column and is rebound to the entity of the cell
+ * being rendered.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public final class ColumnPlanProperty<E>
+		implements Property {
+
+	/** Serial id. */
+	private static final long serialVersionUID = -7405188630624516392L;
+	/** The cell cache. */
+	private CellStringCache cellCache;
+	/** The column id. */
+	private final Object columnId;
+	/** The entity currently bound. */
+	private transient E entity;
+	/** The column plan. */
+	private final ColumnPlan<?, E> plan;
+
+	/**
+	 * Constructs the property.
+	 * 
+	 * @param columnId
+	 *            The column id. May not be null.
+	 * @param plan
+	 *            The column plan. May not be null.
+	 */
+	public ColumnPlanProperty(final Object columnId, final ColumnPlan<?, E> plan) {
+		Validate.notNull(columnId, "Column id may not be null.");
+		Validate.notNull(plan, "Plan may not be null.");
+		this.columnId = columnId;
+		this.plan = plan;
+	}
+
+	/**
+	 * Binds the property to an entity.
+	 * 
+	 * @param entity
+	 *            The entity. May not be null.
+	 * @return This property.
+	 */
+	public ColumnPlanProperty<E> bind(final E entity) {
+		Validate.notNull(entity, "Entity may not be null.");
+		this.entity = entity;
+		return this;
+	}
+
+	/**
+	 * Gets the value for the cellCache field.
+	 * 
+	 * @return The value for the cellCache field.
+	 */
+	public CellStringCache getCellCache() {
+		return this.cellCache;
+	}
+
+	/**
+	 * Gets the value for the columnId field.
+	 * 
+	 * @return The value for the columnId field.
+	 */
+	public Object getColumnId() {
+		return this.columnId;
+	}
+
+	/**
+	 * Gets the value for the plan field.
+	 * 
+	 * @return The value for the plan field.
+	 */
+	public ColumnPlan<?, E> getPlan() {
+		return this.plan;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Class<String> getType() {
+		return String.class;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String getValue() {
+		String result = "";
+		if (!CheckUtil.isNull(this.entity)) {
+			result = this.plan.render(this.entity, this.columnId, this.cellCache);
+		}
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean isReadOnly() {
+		return true;
+	}
+
+	/**
+	 * Sets a new value for the cellCache field.
+	 * 
+	 * @param cellCache
+	 *            The new value for the cellCache field. May be null.
+	 */
+	public void setCellCache(final CellStringCache cellCache) {
+		this.cellCache = cellCache;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void setReadOnly(final boolean newStatus) {
+		// Ignore
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void setValue(final Object newValue) {
+		throw new Property.ReadOnlyException("Text columns are read only.");
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String toString() {
+		return this.getValue();
+	}
+}
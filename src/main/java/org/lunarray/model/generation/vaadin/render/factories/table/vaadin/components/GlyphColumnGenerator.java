@@ -0,0 +1,91 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components;
+
+import com.vaadin.ui.Table;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.descriptor.accessor.exceptions.ValueAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A column generator that renders boolean values as glyphs. Every cell is one
+ * of a few shared strings, rather than a read-only check box bound to a
+ * property.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <P>
+ *            The property type.
+ * @param <E>
+ *            The entity type.
+ */
+public final class GlyphColumnGenerator<P, E>
+		extends AbstractColumnGenerator<P, E> {
+
+	/** The glyph of a checked value. */
+	public static final String CHECKED = "\u2611";
+	/** The glyph of an unchecked value. */
+	public static final String UNCHECKED = "\u2610";
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(GlyphColumnGenerator.class);
+	/** Serial id. */
+	private static final long serialVersionUID = 3179004315476587830L;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param strategy
+	 *            The output strategy. May not be null.
+	 */
+	public GlyphColumnGenerator(final GlyphOutputPropertyStrategy<P, E> strategy) {
+		super(strategy);
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("unchecked")
+	@Override
+	public Object generateCell(final Table source, final Object itemId, final Object columnId) {
+		Validate.notNull(itemId, "Item id may not be null.");
+		final ColumnPlan<P, E> plan = this.getPlan();
+		String result;
+		try {
+			final P value = plan.resolveValue((E) itemId);
+			Object displayValue = value;
+			if (!CheckUtil.isNull(value) && plan.isRelation() && plan.hasDisplayProperty()) {
+				displayValue = plan.getDisplayProperty().getValue(value);
+			}
+			if (CheckUtil.isNull(displayValue)) {
+				result = "";
+			} else if (Boolean.TRUE.equals(displayValue)) {
+				result = GlyphColumnGenerator.CHECKED;
+			} else if (Boolean.FALSE.equals(displayValue)) {
+				result = GlyphColumnGenerator.UNCHECKED;
+			} else {
+				// Not a boolean, render as text.
+				result = plan.render((E) itemId, columnId, this.getCellCache());
+			}
+		} catch (final ValueAccessException e) {
+			GlyphColumnGenerator.LOGGER.warn("Could not access value.", e);
+			result = itemId.toString();
+		}
+		GlyphColumnGenerator.LOGGER.debug("Resolved for item {} and column {}: {}", itemId, columnId, result);
+		return result;
+	}
+}
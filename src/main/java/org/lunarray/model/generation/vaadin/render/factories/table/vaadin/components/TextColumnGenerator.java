@@ -23,8 +23,6 @@ import com.vaadin.ui.Table;
 import org.apache.commons.lang.Validate;
 import org.lunarray.common.check.CheckUtil;
 import org.lunarray.model.descriptor.accessor.exceptions.ValueAccessException;
-import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
-import org.lunarray.model.descriptor.model.relation.RelationDescriptor;
 import org.lunarray.model.generation.vaadin.render.factories.table.TableModelProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,25 +59,28 @@ public final class TextColumnGenerator<P, E>
 	@Override
 	public Object generateCell(final Table source, final Object itemId, final Object columnId) {
 		Validate.notNull(itemId, "Item id may not be null.");
-		final OutputPropertyStrategy<P, E> strategy = this.getOutputPropertyStrategy();
-		final RelationDescriptor relationProperty = strategy.getProperty().adapt(RelationDescriptor.class);
+		final ColumnPlan<P, E> plan = this.getPlan();
 		Object result = null;
-		String format = null;
-		if (strategy.hasPresentationProperty()) {
-			format = strategy.getPresentationProperty().getFormat();
-		}
-		if (CheckUtil.isNull(relationProperty)) {
-			result = new Label(new TableModelProperty<P, E>(strategy.getConverterTool(), this.getOutputPropertyStrategy().getProperty(),
-					(E) itemId, format, strategy.getModel()));
-		} else {
-			final PropertyDescriptor<Object, P> displayProperty = (PropertyDescriptor<Object, P>) this.resolveDisplayProperty();
+		if (!CheckUtil.isNull(this.getCellCache())) {
+			result = new Label(plan.render((E) itemId, columnId, this.getCellCache()));
+		} else if (plan.isRelation()) {
 			try {
-				result = new Label(new TableModelProperty<Object, P>(strategy.getConverterTool(), displayProperty, this
-						.getOutputPropertyStrategy().getProperty().getValue((E) itemId), format, strategy.getModel()));
+				final P value = plan.resolveValue((E) itemId);
+				if (CheckUtil.isNull(value)) {
+					result = "";
+				} else if (plan.hasDisplayProperty()) {
+					result = new Label(new TableModelProperty<Object, P>(plan.getConverterTool(), plan.getDisplayProperty(), value,
+							plan.getFormat(), plan.getModel()));
+				} else {
+					result = value.toString();
+				}
 			} catch (final ValueAccessException e) {
 				TextColumnGenerator.LOGGER.warn("Could not access value.", e);
 				result = itemId.toString();
 			}
+		} else {
+			result = new Label(new TableModelProperty<P, E>(plan.getConverterTool(), plan.getProperty(), (E) itemId, plan.getFormat(),
+					plan.getModel()));
 		}
 		TextColumnGenerator.LOGGER.debug("Resolved for item {} and column {}: {}", itemId, columnId, result);
 		return result;
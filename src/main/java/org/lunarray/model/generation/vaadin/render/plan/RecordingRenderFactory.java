@@ -0,0 +1,139 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.render.plan;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.model.descriptor.model.operation.OperationDescriptor;
+import org.lunarray.model.descriptor.model.operation.parameters.CollectionParameterDescriptor;
+import org.lunarray.model.descriptor.model.operation.parameters.ParameterDescriptor;
+import org.lunarray.model.descriptor.model.operation.result.CollectionResultDescriptor;
+import org.lunarray.model.descriptor.model.operation.result.ResultDescriptor;
+import org.lunarray.model.descriptor.model.property.CollectionPropertyDescriptor;
+import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
+import org.lunarray.model.descriptor.presentation.RenderType;
+import org.lunarray.model.generation.util.RenderFactory;
+import org.lunarray.model.generation.vaadin.render.RenderContext;
+
+/**
+ * Records the render calls of a composer into a plan, rendering nothing.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public final class RecordingRenderFactory<E>
+		implements RenderFactory<RenderContext<E>, E> {
+
+	/** The recorded steps. */
+	private final List<RenderStep<E>> steps;
+
+	/**
+	 * Default constructor.
+	 */
+	public RecordingRenderFactory() {
+		this.steps = new LinkedList<RenderStep<E>>();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void beginOperation(final RenderContext<E> context, final OperationDescriptor<E> descriptor) {
+		this.record(RenderStep.Kind.BEGIN_OPERATION, context, descriptor, null, null);
+	}
+
+	/**
+	 * Creates a plan of the recorded steps.
+	 * 
+	 * @param label
+	 *            The label. May be null.
+	 * @return The plan.
+	 */
+	public RenderPlan<E> createPlan(final String label) {
+		return new RenderPlan<E>(label, this.steps);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void endOperation(final RenderContext<E> context, final OperationDescriptor<E> descriptor) {
+		this.record(RenderStep.Kind.END_OPERATION, context, descriptor, null, null);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public <D, P extends Collection<D>> void renderCollectionParameter(final RenderContext<E> context,
+			final OperationDescriptor<E> operation, final CollectionParameterDescriptor<D, P> descriptor, final RenderType renderType) {
+		this.record(RenderStep.Kind.COLLECTION_PARAMETER, context, operation, descriptor, renderType);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public <D, P extends Collection<D>> void renderCollectionProperty(final RenderContext<E> context,
+			final CollectionPropertyDescriptor<D, P, E> descriptor, final RenderType renderType) {
+		this.record(RenderStep.Kind.COLLECTION_PROPERTY, context, null, descriptor, renderType);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public <D, R extends Collection<D>> void renderCollectionResultType(final RenderContext<E> context,
+			final OperationDescriptor<E> operation, final CollectionResultDescriptor<D, R> resultDescriptor, final RenderType renderType) {
+		this.record(RenderStep.Kind.COLLECTION_RESULT, context, operation, resultDescriptor, renderType);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public <P> void renderParameter(final RenderContext<E> context, final ParameterDescriptor<P> descriptor,
+			final OperationDescriptor<E> operation, final RenderType renderType) {
+		this.record(RenderStep.Kind.PARAMETER, context, operation, descriptor, renderType);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public <P> void renderProperty(final RenderContext<E> context, final PropertyDescriptor<P, E> descriptor, final RenderType renderType) {
+		this.record(RenderStep.Kind.PROPERTY, context, null, descriptor, renderType);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public <R> void renderResultType(final RenderContext<E> context, final OperationDescriptor<E> operation,
+			final ResultDescriptor<R> resultDescriptor, final RenderType renderType) {
+		this.record(RenderStep.Kind.RESULT, context, operation, resultDescriptor, renderType);
+	}
+
+	/**
+	 * Records a step.
+	 * 
+	 * @param kind
+	 *            The kind of call.
+	 * @param context
+	 *            The context. May not be null.
+	 * @param operation
+	 *            The operation. May be null.
+	 * @param descriptor
+	 *            The rendered descriptor. May be null.
+	 * @param renderType
+	 *            The render type. May be null.
+	 */
+	private void record(final RenderStep.Kind kind, final RenderContext<E> context, final OperationDescriptor<E> operation,
+			final Object descriptor, final RenderType renderType) {
+		Validate.notNull(context, "Render context may not be null.");
+		this.steps.add(new RenderStep<E>(kind, context.getPrefixes(), operation, descriptor, renderType));
+	}
+}
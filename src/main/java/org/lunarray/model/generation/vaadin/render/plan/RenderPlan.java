@@ -0,0 +1,97 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.render.plan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.model.generation.util.RenderFactory;
+import org.lunarray.model.generation.vaadin.render.RenderContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A recorded composition of an entity. Holds the label and the sequence of
+ * render calls the composer made, so that they can be replayed on another
+ * factory without walking the descriptors again. Immutable and thus thread
+ * safe.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public final class RenderPlan<E> {
+
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(RenderPlan.class);
+	/** The label. */
+	private final String label;
+	/** The steps. */
+	private final List<RenderStep<E>> steps;
+
+	/**
+	 * Constructs the plan.
+	 * 
+	 * @param label
+	 *            The label. May be null.
+	 * @param steps
+	 *            The steps, in order. May not be null.
+	 */
+	public RenderPlan(final String label, final List<RenderStep<E>> steps) {
+		Validate.notNull(steps, "Steps may not be null.");
+		this.label = label;
+		this.steps = Collections.unmodifiableList(new ArrayList<RenderStep<E>>(steps));
+	}
+
+	/**
+	 * Gets the value for the label field.
+	 * 
+	 * @return The value for the label field.
+	 */
+	public String getLabel() {
+		return this.label;
+	}
+
+	/**
+	 * Gets the value for the steps field.
+	 * 
+	 * @return The value for the steps field.
+	 */
+	public List<RenderStep<E>> getSteps() {
+		return this.steps;
+	}
+
+	/**
+	 * Replays the plan on a factory.
+	 * 
+	 * @param context
+	 *            The context. May not be null.
+	 * @param factory
+	 *            The factory. May not be null.
+	 */
+	public void replay(final RenderContext<E> context, final RenderFactory<RenderContext<E>, E> factory) {
+		Validate.notNull(context, "Context may not be null.");
+		Validate.notNull(factory, "Factory may not be null.");
+		for (final RenderStep<E> step : this.steps) {
+			step.replay(context, factory);
+		}
+		RenderPlan.LOGGER.debug("Replayed {} steps for: {}", this.steps.size(), this.label);
+	}
+}
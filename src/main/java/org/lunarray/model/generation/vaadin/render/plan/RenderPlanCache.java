@@ -0,0 +1,230 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.render.plan;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.descriptor.model.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches render plans. Caches are shared per model and are thread safe, so
+ * that every entity is composed only once per qualifier, locale and kind of
+ * component, regardless of the amount of sessions.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ */
+public final class RenderPlanCache {
+
+	/** The caches per model. */
+	private static final Map<Model<?>, RenderPlanCache> CACHES = new WeakHashMap<Model<?>, RenderPlanCache>();
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(RenderPlanCache.class);
+	/** The cached plans. */
+	private final ConcurrentMap<Key, RenderPlan<?>> plans;
+
+	/**
+	 * Default constructor.
+	 */
+	private RenderPlanCache() {
+		this.plans = new ConcurrentHashMap<Key, RenderPlan<?>>();
+	}
+
+	/**
+	 * Gets the cache for a model.
+	 * 
+	 * @param model
+	 *            The model. May not be null.
+	 * @return The cache.
+	 */
+	public static RenderPlanCache getInstance(final Model<?> model) {
+		Validate.notNull(model, "Model may not be null.");
+		synchronized (RenderPlanCache.CACHES) {
+			RenderPlanCache result = RenderPlanCache.CACHES.get(model);
+			if (CheckUtil.isNull(result)) {
+				result = new RenderPlanCache();
+				RenderPlanCache.CACHES.put(model, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Drops all cached plans.
+	 */
+	public void clear() {
+		this.plans.clear();
+	}
+
+	/**
+	 * Gets a cached plan.
+	 * 
+	 * @param key
+	 *            The key. May not be null.
+	 * @return The plan, or null if it is not cached.
+	 * @param <E>
+	 *            The entity type.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E> RenderPlan<E> get(final Key key) {
+		Validate.notNull(key, "Key may not be null.");
+		return (RenderPlan<E>) this.plans.get(key);
+	}
+
+	/**
+	 * Caches a plan, unless one is already cached.
+	 * 
+	 * @param key
+	 *            The key. May not be null.
+	 * @param plan
+	 *            The plan. May not be null.
+	 * @return The cached plan, either the given or the previous one.
+	 * @param <E>
+	 *            The entity type.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E> RenderPlan<E> putIfAbsent(final Key key, final RenderPlan<E> plan) {
+		Validate.notNull(key, "Key may not be null.");
+		Validate.notNull(plan, "Plan may not be null.");
+		RenderPlan<E> result = (RenderPlan<E>) this.plans.putIfAbsent(key, plan);
+		if (CheckUtil.isNull(result)) {
+			result = plan;
+			RenderPlanCache.LOGGER.debug("Cached plan of {} steps for: {}", plan.getSteps().size(), key);
+		}
+		return result;
+	}
+
+	/**
+	 * Counts the cached plans.
+	 * 
+	 * @return The amount of plans.
+	 */
+	public int size() {
+		return this.plans.size();
+	}
+
+	/**
+	 * The key of a plan.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	public static final class Key {
+
+		/** The kind of component. */
+		private final String component;
+		/** The entity key. */
+		private final String entityKey;
+		/** The locale. */
+		private final Locale locale;
+		/** The qualifier. */
+		private final Class<?> qualifier;
+
+		/**
+		 * Constructs the key.
+		 * 
+		 * @param component
+		 *            The kind of component, as plans differ between forms
+		 *            and tables. May not be null.
+		 * @param entityKey
+		 *            The entity key. May not be null.
+		 * @param qualifier
+		 *            The qualifier. May be null.
+		 * @param locale
+		 *            The locale. May be null.
+		 */
+		public Key(final String component, final String entityKey, final Class<?> qualifier, final Locale locale) {
+			Validate.notNull(component, "Component may not be null.");
+			Validate.notNull(entityKey, "Entity key may not be null.");
+			this.component = component;
+			this.entityKey = entityKey;
+			this.qualifier = qualifier;
+			this.locale = locale;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean equals(final Object obj) {
+			boolean result = false;
+			if (obj instanceof Key) {
+				final Key other = (Key) obj;
+				result = this.component.equals(other.component) && this.entityKey.equals(other.entityKey)
+						&& ObjectUtils.equals(this.qualifier, other.qualifier) && ObjectUtils.equals(this.locale, other.locale);
+			}
+			return result;
+		}
+
+		/**
+		 * Gets the value for the component field.
+		 * 
+		 * @return The value for the component field.
+		 */
+		public String getComponent() {
+			return this.component;
+		}
+
+		/**
+		 * Gets the value for the entityKey field.
+		 * 
+		 * @return The value for the entityKey field.
+		 */
+		public String getEntityKey() {
+			return this.entityKey;
+		}
+
+		/**
+		 * Gets the value for the locale field.
+		 * 
+		 * @return The value for the locale field.
+		 */
+		public Locale getLocale() {
+			return this.locale;
+		}
+
+		/**
+		 * Gets the value for the qualifier field.
+		 * 
+		 * @return The value for the qualifier field.
+		 */
+		public Class<?> getQualifier() {
+			return this.qualifier;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int hashCode() {
+			int result = this.component.hashCode();
+			result = 31 * result + this.entityKey.hashCode();
+			result = 31 * result + ObjectUtils.hashCode(this.qualifier);
+			return 31 * result + ObjectUtils.hashCode(this.locale);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public String toString() {
+			return String.format("%s %s (qualifier %s, locale %s)", this.component, this.entityKey, this.qualifier, this.locale);
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.render.plan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.model.descriptor.model.operation.OperationDescriptor;
+import org.lunarray.model.descriptor.model.operation.parameters.CollectionParameterDescriptor;
+import org.lunarray.model.descriptor.model.operation.parameters.ParameterDescriptor;
+import org.lunarray.model.descriptor.model.operation.result.CollectionResultDescriptor;
+import org.lunarray.model.descriptor.model.operation.result.ResultDescriptor;
+import org.lunarray.model.descriptor.model.property.CollectionPropertyDescriptor;
+import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
+import org.lunarray.model.descriptor.presentation.RenderType;
+import org.lunarray.model.generation.util.RenderFactory;
+import org.lunarray.model.generation.vaadin.render.RenderContext;
+
+/**
+ * A single recorded render call. Immutable.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public final class RenderStep<E> {
+
+	/** The rendered descriptor, if any. */
+	private final Object descriptor;
+	/** The kind of call. */
+	private final Kind kind;
+	/** The operation, if any. */
+	private final OperationDescriptor<E> operation;
+	/** The variable prefixes at the time of the call. */
+	private final List<PropertyDescriptor<?, ?>> prefixes;
+	/** The render type, if any. */
+	private final RenderType renderType;
+
+	/**
+	 * Constructs the step.
+	 * 
+	 * @param kind
+	 *            The kind of call. May not be null.
+	 * @param prefixes
+	 *            The variable prefixes at the time of the call. May not be
+	 *            null.
+	 * @param operation
+	 *            The operation. May be null.
+	 * @param descriptor
+	 *            The rendered descriptor. May be null.
+	 * @param renderType
+	 *            The render type. May be null.
+	 */
+	public RenderStep(final Kind kind, final List<PropertyDescriptor<?, ?>> prefixes, final OperationDescriptor<E> operation,
+			final Object descriptor, final RenderType renderType) {
+		Validate.notNull(kind, "Kind may not be null.");
+		Validate.notNull(prefixes, "Prefixes may not be null.");
+		this.kind = kind;
+		this.prefixes = Collections.unmodifiableList(new ArrayList<PropertyDescriptor<?, ?>>(prefixes));
+		this.operation = operation;
+		this.descriptor = descriptor;
+		this.renderType = renderType;
+	}
+
+	/**
+	 * Gets the value for the descriptor field.
+	 * 
+	 * @return The value for the descriptor field.
+	 */
+	public Object getDescriptor() {
+		return this.descriptor;
+	}
+
+	/**
+	 * Gets the value for the kind field.
+	 * 
+	 * @return The value for the kind field.
+	 */
+	public Kind getKind() {
+		return this.kind;
+	}
+
+	/**
+	 * Gets the value for the operation field.
+	 * 
+	 * @return The value for the operation field.
+	 */
+	public OperationDescriptor<E> getOperation() {
+		return this.operation;
+	}
+
+	/**
+	 * Gets the value for the prefixes field.
+	 * 
+	 * @return The value for the prefixes field.
+	 */
+	public List<PropertyDescriptor<?, ?>> getPrefixes() {
+		return this.prefixes;
+	}
+
+	/**
+	 * Gets the value for the renderType field.
+	 * 
+	 * @return The value for the renderType field.
+	 */
+	public RenderType getRenderType() {
+		return this.renderType;
+	}
+
+	/**
+	 * Replays the call on a factory.
+	 * 
+	 * @param context
+	 *            The context. May not be null.
+	 * @param factory
+	 *            The factory. May not be null.
+	 */
+	public void replay(final RenderContext<E> context, final RenderFactory<RenderContext<E>, E> factory) {
+		context.setPrefixes(this.prefixes);
+		this.kind.replay(this, context, factory);
+	}
+
+	/**
+	 * The kinds of render calls.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public enum Kind {
+		/** Begins an operation. */
+		BEGIN_OPERATION {
+			/** {@inheritDoc} */
+			@Override
+			protected <E> void replay(final RenderStep<E> step, final RenderContext<E> context,
+					final RenderFactory<RenderContext<E>, E> factory) {
+				factory.beginOperation(context, step.getOperation());
+			}
+		},
+		/** Renders a collection parameter. */
+		COLLECTION_PARAMETER {
+			/** {@inheritDoc} */
+			@Override
+			protected <E> void replay(final RenderStep<E> step, final RenderContext<E> context,
+					final RenderFactory<RenderContext<E>, E> factory) {
+				factory.renderCollectionParameter(context, step.getOperation(), (CollectionParameterDescriptor) step.getDescriptor(),
+						step.getRenderType());
+			}
+		},
+		/** Renders a collection property. */
+		COLLECTION_PROPERTY {
+			/** {@inheritDoc} */
+			@Override
+			protected <E> void replay(final RenderStep<E> step, final RenderContext<E> context,
+					final RenderFactory<RenderContext<E>, E> factory) {
+				factory.renderCollectionProperty(context, (CollectionPropertyDescriptor) step.getDescriptor(), step.getRenderType());
+			}
+		},
+		/** Renders a collection result. */
+		COLLECTION_RESULT {
+			/** {@inheritDoc} */
+			@Override
+			protected <E> void replay(final RenderStep<E> step, final RenderContext<E> context,
+					final RenderFactory<RenderContext<E>, E> factory) {
+				factory.renderCollectionResultType(context, step.getOperation(), (CollectionResultDescriptor) step.getDescriptor(),
+						step.getRenderType());
+			}
+		},
+		/** Ends an operation. */
+		END_OPERATION {
+			/** {@inheritDoc} */
+			@Override
+			protected <E> void replay(final RenderStep<E> step, final RenderContext<E> context,
+					final RenderFactory<RenderContext<E>, E> factory) {
+				factory.endOperation(context, step.getOperation());
+			}
+		},
+		/** Renders a parameter. */
+		PARAMETER {
+			/** {@inheritDoc} */
+			@Override
+			protected <E> void replay(final RenderStep<E> step, final RenderContext<E> context,
+					final RenderFactory<RenderContext<E>, E> factory) {
+				factory.renderParameter(context, (ParameterDescriptor<Object>) step.getDescriptor(), step.getOperation(),
+						step.getRenderType());
+			}
+		},
+		/** Renders a property. */
+		PROPERTY {
+			/** {@inheritDoc} */
+			@Override
+			protected <E> void replay(final RenderStep<E> step, final RenderContext<E> context,
+					final RenderFactory<RenderContext<E>, E> factory) {
+				factory.renderProperty(context, (PropertyDescriptor<Object, E>) step.getDescriptor(), step.getRenderType());
+			}
+		},
+		/** Renders a result. */
+		RESULT {
+			/** {@inheritDoc} */
+			@Override
+			protected <E> void replay(final RenderStep<E> step, final RenderContext<E> context,
+					final RenderFactory<RenderContext<E>, E> factory) {
+				factory.renderResultType(context, step.getOperation(), (ResultDescriptor<Object>) step.getDescriptor(),
+						step.getRenderType());
+			}
+		};
+
+		/**
+		 * Replays a step of this kind.
+		 * 
+		 * @param step
+		 *            The step.
+		 * @param context
+		 *            The context.
+		 * @param factory
+		 *            The factory.
+		 * @param <E>
+		 *            The entity type.
+		 */
+		protected abstract <E> void replay(final RenderStep<E> step, final RenderContext<E> context,
+				final RenderFactory<RenderContext<E>, E> factory);
+	}
+}
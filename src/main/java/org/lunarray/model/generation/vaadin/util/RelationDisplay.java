@@ -0,0 +1,114 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.util;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.descriptor.accessor.exceptions.ValueAccessException;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.converter.exceptions.ConverterException;
+import org.lunarray.model.descriptor.model.extension.ExtensionRef;
+import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
+
+/**
+ * How a related entity is displayed. Holds the display property of the
+ * related entity, being its name property or else its key property, and the
+ * converter to use with it.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <P>
+ *            The related entity type.
+ */
+public final class RelationDisplay<P>
+		implements Serializable {
+
+	/** Serial id. */
+	private static final long serialVersionUID = 2793151416480934270L;
+	/** The converter tool. */
+	private final ExtensionRef<ConverterTool> converterTool;
+	/** The display property. */
+	private final PropertyDescriptor<Object, P> displayProperty;
+
+	/**
+	 * Constructs the display.
+	 * 
+	 * @param displayProperty
+	 *            The display property. May be null.
+	 * @param converterTool
+	 *            The converter tool. May be null.
+	 */
+	public RelationDisplay(final PropertyDescriptor<Object, P> displayProperty, final ExtensionRef<ConverterTool> converterTool) {
+		this.displayProperty = displayProperty;
+		this.converterTool = converterTool;
+	}
+
+	/**
+	 * Converts the display value of a related entity.
+	 * 
+	 * @param entity
+	 *            The related entity. May not be null.
+	 * @param format
+	 *            The format. May be null.
+	 * @return The display string, or null if there is no display property or
+	 *         converter, or the display value is null.
+	 * @throws ValueAccessException
+	 *             Thrown if the display value could not be accessed.
+	 * @throws ConverterException
+	 *             Thrown if the display value could not be converted.
+	 */
+	public String convert(final P entity, final String format) throws ValueAccessException, ConverterException {
+		Validate.notNull(entity, "Entity may not be null.");
+		String result = null;
+		if (this.hasDisplayProperty() && !CheckUtil.isNull(this.converterTool)) {
+			final Object value = this.displayProperty.getValue(entity);
+			if (!CheckUtil.isNull(value)) {
+				result = this.converterTool.get().convertToString(this.displayProperty.getPropertyType(), value, format);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the value for the converterTool field.
+	 * 
+	 * @return The value for the converterTool field.
+	 */
+	public ExtensionRef<ConverterTool> getConverterTool() {
+		return this.converterTool;
+	}
+
+	/**
+	 * Gets the value for the displayProperty field.
+	 * 
+	 * @return The value for the displayProperty field.
+	 */
+	public PropertyDescriptor<Object, P> getDisplayProperty() {
+		return this.displayProperty;
+	}
+
+	/**
+	 * Tests if the related entity has a display property.
+	 * 
+	 * @return True if and only if the display property is set.
+	 */
+	public boolean hasDisplayProperty() {
+		return !CheckUtil.isNull(this.displayProperty);
+	}
+}
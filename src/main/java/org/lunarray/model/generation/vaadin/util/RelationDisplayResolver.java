@@ -0,0 +1,137 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.model.entity.EntityDescriptor;
+import org.lunarray.model.descriptor.model.entity.KeyedEntityDescriptor;
+import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
+import org.lunarray.model.descriptor.presentation.PresentationEntityDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves how related entities are displayed. The display property of a
+ * related entity is its name property if it has one, and its key property
+ * otherwise. Resolvers are shared per model and are thread safe, every
+ * relation is resolved only once.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ */
+public final class RelationDisplayResolver {
+
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(RelationDisplayResolver.class);
+	/** The resolvers per model. */
+	private static final Map<Model<?>, RelationDisplayResolver> RESOLVERS = new WeakHashMap<Model<?>, RelationDisplayResolver>();
+	/** The resolved displays, by relation name. */
+	private final ConcurrentMap<String, RelationDisplay<?>> displays;
+	/** The model. */
+	private final WeakReference<Model<?>> model;
+
+	/**
+	 * Constructs the resolver.
+	 * 
+	 * @param model
+	 *            The model. May not be null.
+	 */
+	private RelationDisplayResolver(final Model<?> model) {
+		this.model = new WeakReference<Model<?>>(model);
+		this.displays = new ConcurrentHashMap<String, RelationDisplay<?>>();
+	}
+
+	/**
+	 * Gets the resolver for a model.
+	 * 
+	 * @param model
+	 *            The model. May not be null.
+	 * @return The resolver.
+	 */
+	public static RelationDisplayResolver getInstance(final Model<?> model) {
+		Validate.notNull(model, "Model may not be null.");
+		synchronized (RelationDisplayResolver.RESOLVERS) {
+			RelationDisplayResolver result = RelationDisplayResolver.RESOLVERS.get(model);
+			if (CheckUtil.isNull(result)) {
+				result = new RelationDisplayResolver(model);
+				RelationDisplayResolver.RESOLVERS.put(model, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Resolves how a related entity is displayed.
+	 * 
+	 * @param relationName
+	 *            The name of the related entity. May not be null.
+	 * @return The display. Never null.
+	 * @param <P>
+	 *            The related entity type.
+	 */
+	@SuppressWarnings("unchecked")
+	public <P> RelationDisplay<P> resolve(final String relationName) {
+		Validate.notNull(relationName, "Relation name may not be null.");
+		RelationDisplay<?> result = this.displays.get(relationName);
+		if (CheckUtil.isNull(result)) {
+			result = this.lookup(relationName);
+			final RelationDisplay<?> previous = this.displays.putIfAbsent(relationName, result);
+			if (!CheckUtil.isNull(previous)) {
+				result = previous;
+			}
+		}
+		return (RelationDisplay<P>) result;
+	}
+
+	/**
+	 * Looks up the display of a related entity.
+	 * 
+	 * @param relationName
+	 *            The name of the related entity.
+	 * @return The display.
+	 * @param <P>
+	 *            The related entity type.
+	 */
+	@SuppressWarnings("unchecked")
+	private <P> RelationDisplay<P> lookup(final String relationName) {
+		final Model<?> resolvedModel = this.model.get();
+		Validate.notNull(resolvedModel, "Model is no longer available.");
+		PropertyDescriptor<?, P> displayProperty = null;
+		final EntityDescriptor<P> entityDescriptor = (EntityDescriptor<P>) resolvedModel.getEntity(relationName);
+		if (!CheckUtil.isNull(entityDescriptor)) {
+			final PresentationEntityDescriptor<P> presentationDescriptor = entityDescriptor.adapt(PresentationEntityDescriptor.class);
+			if (!CheckUtil.isNull(presentationDescriptor)) {
+				displayProperty = presentationDescriptor.getNameProperty();
+			}
+			final KeyedEntityDescriptor<P, ?> keyedDescriptor = entityDescriptor.adapt(KeyedEntityDescriptor.class);
+			if (CheckUtil.isNull(displayProperty) && !CheckUtil.isNull(keyedDescriptor)) {
+				displayProperty = keyedDescriptor.getKeyProperty();
+			}
+		}
+		RelationDisplayResolver.LOGGER.debug("Resolved display property {} for relation: {}", displayProperty, relationName);
+		return new RelationDisplay<P>((PropertyDescriptor<Object, P>) displayProperty, resolvedModel.getExtensionRef(ConverterTool.class));
+	}
+}
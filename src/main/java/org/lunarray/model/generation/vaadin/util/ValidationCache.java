@@ -0,0 +1,289 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.Validate;
+import org.lunarray.common.check.CheckUtil;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
+import org.lunarray.model.descriptor.validator.PropertyViolation;
+import org.lunarray.model.descriptor.validator.ValueValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches whether property values pass validation. Only values of immutable
+ * types, such as strings, numbers and enumerations, are cached, as the
+ * violations of other values may change while the value is modified. Caches
+ * are shared per model, and thus by all sessions, so the violations
+ * themselves are not cached, as their messages are localized for the session
+ * that validated them. Values that passed are not validated again, values
+ * that failed are validated again for their messages. Caches are thread safe.
+ * The least recently used results are dropped once the cache holds more than
+ * its maximum size.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ */
+public final class ValidationCache {
+
+	/** The default maximum amount of cached results. */
+	public static final int DEFAULT_MAX_SIZE = 1024;
+	/** The caches per model. */
+	private static final Map<Model<?>, ValidationCache> CACHES = new WeakHashMap<Model<?>, ValidationCache>();
+	/** The immutable types, besides enumerations. */
+	private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>> asList(String.class, Boolean.class,
+			Character.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class, BigInteger.class,
+			BigDecimal.class));
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ValidationCache.class);
+	/** The amount of results taken from the cache. */
+	private int hits;
+	/** The maximum amount of cached results. */
+	private final int maxSize;
+	/** The amount of values validated. */
+	private int misses;
+	/** Whether the cached values passed, the least recently used first. */
+	private final LinkedHashMap<Key, Boolean> results;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param maxSize
+	 *            The maximum amount of cached results.
+	 */
+	private ValidationCache(final int maxSize) {
+		this.maxSize = maxSize;
+		this.results = new LinkedHashMap<Key, Boolean>(16, 0.75f, true);
+	}
+
+	/**
+	 * Gets the cache for a model.
+	 * 
+	 * @param model
+	 *            The model. May not be null.
+	 * @return The cache.
+	 */
+	public static ValidationCache getInstance(final Model<?> model) {
+		Validate.notNull(model, "Model may not be null.");
+		synchronized (ValidationCache.CACHES) {
+			ValidationCache result = ValidationCache.CACHES.get(model);
+			if (CheckUtil.isNull(result)) {
+				result = new ValidationCache(ValidationCache.DEFAULT_MAX_SIZE);
+				ValidationCache.CACHES.put(model, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Drops the cache of a model, for instance once its constraints changed.
+	 * The cache is created again when next requested.
+	 * 
+	 * @param model
+	 *            The model. May not be null.
+	 */
+	public static void invalidate(final Model<?> model) {
+		Validate.notNull(model, "Model may not be null.");
+		synchronized (ValidationCache.CACHES) {
+			final ValidationCache cache = ValidationCache.CACHES.remove(model);
+			if (!CheckUtil.isNull(cache)) {
+				cache.clear();
+			}
+		}
+	}
+
+	/**
+	 * Tests if a value is of an immutable type.
+	 * 
+	 * @param value
+	 *            The value. May be null.
+	 * @return True if and only if the value is null or immutable.
+	 */
+	public static boolean isImmutable(final Object value) {
+		return CheckUtil.isNull(value) || value instanceof Enum || ValidationCache.IMMUTABLE_TYPES.contains(value.getClass());
+	}
+
+	/**
+	 * Drops all cached results.
+	 */
+	public synchronized void clear() {
+		this.results.clear();
+	}
+
+	/**
+	 * Gets the value for the hits field.
+	 * 
+	 * @return The value for the hits field.
+	 */
+	public synchronized int getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Gets the value for the maxSize field.
+	 * 
+	 * @return The value for the maxSize field.
+	 */
+	public int getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Gets the value for the misses field.
+	 * 
+	 * @return The value for the misses field.
+	 */
+	public synchronized int getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * Counts the cached results.
+	 * 
+	 * @return The amount of results.
+	 */
+	public synchronized int size() {
+		return this.results.size();
+	}
+
+	/**
+	 * Validates a property value. Immutable values that passed before are
+	 * not validated again, whether other immutable values pass is cached.
+	 * 
+	 * @param validator
+	 *            The validator. May not be null.
+	 * @param property
+	 *            The property. May not be null.
+	 * @param value
+	 *            The value. May be null.
+	 * @return The violations, not modifiable.
+	 * @param <P>
+	 *            The property type.
+	 * @param <E>
+	 *            The entity type.
+	 */
+	public <P, E> Collection<PropertyViolation<E, P>> validate(final ValueValidator validator, final PropertyDescriptor<P, E> property,
+			final P value) {
+		Validate.notNull(validator, "Validator may not be null.");
+		Validate.notNull(property, "Property may not be null.");
+		Collection<PropertyViolation<E, P>> result;
+		if (ValidationCache.isImmutable(value)) {
+			final Key key = new Key(property, value);
+			final boolean passed;
+			synchronized (this) {
+				passed = Boolean.TRUE.equals(this.results.get(key));
+				if (passed) {
+					this.hits++;
+				} else {
+					this.misses++;
+				}
+			}
+			if (passed) {
+				result = Collections.emptyList();
+			} else {
+				result = Collections.unmodifiableList(new ArrayList<PropertyViolation<E, P>>(validator.validateValue(property, value)));
+				this.put(key, Boolean.valueOf(result.isEmpty()));
+			}
+		} else {
+			result = Collections.unmodifiableList(new ArrayList<PropertyViolation<E, P>>(validator.validateValue(property, value)));
+		}
+		return result;
+	}
+
+	/**
+	 * Caches a result and drops the least recently used results while the
+	 * cache is too large.
+	 * 
+	 * @param key
+	 *            The key.
+	 * @param passed
+	 *            Whether the value passed.
+	 */
+	private synchronized void put(final Key key, final Boolean passed) {
+		this.results.put(key, passed);
+		final Iterator<Key> keys = this.results.keySet().iterator();
+		while (this.results.size() > this.maxSize && keys.hasNext()) {
+			final Key eldest = keys.next();
+			keys.remove();
+			ValidationCache.LOGGER.debug("Dropped cached result for: {}", eldest);
+		}
+	}
+
+	/**
+	 * The key of a cached result.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private static final class Key {
+
+		/** The property. */
+		private final PropertyDescriptor<?, ?> property;
+		/** The value. */
+		private final Object value;
+
+		/**
+		 * Constructs the key.
+		 * 
+		 * @param property
+		 *            The property. May not be null.
+		 * @param value
+		 *            The value. May be null.
+		 */
+		public Key(final PropertyDescriptor<?, ?> property, final Object value) {
+			this.property = property;
+			this.value = value;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean equals(final Object obj) {
+			boolean result = false;
+			if (obj instanceof Key) {
+				final Key other = (Key) obj;
+				result = this.property.equals(other.property) && ObjectUtils.equals(this.value, other.value);
+			}
+			return result;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int hashCode() {
+			return 31 * this.property.hashCode() + ObjectUtils.hashCode(this.value);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public String toString() {
+			return String.format("%s (value %s)", this.property, this.value);
+		}
+	}
+}
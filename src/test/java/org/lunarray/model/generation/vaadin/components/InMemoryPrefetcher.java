@@ -0,0 +1,96 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An in-memory prefetcher. Records the batches it is handed and marks their
+ * entities as warmed, standing in for a backend with lazily loaded relations.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @param <E>
+ *            The entity type.
+ */
+public final class InMemoryPrefetcher<E>
+		implements Prefetcher<E> {
+
+	/** Serial id. */
+	private static final long serialVersionUID = 1L;
+	/** The prefetched batches. */
+	private final List<List<E>> batches;
+	/** The prefetched paths. */
+	private final Set<String> paths;
+	/** The warmed entities. */
+	private final Map<E, Boolean> warmed;
+
+	/**
+	 * Default constructor.
+	 */
+	public InMemoryPrefetcher() {
+		this.batches = new ArrayList<List<E>>();
+		this.paths = new LinkedHashSet<String>();
+		this.warmed = new IdentityHashMap<E, Boolean>();
+	}
+
+	/**
+	 * Gets the prefetched batches.
+	 * 
+	 * @return The batches, in order.
+	 */
+	public List<List<E>> getBatches() {
+		return Collections.unmodifiableList(this.batches);
+	}
+
+	/**
+	 * Gets the prefetched paths.
+	 * 
+	 * @return The paths.
+	 */
+	public Set<String> getPaths() {
+		return Collections.unmodifiableSet(this.paths);
+	}
+
+	/**
+	 * Tests if an entity was warmed.
+	 * 
+	 * @param entity
+	 *            The entity.
+	 * @return True if and only if the entity was in a prefetched batch.
+	 */
+	public boolean isWarmed(final E entity) {
+		return this.warmed.containsKey(entity);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void prefetch(final List<E> entities, final Collection<String> prefetchPaths) {
+		this.batches.add(new ArrayList<E>(entities));
+		this.paths.addAll(prefetchPaths);
+		for (final E entity : entities) {
+			this.warmed.put(entity, Boolean.TRUE);
+		}
+	}
+}
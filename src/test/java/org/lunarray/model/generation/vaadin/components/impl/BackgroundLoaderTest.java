@@ -0,0 +1,120 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the background loader.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see BackgroundLoader
+ */
+public class BackgroundLoaderTest {
+	/** The executor. */
+	private ExecutorService executor;
+	/** The source entities. */
+	private List<Integer> entities;
+
+	/** Shuts the executor down. */
+	@After
+	public void cleanup() {
+		this.executor.shutdownNow();
+	}
+
+	/** Sets up the test. */
+	@Before
+	public void setup() {
+		this.executor = Executors.newSingleThreadExecutor();
+		this.entities = new ArrayList<Integer>();
+		for (int i = 0; i < 1050; i++) {
+			this.entities.add(Integer.valueOf(i));
+		}
+	}
+
+	/**
+	 * Test that cancelling stops loading after the current chunk.
+	 * 
+	 * @see BackgroundLoader#cancel()
+	 */
+	@Test
+	public void testCancel() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final BackgroundLoader<Integer> loader = new BackgroundLoader<Integer>(new CollectionDataSource<Integer>(this.entities), 100,
+				this.executor, new BackgroundLoader.Listener() {
+					/** {@inheritDoc} */
+					@Override
+					public void chunkLoaded(final BackgroundLoader<?> chunkLoader) {
+						chunkLoader.cancel();
+					}
+
+					/** {@inheritDoc} */
+					@Override
+					public void finished(final BackgroundLoader<?> finishedLoader) {
+						latch.countDown();
+					}
+				});
+		loader.start();
+		Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(loader.isCancelled());
+		Assert.assertEquals(100, loader.size());
+	}
+
+	/**
+	 * Test that entities are loaded in chunks.
+	 * 
+	 * @see BackgroundLoader#run()
+	 */
+	@Test
+	public void testLoad() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicInteger chunks = new AtomicInteger();
+		final BackgroundLoader<Integer> loader = new BackgroundLoader<Integer>(new CollectionDataSource<Integer>(this.entities), 100,
+				this.executor, new BackgroundLoader.Listener() {
+					/** {@inheritDoc} */
+					@Override
+					public void chunkLoaded(final BackgroundLoader<?> chunkLoader) {
+						chunks.incrementAndGet();
+					}
+
+					/** {@inheritDoc} */
+					@Override
+					public void finished(final BackgroundLoader<?> finishedLoader) {
+						latch.countDown();
+					}
+				});
+		loader.start();
+		Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(loader.isFinished());
+		Assert.assertEquals(10, chunks.get());
+		Assert.assertEquals(1050, loader.size());
+		Assert.assertEquals(1f, loader.getProgress(), 0f);
+		Assert.assertEquals(Integer.valueOf(1000), loader.fetch(1000, 10).get(0));
+	}
+}
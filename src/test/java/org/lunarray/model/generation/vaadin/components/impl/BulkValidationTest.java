@@ -0,0 +1,243 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.lunarray.model.descriptor.builder.annotation.presentation.builder.PresQualBuilder;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.converter.def.DefaultConverterTool;
+import org.lunarray.model.descriptor.dictionary.enumeration.EnumDictionary;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.resource.simpleresource.SimpleClazzResource;
+import org.lunarray.model.descriptor.validator.EntityValidator;
+import org.lunarray.model.descriptor.validator.beanvalidation.BeanValidationValidator;
+import org.lunarray.model.generation.vaadin.components.TableDataSource;
+import org.lunarray.model.generation.vaadin.model.Sample01;
+import org.lunarray.model.generation.vaadin.model.Sample02;
+import org.lunarray.model.generation.vaadin.model.SampleEnum;
+
+/**
+ * Tests the bulk validation.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see BulkValidation
+ */
+public class BulkValidationTest {
+	/** The entities, every tenth without a test value. */
+	private List<Sample02> entities;
+	/** The executor. */
+	private ExecutorService executor;
+	/** The model. */
+	private Model<Object> model;
+
+	/** Shuts the executor down. */
+	@After
+	public void cleanup() {
+		this.executor.shutdownNow();
+	}
+
+	/** Sets up the test. */
+	@Before
+	public void setup() throws Exception {
+		@SuppressWarnings("unchecked")
+		final SimpleClazzResource<Object> resource = new SimpleClazzResource<Object>(Sample01.class, Sample02.class, SampleEnum.class);
+		final BeanValidationValidator validator = new BeanValidationValidator();
+		final EnumDictionary dictionary = new EnumDictionary(null);
+		final ConverterTool converter = new DefaultConverterTool();
+		this.model = PresQualBuilder.createBuilder().resources(resource).extensions(validator, dictionary, converter).build();
+		this.executor = Executors.newFixedThreadPool(4);
+		this.entities = new ArrayList<Sample02>();
+		for (int i = 0; i < 1000; i++) {
+			final Sample02 sample = new Sample02();
+			sample.setId("id " + i);
+			if (i % 10 != 0) {
+				sample.setTestValue("value " + i);
+			}
+			this.entities.add(sample);
+		}
+	}
+
+	/**
+	 * Test that validation on a single thread neither blocks nor fetches more
+	 * than the maximum amount of chunks ahead of validation.
+	 * 
+	 * @see BulkValidation#run()
+	 */
+	@Test
+	public void testBounded() throws Exception {
+		this.executor.shutdownNow();
+		this.executor = Executors.newSingleThreadExecutor();
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AheadDataSource source = new AheadDataSource(new CollectionDataSource<Sample02>(this.entities));
+		final BulkValidation<Sample02> validation = this.createValidation(source, latch);
+		source.setValidation(validation);
+		validation.start();
+		Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals(1000, validation.getValidated());
+		Assert.assertEquals(100, validation.getInvalidCount());
+		Assert.assertTrue(source.getMaxAhead() <= BulkValidation.DEFAULT_CHUNK_SIZE * BulkValidation.DEFAULT_MAX_CHUNKS_IN_FLIGHT);
+	}
+
+	/**
+	 * Test that a cancelled validation finishes without validating.
+	 * 
+	 * @see BulkValidation#cancel()
+	 */
+	@Test
+	public void testCancel() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final BulkValidation<Sample02> validation = this.createValidation(latch);
+		validation.cancel();
+		validation.start();
+		Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(validation.isCancelled());
+		Assert.assertTrue(validation.isFinished());
+		Assert.assertEquals(0, validation.getValidated());
+		Assert.assertEquals(0, validation.getInvalidCount());
+	}
+
+	/**
+	 * Test that all entities are validated in parallel and the invalid ones
+	 * are indexed.
+	 * 
+	 * @see BulkValidation#run()
+	 */
+	@Test
+	public void testValidate() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final BulkValidation<Sample02> validation = this.createValidation(latch);
+		validation.start();
+		Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(validation.isFinished());
+		Assert.assertEquals(1000, validation.getTotal());
+		Assert.assertEquals(1000, validation.getValidated());
+		Assert.assertEquals(1f, validation.getProgress(), 0f);
+		Assert.assertEquals(100, validation.getInvalidCount());
+		Assert.assertTrue(validation.isInvalid(this.entities.get(10)));
+		Assert.assertFalse(validation.getMessages(this.entities.get(10)).isEmpty());
+		Assert.assertFalse(validation.isInvalid(this.entities.get(11)));
+		Assert.assertTrue(validation.getMessages(this.entities.get(11)).isEmpty());
+	}
+
+	/**
+	 * Creates a validation of the entities.
+	 * 
+	 * @param latch
+	 *            The latch to count down once finished.
+	 * @return The validation.
+	 */
+	private BulkValidation<Sample02> createValidation(final CountDownLatch latch) {
+		return this.createValidation(new CollectionDataSource<Sample02>(this.entities), latch);
+	}
+
+	/**
+	 * Creates a validation of a data source.
+	 * 
+	 * @param source
+	 *            The data source.
+	 * @param latch
+	 *            The latch to count down once finished.
+	 * @return The validation.
+	 */
+	private BulkValidation<Sample02> createValidation(final TableDataSource<Sample02> source, final CountDownLatch latch) {
+		return new BulkValidation<Sample02>(source, this.model.getEntity(Sample02.class), this.model.getExtension(EntityValidator.class),
+				this.executor, new BulkValidation.Listener() {
+					/** {@inheritDoc} */
+					@Override
+					public void finished(final BulkValidation<?> validation) {
+						latch.countDown();
+					}
+
+					/** {@inheritDoc} */
+					@Override
+					public void progressed(final BulkValidation<?> validation) {
+						// Nothing to do.
+					}
+				});
+	}
+
+	/**
+	 * Records how many entities are fetched ahead of validation.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private static final class AheadDataSource
+			implements TableDataSource<Sample02> {
+		/** Serial id. */
+		private static final long serialVersionUID = -6370325413918431208L;
+		/** The largest amount of entities fetched and not yet validated. */
+		private int maxAhead;
+		/** The source. */
+		private final TableDataSource<Sample02> source;
+		/** The validation. */
+		private BulkValidation<Sample02> validation;
+
+		/**
+		 * Constructs the data source.
+		 * 
+		 * @param source
+		 *            The source.
+		 */
+		public AheadDataSource(final TableDataSource<Sample02> source) {
+			this.source = source;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public List<Sample02> fetch(final int offset, final int limit) {
+			final List<Sample02> result = this.source.fetch(offset, limit);
+			this.maxAhead = Math.max(this.maxAhead, offset + result.size() - this.validation.getValidated());
+			return result;
+		}
+
+		/**
+		 * Gets the value for the maxAhead field.
+		 * 
+		 * @return The value for the maxAhead field.
+		 */
+		public int getMaxAhead() {
+			return this.maxAhead;
+		}
+
+		/**
+		 * Sets a new value for the validation field.
+		 * 
+		 * @param validation
+		 *            The new value for the validation field.
+		 */
+		public void setValidation(final BulkValidation<Sample02> validation) {
+			this.validation = validation;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int size() {
+			return this.source.size();
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.lunarray.model.descriptor.builder.annotation.presentation.builder.PresQualBuilder;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.converter.def.DefaultConverterTool;
+import org.lunarray.model.descriptor.dictionary.enumeration.EnumDictionary;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.model.entity.EntityDescriptor;
+import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
+import org.lunarray.model.descriptor.resource.simpleresource.SimpleClazzResource;
+import org.lunarray.model.descriptor.validator.beanvalidation.BeanValidationValidator;
+import org.lunarray.model.generation.vaadin.model.Sample01;
+import org.lunarray.model.generation.vaadin.model.Sample02;
+import org.lunarray.model.generation.vaadin.model.SampleEnum;
+import org.lunarray.model.generation.vaadin.render.RenderContext;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.AbstractColumnGenerator;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.CellStringCache;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.ColumnPlan;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.TextOutputPropertyStrategy;
+
+/**
+ * Tests the cell precomputation.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see CellPrecomputation
+ */
+public class CellPrecomputationTest {
+	/** The executor. */
+	private ExecutorService executor;
+	/** The model. */
+	private Model<Object> model;
+
+	/** Shuts the executor down. */
+	@After
+	public void cleanup() {
+		this.executor.shutdownNow();
+	}
+
+	/** Sets up the test. */
+	@Before
+	public void setup() throws Exception {
+		@SuppressWarnings("unchecked")
+		final SimpleClazzResource<Object> resource = new SimpleClazzResource<Object>(Sample01.class, Sample02.class, SampleEnum.class);
+		final BeanValidationValidator validator = new BeanValidationValidator();
+		final EnumDictionary dictionary = new EnumDictionary(null);
+		final ConverterTool converter = new DefaultConverterTool();
+		this.model = PresQualBuilder.createBuilder().resources(resource).extensions(validator, dictionary, converter).build();
+		this.executor = Executors.newFixedThreadPool(4);
+	}
+
+	/**
+	 * Test that a cancelled precomputation publishes nothing, so the cache
+	 * may be invalidated once cancelled.
+	 * 
+	 * @see CellPrecomputation#cancel()
+	 */
+	@Test
+	public void testCancel() throws Exception {
+		final List<Sample02> entities = new ArrayList<Sample02>();
+		for (int i = 0; i < 2000; i++) {
+			final Sample02 sample = new Sample02();
+			sample.setId("id " + i);
+			sample.setTestValue("value " + i);
+			entities.add(sample);
+		}
+		final CellStringCache cache = new CellStringCache(1000);
+		final CountDownLatch latch = new CountDownLatch(1);
+		final Map<Object, ColumnPlan<?, Sample02>> plans = Collections.<Object, ColumnPlan<?, Sample02>> singletonMap("testValue",
+				this.getPlan());
+		final CellPrecomputation<Sample02> precomputation = new CellPrecomputation<Sample02>(new CollectionDataSource<Sample02>(entities),
+				plans, cache, this.executor, new CellPrecomputation.Listener() {
+					/** {@inheritDoc} */
+					@Override
+					public void published(final CellPrecomputation<?> published) {
+						latch.countDown();
+					}
+				});
+		precomputation.start();
+		precomputation.cancel();
+		cache.invalidateAll();
+		this.executor.shutdown();
+		Assert.assertTrue(this.executor.awaitTermination(10, TimeUnit.SECONDS));
+		Assert.assertTrue(precomputation.isFinished());
+		Assert.assertEquals(1, latch.getCount());
+		Assert.assertEquals(0, cache.size());
+	}
+
+	/**
+	 * Test that rows are converted in parallel and published to the cache,
+	 * bounded by the cache size.
+	 * 
+	 * @see CellPrecomputation#run()
+	 */
+	@Test
+	public void testPrecompute() throws Exception {
+		final List<Sample02> entities = new ArrayList<Sample02>();
+		for (int i = 0; i < 2000; i++) {
+			final Sample02 sample = new Sample02();
+			sample.setId("id " + i);
+			sample.setTestValue("value " + i);
+			entities.add(sample);
+		}
+		final CellStringCache cache = new CellStringCache(1000);
+		final CountDownLatch latch = new CountDownLatch(1);
+		final Map<Object, ColumnPlan<?, Sample02>> plans = Collections.<Object, ColumnPlan<?, Sample02>> singletonMap("testValue",
+				this.getPlan());
+		final CellPrecomputation<Sample02> precomputation = new CellPrecomputation<Sample02>(new CollectionDataSource<Sample02>(entities),
+				plans, cache, this.executor, new CellPrecomputation.Listener() {
+					/** {@inheritDoc} */
+					@Override
+					public void published(final CellPrecomputation<?> published) {
+						latch.countDown();
+					}
+				});
+		precomputation.start();
+		Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals(1000, cache.size());
+		Assert.assertEquals("value 999", cache.get(entities.get(999), "testValue"));
+		Assert.assertNull(cache.get(entities.get(1000), "testValue"));
+	}
+
+	/**
+	 * Test that a window of the first rows is converted on the executor
+	 * while the calling thread waits for it, without a listener.
+	 * 
+	 * @see CellPrecomputation#await(long, TimeUnit)
+	 */
+	@Test
+	public void testWindow() throws Exception {
+		final List<Sample02> entities = new ArrayList<Sample02>();
+		for (int i = 0; i < 2000; i++) {
+			final Sample02 sample = new Sample02();
+			sample.setId("id " + i);
+			sample.setTestValue("value " + i);
+			entities.add(sample);
+		}
+		final CellStringCache cache = new CellStringCache(1000);
+		final Map<Object, ColumnPlan<?, Sample02>> plans = Collections.<Object, ColumnPlan<?, Sample02>> singletonMap("testValue",
+				this.getPlan());
+		final CellPrecomputation<Sample02> precomputation = new CellPrecomputation<Sample02>(new CollectionDataSource<Sample02>(entities),
+				plans, cache, this.executor, null, 45, 12);
+		precomputation.run();
+		Assert.assertTrue(precomputation.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(precomputation.isFinished());
+		Assert.assertEquals(45, cache.size());
+		Assert.assertEquals("value 44", cache.get(entities.get(44), "testValue"));
+		Assert.assertNull(cache.get(entities.get(45), "testValue"));
+	}
+
+	/**
+	 * Gets the plan for the test value.
+	 * 
+	 * @return The plan.
+	 */
+	@SuppressWarnings("unchecked")
+	private ColumnPlan<String, Sample02> getPlan() {
+		final EntityDescriptor<Sample02> entity = this.model.getEntity(Sample02.class);
+		final PropertyDescriptor<String, Sample02> property = entity.getProperty("testValue", String.class);
+		final TextOutputPropertyStrategy.Factory factory = new TextOutputPropertyStrategy.Factory();
+		final AbstractColumnGenerator<String, Sample02> generator = (AbstractColumnGenerator<String, Sample02>) factory.createStrategy(
+				property, new RenderContext<Sample02>(this.model)).getGenerator();
+		return generator.getPlan();
+	}
+}
@@ -0,0 +1,167 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.lunarray.model.descriptor.builder.annotation.presentation.builder.PresQualBuilder;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.converter.def.DefaultConverterTool;
+import org.lunarray.model.descriptor.dictionary.enumeration.EnumDictionary;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.model.entity.EntityDescriptor;
+import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
+import org.lunarray.model.descriptor.resource.simpleresource.SimpleClazzResource;
+import org.lunarray.model.descriptor.validator.beanvalidation.BeanValidationValidator;
+import org.lunarray.model.generation.vaadin.model.Sample01;
+import org.lunarray.model.generation.vaadin.model.Sample02;
+import org.lunarray.model.generation.vaadin.model.SampleEnum;
+import org.lunarray.model.generation.vaadin.render.RenderContext;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.AbstractColumnGenerator;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.ColumnPlan;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.TextOutputPropertyStrategy;
+
+/**
+ * Tests the CSV exporter.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see CsvExporter
+ */
+public class CsvExporterTest {
+	/** The charset. */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	/** The model. */
+	private Model<Object> model;
+
+	/** Sets up the test. */
+	@Before
+	public void setup() throws Exception {
+		@SuppressWarnings("unchecked")
+		final SimpleClazzResource<Object> resource = new SimpleClazzResource<Object>(Sample01.class, Sample02.class, SampleEnum.class);
+		final BeanValidationValidator validator = new BeanValidationValidator();
+		final EnumDictionary dictionary = new EnumDictionary(null);
+		final ConverterTool converter = new DefaultConverterTool();
+		this.model = PresQualBuilder.createBuilder().resources(resource).extensions(validator, dictionary, converter).build();
+	}
+
+	/**
+	 * Test that rows are exported with the plans and quoted as needed.
+	 * 
+	 * @see CsvExporter#writeTo(java.io.OutputStream)
+	 */
+	@Test
+	public void testExport() throws Exception {
+		final List<ColumnPlan<?, Sample01>> plans = new ArrayList<ColumnPlan<?, Sample01>>();
+		plans.add(this.getPlan("testValue", String.class));
+		plans.add(this.getPlan("inlineValue2", Sample02.class));
+		final Sample01 quoted = new Sample01();
+		quoted.setTestValue("a \"b\", c");
+		quoted.setInlineValue2(null);
+		final List<Sample01> entities = new ArrayList<Sample01>(Sample01.DATA);
+		entities.add(quoted);
+		final CsvExporter<Sample01> exporter = new CsvExporter<Sample01>(new CollectionDataSource<Sample01>(entities), Arrays.asList(
+				"Value", "Relation"), plans, CsvExporterTest.UTF8, 2);
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		exporter.writeTo(stream);
+		final StringBuilder expected = new StringBuilder("Value,Relation\r\n");
+		for (final Sample01 sample : Sample01.DATA) {
+			expected.append(sample.getTestValue()).append(',').append(sample.getInlineValue2().getTestValue()).append("\r\n");
+		}
+		expected.append("\"a \"\"b\"\", c\",\r\n");
+		Assert.assertEquals(expected.toString(), new String(stream.toByteArray(), CsvExporterTest.UTF8));
+	}
+
+	/**
+	 * Test that rows are encoded across small buffers.
+	 * 
+	 * @see CsvExporter#read(ByteBuffer)
+	 */
+	@Test
+	public void testSmallBuffer() throws Exception {
+		final List<ColumnPlan<?, Sample01>> plans = new ArrayList<ColumnPlan<?, Sample01>>();
+		plans.add(this.getPlan("testValue", String.class));
+		final CsvExporter<Sample01> exporter = new CsvExporter<Sample01>(new CollectionDataSource<Sample01>(Sample01.DATA), null, plans,
+				CsvExporterTest.UTF8);
+		final ByteBuffer buffer = ByteBuffer.allocate(3);
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		while (exporter.read(buffer) >= 0) {
+			stream.write(buffer.array(), 0, buffer.position());
+			buffer.clear();
+		}
+		final StringBuilder expected = new StringBuilder();
+		for (final Sample01 sample : Sample01.DATA) {
+			expected.append(sample.getTestValue()).append("\r\n");
+		}
+		Assert.assertEquals(expected.toString(), new String(stream.toByteArray(), CsvExporterTest.UTF8));
+	}
+
+	/**
+	 * Test that the view source of a container exports in the sort order.
+	 * 
+	 * @see PagedEntityContainer#createViewSource()
+	 */
+	@Test
+	public void testSortedExport() throws Exception {
+		final ColumnPlan<String, Sample01> plan = this.getPlan("testValue", String.class);
+		final PagedEntityContainer<Sample01> container = new PagedEntityContainer<Sample01>(new CollectionDataSource<Sample01>(
+				Sample01.DATA));
+		container.addColumnPlan("testValue", plan);
+		container.sort(new Object[] { "testValue" }, new boolean[] { false });
+		final List<ColumnPlan<?, Sample01>> plans = new ArrayList<ColumnPlan<?, Sample01>>();
+		plans.add(plan);
+		final CsvExporter<Sample01> exporter = new CsvExporter<Sample01>(container.createViewSource(), null, plans,
+				CsvExporterTest.UTF8, 2);
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		exporter.writeTo(stream);
+		final StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < container.size(); i++) {
+			expected.append(((Sample01) container.getIdByIndex(i)).getTestValue()).append("\r\n");
+		}
+		Assert.assertEquals(Sample01.DATA.size(), container.size());
+		Assert.assertEquals(expected.toString(), new String(stream.toByteArray(), CsvExporterTest.UTF8));
+	}
+
+	/**
+	 * Gets the plan for a property.
+	 * 
+	 * @param name
+	 *            The property name.
+	 * @param type
+	 *            The property type.
+	 * @return The plan.
+	 * @param <P>
+	 *            The property type.
+	 */
+	@SuppressWarnings("unchecked")
+	private <P> ColumnPlan<P, Sample01> getPlan(final String name, final Class<P> type) {
+		final EntityDescriptor<Sample01> entity = this.model.getEntity(Sample01.class);
+		final PropertyDescriptor<P, Sample01> property = entity.getProperty(name, type);
+		final TextOutputPropertyStrategy.Factory factory = new TextOutputPropertyStrategy.Factory();
+		final AbstractColumnGenerator<P, Sample01> generator = (AbstractColumnGenerator<P, Sample01>) factory.createStrategy(property,
+				new RenderContext<Sample01>(this.model)).getGenerator();
+		return generator.getPlan();
+	}
+}
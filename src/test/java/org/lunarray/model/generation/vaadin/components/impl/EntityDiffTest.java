@@ -0,0 +1,176 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.lunarray.model.descriptor.builder.annotation.presentation.builder.PresQualBuilder;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.converter.def.DefaultConverterTool;
+import org.lunarray.model.descriptor.dictionary.enumeration.EnumDictionary;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.model.entity.EntityDescriptor;
+import org.lunarray.model.descriptor.model.entity.KeyedEntityDescriptor;
+import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
+import org.lunarray.model.descriptor.resource.simpleresource.SimpleClazzResource;
+import org.lunarray.model.descriptor.validator.beanvalidation.BeanValidationValidator;
+import org.lunarray.model.generation.vaadin.model.Sample01;
+import org.lunarray.model.generation.vaadin.model.Sample02;
+import org.lunarray.model.generation.vaadin.model.SampleEnum;
+import org.lunarray.model.generation.vaadin.render.RenderContext;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.AbstractColumnGenerator;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.ColumnPlan;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.TextOutputPropertyStrategy;
+
+/**
+ * Tests the entity diff.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see EntityDiff
+ */
+public class EntityDiffTest {
+	/** The model. */
+	private Model<Object> model;
+
+	/** Sets up the test. */
+	@Before
+	public void setup() throws Exception {
+		@SuppressWarnings("unchecked")
+		final SimpleClazzResource<Object> resource = new SimpleClazzResource<Object>(Sample01.class, Sample02.class, SampleEnum.class);
+		final BeanValidationValidator validator = new BeanValidationValidator();
+		final EnumDictionary dictionary = new EnumDictionary(null);
+		final ConverterTool converter = new DefaultConverterTool();
+		this.model = PresQualBuilder.createBuilder().resources(resource).extensions(validator, dictionary, converter).build();
+	}
+
+	/**
+	 * Test inserts, removals and moves.
+	 * 
+	 * @see EntityDiff#EntityDiff(List, List, PropertyDescriptor, java.util.Collection)
+	 */
+	@Test
+	public void testInsertRemoveMove() {
+		final List<String> previous = Arrays.asList("a", "b", "c", "d");
+		final List<String> current = Arrays.asList("a", "c", "b", "e");
+		final EntityDiff<String> diff = new EntityDiff<String>(previous, current, null, null);
+		Assert.assertEquals(1, diff.getInserted());
+		Assert.assertEquals(Collections.singletonList("d"), diff.getRemoved());
+		Assert.assertEquals(1, diff.getMoved());
+		Assert.assertEquals(Arrays.asList("a", "c", "b"), diff.getUpdated());
+		Assert.assertTrue(diff.isChanged());
+	}
+
+	/**
+	 * Test matching by key.
+	 * 
+	 * @see EntityDiff#EntityDiff(List, List, PropertyDescriptor, java.util.Collection)
+	 */
+	@Test
+	public void testMatchByKey() {
+		final Sample02 previous = new Sample02();
+		previous.setId("id");
+		previous.setTestValue("before");
+		final Sample02 current = new Sample02();
+		current.setId("id");
+		current.setTestValue("after");
+		final EntityDiff<Sample02> diff = new EntityDiff<Sample02>(Collections.singletonList(previous),
+				Collections.singletonList(current), this.getKeyProperty(), Collections.<ColumnPlan<?, Sample02>> emptyList());
+		Assert.assertEquals(0, diff.getInserted());
+		Assert.assertTrue(diff.getRemoved().isEmpty());
+		Assert.assertTrue(diff.getUpdated().isEmpty());
+		Assert.assertSame(current, diff.getReplaced().get(previous));
+	}
+
+	/**
+	 * Test that nothing changed if equal copies render identically.
+	 * 
+	 * @see EntityDiff#isChanged()
+	 */
+	@Test
+	public void testUnchanged() {
+		final List<Sample02> previous = Arrays.asList(this.createSample("id 1", "value 1"), this.createSample("id 2", "value 2"));
+		final List<Sample02> current = Arrays.asList(this.createSample("id 1", "value 1"), this.createSample("id 2", "value 2"));
+		final EntityDiff<Sample02> diff = new EntityDiff<Sample02>(previous, current, this.getKeyProperty(),
+				Collections.<ColumnPlan<?, Sample02>> singletonList(this.getPlan()));
+		Assert.assertFalse(diff.isChanged());
+	}
+
+	/**
+	 * Test that the same instance is updated, as it may have been modified in
+	 * place.
+	 * 
+	 * @see EntityDiff#getUpdated()
+	 */
+	@Test
+	public void testUpdatedInPlace() {
+		final Sample02 sample = this.createSample("id 1", "before");
+		final List<Sample02> previous = Collections.singletonList(sample);
+		sample.setTestValue("after");
+		final EntityDiff<Sample02> diff = new EntityDiff<Sample02>(previous, Collections.singletonList(sample), this.getKeyProperty(),
+				Collections.<ColumnPlan<?, Sample02>> singletonList(this.getPlan()));
+		Assert.assertEquals(Collections.singletonList(sample), diff.getUpdated());
+		Assert.assertTrue(diff.isChanged());
+	}
+
+	/**
+	 * Creates a sample.
+	 * 
+	 * @param id
+	 *            The id.
+	 * @param testValue
+	 *            The test value.
+	 * @return The sample.
+	 */
+	private Sample02 createSample(final String id, final String testValue) {
+		final Sample02 result = new Sample02();
+		result.setId(id);
+		result.setTestValue(testValue);
+		return result;
+	}
+
+	/**
+	 * Gets the key property of the sample.
+	 * 
+	 * @return The key property.
+	 */
+	@SuppressWarnings("unchecked")
+	private PropertyDescriptor<?, Sample02> getKeyProperty() {
+		final EntityDescriptor<Sample02> entity = this.model.getEntity(Sample02.class);
+		return entity.adapt(KeyedEntityDescriptor.class).getKeyProperty();
+	}
+
+	/**
+	 * Gets the plan for the test value.
+	 * 
+	 * @return The plan.
+	 */
+	@SuppressWarnings("unchecked")
+	private ColumnPlan<String, Sample02> getPlan() {
+		final EntityDescriptor<Sample02> entity = this.model.getEntity(Sample02.class);
+		final PropertyDescriptor<String, Sample02> property = entity.getProperty("testValue", String.class);
+		final TextOutputPropertyStrategy.Factory factory = new TextOutputPropertyStrategy.Factory();
+		final AbstractColumnGenerator<String, Sample02> generator = (AbstractColumnGenerator<String, Sample02>) factory.createStrategy(
+				property, new RenderContext<Sample02>(this.model)).getGenerator();
+		return generator.getPlan();
+	}
+}
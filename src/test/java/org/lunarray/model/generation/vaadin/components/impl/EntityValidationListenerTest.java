@@ -0,0 +1,117 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import com.vaadin.ui.AbstractField;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.lunarray.model.descriptor.builder.annotation.presentation.builder.PresQualBuilder;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.converter.def.DefaultConverterTool;
+import org.lunarray.model.descriptor.dictionary.enumeration.EnumDictionary;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.resource.simpleresource.SimpleClazzResource;
+import org.lunarray.model.descriptor.validator.beanvalidation.BeanValidationValidator;
+import org.lunarray.model.generation.vaadin.model.Sample01;
+import org.lunarray.model.generation.vaadin.model.Sample02;
+import org.lunarray.model.generation.vaadin.model.SampleEnum;
+
+/**
+ * Tests the entity validation listener.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see EntityValidationListener
+ */
+public class EntityValidationListenerTest {
+	/** The model. */
+	private Model<Object> model;
+
+	/** Sets up the test. */
+	@Before
+	public void setup() throws Exception {
+		@SuppressWarnings("unchecked")
+		final SimpleClazzResource<Object> resource = new SimpleClazzResource<Object>(Sample01.class, Sample02.class, SampleEnum.class);
+		final BeanValidationValidator validator = new BeanValidationValidator();
+		final EnumDictionary dictionary = new EnumDictionary(null);
+		final ConverterTool converter = new DefaultConverterTool();
+		this.model = PresQualBuilder.createBuilder().resources(resource).extensions(validator, dictionary, converter).build();
+	}
+
+	/**
+	 * Test that the dependencies declared on the builder are applied.
+	 * 
+	 * @see EntityValidationListener#addDependency(String, String)
+	 */
+	@Test
+	public void testAddDependency() {
+		final FormBuilder<Object, Sample01> builder = FormBuilder.createBuilder();
+		final FormComponentImpl<Object, Sample01> form = (FormComponentImpl<Object, Sample01>) builder.model(this.model)
+				.entityKey("Sample01").entity(new Sample01()).dependency("someDate", "someCalendar").build();
+		final EntityValidationListener<Object, Sample01> listener = form.getValidationListener();
+		Assert.assertTrue(listener.getDependencies().get("someDate").contains("someCalendar"));
+	}
+
+	/**
+	 * Test that repeated submits of a valid entity leave no violations.
+	 * 
+	 * @see EntityValidationListener#buttonClick(com.vaadin.ui.Button.ClickEvent)
+	 */
+	@Test
+	public void testButtonClick() {
+		final FormComponentImpl<Object, Sample01> form = new FormComponentImpl<Object, Sample01>(this.model, "Sample01", new Sample01());
+		final EntityValidationListener<Object, Sample01> listener = form.getValidationListener();
+		listener.buttonClick(null);
+		Assert.assertTrue(listener.getViolations().isEmpty());
+		form.getStrategyFactory().getDescriptors().get("testValue3").setValue("value3");
+		listener.buttonClick(null);
+		Assert.assertTrue(listener.getViolations().isEmpty());
+		form.reset();
+		listener.buttonClick(null);
+		Assert.assertTrue(listener.getViolations().isEmpty());
+	}
+
+	/**
+	 * Test that violations are kept by property path, and that only the
+	 * violations of changed properties are updated on later submits.
+	 * 
+	 * @see EntityValidationListener#buttonClick(com.vaadin.ui.Button.ClickEvent)
+	 */
+	@Test
+	public void testButtonClickConstrained() {
+		final Sample02 sample = new Sample02();
+		sample.setId("id");
+		final FormComponentImpl<Object, Sample02> form = new FormComponentImpl<Object, Sample02>(this.model, "Sample02", null, false,
+				false, sample);
+		final EntityValidationListener<Object, Sample02> listener = form.getValidationListener();
+		final AbstractField field = (AbstractField) form.getForm().getField("testValue");
+		listener.buttonClick(null);
+		Assert.assertEquals(1, listener.getViolations().size());
+		Assert.assertTrue(listener.getViolations().containsKey("testValue"));
+		Assert.assertNotNull(field.getComponentError());
+		form.getStrategyFactory().getDescriptors().get("othervalue").setValue(Integer.valueOf(3));
+		listener.buttonClick(null);
+		Assert.assertTrue(listener.getViolations().containsKey("testValue"));
+		Assert.assertNotNull(field.getComponentError());
+		form.getStrategyFactory().getDescriptors().get("testValue").setValue("value");
+		listener.buttonClick(null);
+		Assert.assertTrue(listener.getViolations().isEmpty());
+		Assert.assertNull(field.getComponentError());
+	}
+}
@@ -0,0 +1,155 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.vaadin.ui.AbstractField;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.lunarray.model.descriptor.builder.annotation.presentation.builder.PresQualBuilder;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.converter.def.DefaultConverterTool;
+import org.lunarray.model.descriptor.dictionary.enumeration.EnumDictionary;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.resource.simpleresource.SimpleClazzResource;
+import org.lunarray.model.descriptor.validator.beanvalidation.BeanValidationValidator;
+import org.lunarray.model.generation.vaadin.components.PropertyChange;
+import org.lunarray.model.generation.vaadin.model.Sample01;
+import org.lunarray.model.generation.vaadin.model.Sample02;
+import org.lunarray.model.generation.vaadin.model.SampleEnum;
+import org.lunarray.model.generation.vaadin.render.factories.form.impl.property.AbstractPropertyDescriptorImpl;
+
+/**
+ * Tests the form component.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see FormComponentImpl
+ */
+public class FormComponentImplTest {
+	/** The model. */
+	private Model<Object> model;
+
+	/** Sets up the test. */
+	@Before
+	public void setup() throws Exception {
+		@SuppressWarnings("unchecked")
+		final SimpleClazzResource<Object> resource = new SimpleClazzResource<Object>(Sample01.class, Sample02.class, SampleEnum.class);
+		final BeanValidationValidator validator = new BeanValidationValidator();
+		final EnumDictionary dictionary = new EnumDictionary(null);
+		final ConverterTool converter = new DefaultConverterTool();
+		this.model = PresQualBuilder.createBuilder().resources(resource).extensions(validator, dictionary, converter).build();
+	}
+
+	/**
+	 * Test that fields are validated on the executor, and on commit, polling
+	 * while validations are pending.
+	 * 
+	 * @see FormComponentImpl#enableAsyncValidation(ScheduledExecutorService, long)
+	 */
+	@Test
+	public void testAsyncValidation() {
+		final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+		try {
+			final FormComponentImpl<Object, Sample01> form = new FormComponentImpl<Object, Sample01>(this.model, "Sample01", null, false,
+					false, new Sample01());
+			form.enableAsyncValidation(executor, 1000L);
+			final AbstractField field = (AbstractField) form.getForm().getField("testValue3");
+			Assert.assertFalse(field.isValidationVisible());
+			Assert.assertFalse(form.getAsyncValidation().getIndicator().isVisible());
+			field.setValue("value3");
+			Assert.assertTrue(form.getAsyncValidation().isPending());
+			Assert.assertTrue(form.getAsyncValidation().getIndicator().isVisible());
+			Assert.assertTrue(field.isValid());
+			Assert.assertFalse(form.getAsyncValidation().isPending());
+			Assert.assertFalse(form.getAsyncValidation().getIndicator().isVisible());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Test that only properties written with another value are changed.
+	 * 
+	 * @see FormComponentImpl#getChanges()
+	 */
+	@Test
+	public void testChanges() {
+		final FormComponentImpl<Object, Sample01> form = new FormComponentImpl<Object, Sample01>(this.model, "Sample01", null, false,
+				false, new Sample01());
+		final AbstractPropertyDescriptorImpl<?, Sample01> descriptor = form.getStrategyFactory().getDescriptors().get("testValue3");
+		descriptor.setValue(descriptor.getValue());
+		Assert.assertFalse(form.isDirty());
+		descriptor.setValue("value3");
+		descriptor.setValue("value4");
+		Assert.assertTrue(form.isDirty());
+		Assert.assertEquals(1, form.getChanges().size());
+		final PropertyChange<?> change = form.getChanges().get("testValue3");
+		Assert.assertNull(change.getOldValue());
+		Assert.assertEquals("value4", change.getNewValue());
+		form.setEntity(new Sample01());
+		Assert.assertFalse(form.isDirty());
+	}
+
+	/**
+	 * Test that rebinding after a failed validation clears the error markers
+	 * of the previous entity.
+	 * 
+	 * @see FormComponentImpl#setEntity(Object)
+	 */
+	@Test
+	public void testRebindClearsErrors() {
+		final FormComponentImpl<Object, Sample02> form = new FormComponentImpl<Object, Sample02>(this.model, "Sample02", null, false,
+				false, new Sample02());
+		final AbstractField field = (AbstractField) form.getForm().getField("testValue");
+		form.getValidationListener().buttonClick(null);
+		Assert.assertFalse(form.getValidationListener().getViolations().isEmpty());
+		Assert.assertNotNull(field.getComponentError());
+		final Sample02 valid = new Sample02();
+		valid.setId("id");
+		valid.setTestValue("value");
+		form.setEntity(valid);
+		Assert.assertNull(field.getComponentError());
+		Assert.assertTrue(form.getValidationListener().getViolations().isEmpty());
+	}
+
+	/**
+	 * Test that embedded sections are rendered once expanded.
+	 * 
+	 * @see FormComponentImpl#expandSection(Object)
+	 */
+	@Test
+	public void testSectionsCollapsed() {
+		final FormComponentImpl<Object, Sample01> eager = new FormComponentImpl<Object, Sample01>(this.model, "Sample01", null, false,
+				false, new Sample01());
+		final FormComponentImpl<Object, Sample01> collapsed = new FormComponentImpl<Object, Sample01>(this.model, "Sample01", null,
+				false, true, new Sample01());
+		Assert.assertTrue(eager.getCollapsedSections().isEmpty());
+		Assert.assertEquals(1, collapsed.getCollapsedSections().size());
+		final CollapsedSection<Object, Sample01> section = collapsed.getCollapsedSections().get(0);
+		Assert.assertEquals("inlineValue", section.getProperty().getName());
+		Assert.assertTrue(collapsed.getProperties().size() < eager.getProperties().size());
+		Assert.assertTrue(collapsed.expandSection(section.getProperty()));
+		Assert.assertTrue(section.isExpanded());
+		Assert.assertFalse(collapsed.expandSection(section.getProperty()));
+		Assert.assertEquals(eager.getProperties(), collapsed.getProperties());
+	}
+}
@@ -0,0 +1,100 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import com.vaadin.ui.VerticalLayout;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.lunarray.model.descriptor.builder.annotation.presentation.builder.PresQualBuilder;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.converter.def.DefaultConverterTool;
+import org.lunarray.model.descriptor.dictionary.enumeration.EnumDictionary;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.resource.simpleresource.SimpleClazzResource;
+import org.lunarray.model.descriptor.validator.beanvalidation.BeanValidationValidator;
+import org.lunarray.model.generation.vaadin.components.FormComponent;
+import org.lunarray.model.generation.vaadin.model.Qualifier01;
+import org.lunarray.model.generation.vaadin.model.Sample01;
+import org.lunarray.model.generation.vaadin.model.Sample02;
+import org.lunarray.model.generation.vaadin.model.SampleEnum;
+
+/**
+ * Tests the form pool.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see FormComponentPool
+ */
+public class FormComponentPoolTest {
+	/** The model. */
+	private Model<Object> model;
+
+	/** Sets up the test. */
+	@Before
+	public void setup() throws Exception {
+		@SuppressWarnings("unchecked")
+		final SimpleClazzResource<Object> resource = new SimpleClazzResource<Object>(Sample01.class, Sample02.class, SampleEnum.class);
+		final BeanValidationValidator validator = new BeanValidationValidator();
+		final EnumDictionary dictionary = new EnumDictionary(null);
+		final ConverterTool converter = new DefaultConverterTool();
+		this.model = PresQualBuilder.createBuilder().resources(resource).extensions(validator, dictionary, converter).build();
+	}
+
+	/**
+	 * Test that released forms are reused and rebound.
+	 * 
+	 * @see FormComponentPool#acquire(String, Class, Object)
+	 */
+	@Test
+	public void testAcquire() {
+		final FormComponentPool<Object> pool = new FormComponentPool<Object>(this.model);
+		final FormComponent<Object, Sample02> form = pool.acquire("Sample02", null, Sample02.SAMPLE_01);
+		Assert.assertEquals(1, pool.getMisses());
+		final VerticalLayout layout = new VerticalLayout();
+		layout.addComponent(form);
+		Assert.assertTrue(pool.release(form));
+		Assert.assertNull(form.getParent());
+		Assert.assertEquals(1, pool.getSize());
+		Assert.assertNotSame(form, pool.acquire("Sample02", Qualifier01.class, Sample02.SAMPLE_02));
+		final FormComponent<Object, Sample02> reused = pool.acquire("Sample02", null, Sample02.SAMPLE_02);
+		Assert.assertSame(form, reused);
+		Assert.assertSame(Sample02.SAMPLE_02, reused.getEntity());
+		Assert.assertEquals(1, pool.getHits());
+		Assert.assertEquals(2, pool.getMisses());
+		Assert.assertEquals(0, pool.getSize());
+	}
+
+	/**
+	 * Test that the least recently released forms are evicted.
+	 * 
+	 * @see FormComponentPool#release(FormComponent)
+	 */
+	@Test
+	public void testRelease() {
+		final FormComponentPool<Object> pool = new FormComponentPool<Object>(this.model, 1);
+		final FormComponent<Object, Sample02> first = pool.acquire("Sample02", null, Sample02.SAMPLE_01);
+		final FormComponent<Object, Sample02> second = pool.acquire("Sample02", null, Sample02.SAMPLE_02);
+		pool.release(first);
+		pool.release(second);
+		Assert.assertEquals(1, pool.getSize());
+		Assert.assertEquals(1, pool.getEvictions());
+		Assert.assertSame(second, pool.acquire("Sample02", null, Sample02.SAMPLE_03));
+		Assert.assertEquals(1, pool.getHits());
+	}
+}
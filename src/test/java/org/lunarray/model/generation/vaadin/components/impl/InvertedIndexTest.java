@@ -0,0 +1,144 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.lunarray.model.descriptor.builder.annotation.presentation.builder.PresQualBuilder;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.converter.def.DefaultConverterTool;
+import org.lunarray.model.descriptor.dictionary.enumeration.EnumDictionary;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.model.entity.EntityDescriptor;
+import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
+import org.lunarray.model.descriptor.resource.simpleresource.SimpleClazzResource;
+import org.lunarray.model.descriptor.validator.beanvalidation.BeanValidationValidator;
+import org.lunarray.model.generation.vaadin.model.Sample01;
+import org.lunarray.model.generation.vaadin.model.Sample02;
+import org.lunarray.model.generation.vaadin.model.SampleEnum;
+import org.lunarray.model.generation.vaadin.render.RenderContext;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.AbstractColumnGenerator;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.ColumnPlan;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.TextOutputPropertyStrategy;
+
+/**
+ * Tests the inverted index.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see InvertedIndex
+ */
+public class InvertedIndexTest {
+	/** The index. */
+	private InvertedIndex<Sample02> index;
+
+	/** Sets up the test. */
+	@Before
+	public void setup() throws Exception {
+		@SuppressWarnings("unchecked")
+		final SimpleClazzResource<Object> resource = new SimpleClazzResource<Object>(Sample01.class, Sample02.class, SampleEnum.class);
+		final BeanValidationValidator validator = new BeanValidationValidator();
+		final EnumDictionary dictionary = new EnumDictionary(null);
+		final ConverterTool converter = new DefaultConverterTool();
+		final Model<Object> model = PresQualBuilder.createBuilder().resources(resource).extensions(validator, dictionary, converter)
+				.build();
+		this.index = new InvertedIndex<Sample02>(Collections.<ColumnPlan<?, Sample02>> singletonList(this.getPlan(model)),
+				Locale.ENGLISH);
+	}
+
+	/**
+	 * Test that removed and replaced entities are reflected in searches.
+	 * 
+	 * @see InvertedIndex#remove(Object)
+	 * @see InvertedIndex#replace(Object, Object)
+	 */
+	@Test
+	public void testIncrementalUpdate() {
+		final Sample02 first = this.createSample("1", "Red apple");
+		final Sample02 second = this.createSample("2", "Green apple");
+		final Sample02 replacement = this.createSample("3", "Green apple");
+		this.index.add(first);
+		this.index.add(second);
+		this.index.remove(first);
+		this.index.replace(second, replacement);
+		Assert.assertEquals(Collections.singletonList(replacement), this.index.search("apple"));
+		Assert.assertFalse(this.index.contains(second));
+		Assert.assertEquals(1, this.index.size());
+	}
+
+	/**
+	 * Test that every query token must prefix a token, and that results are
+	 * in display order.
+	 * 
+	 * @see InvertedIndex#search(String)
+	 */
+	@Test
+	public void testSearch() {
+		final Sample02 first = this.createSample("1", "Red apple");
+		final Sample02 second = this.createSample("2", "Green apple");
+		final Sample02 third = this.createSample("3", "Green pear");
+		final List<Sample02> entities = Arrays.asList(first, second, third);
+		for (final Sample02 entity : entities) {
+			this.index.add(entity);
+		}
+		this.index.setOrder(Arrays.asList(third, second, first));
+		Assert.assertEquals(Arrays.asList(second, first), this.index.search("APP"));
+		Assert.assertEquals(Arrays.asList(third, second), this.index.search("gree"));
+		Assert.assertEquals(Collections.singletonList(second), this.index.search("apple, green"));
+		Assert.assertTrue(this.index.search("banana").isEmpty());
+		Assert.assertNull(this.index.search(" "));
+	}
+
+	/**
+	 * Creates a sample.
+	 * 
+	 * @param id
+	 *            The id.
+	 * @param value
+	 *            The test value.
+	 * @return The sample.
+	 */
+	private Sample02 createSample(final String id, final String value) {
+		final Sample02 sample = new Sample02();
+		sample.setId(id);
+		sample.setTestValue(value);
+		return sample;
+	}
+
+	/**
+	 * Gets the plan for the test value.
+	 * 
+	 * @param model
+	 *            The model.
+	 * @return The plan.
+	 */
+	@SuppressWarnings("unchecked")
+	private ColumnPlan<String, Sample02> getPlan(final Model<Object> model) {
+		final EntityDescriptor<Sample02> entity = model.getEntity(Sample02.class);
+		final PropertyDescriptor<String, Sample02> property = entity.getProperty("testValue", String.class);
+		final TextOutputPropertyStrategy.Factory factory = new TextOutputPropertyStrategy.Factory();
+		final AbstractColumnGenerator<String, Sample02> generator = (AbstractColumnGenerator<String, Sample02>) factory.createStrategy(
+				property, new RenderContext<Sample02>(model)).getGenerator();
+		return generator.getPlan();
+	}
+}
@@ -0,0 +1,163 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the iterable data source.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see IterableDataSource
+ */
+public class IterableDataSourceTest {
+	/** The iterable. */
+	private CountingIterable iterable;
+
+	/** Sets up the test. */
+	@Before
+	public void setup() {
+		this.iterable = new CountingIterable(100);
+	}
+
+	/**
+	 * Test that fetching forward continues the same iterator, and fetching
+	 * backward starts a new one.
+	 * 
+	 * @see IterableDataSource#fetch(int, int)
+	 */
+	@Test
+	public void testFetch() {
+		final IterableDataSource<Integer> source = new IterableDataSource<Integer>(this.iterable, 100);
+		Assert.assertEquals(Arrays.asList(Integer.valueOf(0), Integer.valueOf(1)), source.fetch(0, 2));
+		Assert.assertEquals(Arrays.asList(Integer.valueOf(50), Integer.valueOf(51)), source.fetch(50, 2));
+		Assert.assertEquals(1, this.iterable.getIterators());
+		Assert.assertEquals(Arrays.asList(Integer.valueOf(10)), source.fetch(10, 1));
+		Assert.assertEquals(2, this.iterable.getIterators());
+	}
+
+	/**
+	 * Test that a size hint is corrected once the iterator is exhausted.
+	 * 
+	 * @see IterableDataSource#size()
+	 */
+	@Test
+	public void testSizeHint() {
+		final IterableDataSource<Integer> source = new IterableDataSource<Integer>(this.iterable, 1000);
+		Assert.assertEquals(1000, source.size());
+		Assert.assertEquals(10, source.fetch(90, 20).size());
+		Assert.assertEquals(100, source.size());
+		Assert.assertEquals(1, this.iterable.getIterators());
+	}
+
+	/**
+	 * Test that a size hint is raised as the iterator passes it.
+	 * 
+	 * @see IterableDataSource#size()
+	 */
+	@Test
+	public void testSizeHintTooSmall() {
+		final IterableDataSource<Integer> source = new IterableDataSource<Integer>(this.iterable, 10);
+		Assert.assertEquals(20, source.fetch(0, 20).size());
+		Assert.assertEquals(21, source.size());
+		Assert.assertEquals(20, source.fetch(20, 20).size());
+		Assert.assertEquals(41, source.size());
+		Assert.assertEquals(60, source.fetch(40, 100).size());
+		Assert.assertEquals(100, source.size());
+		Assert.assertEquals(1, this.iterable.getIterators());
+	}
+
+	/**
+	 * Test that the entities are counted without a size hint.
+	 * 
+	 * @see IterableDataSource#size()
+	 */
+	@Test
+	public void testSizeWithoutHint() {
+		final IterableDataSource<Integer> source = new IterableDataSource<Integer>(this.iterable);
+		Assert.assertEquals(100, source.size());
+		Assert.assertEquals(100, source.size());
+		Assert.assertEquals(1, this.iterable.getIterators());
+	}
+
+	/**
+	 * An iterable of numbers that counts its iterators.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private static final class CountingIterable
+			implements Iterable<Integer> {
+
+		/** The amount of iterators. */
+		private int iterators;
+		/** The size. */
+		private final int size;
+
+		/**
+		 * Constructs the iterable.
+		 * 
+		 * @param size
+		 *            The size.
+		 */
+		public CountingIterable(final int size) {
+			this.size = size;
+		}
+
+		/**
+		 * Gets the amount of iterators.
+		 * 
+		 * @return The amount.
+		 */
+		public int getIterators() {
+			return this.iterators;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public Iterator<Integer> iterator() {
+			this.iterators++;
+			return new Iterator<Integer>() {
+				/** The next number. */
+				private int next;
+
+				/** {@inheritDoc} */
+				@Override
+				public boolean hasNext() {
+					return this.next < CountingIterable.this.size;
+				}
+
+				/** {@inheritDoc} */
+				@Override
+				public Integer next() {
+					return Integer.valueOf(this.next++);
+				}
+
+				/** {@inheritDoc} */
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+}
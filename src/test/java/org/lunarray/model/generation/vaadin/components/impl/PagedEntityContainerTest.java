@@ -0,0 +1,339 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.vaadin.data.Container;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.lunarray.model.generation.vaadin.components.TableDataSource;
+
+/**
+ * Tests the paged entity container.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see PagedEntityContainer
+ */
+public class PagedEntityContainerTest {
+	/** The container. */
+	private PagedEntityContainer<Integer> container;
+	/** The data source. */
+	private CountingDataSource dataSource;
+
+	/** Sets up the test. */
+	@Before
+	public void setup() {
+		this.dataSource = new CountingDataSource(1000);
+		this.container = new PagedEntityContainer<Integer>(this.dataSource, 10, 2);
+	}
+
+	/**
+	 * Test that ids that were never seen are only looked for in the first
+	 * rows, without indexing the data source.
+	 * 
+	 * @see PagedEntityContainer#containsId(Object)
+	 */
+	@Test
+	public void testContainsUnseenId() {
+		Assert.assertTrue(this.container.containsId(Integer.valueOf(15)));
+		Assert.assertEquals(15, this.container.indexOfId(Integer.valueOf(15)));
+		Assert.assertFalse(this.container.containsId(Integer.valueOf(999)));
+		Assert.assertEquals(-1, this.container.indexOfId(Integer.valueOf(999)));
+		Assert.assertNull(this.container.getItem(Integer.valueOf(1000)));
+		Assert.assertFalse(this.container.containsId(null));
+		Assert.assertEquals(5 * 20, this.dataSource.getFetched());
+	}
+
+	/**
+	 * Test that only the pages that are accessed are fetched.
+	 * 
+	 * @see PagedEntityContainer#getIdByIndex(int)
+	 */
+	@Test
+	public void testFetchesOnlyAccessedPages() {
+		Assert.assertEquals(1000, this.container.size());
+		Assert.assertEquals(Integer.valueOf(505), this.container.getIdByIndex(505));
+		Assert.assertEquals(Integer.valueOf(509), this.container.getIdByIndex(509));
+		Assert.assertEquals(1, this.dataSource.getFetches());
+		Assert.assertEquals(10, this.dataSource.getFetched());
+	}
+
+	/**
+	 * Test the index of an item.
+	 * 
+	 * @see PagedEntityContainer#indexOfId(Object)
+	 */
+	@Test
+	public void testIndexOfId() {
+		this.container.getIdByIndex(42);
+		Assert.assertEquals(42, this.container.indexOfId(Integer.valueOf(42)));
+		Assert.assertEquals(Integer.valueOf(43), this.container.nextItemId(Integer.valueOf(42)));
+		Assert.assertEquals(Integer.valueOf(41), this.container.prevItemId(Integer.valueOf(42)));
+	}
+
+	/**
+	 * Test out of range access.
+	 * 
+	 * @see PagedEntityContainer#getIdByIndex(int)
+	 */
+	@Test
+	public void testOutOfRange() {
+		Assert.assertNull(this.container.getIdByIndex(1000));
+		Assert.assertNull(this.container.getIdByIndex(-1));
+		Assert.assertEquals(Integer.valueOf(999), this.container.lastItemId());
+	}
+
+	/**
+	 * Test that pages are evicted together with the indexes of their ids.
+	 * 
+	 * @see PagedEntityContainer#getIdByIndex(int)
+	 */
+	@Test
+	public void testPagesEvicted() {
+		this.container.getIdByIndex(500);
+		this.container.getIdByIndex(600);
+		this.container.getIdByIndex(700);
+		Assert.assertEquals(3, this.dataSource.getFetches());
+		Assert.assertTrue(this.container.containsId(Integer.valueOf(600)));
+		Assert.assertTrue(this.container.containsId(Integer.valueOf(700)));
+		Assert.assertEquals(3, this.dataSource.getFetches());
+		Assert.assertFalse(this.container.containsId(Integer.valueOf(500)));
+		Assert.assertEquals(4, this.dataSource.getFetches());
+		this.container.getIdByIndex(500);
+		Assert.assertEquals(5, this.dataSource.getFetches());
+		Assert.assertEquals(500, this.container.indexOfId(Integer.valueOf(500)));
+		Assert.assertEquals(5, this.dataSource.getFetches());
+	}
+
+	/**
+	 * Test that a size hint that is too large is corrected once the data
+	 * source runs out, and announced only once the table is done reading.
+	 * 
+	 * @see PagedEntityContainer#size()
+	 * @see PagedEntityContainer#fireSizeCorrection()
+	 */
+	@Test
+	public void testSizeHintTooLarge() {
+		final PagedEntityContainer<Integer> hinted = new PagedEntityContainer<Integer>(new IterableDataSource<Integer>(
+				PagedEntityContainerTest.createNumbers(25), 50), 10, 2);
+		final CountingListener listener = new CountingListener();
+		hinted.addListener(listener);
+		Assert.assertEquals(50, hinted.size());
+		Assert.assertNull(hinted.getIdByIndex(25));
+		Assert.assertEquals(25, hinted.size());
+		Assert.assertEquals(0, listener.getChanges());
+		hinted.fireSizeCorrection();
+		Assert.assertEquals(1, listener.getChanges());
+		hinted.fireSizeCorrection();
+		Assert.assertEquals(1, listener.getChanges());
+	}
+
+	/**
+	 * Test that a size hint that is too small is raised as the data source
+	 * passes it.
+	 * 
+	 * @see PagedEntityContainer#size()
+	 */
+	@Test
+	public void testSizeHintTooSmall() {
+		final PagedEntityContainer<Integer> hinted = new PagedEntityContainer<Integer>(new IterableDataSource<Integer>(
+				PagedEntityContainerTest.createNumbers(25), 5), 10, 2);
+		final CountingListener listener = new CountingListener();
+		hinted.addListener(listener);
+		Assert.assertEquals(5, hinted.size());
+		Assert.assertEquals(Integer.valueOf(0), hinted.getIdByIndex(0));
+		Assert.assertEquals(11, hinted.size());
+		hinted.fireSizeCorrection();
+		Assert.assertEquals(Integer.valueOf(10), hinted.getIdByIndex(10));
+		hinted.fireSizeCorrection();
+		Assert.assertEquals(Integer.valueOf(20), hinted.getIdByIndex(20));
+		hinted.fireSizeCorrection();
+		Assert.assertEquals(25, hinted.size());
+		Assert.assertEquals(3, listener.getChanges());
+	}
+
+	/**
+	 * Test that an unknown id does not restart a streaming data source.
+	 * 
+	 * @see PagedEntityContainer#containsId(Object)
+	 */
+	@Test
+	public void testUnseenIdOnStream() {
+		final CountingIterable iterable = new CountingIterable(PagedEntityContainerTest.createNumbers(100));
+		final PagedEntityContainer<Integer> streamed = new PagedEntityContainer<Integer>(new IterableDataSource<Integer>(iterable, 100),
+				10, 2);
+		Assert.assertEquals(Integer.valueOf(50), streamed.getIdByIndex(50));
+		Assert.assertEquals(1, iterable.getIterators());
+		Assert.assertFalse(streamed.containsId(Integer.valueOf(3)));
+		Assert.assertEquals(Integer.valueOf(60), streamed.getIdByIndex(60));
+		Assert.assertEquals(1, iterable.getIterators());
+	}
+
+	/**
+	 * Creates a list of numbers.
+	 * 
+	 * @param size
+	 *            The amount of numbers.
+	 * @return The numbers, from zero.
+	 */
+	private static List<Integer> createNumbers(final int size) {
+		final List<Integer> result = new ArrayList<Integer>(size);
+		for (int i = 0; i < size; i++) {
+			result.add(Integer.valueOf(i));
+		}
+		return result;
+	}
+
+	/**
+	 * A data source that counts the fetches.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private static final class CountingDataSource
+			implements TableDataSource<Integer> {
+
+		/** Serial id. */
+		private static final long serialVersionUID = 1L;
+		/** The amount of entities fetched. */
+		private int fetched;
+		/** The amount of fetches. */
+		private int fetches;
+		/** The size. */
+		private final int size;
+
+		/**
+		 * Constructs the source.
+		 * 
+		 * @param size
+		 *            The size.
+		 */
+		public CountingDataSource(final int size) {
+			this.size = size;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public List<Integer> fetch(final int offset, final int limit) {
+			final List<Integer> result = new ArrayList<Integer>();
+			for (int i = offset; i < Math.min(this.size, offset + limit); i++) {
+				result.add(Integer.valueOf(i));
+			}
+			this.fetches++;
+			this.fetched += result.size();
+			return result;
+		}
+
+		/**
+		 * Gets the amount of entities fetched.
+		 * 
+		 * @return The amount.
+		 */
+		public int getFetched() {
+			return this.fetched;
+		}
+
+		/**
+		 * Gets the amount of fetches.
+		 * 
+		 * @return The amount.
+		 */
+		public int getFetches() {
+			return this.fetches;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int size() {
+			return this.size;
+		}
+	}
+
+	/**
+	 * An iterable that counts its iterators.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private static final class CountingIterable
+			implements Iterable<Integer> {
+
+		/** The amount of iterators. */
+		private int iterators;
+		/** The numbers. */
+		private final List<Integer> numbers;
+
+		/**
+		 * Constructs the iterable.
+		 * 
+		 * @param numbers
+		 *            The numbers.
+		 */
+		public CountingIterable(final List<Integer> numbers) {
+			this.numbers = numbers;
+		}
+
+		/**
+		 * Gets the amount of iterators.
+		 * 
+		 * @return The amount.
+		 */
+		public int getIterators() {
+			return this.iterators;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public Iterator<Integer> iterator() {
+			this.iterators++;
+			return this.numbers.iterator();
+		}
+	}
+
+	/**
+	 * A listener that counts the item set changes.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private static final class CountingListener
+			implements Container.ItemSetChangeListener {
+
+		/** Serial id. */
+		private static final long serialVersionUID = 1L;
+		/** The amount of changes. */
+		private int changes;
+
+		/** {@inheritDoc} */
+		@Override
+		public void containerItemSetChange(final Container.ItemSetChangeEvent event) {
+			this.changes++;
+		}
+
+		/**
+		 * Gets the amount of changes.
+		 * 
+		 * @return The amount.
+		 */
+		public int getChanges() {
+			return this.changes;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.components.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.vaadin.ui.Table.CellStyleGenerator;
+import com.vaadin.ui.Table.ColumnGenerator;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.lunarray.model.descriptor.builder.annotation.presentation.builder.PresQualBuilder;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.converter.def.DefaultConverterTool;
+import org.lunarray.model.descriptor.dictionary.enumeration.EnumDictionary;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.resource.simpleresource.SimpleClazzResource;
+import org.lunarray.model.descriptor.validator.beanvalidation.BeanValidationValidator;
+import org.lunarray.model.generation.vaadin.components.TableRenderMode;
+import org.lunarray.model.generation.vaadin.model.Sample01;
+import org.lunarray.model.generation.vaadin.model.Sample02;
+import org.lunarray.model.generation.vaadin.model.SampleEnum;
+import org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components.GlyphColumnGenerator;
+
+/**
+ * Tests the table component.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see TableComponentImpl
+ */
+public class TableComponentImplTest {
+	/** The model. */
+	private Model<Object> model;
+
+	/** Sets up the test. */
+	@Before
+	public void setup() throws Exception {
+		@SuppressWarnings("unchecked")
+		final SimpleClazzResource<Object> resource = new SimpleClazzResource<Object>(Sample01.class, Sample02.class, SampleEnum.class);
+		final BeanValidationValidator validator = new BeanValidationValidator();
+		final EnumDictionary dictionary = new EnumDictionary(null);
+		final ConverterTool converter = new DefaultConverterTool();
+		this.model = PresQualBuilder.createBuilder().resources(resource).extensions(validator, dictionary, converter).build();
+	}
+
+	/**
+	 * Test that columns outside of the projection are not rendered, and are
+	 * rendered once shown.
+	 * 
+	 * @see TableComponentImpl#setColumns(java.util.List)
+	 * @see org.lunarray.model.generation.vaadin.render.factories.table.vaadin.TablePropertyRenderStrategyFactoryImpl#renderProperty
+	 */
+	@Test
+	public void testColumnProjection() {
+		final TableComponentImpl<Object, Sample01> table = new TableComponentImpl<Object, Sample01>(this.model, "Sample01",
+				new CollectionDataSource<Sample01>(Sample01.DATA), TableRenderMode.TEXT, Collections.singletonList("testValue3"));
+		Assert.assertTrue(table.getContainer().getContainerPropertyIds().contains("testValue3"));
+		Assert.assertFalse(table.getContainer().getContainerPropertyIds().contains("testBoolean"));
+		Assert.assertArrayEquals(new Object[] { "testValue3" }, table.getTable().getVisibleColumns());
+		table.setColumns(Arrays.asList("testBoolean", "testValue3"));
+		Assert.assertTrue(table.getContainer().getContainerPropertyIds().contains("testBoolean"));
+		Assert.assertArrayEquals(new Object[] { "testBoolean", "testValue3" }, table.getTable().getVisibleColumns());
+		table.setColumns(Collections.singletonList("testValue3"));
+		Assert.assertTrue(table.getContainer().getContainerPropertyIds().contains("testBoolean"));
+		Assert.assertArrayEquals(new Object[] { "testValue3" }, table.getTable().getVisibleColumns());
+	}
+
+	/**
+	 * Test that check box columns are rendered as glyphs in text mode.
+	 * 
+	 * @see TableComponentImpl#processStrategy(org.lunarray.model.generation.vaadin.render.factories.table.TablePropertyRenderStrategy)
+	 */
+	@Test
+	public void testGlyphsInTextMode() {
+		final TableComponentImpl<Object, Sample01> table = new TableComponentImpl<Object, Sample01>(this.model, "Sample01",
+				new CollectionDataSource<Sample01>(Sample01.DATA), TableRenderMode.TEXT, null, true);
+		final ColumnGenerator generator = table.getTable().getColumnGenerator("testBoolean");
+		Assert.assertTrue(generator instanceof GlyphColumnGenerator);
+		Assert.assertEquals(GlyphColumnGenerator.UNCHECKED, generator.generateCell(table.getTable(), Sample01.SAMPLE_01, "testBoolean"));
+		Assert.assertEquals(GlyphColumnGenerator.CHECKED, generator.generateCell(table.getTable(), Sample01.SAMPLE_03, "testBoolean"));
+		Assert.assertNull(table.getTable().getColumnGenerator("testValue3"));
+	}
+
+	/**
+	 * Test that entities are indexed by the first search, and that the
+	 * search field is removed once no column is indexed.
+	 * 
+	 * @see TableComponentImpl#setIndexedColumns(java.util.Collection)
+	 */
+	@Test
+	public void testIndexedColumns() {
+		final TableComponentImpl<Object, Sample01> table = new TableComponentImpl<Object, Sample01>(this.model, "Sample01",
+				new CollectionDataSource<Sample01>(Sample01.DATA), TableRenderMode.TEXT, null, false);
+		table.setIndexedColumns(Collections.singletonList("testValue"));
+		Assert.assertNotNull(table.getSearchField());
+		Assert.assertEquals(0, table.getIndex().size());
+		table.filter("Test06");
+		Assert.assertEquals(3, table.getIndex().size());
+		Assert.assertEquals(1, table.getContainer().size());
+		Assert.assertTrue(table.getContainer().containsId(Sample01.SAMPLE_02));
+		table.setIndexedColumns(Collections.singletonList("unknown"));
+		Assert.assertNull(table.getIndex());
+		Assert.assertNull(table.getSearchField());
+		Assert.assertEquals(3, table.getContainer().size());
+		final TableComponentImpl<Object, Sample01> empty = new TableComponentImpl<Object, Sample01>(this.model, "Sample01");
+		empty.setIndexedColumns(Collections.singletonList("unknown"));
+		Assert.assertNull(empty.getSearchField());
+	}
+
+	/**
+	 * Test that the validation status keeps the cell styles set before.
+	 * 
+	 * @see TableComponentImpl#validateAll(ExecutorService)
+	 */
+	@Test
+	public void testValidationKeepsStyles() {
+		final TableComponentImpl<Object, Sample01> table = new TableComponentImpl<Object, Sample01>(this.model, "Sample01",
+				new CollectionDataSource<Sample01>(Sample01.DATA), TableRenderMode.TEXT, null, false);
+		table.getTable().setCellStyleGenerator(new CellStyleGenerator() {
+			/** Serial id. */
+			private static final long serialVersionUID = 4405837013646262371L;
+
+			/** {@inheritDoc} */
+			@Override
+			public String getStyle(final Object itemId, final Object propertyId) {
+				return "custom";
+			}
+		});
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			table.validateAll(executor);
+		} finally {
+			executor.shutdownNow();
+		}
+		final CellStyleGenerator generator = table.getTable().getCellStyleGenerator();
+		Assert.assertTrue(generator instanceof ViolationStatusGenerator);
+		Assert.assertEquals("custom", generator.getStyle(Sample01.SAMPLE_01, null));
+		Assert.assertEquals("custom", generator.getStyle(Sample01.SAMPLE_01, "testValue3"));
+	}
+}
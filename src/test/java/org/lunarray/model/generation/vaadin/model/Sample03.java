@@ -0,0 +1,51 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.lunarray.model.descriptor.model.annotations.Key;
+
+public class Sample03
+		implements Serializable {
+
+	/** Serial id. */
+	private static final long serialVersionUID = 4160920581743712437L;
+
+	@Key
+	private String id;
+
+	private List<String> tags;
+
+	public String getId() {
+		return this.id;
+	}
+
+	public List<String> getTags() {
+		return this.tags;
+	}
+
+	public void setId(final String id) {
+		this.id = id;
+	}
+
+	public void setTags(final List<String> tags) {
+		this.tags = tags;
+	}
+}
@@ -17,6 +17,10 @@
  */
 package org.lunarray.model.generation.vaadin.render.factories.impl.property;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import com.vaadin.data.Property.ConversionException;
 
 import org.junit.Assert;
@@ -34,6 +38,7 @@ import org.lunarray.model.descriptor.resource.simpleresource.SimpleClazzResource
 import org.lunarray.model.descriptor.validator.beanvalidation.BeanValidationValidator;
 import org.lunarray.model.generation.vaadin.model.Sample01;
 import org.lunarray.model.generation.vaadin.model.Sample02;
+import org.lunarray.model.generation.vaadin.model.Sample03;
 import org.lunarray.model.generation.vaadin.model.SampleEnum;
 import org.lunarray.model.generation.vaadin.render.factories.form.descriptor.Descriptor;
 import org.lunarray.model.generation.vaadin.render.factories.form.descriptor.MutateBuffer;
@@ -56,7 +61,8 @@ public class PropertyDescriptorImplTest {
 	@Before
 	public void setup() throws Exception {
 		@SuppressWarnings("unchecked")
-		final SimpleClazzResource<Object> resource = new SimpleClazzResource<Object>(Sample01.class, Sample02.class, SampleEnum.class);
+		final SimpleClazzResource<Object> resource = new SimpleClazzResource<Object>(Sample01.class, Sample02.class, Sample03.class,
+				SampleEnum.class);
 		final BeanValidationValidator validator = new BeanValidationValidator();
 		final EnumDictionary dictionary = new EnumDictionary(null);
 		final ConverterTool converter = new DefaultConverterTool();
@@ -65,6 +71,61 @@ public class PropertyDescriptorImplTest {
 		this.entity = new Sample01();
 	}
 
+	/**
+	 * Test writing collections.
+	 * 
+	 * @see MutateBuffer#setValue(Object)
+	 */
+	@Test
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void testCollectionDirty() {
+		final Sample03 sample = new Sample03();
+		sample.setTags(new ArrayList<String>(Arrays.asList("a", "b")));
+		final EntityDescriptor<Sample03> entity = this.presentationModel.getEntity(Sample03.class);
+		final PropertyDescriptor<List, Sample03> property = entity.getProperty("tags", List.class);
+		final PropertyDescriptorImpl<List, Sample03> descriptor = new PropertyDescriptorImpl<List, Sample03>(property,
+				this.presentationModel);
+		descriptor.setPreferredType(List.class);
+		descriptor.setEntity(sample);
+		descriptor.setValue(descriptor.getValue());
+		Assert.assertFalse(descriptor.isDirty());
+		descriptor.setValue(new ArrayList<String>(Arrays.asList("a", "b")));
+		Assert.assertFalse(descriptor.isDirty());
+		sample.getTags().add("c");
+		descriptor.setValue(sample.getTags());
+		Assert.assertTrue(descriptor.isDirty());
+		Assert.assertEquals(Arrays.asList("a", "b"), descriptor.getOriginalValue());
+		descriptor.setEntity(sample);
+		descriptor.getValue();
+		descriptor.setValue(Arrays.asList("d"));
+		Assert.assertTrue(descriptor.isDirty());
+		Assert.assertEquals(Arrays.asList("a", "b", "c"), descriptor.getOriginalValue());
+	}
+
+	/**
+	 * Test that the contents are kept as bound, so a collection modified in
+	 * place between reads is still changed.
+	 * 
+	 * @see MutateBuffer#setValue(Object)
+	 */
+	@Test
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void testCollectionSnapshot() {
+		final Sample03 sample = new Sample03();
+		sample.setTags(new ArrayList<String>(Arrays.asList("a", "b")));
+		final EntityDescriptor<Sample03> entity = this.presentationModel.getEntity(Sample03.class);
+		final PropertyDescriptor<List, Sample03> property = entity.getProperty("tags", List.class);
+		final PropertyDescriptorImpl<List, Sample03> descriptor = new PropertyDescriptorImpl<List, Sample03>(property,
+				this.presentationModel);
+		descriptor.setPreferredType(List.class);
+		descriptor.setEntity(sample);
+		descriptor.getValue();
+		sample.getTags().add("c");
+		descriptor.setValue(descriptor.getValue());
+		Assert.assertTrue(descriptor.isDirty());
+		Assert.assertEquals(Arrays.asList("a", "b"), descriptor.getOriginalValue());
+	}
+
 	/**
 	 * Test getting the label.
 	 * 
@@ -0,0 +1,101 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the cell string cache.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see CellStringCache
+ */
+public class CellStringCacheTest {
+	/** The cache. */
+	private CellStringCache cache;
+
+	/** Sets up the test. */
+	@Before
+	public void setup() {
+		this.cache = new CellStringCache(3);
+		this.cache.put("row1", "a", "1a");
+		this.cache.put("row1", "b", "1b");
+		this.cache.put("row2", "a", "2a");
+	}
+
+	/**
+	 * Test that a disabled cache caches nothing.
+	 * 
+	 * @see CellStringCache#setMaxEntries(int)
+	 */
+	@Test
+	public void testDisabled() {
+		Assert.assertTrue(this.cache.isEnabled());
+		this.cache.setMaxEntries(CellStringCache.DISABLED);
+		Assert.assertFalse(this.cache.isEnabled());
+		Assert.assertEquals(0, this.cache.size());
+		this.cache.put("row1", "a", "1a");
+		Assert.assertNull(this.cache.get("row1", "a"));
+		Assert.assertEquals(0, this.cache.size());
+	}
+
+	/**
+	 * Test invalidating a cell.
+	 * 
+	 * @see CellStringCache#invalidateCell(Object, Object)
+	 */
+	@Test
+	public void testInvalidateCell() {
+		this.cache.invalidateCell("row1", "a");
+		Assert.assertNull(this.cache.get("row1", "a"));
+		Assert.assertEquals("1b", this.cache.get("row1", "b"));
+		Assert.assertEquals(2, this.cache.size());
+	}
+
+	/**
+	 * Test invalidating a row.
+	 * 
+	 * @see CellStringCache#invalidateRow(Object)
+	 */
+	@Test
+	public void testInvalidateRow() {
+		this.cache.invalidateRow("row1");
+		Assert.assertNull(this.cache.get("row1", "a"));
+		Assert.assertNull(this.cache.get("row1", "b"));
+		Assert.assertEquals("2a", this.cache.get("row2", "a"));
+		Assert.assertEquals(1, this.cache.size());
+	}
+
+	/**
+	 * Test that the least recently used cell is evicted.
+	 * 
+	 * @see CellStringCache#put(Object, Object, String)
+	 */
+	@Test
+	public void testLeastRecentlyUsedEvicted() {
+		Assert.assertEquals("1a", this.cache.get("row1", "a"));
+		this.cache.put("row3", "a", "3a");
+		Assert.assertEquals(3, this.cache.size());
+		Assert.assertNull(this.cache.get("row1", "b"));
+		Assert.assertEquals("1a", this.cache.get("row1", "a"));
+		this.cache.invalidateRow("row1");
+		Assert.assertEquals(2, this.cache.size());
+	}
+}
@@ -0,0 +1,265 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.render.factories.table.vaadin.components;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.vaadin.data.Property;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.lunarray.model.descriptor.builder.annotation.presentation.builder.PresQualBuilder;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.converter.def.DefaultConverterTool;
+import org.lunarray.model.descriptor.dictionary.enumeration.EnumDictionary;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.model.entity.EntityDescriptor;
+import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
+import org.lunarray.model.descriptor.resource.simpleresource.SimpleClazzResource;
+import org.lunarray.model.descriptor.validator.beanvalidation.BeanValidationValidator;
+import org.lunarray.model.generation.vaadin.components.InMemoryPrefetcher;
+import org.lunarray.model.generation.vaadin.components.TableDataSource;
+import org.lunarray.model.generation.vaadin.components.impl.CollectionDataSource;
+import org.lunarray.model.generation.vaadin.components.impl.PagedEntityContainer;
+import org.lunarray.model.generation.vaadin.model.Sample01;
+import org.lunarray.model.generation.vaadin.model.Sample02;
+import org.lunarray.model.generation.vaadin.model.SampleEnum;
+import org.lunarray.model.generation.vaadin.render.RenderContext;
+
+/**
+ * Tests the column plan.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see ColumnPlan
+ */
+public class ColumnPlanTest {
+	/** The model. */
+	private Model<Object> model;
+
+	/** Sets up the test. */
+	@Before
+	public void setup() throws Exception {
+		@SuppressWarnings("unchecked")
+		final SimpleClazzResource<Object> resource = new SimpleClazzResource<Object>(Sample01.class, Sample02.class, SampleEnum.class);
+		final BeanValidationValidator validator = new BeanValidationValidator();
+		final EnumDictionary dictionary = new EnumDictionary(null);
+		final ConverterTool converter = new DefaultConverterTool();
+		this.model = PresQualBuilder.createBuilder().resources(resource).extensions(validator, dictionary, converter).build();
+	}
+
+	/**
+	 * Test that a text column shares a single property between all cells,
+	 * rather than creating a property and component per cell.
+	 * 
+	 * @see PagedEntityContainer#getContainerProperty(Object, Object)
+	 */
+	@Test
+	public void testFlyweightProperty() {
+		final PagedEntityContainer<Sample01> container = new PagedEntityContainer<Sample01>(new CollectionDataSource<Sample01>(
+				Sample01.DATA));
+		container.addColumnPlan("testValue", this.getPlan("testValue", String.class));
+		final Map<Property, Boolean> instances = new IdentityHashMap<Property, Boolean>();
+		for (int i = 0; i < container.size(); i++) {
+			final Object itemId = container.getIdByIndex(i);
+			final Property property = container.getContainerProperty(itemId, "testValue");
+			Assert.assertEquals(Sample01.DATA.get(i).getTestValue(), property.toString());
+			instances.put(property, Boolean.TRUE);
+		}
+		Assert.assertEquals(1, instances.size());
+	}
+
+	/**
+	 * Test that the relations of a page are prefetched in a single batch
+	 * before any of its cells are rendered.
+	 * 
+	 * @see PagedEntityContainer#setPrefetcher(org.lunarray.model.generation.vaadin.components.Prefetcher)
+	 */
+	@Test
+	public void testPrefetch() {
+		final PagedEntityContainer<Sample01> container = new PagedEntityContainer<Sample01>(new CollectionDataSource<Sample01>(
+				Sample01.DATA), 2, 1);
+		container.addColumnPlan("testValue", this.getPlan("testValue", String.class));
+		container.addColumnPlan("inlineValue2", this.getPlan("inlineValue2", Sample02.class));
+		final InMemoryPrefetcher<Sample01> prefetcher = new InMemoryPrefetcher<Sample01>();
+		container.setPrefetcher(prefetcher);
+		for (int i = 0; i < container.size(); i++) {
+			final Sample01 sample = (Sample01) container.getIdByIndex(i);
+			Assert.assertTrue(prefetcher.isWarmed(sample));
+			Assert.assertEquals(sample.getInlineValue2().getTestValue(), container.getContainerProperty(sample, "inlineValue2")
+					.toString());
+		}
+		Assert.assertEquals(2, prefetcher.getBatches().size());
+		Assert.assertEquals(2, prefetcher.getBatches().get(0).size());
+		Assert.assertEquals(Collections.singleton("inlineValue2.testValue"), prefetcher.getPaths());
+	}
+
+	/**
+	 * Test rendering a relation.
+	 * 
+	 * @see ColumnPlan#render(Object)
+	 */
+	@Test
+	public void testRenderRelation() {
+		final ColumnPlan<Sample02, Sample01> plan = this.getPlan("inlineValue2", Sample02.class);
+		Assert.assertTrue(plan.isRelation());
+		Assert.assertTrue(plan.hasDisplayProperty());
+		Assert.assertEquals(Sample02.SAMPLE_02.getTestValue(), plan.render(Sample01.SAMPLE_01));
+	}
+
+	/**
+	 * Test rendering a value.
+	 * 
+	 * @see ColumnPlan#render(Object)
+	 */
+	@Test
+	public void testRenderValue() {
+		final ColumnPlan<Integer, Sample01> plan = this.getPlan("testValue4", Integer.class);
+		Assert.assertFalse(plan.isRelation());
+		Assert.assertEquals("5", plan.render(new Sample01()));
+	}
+
+	/**
+	 * Test sorting a container on the precomputed sort keys of a plan.
+	 * 
+	 * @see PagedEntityContainer#sort(Object[], boolean[])
+	 */
+	@Test
+	public void testSort() {
+		final PagedEntityContainer<Sample01> container = new PagedEntityContainer<Sample01>(new CollectionDataSource<Sample01>(
+				Sample01.DATA));
+		container.addColumnPlan("testValue", this.getPlan("testValue", String.class));
+		container.setLocale(Locale.ENGLISH);
+		Assert.assertTrue(container.getSortableContainerPropertyIds().contains("testValue"));
+		container.sort(new Object[] { "testValue" }, new boolean[] { false });
+		final Collator collator = Collator.getInstance(Locale.ENGLISH);
+		Assert.assertEquals(Sample01.DATA.size(), container.size());
+		for (int i = 0; i < container.size(); i++) {
+			final Sample01 sample = (Sample01) container.getIdByIndex(i);
+			Assert.assertEquals(i, container.indexOfId(sample));
+			if (i > 0) {
+				final Sample01 previous = (Sample01) container.getIdByIndex(i - 1);
+				Assert.assertTrue(collator.compare(previous.getTestValue(), sample.getTestValue()) >= 0);
+			}
+		}
+	}
+
+	/**
+	 * Test that a page of a sorted container is fetched as one batch, rather
+	 * than a source page per row.
+	 * 
+	 * @see PagedEntityContainer#getIdByIndex(int)
+	 */
+	@Test
+	public void testSortedPaging() {
+		final List<Sample01> samples = new ArrayList<Sample01>();
+		for (int i = 0; i < 200; i++) {
+			final Sample01 sample = new Sample01();
+			sample.setTestValue(String.format("%03d", Integer.valueOf(i * 37 % 200)));
+			samples.add(sample);
+		}
+		final CountingDataSource source = new CountingDataSource(new CollectionDataSource<Sample01>(samples));
+		final PagedEntityContainer<Sample01> container = new PagedEntityContainer<Sample01>(source, 10, 2);
+		container.addColumnPlan("testValue", this.getPlan("testValue", String.class));
+		container.sort(new Object[] { "testValue" }, new boolean[] { true });
+		Assert.assertEquals(200, container.size());
+		final int sortFetches = source.getFetches();
+		for (int i = 0; i < 10; i++) {
+			Assert.assertEquals(String.format("%03d", Integer.valueOf(i)), ((Sample01) container.getIdByIndex(i)).getTestValue());
+		}
+		// The page spans the whole source, ranges span at most eight pages.
+		Assert.assertTrue(source.getFetches() - sortFetches <= 3);
+		final int pageFetches = source.getFetches();
+		Assert.assertEquals(5, container.indexOfId(container.getIdByIndex(5)));
+		Assert.assertEquals(pageFetches, source.getFetches());
+	}
+
+	/**
+	 * Gets the plan for a property.
+	 * 
+	 * @param name
+	 *            The property name.
+	 * @param type
+	 *            The property type.
+	 * @return The plan.
+	 * @param <P>
+	 *            The property type.
+	 */
+	@SuppressWarnings("unchecked")
+	private <P> ColumnPlan<P, Sample01> getPlan(final String name, final Class<P> type) {
+		final EntityDescriptor<Sample01> entity = this.model.getEntity(Sample01.class);
+		final PropertyDescriptor<P, Sample01> property = entity.getProperty(name, type);
+		final TextOutputPropertyStrategy.Factory factory = new TextOutputPropertyStrategy.Factory();
+		final AbstractColumnGenerator<P, Sample01> generator = (AbstractColumnGenerator<P, Sample01>) factory.createStrategy(property,
+				new RenderContext<Sample01>(this.model)).getGenerator();
+		return generator.getPlan();
+	}
+
+	/**
+	 * Counts the fetches of a data source.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private static final class CountingDataSource
+			implements TableDataSource<Sample01> {
+		/** Serial id. */
+		private static final long serialVersionUID = 1L;
+		/** The amount of fetches. */
+		private int fetches;
+		/** The source. */
+		private final TableDataSource<Sample01> source;
+
+		/**
+		 * Constructs the data source.
+		 * 
+		 * @param source
+		 *            The source.
+		 */
+		public CountingDataSource(final TableDataSource<Sample01> source) {
+			this.source = source;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public List<Sample01> fetch(final int offset, final int limit) {
+			this.fetches++;
+			return this.source.fetch(offset, limit);
+		}
+
+		/**
+		 * Gets the value for the fetches field.
+		 * 
+		 * @return The value for the fetches field.
+		 */
+		public int getFetches() {
+			return this.fetches;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int size() {
+			return this.source.size();
+		}
+	}
+}
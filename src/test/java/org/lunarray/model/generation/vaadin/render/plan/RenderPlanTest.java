@@ -0,0 +1,159 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.render.plan;
+
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.lunarray.model.descriptor.builder.annotation.presentation.builder.PresQualBuilder;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.converter.def.DefaultConverterTool;
+import org.lunarray.model.descriptor.dictionary.enumeration.EnumDictionary;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.model.entity.EntityDescriptor;
+import org.lunarray.model.descriptor.resource.simpleresource.SimpleClazzResource;
+import org.lunarray.model.descriptor.validator.beanvalidation.BeanValidationValidator;
+import org.lunarray.model.generation.util.Composer;
+import org.lunarray.model.generation.util.VariableResolver;
+import org.lunarray.model.generation.vaadin.model.Sample01;
+import org.lunarray.model.generation.vaadin.model.Sample02;
+import org.lunarray.model.generation.vaadin.model.SampleEnum;
+import org.lunarray.model.generation.vaadin.render.RenderContext;
+
+/**
+ * Tests the render plan.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see RenderPlan
+ */
+public class RenderPlanTest {
+	/** The model. */
+	private Model<Object> model;
+
+	/** Sets up the test. */
+	@Before
+	public void setup() throws Exception {
+		@SuppressWarnings("unchecked")
+		final SimpleClazzResource<Object> resource = new SimpleClazzResource<Object>(Sample01.class, Sample02.class, SampleEnum.class);
+		final BeanValidationValidator validator = new BeanValidationValidator();
+		final EnumDictionary dictionary = new EnumDictionary(null);
+		final ConverterTool converter = new DefaultConverterTool();
+		this.model = PresQualBuilder.createBuilder().resources(resource).extensions(validator, dictionary, converter).build();
+	}
+
+	/**
+	 * Test that plans are cached per key.
+	 * 
+	 * @see RenderPlanCache#putIfAbsent(RenderPlanCache.Key, RenderPlan)
+	 */
+	@Test
+	public void testCache() {
+		final RenderPlanCache cache = RenderPlanCache.getInstance(this.model);
+		cache.clear();
+		final RenderPlanCache.Key key = new RenderPlanCache.Key("table", "Sample02", null, Locale.ENGLISH);
+		Assert.assertNull(cache.get(key));
+		final RenderPlan<Sample02> plan = this.record();
+		Assert.assertSame(plan, cache.putIfAbsent(key, plan));
+		Assert.assertSame(plan, cache.putIfAbsent(new RenderPlanCache.Key("table", "Sample02", null, Locale.ENGLISH), this.record()));
+		Assert.assertNull(cache.get(new RenderPlanCache.Key("form", "Sample02", null, Locale.ENGLISH)));
+		Assert.assertSame(cache, RenderPlanCache.getInstance(this.model));
+		Assert.assertEquals(1, cache.size());
+	}
+
+	/**
+	 * Test that replaying a plan makes the same calls as composing.
+	 * 
+	 * @see RenderPlan#replay(RenderContext, org.lunarray.model.generation.util.RenderFactory)
+	 */
+	@Test
+	public void testReplay() {
+		final RenderPlan<Sample02> plan = this.record();
+		Assert.assertFalse(plan.getSteps().isEmpty());
+		final RecordingRenderFactory<Sample02> replayed = new RecordingRenderFactory<Sample02>();
+		plan.replay(new RenderContext<Sample02>(this.model), replayed);
+		final RenderPlan<Sample02> copy = replayed.createPlan(plan.getLabel());
+		Assert.assertEquals(plan.getSteps().size(), copy.getSteps().size());
+		for (int i = 0; i < plan.getSteps().size(); i++) {
+			Assert.assertEquals(plan.getSteps().get(i).getKind(), copy.getSteps().get(i).getKind());
+			Assert.assertSame(plan.getSteps().get(i).getDescriptor(), copy.getSteps().get(i).getDescriptor());
+			Assert.assertEquals(plan.getSteps().get(i).getPrefixes(), copy.getSteps().get(i).getPrefixes());
+		}
+	}
+
+	/**
+	 * Records the plan of the second sample.
+	 * 
+	 * @return The plan.
+	 */
+	private RenderPlan<Sample02> record() {
+		final RecordingRenderFactory<Sample02> recorder = new RecordingRenderFactory<Sample02>();
+		final Composer<RenderContext<Sample02>, Object, Sample02> composer = new Composer<RenderContext<Sample02>, Object, Sample02>();
+		composer.setContext(new RenderContext<Sample02>(this.model));
+		composer.setPropertyRenderStrategyFactory(recorder);
+		composer.setVariableResolver(new SampleVariableResolver());
+		final String label = composer.getLabel();
+		composer.compose(false);
+		return recorder.createPlan(label);
+	}
+
+	/**
+	 * Resolves the second sample.
+	 * 
+	 * @author Pal Hargitai (pal@lunarray.org)
+	 */
+	private final class SampleVariableResolver
+			implements VariableResolver<RenderContext<Sample02>, Object, Sample02> {
+
+		/** Default constructor. */
+		public SampleVariableResolver() {
+			// Default constructor.
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public EntityDescriptor<Sample02> getDescriptor(final RenderContext<Sample02> context) {
+			return RenderPlanTest.this.model.getEntity(Sample02.class);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public Locale getLocale(final RenderContext<Sample02> context) {
+			return Locale.ENGLISH;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public Model<Object> getModel(final RenderContext<Sample02> context) {
+			return RenderPlanTest.this.model;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public Class<?> getQualifier(final RenderContext<Sample02> context) {
+			return null;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean hasQualifier(final RenderContext<Sample02> context) {
+			return false;
+		}
+	}
+}
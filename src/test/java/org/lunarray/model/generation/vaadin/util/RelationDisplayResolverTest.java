@@ -0,0 +1,94 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.util;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.lunarray.model.descriptor.builder.annotation.presentation.builder.PresQualBuilder;
+import org.lunarray.model.descriptor.builder.annotation.simple.SimpleBuilder;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.converter.def.DefaultConverterTool;
+import org.lunarray.model.descriptor.dictionary.enumeration.EnumDictionary;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.resource.simpleresource.SimpleClazzResource;
+import org.lunarray.model.descriptor.validator.beanvalidation.BeanValidationValidator;
+import org.lunarray.model.generation.vaadin.model.Sample01;
+import org.lunarray.model.generation.vaadin.model.Sample02;
+import org.lunarray.model.generation.vaadin.model.SampleEnum;
+
+/**
+ * Tests the relation display resolver.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see RelationDisplayResolver
+ */
+public class RelationDisplayResolverTest {
+	/** The presentation model. */
+	private Model<Object> presentationModel;
+	/** The simple model. */
+	private Model<Object> simpleModel;
+
+	/** Sets up the test. */
+	@Before
+	public void setup() throws Exception {
+		@SuppressWarnings("unchecked")
+		final SimpleClazzResource<Object> resource = new SimpleClazzResource<Object>(Sample01.class, Sample02.class, SampleEnum.class);
+		final BeanValidationValidator validator = new BeanValidationValidator();
+		final EnumDictionary dictionary = new EnumDictionary(null);
+		final ConverterTool converter = new DefaultConverterTool();
+		this.presentationModel = PresQualBuilder.createBuilder().resources(resource).extensions(validator, dictionary, converter).build();
+		this.simpleModel = SimpleBuilder.createBuilder().resources(resource).extensions(validator, dictionary, converter).build();
+	}
+
+	/**
+	 * Test resolving the key property of a simple model.
+	 * 
+	 * @see RelationDisplayResolver#resolve(String)
+	 */
+	@Test
+	public void testResolveKey() {
+		final RelationDisplay<Sample02> display = RelationDisplayResolver.getInstance(this.simpleModel).resolve("Sample02");
+		Assert.assertEquals("id", display.getDisplayProperty().getName());
+	}
+
+	/**
+	 * Test resolving the name property of a presentation model.
+	 * 
+	 * @see RelationDisplayResolver#resolve(String)
+	 */
+	@Test
+	public void testResolveName() throws Exception {
+		final RelationDisplay<Sample02> display = RelationDisplayResolver.getInstance(this.presentationModel).resolve("Sample02");
+		Assert.assertEquals("testValue", display.getDisplayProperty().getName());
+		Assert.assertEquals(Sample02.SAMPLE_01.getTestValue(), display.convert(Sample02.SAMPLE_01, null));
+	}
+
+	/**
+	 * Test that the resolver and its displays are shared.
+	 * 
+	 * @see RelationDisplayResolver#getInstance(Model)
+	 */
+	@Test
+	public void testShared() {
+		final RelationDisplayResolver resolver = RelationDisplayResolver.getInstance(this.presentationModel);
+		Assert.assertSame(resolver, RelationDisplayResolver.getInstance(this.presentationModel));
+		Assert.assertNotSame(resolver, RelationDisplayResolver.getInstance(this.simpleModel));
+		Assert.assertSame(resolver.resolve("Sample02"), resolver.resolve("Sample02"));
+	}
+}
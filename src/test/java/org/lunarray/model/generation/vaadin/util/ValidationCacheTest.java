@@ -0,0 +1,132 @@
+/* 
+ * Model Tools.
+ * Copyright (C) 2013 Pal Hargitai (pal@lunarray.org)
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lunarray.model.generation.vaadin.util;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.lunarray.model.descriptor.builder.annotation.presentation.builder.PresQualBuilder;
+import org.lunarray.model.descriptor.converter.ConverterTool;
+import org.lunarray.model.descriptor.converter.def.DefaultConverterTool;
+import org.lunarray.model.descriptor.dictionary.enumeration.EnumDictionary;
+import org.lunarray.model.descriptor.model.Model;
+import org.lunarray.model.descriptor.model.entity.EntityDescriptor;
+import org.lunarray.model.descriptor.model.property.PropertyDescriptor;
+import org.lunarray.model.descriptor.resource.simpleresource.SimpleClazzResource;
+import org.lunarray.model.descriptor.validator.ValueValidator;
+import org.lunarray.model.descriptor.validator.beanvalidation.BeanValidationValidator;
+import org.lunarray.model.generation.vaadin.model.Sample01;
+import org.lunarray.model.generation.vaadin.model.Sample02;
+import org.lunarray.model.generation.vaadin.model.SampleEnum;
+
+/**
+ * Tests the validation cache.
+ * 
+ * @author Pal Hargitai (pal@lunarray.org)
+ * @see ValidationCache
+ */
+public class ValidationCacheTest {
+	/** The model. */
+	private Model<Object> model;
+
+	/** Sets up the test. */
+	@Before
+	public void setup() throws Exception {
+		@SuppressWarnings("unchecked")
+		final SimpleClazzResource<Object> resource = new SimpleClazzResource<Object>(Sample01.class, Sample02.class, SampleEnum.class);
+		final BeanValidationValidator validator = new BeanValidationValidator();
+		final EnumDictionary dictionary = new EnumDictionary(null);
+		final ConverterTool converter = new DefaultConverterTool();
+		this.model = PresQualBuilder.createBuilder().resources(resource).extensions(validator, dictionary, converter).build();
+	}
+
+	/**
+	 * Test dropping the cache of a model.
+	 * 
+	 * @see ValidationCache#invalidate(Model)
+	 */
+	@Test
+	public void testInvalidate() {
+		final ValidationCache cache = ValidationCache.getInstance(this.model);
+		ValidationCache.invalidate(this.model);
+		Assert.assertEquals(0, cache.size());
+		Assert.assertNotSame(cache, ValidationCache.getInstance(this.model));
+	}
+
+	/**
+	 * Test which values are immutable.
+	 * 
+	 * @see ValidationCache#isImmutable(Object)
+	 */
+	@Test
+	public void testIsImmutable() {
+		Assert.assertTrue(ValidationCache.isImmutable(null));
+		Assert.assertTrue(ValidationCache.isImmutable("value"));
+		Assert.assertTrue(ValidationCache.isImmutable(Integer.valueOf(1)));
+		Assert.assertTrue(ValidationCache.isImmutable(SampleEnum.VALUE_01));
+		Assert.assertFalse(ValidationCache.isImmutable(new Date()));
+		Assert.assertFalse(ValidationCache.isImmutable(new ArrayList<String>()));
+	}
+
+	/**
+	 * Test that immutable values are validated once.
+	 * 
+	 * @see ValidationCache#validate(ValueValidator, PropertyDescriptor, Object)
+	 */
+	@Test
+	public void testValidate() {
+		final ValidationCache cache = ValidationCache.getInstance(this.model);
+		cache.clear();
+		final ValueValidator validator = this.model.getExtension(ValueValidator.class);
+		final EntityDescriptor<Sample02> entity = this.model.getEntity(Sample02.class);
+		final PropertyDescriptor<String, Sample02> property = entity.getProperty("testValue", String.class);
+		final int misses = cache.getMisses();
+		final int hits = cache.getHits();
+		Assert.assertTrue(cache.validate(validator, property, "value").isEmpty());
+		Assert.assertTrue(cache.validate(validator, property, "value").isEmpty());
+		Assert.assertEquals(misses + 1, cache.getMisses());
+		Assert.assertEquals(hits + 1, cache.getHits());
+		Assert.assertEquals(1, cache.size());
+		Assert.assertSame(cache, ValidationCache.getInstance(this.model));
+	}
+
+	/**
+	 * Test that failing values are validated again, so that their messages
+	 * are not shared.
+	 * 
+	 * @see ValidationCache#validate(ValueValidator, PropertyDescriptor, Object)
+	 */
+	@Test
+	public void testValidateFailing() {
+		final ValidationCache cache = ValidationCache.getInstance(this.model);
+		cache.clear();
+		final ValueValidator validator = this.model.getExtension(ValueValidator.class);
+		final EntityDescriptor<Sample02> entity = this.model.getEntity(Sample02.class);
+		final PropertyDescriptor<String, Sample02> property = entity.getProperty("testValue", String.class);
+		final int misses = cache.getMisses();
+		final int hits = cache.getHits();
+		Assert.assertFalse(cache.validate(validator, property, "").isEmpty());
+		Assert.assertFalse(cache.validate(validator, property, "").isEmpty());
+		Assert.assertEquals(misses + 2, cache.getMisses());
+		Assert.assertEquals(hits, cache.getHits());
+		Assert.assertEquals(1, cache.size());
+	}
+}